@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * ArrayTidSet
+ * -----------
+ * TID-set dạng mảng int[] đã sort tăng dần - hợp dữ liệu THƯA (retail, kosarak):
+ * chỉ tốn 4 byte / TID, trong khi bitmap tốn |DB| / 8 byte bất kể item xuất hiện bao nhiêu lần.
+ *
+ *  - Giao / bao hàm giữa 2 mảng: trộn (merge) 2 con trỏ, O(|A| + |B|).
+ *  - Với TID-set kiểu khác: duyệt mảng (thường là bên nhỏ hơn) và hỏi contains() bên kia.
+ */
+final class ArrayTidSet extends TidSet {
+    private int[] tids;   // TID tăng dần, chỉ dùng [0, size)
+    private int size;
+
+    ArrayTidSet(int[] tids, int size) {
+        this.tids = tids;
+        this.size = size;
+    }
+
+    /** Ghi đè nội dung (dùng cho TID-set nằm trong bộ đệm tái sử dụng - xem TidSetBuffer) */
+    void assign(int[] tids, int size) {
+        this.tids = tids;
+        this.size = size;
+    }
+
+    @Override
+    ArrayTidSet copy() {
+        return new ArrayTidSet(Arrays.copyOf(tids, size), size);
+    }
+
+    /** Mảng TID bên trong (KHÔNG copy - chỉ đọc) */
+    int[] tids() {
+        return tids;
+    }
+
+    @Override
+    int cardinality() {
+        return size;
+    }
+
+    @Override
+    boolean contains(int tid) {
+        return Arrays.binarySearch(tids, 0, size, tid) >= 0;
+    }
+
+    @Override
+    long sizeInBytes() {
+        return 4L * size;
+    }
+
+    @Override
+    int andCardinality(TidSet other) {
+        if (other instanceof ArrayTidSet) {
+            ArrayTidSet b = (ArrayTidSet) other;
+            int i = 0, j = 0, count = 0;
+            while (i < size && j < b.size) {
+                int x = tids[i], y = b.tids[j];
+                if (x == y) { count++; i++; j++; }
+                else if (x < y) i++;
+                else j++;
+            }
+            return count;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (other.contains(tids[i])) count++;
+        }
+        return count;
+    }
+
+    @Override
+    boolean andCardinalityAtLeast(TidSet other, int threshold) {
+        if (threshold <= 0) return true;
+        if (Math.min(size, other.cardinality()) < threshold) return false;
+        int count = 0;
+        if (other instanceof ArrayTidSet) {
+            ArrayTidSet b = (ArrayTidSet) other;
+            int i = 0, j = 0;
+            while (i < size && j < b.size) {
+                // Phần còn lại của bên ngắn hơn không đủ bù -> dừng
+                if (count + Math.min(size - i, b.size - j) < threshold) return false;
+                int x = tids[i], y = b.tids[j];
+                if (x == y) {
+                    if (++count >= threshold) return true;
+                    i++; j++;
+                }
+                else if (x < y) i++;
+                else j++;
+            }
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (count + (size - i) < threshold) return false;
+            if (other.contains(tids[i]) && ++count >= threshold) return true;
+        }
+        return false;
+    }
+
+    @Override
+    int weight(int[] weights) {
+        int sum = 0;
+        for (int i = 0; i < size; i++) sum += weights[tids[i]];
+        return sum;
+    }
+
+    @Override
+    int andWeight(TidSet other, int[] weights) {
+        int sum = 0;
+        if (other instanceof ArrayTidSet) {
+            ArrayTidSet b = (ArrayTidSet) other;
+            int i = 0, j = 0;
+            while (i < size && j < b.size) {
+                int x = tids[i], y = b.tids[j];
+                if (x == y) { sum += weights[x]; i++; j++; }
+                else if (x < y) i++;
+                else j++;
+            }
+            return sum;
+        }
+        for (int i = 0; i < size; i++) {
+            if (other.contains(tids[i])) sum += weights[tids[i]];
+        }
+        return sum;
+    }
+
+    @Override
+    boolean isSubsetOf(TidSet other) {
+        if (size > other.cardinality()) return false;
+        if (other instanceof ArrayTidSet) {
+            ArrayTidSet b = (ArrayTidSet) other;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                int x = tids[i];
+                while (j < b.size && b.tids[j] < x) j++;
+                if (j == b.size || b.tids[j] != x) return false; // thiếu TID x -> dừng ngay
+                j++;
+            }
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!other.contains(tids[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst) {
+        int n = 0;
+        if (other instanceof ArrayTidSet) {
+            ArrayTidSet b = (ArrayTidSet) other;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                int x = tids[i];
+                while (j < b.size && b.tids[j] < x) j++;
+                boolean inOther = j < b.size && b.tids[j] == x;
+                if (inOther == keepIfInOther) dst[n++] = x;
+            }
+            return n;
+        }
+        for (int i = 0; i < size; i++) {
+            if (other.contains(tids[i]) == keepIfInOther) dst[n++] = tids[i];
+        }
+        return n;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * BitKernels
+ * ----------
+ * Các vòng lặp trong cùng trên bitmap long[] của BitTidSet (AND, AND + popcount, đếm có cận, bao hàm),
+ * tách riêng để có thể thay bằng bản SIMD:
+ *
+ *  - Scalar (mặc định): từng word, Long.bitCount (1 lệnh POPCNT)
+ *  - VectorBitKernels : jdk.incubator.vector - chỉ có khi build với profile "vector" (mvn -Pvector compile)
+ *                       VÀ chạy với --add-modules jdk.incubator.vector
+ *
+ * Chọn 1 lần lúc nạp lớp (INSTANCE là static final -> JIT gọi thẳng, không tốn chi phí ảo):
+ *  -Dtidset.kernels=auto   (mặc định) bản vector nếu nạp được và mỗi vector >= 4 word, ngược lại scalar
+ *  -Dtidset.kernels=scalar / vector   ép chọn (vector mà không nạp được thì vẫn về scalar, có cảnh báo)
+ *
+ * Quy ước: n = số word cần xét (min độ dài 2 bitmap); các word sau n coi như 0.
+ */
+abstract class BitKernels {
+    /** Vector ngắn hơn 4 word (256 bit) thì không lợi hơn POPCNT từng word -> auto không chọn */
+    private static final int MIN_VECTOR_LANES = 4;
+
+    static final BitKernels INSTANCE = select(System.getProperty("tidset.kernels", "auto"));
+
+    /** dst[0..n) = a & b; trả về số bit 1 */
+    abstract int and(long[] a, long[] b, long[] dst, int n);
+
+    /** |a ∩ b| trên n word đầu */
+    abstract int andCount(long[] a, long[] b, int n);
+
+    /**
+     * |a ∩ b| >= threshold ?  cardA = số bit 1 của a (để cắt sớm: count + phần a chưa duyệt < threshold -> false).
+     * Kiểm tra theo khối 8 word (512 TID).
+     */
+    abstract boolean andCountAtLeast(long[] a, long[] b, int n, int cardA, int threshold);
+
+    /** (a & ~b) == 0 trên n word đầu (a ⊆ b), dừng ở khối đầu tiên vi phạm */
+    abstract boolean containedIn(long[] a, long[] b, int n);
+
+    /** Tên bản đang dùng (log / benchmark) */
+    abstract String name();
+
+    static BitKernels scalar() {
+        return Scalar.INSTANCE;
+    }
+
+    /** Bản vector nếu dùng được trên JVM này, ngược lại null */
+    static BitKernels vector() {
+        try {
+            return (BitKernels) Class.forName("VectorBitKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null; // chưa build với -Pvector, hoặc thiếu --add-modules jdk.incubator.vector
+        }
+    }
+
+    private static BitKernels select(String mode) {
+        if ("scalar".equals(mode)) return scalar();
+        BitKernels vector = vector();
+        if (vector != null && ("vector".equals(mode) || vector.lanes() >= MIN_VECTOR_LANES)) return vector;
+        if ("vector".equals(mode)) {
+            System.err.println("⚠️ Không nạp được kernel vector (cần build -Pvector và --add-modules"
+                    + " jdk.incubator.vector) -> dùng scalar");
+        }
+        return scalar();
+    }
+
+    /** Số word mỗi vector (1 với bản scalar) */
+    int lanes() {
+        return 1;
+    }
+
+    /** Bản scalar - các vòng lặp gốc của BitTidSet */
+    static final class Scalar extends BitKernels {
+        static final Scalar INSTANCE = new Scalar();
+
+        @Override
+        int and(long[] a, long[] b, long[] dst, int n) {
+            int count = 0;
+            for (int w = 0; w < n; w++) {
+                long v = a[w] & b[w];
+                dst[w] = v;
+                count += Long.bitCount(v);
+            }
+            return count;
+        }
+
+        @Override
+        int andCount(long[] a, long[] b, int n) {
+            int count = 0;
+            for (int w = 0; w < n; w++) {
+                count += Long.bitCount(a[w] & b[w]);
+            }
+            return count;
+        }
+
+        @Override
+        boolean andCountAtLeast(long[] a, long[] b, int n, int cardA, int threshold) {
+            int count = 0;
+            int remaining = cardA;
+            for (int blockStart = 0; blockStart < n; blockStart += 8) {
+                int blockEnd = Math.min(n, blockStart + 8);
+                int seen = 0;
+                for (int w = blockStart; w < blockEnd; w++) {
+                    long aw = a[w];
+                    count += Long.bitCount(aw & b[w]);
+                    seen += Long.bitCount(aw);
+                }
+                if (count >= threshold) return true;
+                remaining -= seen;
+                if (count + remaining < threshold) return false;
+            }
+            return false;
+        }
+
+        @Override
+        boolean containedIn(long[] a, long[] b, int n) {
+            for (int w = 0; w < n; w++) {
+                if ((a[w] & ~b[w]) != 0) return false;
+            }
+            return true;
+        }
+
+        @Override
+        String name() {
+            return "scalar";
+        }
+    }
+}
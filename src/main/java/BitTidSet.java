@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+/**
+ * BitTidSet
+ * ---------
+ * TID-set dạng bitmap "đặc" (dense): mỗi giao dịch là 1 bit trong mảng long[] (64 TID / word).
+ *
+ *  - Giao (AND) 2 TID-set = AND từng word  -> không boxing Integer, không HashSet.
+ *  - Đếm support của giao = Long.bitCount(a & b) cộng dồn -> không cần tạo TID-set kết quả.
+ *  - Kiểm tra bao hàm A ⊆ B = (a & ~b) == 0 trên từng word, dừng ngay ở word đầu tiên vi phạm.
+ *
+ * Các vòng lặp AND / popcount / bao hàm nằm trong BitKernels (scalar hoặc SIMD - xem VectorBitKernels).
+ *
+ * Bộ nhớ: |DB| / 8 byte cho mỗi TID-set (chess ~ 400 byte, mushrooms ~ 1KB),
+ * thay vì ~ 40-50 byte cho MỖI phần tử của HashSet<Integer>.
+ *
+ * LƯU Ý: sau khi build xong (add TID) thì coi như bất biến -> có thể chia sẻ giữa các nhánh đệ quy
+ * mà không cần copy.
+ */
+final class BitTidSet extends TidSet {
+    private final long[] words;   // words[w] chứa các TID trong đoạn [64*w, 64*w + 63]
+    private int cardinality;      // |TID-set| (cache lại để khỏi đếm lại)
+
+    /** Tạo TID-set rỗng đủ chỗ cho numTransactions giao dịch */
+    BitTidSet(int numTransactions) {
+        this.words = new long[(numTransactions + 63) >>> 6];
+        this.cardinality = 0;
+    }
+
+    BitTidSet(long[] words, int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    /** Thêm 1 TID (dùng khi build vertical DB) */
+    void add(int tid) {
+        long mask = 1L << tid;              // Java chỉ lấy 6 bit thấp của tid khi shift long
+        int w = tid >>> 6;
+        if ((words[w] & mask) == 0) {
+            words[w] |= mask;
+            cardinality++;
+        }
+    }
+
+    /** Số word long trong bitmap */
+    int wordCount() {
+        return words.length;
+    }
+
+    /** Word thứ w (64 TID từ 64*w) */
+    long word(int w) {
+        return words[w];
+    }
+
+    /** Mảng word bên trong (KHÔNG copy - chỉ đọc) */
+    long[] words() {
+        return words;
+    }
+
+    @Override
+    boolean contains(int tid) {
+        int w = tid >>> 6;
+        return w < words.length && (words[w] & (1L << tid)) != 0;
+    }
+
+    /** Support = số TID trong tập */
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    long sizeInBytes() {
+        return 8L * words.length;
+    }
+
+    /**
+     * Ghi đè this = a ∩ b (this là bitmap trong bộ đệm tái sử dụng, cùng kích thước với a) - không cấp phát.
+     */
+    void assignAnd(BitTidSet a, BitTidSet b) {
+        long[] x = a.words;
+        long[] y = b.words;
+        int n = Math.min(x.length, y.length);
+        cardinality = BitKernels.INSTANCE.and(x, y, words, n);
+        Arrays.fill(words, n, words.length, 0L);
+    }
+
+    /** Ghi đè this = a ∩ b với a là bitmap off-heap, b là bitmap trên heap hoặc off-heap (xem OffHeapVerticalDB) */
+    void assignAnd(OffHeapBitTidSet a, TidSet b) {
+        int count = a.andInto(b, words);
+        int n = Math.min(words.length, Math.min(a.wordCount(), b instanceof BitTidSet
+                ? ((BitTidSet) b).wordCount() : ((OffHeapBitTidSet) b).wordCount()));
+        Arrays.fill(words, n, words.length, 0L);
+        cardinality = count;
+    }
+
+    /**
+     * Ghi đè this = a ∩ b với a là TID-set nén (RoaringTidSet), b là Roaring hoặc bitmap trên heap
+     * (ca / cb: cursor tái sử dụng của bộ đệm để đọc a / b theo word).
+     */
+    void assignAnd(RoaringTidSet a, TidSet b, RoaringTidSet.WordCursor ca, RoaringTidSet.WordCursor cb) {
+        cardinality = a.andInto(b, words, ca, cb);
+    }
+
+    /** Ghi đè this = {tids[0..n)} */
+    void assignTids(int[] tids, int n) {
+        Arrays.fill(words, 0L);
+        cardinality = 0;
+        for (int i = 0; i < n; i++) add(tids[i]);
+    }
+
+    @Override
+    BitTidSet copy() {
+        return new BitTidSet(words.clone(), cardinality);
+    }
+
+    /**
+     * |this ∩ other| mà không tạo TID-set trung gian: AND + popcount từng word.
+     * Nếu other không phải bitmap thì để other (thưa hơn) duyệt phần tử của nó.
+     */
+    @Override
+    int andCardinality(TidSet other) {
+        if (!(other instanceof BitTidSet)) {
+            return other.andCardinality(this);
+        }
+        long[] a = this.words;
+        long[] b = ((BitTidSet) other).words;
+        return BitKernels.INSTANCE.andCount(a, b, Math.min(a.length, b.length));
+    }
+
+    /**
+     * Đếm có cận theo từng khối 8 word (512 TID): count = số bit chung đã gặp, remaining = số bit của this
+     * chưa duyệt. count >= threshold -> true ngay; count + remaining < threshold -> false ngay.
+     * Kiểm tra theo khối (không theo từng word) để vòng lặp trong vẫn gọn như andCardinality.
+     */
+    @Override
+    boolean andCardinalityAtLeast(TidSet other, int threshold) {
+        if (threshold <= 0) return true;
+        if (!(other instanceof BitTidSet)) {
+            return other.andCardinalityAtLeast(this, threshold);
+        }
+        if (Math.min(cardinality, other.cardinality()) < threshold) return false;
+        long[] a = this.words;
+        long[] b = ((BitTidSet) other).words;
+        return BitKernels.INSTANCE.andCountAtLeast(a, b, Math.min(a.length, b.length), cardinality, threshold);
+    }
+
+    @Override
+    int weight(int[] weights) {
+        int sum = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                sum += weights[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    /** Như andCardinality nhưng cộng trọng số từng bit của a & b thay vì popcount */
+    @Override
+    int andWeight(TidSet other, int[] weights) {
+        if (!(other instanceof BitTidSet)) {
+            return other.andWeight(this, weights);
+        }
+        long[] a = this.words;
+        long[] b = ((BitTidSet) other).words;
+        int n = Math.min(a.length, b.length);
+        int sum = 0;
+        for (int w = 0; w < n; w++) {
+            long word = a[w] & b[w];
+            while (word != 0) {
+                sum += weights[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * this ⊆ other ?  (mọi TID của this đều có trong other)
+     * Dừng ngay khi gặp word đầu tiên có bit của this mà other không có.
+     */
+    @Override
+    boolean isSubsetOf(TidSet other) {
+        return isSubsetOf(other, null);
+    }
+
+    @Override
+    boolean isSubsetOf(TidSet other, RoaringTidSet.WordCursor cursor) {
+        if (cardinality > other.cardinality()) return false; // không thể bao được
+        if (other instanceof OffHeapBitTidSet) return ((OffHeapBitTidSet) other).covers(words);
+        if (other instanceof RoaringTidSet) return ((RoaringTidSet) other).covers(words, cursor);
+        if (!(other instanceof BitTidSet)) {
+            // other thưa hơn: duyệt từng TID của this
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    int tid = (w << 6) + Long.numberOfTrailingZeros(word);
+                    if (!other.contains(tid)) return false;
+                    word &= word - 1;
+                }
+            }
+            return true;
+        }
+        long[] a = this.words;
+        long[] b = ((BitTidSet) other).words;
+        int n = Math.min(a.length, b.length);
+        if (!BitKernels.INSTANCE.containedIn(a, b, n)) return false;
+        for (int w = n; w < a.length; w++) {
+            if (a[w] != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst) {
+        return filterTo(other, keepIfInOther, dst, null);
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst, RoaringTidSet.WordCursor cursor) {
+        int n = 0;
+        if (other instanceof BitTidSet) {
+            long[] b = ((BitTidSet) other).words;
+            for (int w = 0; w < words.length; w++) {
+                long bw = w < b.length ? b[w] : 0L;
+                long word = keepIfInOther ? (words[w] & bw) : (words[w] & ~bw);
+                while (word != 0) {
+                    dst[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return n;
+        }
+        if (other instanceof RoaringTidSet) {
+            RoaringTidSet.WordCursor b = RoaringTidSet.WordCursor.of((RoaringTidSet) other, cursor);
+            for (int w = 0; w < words.length; w++) {
+                if (words[w] == 0) continue;
+                long bw = b.word(w);
+                long word = keepIfInOther ? (words[w] & bw) : (words[w] & ~bw);
+                while (word != 0) {
+                    dst[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return n;
+        }
+        if (other instanceof OffHeapBitTidSet) {
+            OffHeapBitTidSet b = (OffHeapBitTidSet) other;
+            for (int w = 0; w < words.length; w++) {
+                long bw = w < b.wordCount() ? b.word(w) : 0L;
+                long word = keepIfInOther ? (words[w] & bw) : (words[w] & ~bw);
+                while (word != 0) {
+                    dst[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return n;
+        }
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                int tid = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (other.contains(tid) == keepIfInOther) dst[n++] = tid;
+                word &= word - 1;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * CancellationToken
+ * -----------------
+ * Cờ huỷ dùng chung giữa luồng gọi và ClosedPatternMining (setCancellationToken): luồng khác gọi cancel(),
+ * miner thấy ở lần kiểm tra kế tiếp (mỗi ClosedPatternMining.setStopCheckInterval nút) rồi dừng như khi timeout -
+ * các mẫu đã đẩy ra sink vẫn giữ nguyên, TruncationReport.isCancelled() = true.
+ *
+ * Đã huỷ thì huỷ luôn: dùng lại token cho lần khai thác sau thì lần đó dừng ngay ở nút đầu tiên.
+ */
+final class CancellationToken {
+    private volatile boolean cancelled;
+
+    /** Yêu cầu dừng (gọi được từ bất kỳ luồng nào, nhiều lần) */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
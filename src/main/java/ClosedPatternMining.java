@@ -1,88 +1,695 @@
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ClosedPatternMining
  * -------------------
  * Khai thác các MẪU ĐÓNG (Closed Frequent Itemsets) bằng hướng tiếp cận VERTICAL (TID-list),
  * gần với phong cách DCI-Closed/CHARM đơn giản hoá:
- *  - Xài verticalDB: Map<Item, TID-set>
+ *  - Item đã được mã hoá thành id int (xem ItemDictionary), itemset = int[] id tăng dần
+ *  - Xài verticalDB: TidSet[] đánh chỉ số theo id item (TID-set mã hoá thích nghi - xem TidSet)
  *  - Duyệt theo "postset" (các item có thể mở rộng), "preset" (các item đã đi qua để tránh lặp)
  *  - Tính closure: nếu T(next) chứa hết T(X) => next nằm trong closure của X
  *  - Pruning:
  *      + Ngưỡng minSup
- *      + Depth limit (độ sâu đệ quy)
- *      + MaxRuntime (timeout)
- *      + MaxPatterns (giới hạn số mẫu để tránh tràn bộ nhớ)
+ *      + MaxRuntime (timeout) / huỷ từ luồng khác (setCancellationToken) - đồng hồ và token chỉ được xem
+ *        mỗi setStopCheckInterval nút, không gọi System.currentTimeMillis ở từng nút
+ *      + Ngân sách bộ nhớ (ResourceGovernor): COMPACT -> SPILL -> cắt nhánh khi vượt ngân sách
+ *      + Tuỳ chọn (mặc định tắt): setMaxDepth, setMaxItems, setMaxPatterns
+ *    Mọi lần cắt đều được ghi vào TruncationReport (getTruncationReport) thay vì âm thầm đổi kết quả.
+ *    Lần chạy bị cắt có thể TIẾP TỤC sau: setCheckpoint ghi các nhánh đã duyệt xong ra file (SearchCheckpoint).
+ *    Tiến độ (nhánh gốc xong / tổng, số mẫu, thời gian còn lại) báo qua setProgressListener.
  *
  * LƯU Ý:
- *  - Dùng HashSet<Integer> cho TID-set: dễ hiểu nhưng tốn bộ nhớ/hơi chậm khi intersect.
- *    Có thể tối ưu bằng:
- *      + IntOpenHashSet (fastutil) hoặc RoaringBitmap/BitSet để intersect nhanh và tiết kiệm RAM.
- *  - Các giới hạn depth (10, 8) là "heuristic": nên cho cấu hình được nếu cần.
+ *  - TID-set chọn cách mã hoá theo TỪNG NÚT dựa trên mật độ đo được tại nút đó:
+ *      + bitmap long[] (BitTidSet)  cho item/nhánh dày  -> AND + Long.bitCount
+ *      + int[] đã sort (ArrayTidSet) cho item/nhánh thưa -> merge 2 con trỏ
+ *      + diffset (DiffTidSet)        cho nhánh sâu trong dữ liệu dày -> chỉ lưu TID bị loại so với tổ tiên
+ *    Logic đệ quy không đổi: intersect/đếm support/bao hàm chạy được giữa mọi cách mã hoá.
+ *  - Chế độ song song (setParallelism > 1): mỗi lần lặp trên postset của 1 nút chỉ phụ thuộc
+ *    preset "chụp" lúc vào nút + các item đứng trước trong postset, nên các nhánh con độc lập với nhau
+ *    -> chạy thành task fork/join (work-stealing). Tập mẫu đóng giống hệt lần chạy tuần tự,
+ *    nhưng thứ tự đẩy ra sink có thể khác.
+ *  - Kết quả được ĐẨY (streaming) tới ClosedPatternSink ngay khi tìm thấy (mine(database, sink)),
+ *    miner không giữ lại mẫu nào -> khai thác hàng triệu mẫu với bộ nhớ cố định. run() chỉ là
+ *    mine() + CollectingPatternSink cho code cũ cần List.
+ *  - Trước khi dựng verticalDB, CSDL được rút gọn (TransactionDatabase.compact): bỏ item không frequent,
+ *    gộp giao dịch trùng thành 1 dòng có trọng số. TID = chỉ số DÒNG; bao hàm/closure xét trên dòng,
+ *    support = tổng trọng số (chỉ cộng trọng số khi số dòng chưa đủ minSup - trọng số luôn >= 1).
+ *  - Cùng lõi tìm kiếm (verticalDB, ngưỡng, timeout, ngân sách bộ nhớ) cho nhiều loại mẫu - setOutputMode:
+ *      + CLOSED     : mẫu đóng (mặc định)
+ *      + MAXIMAL    : mẫu tối đại - cùng cây DCI-Closed nhưng chỉ đẩy lá chưa bị mẫu tối đại nào chứa
+ *                     (MaximalIndex) + lookahead cắt cả cây con; nhỏ/nhanh hơn nhiều so với lọc lại tập mẫu đóng
+ *      + GENERATORS : generator tối tiểu (không có tập con thực sự cùng support) - duyệt kiểu DefMe
+ *  - Đệ quy KHÔNG cấp phát ở trạng thái ổn định: mỗi độ sâu có sẵn bộ đệm (TID-set, itemset, postset - xem
+ *    ScratchStack), preset là 1 stack dùng chung (con ghi tiếp phía sau, cha ghi đè khi quay lại).
+ *    Chỉ mẫu đóng được lưu vào kết quả mới cần cấp phát mảng mới; getAllocationCount() đếm phần còn lại.
  */
 class ClosedPatternMining {
+    static final long DEFAULT_CHECKPOINT_INTERVAL_MS = 10_000;  // Chu kỳ đẩy checkpoint xuống đĩa mặc định
+    static final int DEFAULT_STOP_CHECK_INTERVAL = 1024;        // Số nút giữa 2 lần xem đồng hồ / token huỷ mặc định
     private final int minSup;                                   // Ngưỡng support tuyệt đối (số giao dịch)
-    private final Map<String, Set<Integer>> verticalDB = new HashMap<>(); // VDB: item -> TID-set
-    private final Set<Set<String>> closedPatterns = new HashSet<>();      // Kết quả: tập các mẫu đóng
+    private volatile int supportThreshold;                      // Ngưỡng đang dùng khi duyệt (>= minSup; top-k nâng dần)
+    private TidSet[] verticalDB;                                // VDB: id item -> TID-set
+    private ClosedPatternSink sink;                             // Nơi nhận mẫu đóng (chỉ khác null trong lúc mine())
+    private final AtomicInteger patternCount = new AtomicInteger(); // Số mẫu đã đẩy ra sink khi có giới hạn (CAS)
+    private final LongAdder unlimitedCount = new LongAdder();   // Số mẫu đã đẩy ra khi không giới hạn (không CAS)
     private int candidatesGenerated = 0;                        // Đếm số "ứng viên" (mở rộng đã xét)
+    private long allocationCount = 0;                           // Số lần cấp phát trong pha đệ quy (không tính mẫu kết quả)
     private long maxRuntime = Long.MAX_VALUE;                   // Timeout (ms)
     private long startTime;
-    private int maxPatterns = 50000;                            // Giới hạn số patterns để tránh OOM
+    private int stopCheckInterval = DEFAULT_STOP_CHECK_INTERVAL; // Số nút giữa 2 lần xem đồng hồ / token / tiến độ
+    private volatile boolean stopped;                           // Đã timeout / bị huỷ: mọi luồng dừng ngay ở nút kế tiếp
+    private CancellationToken cancellationToken;                // Token huỷ từ luồng khác; null = không dùng
+    private ProgressListener progressListener;                  // Nơi nhận tiến độ; null = không báo
+    private long progressIntervalMs;                            // Chu kỳ tối thiểu giữa 2 lần báo tiến độ
+    private ProgressTracker progress;                           // Tiến độ lần duyệt hiện tại (chỉ khác null trong lúc search)
+    private int numTransactions;                                // Số dòng của CSDL rút gọn (kích thước bitmap)
+    private int databaseWeight;                                 // Tổng trọng số CSDL gốc (kể cả giao dịch compact bỏ)
+    private int[] rowWeights;                                   // Trọng số từng dòng; null = mọi dòng trọng số 1
+    private int maxRowWeight = 1;                               // Trọng số lớn nhất (cận trên: support <= số dòng * max)
+    private final int[] encodingStats = new int[4];             // Số TID-set đã tạo: [bitmap, mảng, diffset, nén]
+    private int maxPatterns = Integer.MAX_VALUE;                // Giới hạn số patterns (mặc định không giới hạn)
+    private int patternLimit;                                   // Giới hạn thực tế của lần chạy hiện tại
+    private int maxDepth = Integer.MAX_VALUE;                   // Độ sâu đệ quy tối đa (mặc định không giới hạn)
+    private int maxItems = Integer.MAX_VALUE;                   // Số item frequent tối đa ở postset gốc
+    private ResourceGovernor governor = ResourceGovernor.forHeap(ResourceGovernor.DEFAULT_HEAP_FRACTION);
+    private TruncationReport report = new TruncationReport(governor.getBudget()); // Biên bản lần chạy gần nhất
+    private int parallelism = 1;                                // Số luồng mining (<= 1: tuần tự)
+    private long parallelSplitThreshold = 1L << 14;             // Ngưỡng chi phí ước lượng để tách task
+    private ForkJoinPool pool;                                  // Chỉ khác null trong lúc run() song song
+    private boolean verbose = true;                             // In log tiến trình (tắt khi khai thác liên tục)
+    private OutputMode outputMode = OutputMode.CLOSED;          // Loại mẫu đẩy ra sink
+    private MaximalIndex maximalIndex;                          // Mẫu tối đại đã đẩy ra (chỉ khác null khi mine MAXIMAL)
+    private int[] firstLevelPartition;                          // Vị trí item mức gốc được duyệt; null = tất cả
+    private boolean[] firstLevelSelected;                       // firstLevelPartition dạng cờ theo vị trí (lúc search)
+    private VerticalStorage verticalStorage = VerticalStorage.HEAP; // Nơi dựng verticalDB
+    private File verticalFile;                                  // File cho VerticalStorage.MAPPED; null = file tạm
+    private OffHeapVerticalDB offHeapDB;                        // Vùng chứa verticalDB khi dựng ngoài heap
+    private TransactionDatabase.TransactionOrder transactionOrder = TransactionDatabase.TransactionOrder.FILE; // TID
+    private ItemOrder itemOrder = ItemOrder.SUPPORT_ASCENDING;  // Thứ tự postset gốc
+    private File checkpointFile;                                // File checkpoint nhánh mức gốc; null = tắt
+    private long checkpointIntervalMs = DEFAULT_CHECKPOINT_INTERVAL_MS; // Chu kỳ đẩy checkpoint xuống đĩa
+    private SearchCheckpoint checkpoint;                        // Checkpoint đang mở (chỉ khác null trong lúc search)
+
+    // ===== Chế độ incremental (mineIncremental / update) =====
+    private PatternStore closedSet;                             // Tập mẫu đóng hiện tại (kèm support)
+    private int[] incrementalWeights;                           // Trọng số MỌI dòng của verticalDB (kể cả = 1)
+    private int processedTransactions;                          // Số giao dịch của database đã nằm trong verticalDB
+    private ArrayTidSet deltaRows;                              // Dòng mới của lần update đang chạy; null = không lọc
+
+    /**
+     * Loại mẫu đẩy ra sink. Mọi chế độ dùng chung verticalDB, ngưỡng support, timeout, ngân sách bộ nhớ
+     * và TruncationReport; chỉ khác cách duyệt / điều kiện đẩy mẫu:
+     *  - CLOSED     : không có siêu tập cùng support (DCI-Closed)
+     *  - MAXIMAL    : không có siêu tập frequent (luôn là mẫu đóng) - kiểm tra siêu tập qua MaximalIndex,
+     *                 lookahead: X ∪ postset frequent thì đó là mẫu tối đại duy nhất của cả cây con
+     *  - GENERATORS : không có tập con thực sự cùng support (generator tối tiểu)
+     * MAXIMAL / GENERATORS chạy tuần tự (MAXIMAL cần duyệt trái -> phải để kiểm tra siêu tập đúng).
+     */
+    enum OutputMode {
+        CLOSED("closed patterns"),
+        MAXIMAL("maximal patterns"),
+        GENERATORS("generators");
+
+        private final String label;
+
+        OutputMode(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Nơi dựng TID-set của item (verticalDB):
+     *  - HEAP   : TidSet[] trên heap (mặc định)
+     *  - DIRECT : vùng direct ByteBuffer ngoài heap (OffHeapVerticalDB)
+     *  - MAPPED : file map vào bộ nhớ - OS đẩy trang ra đĩa khi thiếu RAM
+     *  - ROARING: trên heap nhưng NÉN theo chunk 65536 TID (RoaringTidSet) - item thưa 2 byte / TID,
+     *             item gom cụm theo đoạn; TID-set trung gian của đệ quy vẫn như HEAP
+     * DIRECT / MAPPED: heap chỉ giữ thư mục O(số item), kernel giao đọc thẳng từ vùng off-heap.
+     */
+    enum VerticalStorage {
+        HEAP("heap"),
+        DIRECT("direct"),
+        MAPPED("mapped"),
+        ROARING("roaring");
+
+        private final String label;
+
+        VerticalStorage(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Thứ tự duyệt item ở postset gốc (các mức dưới giữ thứ tự của cha). Mọi thứ tự cho cùng tập mẫu
+     * (mẫu đẩy ra luôn sort theo id), chỉ khác chi phí:
+     *  - SUPPORT_ASCENDING  : support tăng dần = thứ tự id (mặc định) - nhánh đầu ít dòng, preset lớn dần
+     *  - SUPPORT_DESCENDING : support giảm dần - item dày đi trước, closure gom được nhiều item sớm
+     *  - ROWS_ASCENDING     : số DÒNG chứa item tăng dần trên CSDL rút gọn (kích thước TID-set thật khi dòng có
+     *                         trọng số - support không còn tỉ lệ với chi phí giao)
+     */
+    enum ItemOrder {
+        SUPPORT_ASCENDING("support asc"),
+        SUPPORT_DESCENDING("support desc"),
+        ROWS_ASCENDING("rows asc");
+
+        private final String label;
+
+        ItemOrder(String label) {
+            this.label = label;
+        }
+    }
 
     public ClosedPatternMining(int minSup) {
         this.minSup = minSup;
     }
 
+    /** Chọn loại mẫu đẩy ra sink (mặc định CLOSED) */
+    public void setOutputMode(OutputMode outputMode) {
+        this.outputMode = Objects.requireNonNull(outputMode);
+    }
+
+    public OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    /** Nơi dựng verticalDB (mặc định HEAP); MAPPED dùng file tạm - xem setVerticalStorage(storage, file) */
+    public void setVerticalStorage(VerticalStorage storage) {
+        setVerticalStorage(storage, null);
+    }
+
+    /**
+     * Nơi dựng verticalDB. DIRECT / MAPPED không dùng được với chế độ incremental (update dựng lại TID-set trên heap).
+     *
+     * @param file file cho MAPPED (giữ lại sau khi chạy, ghi đè nếu đã có); null = file tạm, xoá ngay sau khi map
+     */
+    public void setVerticalStorage(VerticalStorage storage, File file) {
+        this.verticalStorage = Objects.requireNonNull(storage);
+        this.verticalFile = file;
+    }
+
+    public VerticalStorage getVerticalStorage() {
+        return verticalStorage;
+    }
+
+    /**
+     * Đánh số lại dòng (TID) sau khi compact, trước khi dựng verticalDB (xem TransactionDatabase.reorder) -
+     * mặc định FILE. CSDL nạp qua VerticalIndex giữ thứ tự dòng đã ghi trong index.
+     */
+    public void setTransactionOrder(TransactionDatabase.TransactionOrder order) {
+        this.transactionOrder = Objects.requireNonNull(order);
+    }
+
+    /** Thứ tự duyệt item ở postset gốc (mặc định SUPPORT_ASCENDING) */
+    public void setItemOrder(ItemOrder order) {
+        this.itemOrder = Objects.requireNonNull(order);
+    }
+
+    /** Checkpoint ra file, đẩy xuống đĩa mỗi DEFAULT_CHECKPOINT_INTERVAL_MS - xem setCheckpoint(file, intervalMs) */
+    public void setCheckpoint(File file) {
+        setCheckpoint(file, DEFAULT_CHECKPOINT_INTERVAL_MS);
+    }
+
+    /**
+     * Checkpoint frontier tìm kiếm ra file (SearchCheckpoint) để lần khai thác bị cắt (hết maxRuntime, JVM chết, ...)
+     * chạy lại thì TIẾP TỤC thay vì làm từ đầu: nhánh nào (ở mọi độ sâu) duyệt xong thì mẫu của nó được ghi vào file;
+     * lần sau (cùng dữ liệu + cấu hình) các mẫu này được đẩy lại ra sink rồi chỉ duyệt các nhánh còn lại.
+     * Kết quả ghép lại giống hệt 1 lần chạy liền (thứ tự đẩy ra có thể khác). Lần chạy không bị cắt -> xoá file.
+     * Áp dụng cho run() / mine() / mineSweep() / mineTopK() (không áp dụng cho incremental); chạy tuần tự
+     * (setParallelism bị bỏ qua); không dùng được với OutputMode.MAXIMAL (mẫu tối đại phụ thuộc nhánh trước đó).
+     *
+     * @param file       null = tắt (mặc định)
+     * @param intervalMs chu kỳ tối thiểu (ms) giữa 2 lần đẩy file xuống đĩa (force), kiểm tra mỗi khi xong 1 nhánh
+     */
+    public void setCheckpoint(File file, long intervalMs) {
+        this.checkpointFile = file;
+        this.checkpointIntervalMs = Math.max(0, intervalMs);
+    }
+
     public void setMaxRuntime(long maxRuntimeMs) {
         this.maxRuntime = maxRuntimeMs;
     }
 
+    /**
+     * Huỷ lần khai thác từ luồng khác (token.cancel()): miner dừng như khi timeout, mẫu đã đẩy ra sink được giữ
+     * (run() trả về phần đã tìm được), TruncationReport.isCancelled() = true; có checkpoint thì lần sau tiếp tục được.
+     *
+     * @param token null = tắt (mặc định)
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.cancellationToken = token;
+    }
+
+    /**
+     * Báo tiến độ trong lúc duyệt (MiningProgress: nhánh mức gốc xong / tổng, số mẫu, số ứng viên, thời gian còn lại
+     * ước lượng) - tối đa 1 lần / intervalMs và 1 lần cuối khi kết thúc, xem ProgressListener.
+     *
+     * @param listener   null = tắt (mặc định)
+     * @param intervalMs chu kỳ tối thiểu giữa 2 lần báo (chỉ xét ở các lần kiểm tra, xem setStopCheckInterval)
+     */
+    public void setProgressListener(ProgressListener listener, long intervalMs) {
+        this.progressListener = listener;
+        this.progressIntervalMs = Math.max(0, intervalMs);
+    }
+
+    /**
+     * Số nút duyệt giữa 2 lần kiểm tra đồng hồ (maxRuntime), CancellationToken và báo tiến độ - mặc định
+     * DEFAULT_STOP_CHECK_INTERVAL. Giữa 2 lần kiểm tra, mỗi nút chỉ tốn 1 phép trừ bộ đếm (không gọi hệ thống);
+     * đổi lại timeout / huỷ có hiệu lực trễ tối đa chừng đó nút (mỗi luồng). maxPatterns và ngân sách bộ nhớ
+     * vẫn kiểm tra ở mọi nút.
+     */
+    public void setStopCheckInterval(int nodes) {
+        this.stopCheckInterval = Math.max(1, nodes);
+    }
+
+    /**
+     * Giới hạn số mẫu đóng (mặc định không giới hạn - bộ nhớ do ngân sách của ResourceGovernor quản lý).
+     * Chạm giới hạn -> TruncationReport.isPatternLimitReached().
+     */
     public void setMaxPatterns(int maxPatterns) {
-        this.maxPatterns = maxPatterns;
+        this.maxPatterns = maxPatterns < 0 ? Integer.MAX_VALUE : maxPatterns;
+    }
+
+    /**
+     * Độ sâu đệ quy tối đa (mặc định không giới hạn). Nút ở độ sâu maxDepth không đào sâu thêm,
+     * mỗi nhánh bị bỏ được đếm trong TruncationReport.getDepthPrunedBranches().
+     * (Bản cũ cố định tương đương setMaxDepth(8).)
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(0, maxDepth);
+    }
+
+    /**
+     * Chỉ duyệt maxItems item frequent đầu tiên (support thấp nhất) ở mức gốc - mặc định không giới hạn.
+     * (Bản cũ cố định 1000.) Số item bị bỏ: TruncationReport.getItemsDropped().
+     */
+    public void setMaxItems(int maxItems) {
+        this.maxItems = Math.max(0, maxItems);
+    }
+
+    /**
+     * Ngân sách bộ nhớ (byte) cho TID-set + bộ đệm + mẫu sink đang giữ, xem ResourceGovernor.
+     * Mặc định ResourceGovernor.DEFAULT_HEAP_FRACTION * heap tối đa; Long.MAX_VALUE = chỉ đo, không giới hạn.
+     */
+    public void setMemoryBudget(long bytes) {
+        this.governor = new ResourceGovernor(bytes);
+        this.report = new TruncationReport(bytes);
+    }
+
+    /** Biên bản của lần khai thác gần nhất: đầy đủ hay bị cắt ở đâu, bộ nhớ đỉnh */
+    public TruncationReport getTruncationReport() {
+        return report;
+    }
+
+    /**
+     * Bật chế độ song song fork/join.
+     * @param threads số luồng; <= 1 = tuần tự (mặc định)
+     */
+    public void setParallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+    }
+
+    /**
+     * Ngưỡng tách task (chế độ song song): 1 nút / 1 đoạn postset chỉ được tách thành task riêng khi
+     * |TID-set| * (độ dài postset)^2 >= ngưỡng này. Nhỏ hơn -> tách mịn hơn (cân bằng tải tốt hơn,
+     * overhead task cao hơn).
+     */
+    public void setParallelSplitThreshold(long threshold) {
+        this.parallelSplitThreshold = Math.max(1, threshold);
+    }
+
+    /**
+     * Chỉ duyệt các nhánh mức gốc tại các VỊ TRÍ cho trước trong postset gốc (item frequent theo id = support tăng dần,
+     * xem estimateFirstLevelCosts). Nhánh của vị trí i chỉ phụ thuộc preset = postset[0, i) nên các phần rời nhau
+     * của postset gốc cho ra các tập mẫu đóng rời nhau, hợp lại đúng bằng lần khai thác đầy đủ
+     * (PartitionCoordinator chia việc cho nhiều JVM theo cách này). Không dùng được với OutputMode.MAXIMAL.
+     *
+     * @param positions vị trí trong postset gốc; null = duyệt tất cả (mặc định)
+     */
+    public void setFirstLevelPartition(int[] positions) {
+        this.firstLevelPartition = positions == null ? null : positions.clone();
+    }
+
+    /**
+     * Ước lượng chi phí cây con của từng item mức gốc (theo thứ tự postset gốc) để chia việc cân bằng:
+     *   cost(i) = |T(i)| * (c + 1)^2,  c = số item đứng sau i còn frequent cùng i
+     * (cùng mô hình chi phí với ngưỡng tách task song song: mỗi item trong postset lại quét phần phía sau).
+     * Dựng verticalDB như mine() nhưng không duyệt.
+     *
+     * @return costs[i] của vị trí i trong postset gốc (độ dài = số item frequent)
+     */
+    public long[] estimateFirstLevelCosts(TransactionDatabase database) {
+        beginRun();
+        createVerticalDB(database, minSup);
+        supportThreshold = minSup;
+        int[] postset = firstLevelPostset();
+        long[] costs = new long[postset.length];
+        for (int i = 0; i < postset.length; i++) {
+            TidSet tids = verticalDB[postset[i]];
+            long extensions = 1;
+            for (int j = i + 1; j < postset.length; j++) {
+                if (isFrequentAnd(tids, verticalDB[postset[j]])) extensions++;
+            }
+            costs[i] = tids.cardinality() * extensions * extensions;
+        }
+        return costs;
+    }
+
+    /** Bật/tắt log tiến trình ra System.out (lỗi vẫn in ra System.err) */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
     public int getCandidatesGenerated() {
         return candidatesGenerated;
     }
 
+    /**
+     * Số lần cấp phát mảng/đối tượng trong pha đệ quy (bộ đệm theo độ sâu, nới mảng, snapshot khi fork task),
+     * KHÔNG tính mảng của các mẫu đóng lưu vào kết quả. Con số này chỉ tăng theo độ sâu tối đa / lúc "làm ấm",
+     * không tăng theo số nút duyệt.
+     */
+    public long getAllocationCount() {
+        return allocationCount;
+    }
+
+    /**
+     * Khai thác và gom toàn bộ mẫu đóng vào List (= mine() với CollectingPatternSink).
+     * List được tính vào ngân sách bộ nhớ: quá ngân sách thì dừng (xem getTruncationReport).
+     *
+     * @param database CSDL giao dịch đã mã hoá id (TransactionDatabase)
+     * @return các closed patterns (mỗi pattern là int[] id item tăng dần); null nếu timeout sớm ở đầu
+     */
+    public List<int[]> run(TransactionDatabase database) {
+        CollectingPatternSink collector = new CollectingPatternSink();
+        int found = mine(database, collector, maxPatterns);
+        return found < 0 ? null : collector.getPatterns();
+    }
+
+    /**
+     * Khai thác và ĐẨY từng mẫu đóng tới sink ngay khi tìm thấy (miner không giữ mẫu nào).
+     *
+     * @param database CSDL giao dịch đã mã hoá id (TransactionDatabase)
+     * @param sink     nơi nhận mẫu (CountingPatternSink, FilePatternSink, SimilarityFilterSink, ...)
+     * @return số mẫu đã đẩy ra sink; -1 nếu timeout sớm ở đầu
+     */
+    public int mine(TransactionDatabase database, ClosedPatternSink sink) {
+        return mine(database, sink, maxPatterns);
+    }
+
+    /**
+     * Khai thác 1 LẦN ở minSup của constructor (ngưỡng thấp nhất cần quét) và giữ support của mọi mẫu đóng;
+     * tập mẫu đóng ở ngưỡng cao hơn bất kỳ được suy ra bằng cách lọc theo support (ThresholdSweep.cursor/count),
+     * vì mẫu đóng ở ngưỡng thấp vẫn đóng ở ngưỡng cao khi support đủ.
+     * Chỉ chính xác khi lần khai thác đầy đủ (getTruncationReport().isComplete()).
+     *
+     * @param database CSDL giao dịch đã mã hoá id
+     * @return kết quả để hỏi theo ngưỡng (close() sau khi dùng để xoá file tạm); null nếu timeout sớm ở đầu
+     */
+    public ThresholdSweep mineSweep(TransactionDatabase database) {
+        if (outputMode == OutputMode.MAXIMAL) {
+            // mẫu tối đại ở ngưỡng cao không suy ra được bằng lọc support (tập con của mẫu bị loại có thể thành tối đại)
+            throw new IllegalStateException("mineSweep() không hỗ trợ OutputMode.MAXIMAL");
+        }
+        ThresholdSweep sweep = new ThresholdSweep(minSup);
+        if (mine(database, sweep, maxPatterns) < 0) {
+            sweep.close();
+            return null;
+        }
+        log("   🎚️ Sweep: " + sweep.count(minSup) + " " + outputMode.label + " ở ngưỡng thấp nhất " + minSup);
+        return sweep;
+    }
+
+    /**
+     * Chế độ TOP-K: k mẫu đóng có support cao nhất (độ dài >= minLength), không cần chọn minSup trước.
+     * Ngưỡng bắt đầu từ minSup của constructor (đặt 1 nếu không muốn chặn dưới); khi đã gom đủ k mẫu,
+     * ngưỡng được NÂNG lên (support nhỏ nhất trong k mẫu) + 1 -> các nhánh không thể lọt top-k bị cắt ngay
+     * trong lúc duyệt, nên thời gian/bộ nhớ chỉ phụ thuộc k chứ không phụ thuộc ngưỡng đoán.
+     * Mẫu bằng support với mẫu thứ k có thể bị bỏ (hoà thì giữ mẫu tìm thấy trước).
+     *
+     * @param database  CSDL giao dịch đã mã hoá id
+     * @param k         số mẫu cần lấy (> 0)
+     * @param minLength độ dài tối thiểu của mẫu (mẫu ngắn hơn không tính vào top-k)
+     * @return k mẫu (hoặc ít hơn nếu không đủ) theo support giảm dần; null nếu timeout sớm ở đầu
+     */
+    public PatternStore mineTopK(TransactionDatabase database, int k, int minLength) {
+        if (k <= 0) throw new IllegalArgumentException("k phải > 0");
+        if (outputMode == OutputMode.MAXIMAL) {
+            // ngưỡng nâng dần làm đổi tập mẫu tối đại giữa chừng (mẫu đã đẩy ra có thể không còn tối đại)
+            throw new IllegalStateException("mineTopK() không hỗ trợ OutputMode.MAXIMAL");
+        }
+        TopKCollector collector = new TopKCollector(k, minLength);
+        if (mine(database, collector, Integer.MAX_VALUE) < 0) return null;
+
+        PatternStore result = collector.toStore();
+        log("   🏆 Top-" + k + ": " + result.size() + " patterns, ngưỡng cuối = " + supportThreshold);
+        return result;
+    }
+
+    /**
+     * Chế độ INCREMENTAL - bước đầu: khai thác toàn bộ database và GIỮ LẠI verticalDB + tập mẫu đóng (kèm support)
+     * để các lần update() sau chỉ phải xử lý phần giao dịch mới thêm.
+     * Khác mine(): không bỏ item không frequent (item hiếm hôm nay có thể frequent sau khi thêm dữ liệu),
+     * chỉ gộp giao dịch trùng. minSup (tuyệt đối) giữ nguyên qua các lần update.
+     *
+     * @return tập mẫu đóng hiện tại; null nếu timeout sớm ở đầu
+     */
+    public PatternStore mineIncremental(TransactionDatabase database) {
+        if (outputMode != OutputMode.CLOSED) {
+            throw new IllegalStateException("Chế độ incremental chỉ hỗ trợ OutputMode.CLOSED");
+        }
+        if (isOffHeapStorage()) {
+            throw new IllegalStateException("Chế độ incremental chỉ hỗ trợ VerticalStorage.HEAP / ROARING");
+        }
+        beginRun();
+        createVerticalDB(database, 1);
+        if (isTimeout()) {
+            report.timedOut();
+            return null;
+        }
+
+        incrementalWeights = new int[numTransactions];
+        for (int r = 0; r < numTransactions; r++) incrementalWeights[r] = rowWeights == null ? 1 : rowWeights[r];
+        processedTransactions = database.size();
+
+        PatternStore store = new PatternStore();
+        search(store, maxPatterns, false);
+        closedSet = store;
+        return closedSet;
+    }
+
+    /**
+     * Chế độ INCREMENTAL - cập nhật sau khi database được thêm giao dịch (TransactionDatabase.append):
+     *  1) Gộp trùng các giao dịch mới -> dòng mới nối vào cuối verticalDB (chỉ TID-set của item có mặt bị dựng lại)
+     *  2) Mẫu cũ KHÔNG nằm trong giao dịch mới nào: TID-set không đổi -> support/closure giữ nguyên, giữ lại
+     *  3) Mẫu có chạm giao dịch mới: khai thác lại, nhưng chỉ đi vào nhánh có TID-set chứa dòng mới
+     *     (TID-set chỉ nhỏ dần theo nhánh nên nhánh không chạm thì cả cây con cũng không chạm)
+     * -> số nút phải duyệt tỉ lệ với phần dữ liệu mới, không phải toàn bộ lịch sử.
+     *
+     * @param database chính database đã dùng ở mineIncremental (đã append thêm giao dịch)
+     * @return tập mẫu đóng sau cập nhật
+     */
+    public PatternStore update(TransactionDatabase database) {
+        if (closedSet == null) {
+            throw new IllegalStateException("Cần gọi mineIncremental() trước update()");
+        }
+        final List<int[]> transactions = database.getTransactions();
+        if (transactions.size() <= processedTransactions) return closedSet;
+        beginRun();
+
+        // 1) Giao dịch mới -> dòng mới (gộp trùng trong phần mới)
+        PatternStore delta = new PatternStore();
+        for (int i = processedTransactions; i < transactions.size(); i++) {
+            delta.merge(transactions.get(i), database.weight(i));
+        }
+        final int deltaStart = numTransactions;
+        final int numItems = database.getDictionary().size();
+        if (verticalDB.length < numItems) {
+            // Item lần đầu xuất hiện: id mới nối cuối từ điển, TID-set cũ rỗng
+            int oldLength = verticalDB.length;
+            verticalDB = Arrays.copyOf(verticalDB, numItems);
+            for (int item = oldLength; item < numItems; item++) verticalDB[item] = TidSet.EMPTY;
+        }
+        int[][] deltaTids = new int[numItems][];
+        int[] deltaCounts = new int[numItems];
+        for (int r = 0; r < delta.size(); r++) {
+            for (int k = 0; k < delta.length(r); k++) deltaCounts[delta.item(r, k)]++;
+        }
+        for (int item = 0; item < numItems; item++) {
+            if (deltaCounts[item] > 0) deltaTids[item] = new int[deltaCounts[item]];
+            deltaCounts[item] = 0;
+        }
+        for (int r = 0; r < delta.size(); r++) {
+            for (int k = 0; k < delta.length(r); k++) {
+                int item = delta.item(r, k);
+                deltaTids[item][deltaCounts[item]++] = deltaStart + r;
+            }
+        }
+
+        incrementalWeights = Arrays.copyOf(incrementalWeights, deltaStart + delta.size());
+        boolean weighted = rowWeights != null;
+        for (int r = 0; r < delta.size(); r++) {
+            incrementalWeights[deltaStart + r] = delta.support(r);
+            if (delta.support(r) != 1) weighted = true;
+        }
+        numTransactions = deltaStart + delta.size();
+        databaseWeight = database.totalWeight();
+        setRowWeights(weighted ? incrementalWeights : null);
+
+        // Dựng lại TID-set của các item có mặt trong phần mới: TID cũ (tăng dần) + TID mới
+        for (int item = 0; item < numItems; item++) {
+            if (deltaTids[item] == null) continue;
+            TidSet old = verticalDB[item];
+            int[] tids = new int[old.cardinality() + deltaCounts[item]];
+            int n = old.filterTo(TidSet.EMPTY, false, tids);
+            System.arraycopy(deltaTids[item], 0, tids, n, deltaCounts[item]);
+            verticalDB[item] = itemTidSet(tids, tids.length);
+        }
+
+        // 2) + 3) Khai thác lại phần chạm dòng mới, giữ nguyên phần không chạm
+        int[] rangeTids = new int[delta.size()];
+        for (int r = 0; r < rangeTids.length; r++) rangeTids[r] = deltaStart + r;
+        PatternStore touched = new PatternStore();
+        deltaRows = new ArrayTidSet(rangeTids, rangeTids.length);
+        try {
+            search(touched, maxPatterns, false);
+        } finally {
+            deltaRows = null;
+        }
+
+        PatternStore updated = new PatternStore();
+        int kept = 0;
+        for (int i = 0; i < closedSet.size(); i++) {
+            if (!containedInDelta(closedSet, i, deltaTids, deltaCounts)) {
+                updated.add(closedSet.get(i), closedSet.support(i));
+                kept++;
+            }
+        }
+        touched.replay(updated);
+
+        log("   🔁 Incremental: +" + (transactions.size() - processedTransactions) + " transactions ("
+                + delta.size() + " rows) | giữ " + kept + ", khai thác lại " + touched.size()
+                + " -> " + updated.size() + " closed patterns");
+        processedTransactions = transactions.size();
+        closedSet = updated;
+        return closedSet;
+    }
+
+    /** Mẫu thứ i của store có nằm trong ít nhất 1 dòng mới không (giao danh sách dòng mới của các item) */
+    private static boolean containedInDelta(PatternStore store, int i, int[][] deltaTids, int[] deltaCounts) {
+        // Lấy item ít dòng mới nhất làm ứng viên, kiểm tra các item còn lại bằng tìm nhị phân
+        int len = store.length(i);
+        int pivot = -1;
+        for (int k = 0; k < len; k++) {
+            int item = store.item(i, k);
+            if (deltaTids[item] == null) return false;
+            if (pivot < 0 || deltaCounts[item] < deltaCounts[pivot]) pivot = item;
+        }
+        if (pivot < 0) return false;
+        for (int c = 0; c < deltaCounts[pivot]; c++) {
+            int row = deltaTids[pivot][c];
+            boolean all = true;
+            for (int k = 0; k < len && all; k++) {
+                int item = store.item(i, k);
+                all = Arrays.binarySearch(deltaTids[item], 0, deltaCounts[item], row) >= 0;
+            }
+            if (all) return true;
+        }
+        return false;
+    }
+
     /**
      * Điểm vào chính:
      *  1) Tạo verticalDB (item -> TID-set)
      *  2) Lọc các 1-item frequent vào "postset" (ứng viên khởi đầu)
      *  3) Sắp xếp postset theo support tăng dần (heuristic để giảm chi phí)
-     *  4) Gọi đệ quy DCI_Closed_Recursive để khai thác
-     *
-     * @param transactions List<Set<String>> database dạng horizontal
-     * @return Set các closed patterns (mỗi pattern là Set<String> items); null nếu timeout sớm ở đầu
+     *  4) Gọi đệ quy DCI_Closed_Recursive để khai thác, mẫu đóng đi thẳng ra sink
      */
-    public Set<Set<String>> run(List<Set<String>> transactions) {
+    private int mine(TransactionDatabase database, ClosedPatternSink sink, int limit) {
+        beginRun();
+        createVerticalDB(database, minSup);
+
+        // Kiểm tra timeout sớm sau khi build VDB
+        if (isTimeout()) {
+            report.timedOut();
+            return -1;
+        }
+        return search(sink, limit, true);
+    }
+
+    /** Bắt đầu 1 lần khai thác: mốc thời gian, số đo bộ nhớ và biên bản mới */
+    private void beginRun() {
         startTime = System.currentTimeMillis();
+        governor.reset();
+        report = new TruncationReport(governor.getBudget());
+    }
+
+    /**
+     * Duyệt DCI-Closed trên verticalDB hiện có, đẩy mẫu đóng ra sink.
+     * @param resumable true = dùng checkpoint nếu có setCheckpoint (không dùng cho incremental)
+     * @return số mẫu đã đẩy ra sink
+     */
+    private int search(ClosedPatternSink sink, int limit, boolean resumable) {
+        this.sink = sink;
+        this.supportThreshold = minSup;
+        this.patternLimit = limit;
+        this.patternCount.set(0);
+        this.unlimitedCount.reset();
+        // TID-set nằm ngoài heap (OffHeapVerticalDB, VerticalIndex) chỉ tính phần thư mục
+        long verticalBytes = offHeapDB != null ? offHeapDB.heapBytes() : 0;
+        for (TidSet tids : verticalDB) {
+            if (!TidSet.isOffHeap(tids)) verticalBytes += tids.sizeInBytes();
+        }
+        governor.setBaseBytes(verticalBytes);
+        maximalIndex = outputMode == OutputMode.MAXIMAL ? new MaximalIndex(verticalDB.length) : null;
+        if (firstLevelPartition != null && outputMode == OutputMode.MAXIMAL) {
+            throw new IllegalStateException("setFirstLevelPartition không dùng được với OutputMode.MAXIMAL");
+        }
+        final boolean checkpointed = resumable && checkpointFile != null;
+        if (checkpointed && outputMode == OutputMode.MAXIMAL) {
+            throw new IllegalStateException("setCheckpoint không dùng được với OutputMode.MAXIMAL");
+        }
+        this.stopped = false;
 
         try {
-            createVerticalDB(transactions);
+            // Lấy các 1-item frequent (support >= ngưỡng) làm hạt giống mở rộng.
+            int[] postset = firstLevelPostset();
+            int postsetSize = postset.length;
 
-            // Kiểm tra timeout sớm sau khi build VDB
-            if (isTimeout()) return null;
+            log("   📋 Frequent 1-itemsets: " + postsetSize);
 
-            List<String> postset = new ArrayList<>();
-            // Lấy các 1-item frequent (|T(item)| >= minSup) làm hạt giống mở rộng
-            for (String item : verticalDB.keySet()) {
-                if (verticalDB.get(item).size() >= minSup) {
-                    postset.add(item);
+            // Tuỳ chọn setFirstLevelPartition: chỉ duyệt nhánh mức gốc ở các vị trí được chọn
+            firstLevelSelected = null;
+            if (firstLevelPartition != null) {
+                firstLevelSelected = new boolean[postsetSize];
+                for (int position : firstLevelPartition) {
+                    if (position >= 0 && position < postsetSize) firstLevelSelected[position] = true;
                 }
+                log("   🧭 Partition: " + firstLevelPartition.length + "/" + postsetSize + " item mức gốc");
             }
 
-            // Heuristic: sort theo support tăng dần để tối ưu intersect/closure
-            postset.sort(Comparator.comparingInt(i -> verticalDB.get(i).size()));
-
-            System.out.println("   📋 Frequent 1-itemsets: " + postset.size());
+            // Tuỳ chọn setMaxItems: chỉ giữ maxItems item đầu (support thấp nhất), ghi số item bị bỏ vào biên bản
+            int frequentItems = postsetSize;
+            if (postsetSize > maxItems) {
+                log("   ⚠️ Quá nhiều frequent items, chỉ xử lý " + maxItems + " items đầu");
+                postsetSize = maxItems;
+            }
+            report.setItems(frequentItems, frequentItems - postsetSize);
 
-            // Pruning cứng: nếu quá nhiều frequent items, cắt xuống 1000 đầu tiên
-            // (giảm chi phí/ram; đổi số này thành config nếu cần linh hoạt)
-            if (postset.size() > 1000) {
-                System.out.println("   ⚠️ Quá nhiều frequent items, chỉ xử lý 1000 items đầu");
-                postset = postset.subList(0, 1000);
+            // Tuỳ chọn setCheckpoint: đẩy lại mẫu của các nhánh mức gốc đã xong ở lần chạy trước, bỏ qua các nhánh đó
+            if (checkpointed) {
+                openCheckpoint(postset, postsetSize);
+                if (!replayCheckpoint()) return emittedCount();
             }
+            if (progressListener != null) progress = new ProgressTracker(postset, postsetSize);
 
             // Bắt đầu đệ quy.
             // P     = tập hiện tại (prefix)
@@ -90,23 +697,182 @@ class ClosedPatternMining {
             // postset = các item còn có thể thử nối vào P
             // preset  = các item đã xét qua (để tránh lặp/dupe)
             // firstCall = true ở bước đầu giúp tối ưu (khỏi intersect với TP=null)
-            // depth     = độ sâu đệ quy (đặt limit để tránh nổ)
-            DCI_Closed_Recursive(new HashSet<>(), null, postset, new HashSet<>(), true, 0);
+            // depth     = độ sâu đệ quy (tuỳ chọn setMaxDepth)
+            //
+            // Tuần tự: gọi đệ quy trực tiếp. Song song: task gốc trên toàn bộ postset, tự tách nhỏ khi đủ nặng.
+            // GENERATORS dùng đệ quy riêng (generatorRecursive) trên cùng verticalDB.
+            SearchState result;
+            boolean parallel = parallelism > 1 && outputMode == OutputMode.CLOSED && checkpoint == null;
+            if (parallelism > 1 && !parallel) {
+                log("   ⚠️ Chế độ " + outputMode + (checkpoint != null ? " có checkpoint" : "") + " chạy tuần tự");
+            }
+            if (parallel) {
+                pool = new ForkJoinPool(parallelism);
+                try {
+                    result = pool.invoke(new BranchTask(new int[0], 0, null, postset, postsetSize,
+                            new int[0], 0, true, 0, 0, postsetSize));
+                } finally {
+                    pool.shutdown();
+                    pool = null;
+                }
+            } else {
+                result = new SearchState();
+                ScratchStack scratch = new ScratchStack(postsetSize);
+                if (outputMode == OutputMode.GENERATORS) {
+                    generatorRecursive(result, scratch, new int[0], 0, null, null, null, postset, postsetSize, 0);
+                } else {
+                    DCI_Closed_Recursive(result, scratch, new int[0], 0, null, postset, postsetSize, 0, true, 0);
+                }
+                result.allocations += scratch.allocationCount();
+                scratch.release();
+            }
+            if (progress != null) progress.flush(result);
+            candidatesGenerated += result.candidates;
+            allocationCount += result.allocations;
+            for (int k = 0; k < encodingStats.length; k++) encodingStats[k] += result.encodingStats[k];
 
-            System.out.println("   ✅ Tìm được " + closedPatterns.size() + " closed patterns");
-            return closedPatterns;
+            log("   🧩 TID-set encodings: bitmap=" + encodingStats[0]
+                    + ", array=" + encodingStats[1] + ", diffset=" + encodingStats[2]
+                    + (encodingStats[3] > 0 ? ", roaring=" + encodingStats[3] : "")
+                    + " | scratch allocations: " + allocationCount);
+            log("   ✅ Tìm được " + emittedCount() + " " + outputMode.label);
+            return emittedCount();
 
-        } catch (OutOfMemoryError e) {
-            // Dự phòng khi thiếu RAM: trả về phần đã tìm được
-            System.err.println("   ❌ Hết memory, trả về patterns hiện tại: " + closedPatterns.size());
-            return closedPatterns;
         } catch (Exception e) {
-            // Dự phòng lỗi bất ngờ: vẫn trả về phần đã có
+            // Dự phòng lỗi bất ngờ (kể cả lỗi từ sink): vẫn giữ phần đã đẩy ra, ghi lỗi vào biên bản
             System.err.println("   ❌ Lỗi: " + e.getMessage());
-            return closedPatterns;
+            report.error(String.valueOf(e.getMessage()));
+            return emittedCount();
+        } finally {
+            closeCheckpoint();
+            if (progress != null) {
+                progress.finish();
+                progress = null;
+            }
+            this.sink = null;
+            this.maximalIndex = null;
+            report.setPeakBytes(governor.peakBytes());
+            log("   🛡️ Kết quả " + report);
         }
     }
 
+    /**
+     * Postset gốc: các 1-item frequent (support >= ngưỡng) theo itemOrder.
+     * Mặc định (SUPPORT_ASCENDING): duyệt theo support tăng dần để tối ưu intersect/closure - id trong
+     * ItemDictionary đã được đánh theo support tăng dần nên chỉ cần lấy theo thứ tự id.
+     */
+    private int[] firstLevelPostset() {
+        int[] postset = new int[verticalDB.length];
+        int postsetSize = 0;
+        for (int item = 0; item < verticalDB.length; item++) {
+            if (isFrequent(verticalDB[item])) {
+                postset[postsetSize++] = item;
+            }
+        }
+        postset = Arrays.copyOf(postset, postsetSize);
+        if (itemOrder == ItemOrder.SUPPORT_DESCENDING) {
+            for (int i = 0, j = postsetSize - 1; i < j; i++, j--) {
+                int tmp = postset[i];
+                postset[i] = postset[j];
+                postset[j] = tmp;
+            }
+        } else if (itemOrder == ItemOrder.ROWS_ASCENDING) {
+            // sort ổn định theo (số dòng, id) - khoá gộp vào 1 long để khỏi boxing
+            long[] keys = new long[postsetSize];
+            for (int i = 0; i < postsetSize; i++) {
+                keys[i] = ((long) verticalDB[postset[i]].cardinality() << 32) | postset[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < postsetSize; i++) postset[i] = (int) keys[i];
+        }
+        return postset;
+    }
+
+    /** Nhánh ở vị trí i có được duyệt không (chỉ lọc ở mức gốc - setFirstLevelPartition) */
+    private boolean inFirstLevelPartition(boolean firstCall, int i) {
+        return !firstCall || firstLevelSelected == null || firstLevelSelected[i];
+    }
+
+    /**
+     * Mở checkpoint của postset gốc hiện tại (header = cấu hình + item/support của postset gốc).
+     * Lỗi đọc/ghi file không làm hỏng lần chạy: in cảnh báo rồi chạy không có checkpoint.
+     */
+    private void openCheckpoint(int[] postset, int postsetSize) {
+        int[] supports = new int[postsetSize];
+        for (int i = 0; i < postsetSize; i++) supports[i] = support(verticalDB[postset[i]]);
+        try {
+            checkpoint = SearchCheckpoint.open(checkpointFile, checkpointIntervalMs, minSup, outputMode.name(),
+                    maxDepth, numTransactions, postset, supports, postsetSize);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("   ⚠️ Không mở được checkpoint " + checkpointFile + ": " + e.getMessage());
+            checkpoint = null;
+            return;
+        }
+        if (checkpoint.doneBranches() > 0) {
+            log("   💾 Checkpoint: tiếp tục sau " + checkpoint.doneRoots() + "/" + postsetSize + " nhánh mức gốc + "
+                    + (checkpoint.doneBranches() - checkpoint.doneRoots()) + " nhánh con đã xong ("
+                    + checkpoint.storedPatterns() + " " + outputMode.label + ")");
+        } else {
+            log("   💾 Checkpoint: " + checkpointFile);
+        }
+    }
+
+    /**
+     * Đẩy lại ra sink các mẫu đã lưu trong checkpoint (tính vào giới hạn số mẫu).
+     * @return false nếu đã chạm giới hạn số mẫu (không duyệt tiếp)
+     */
+    private boolean replayCheckpoint() throws IOException {
+        if (checkpoint == null || checkpoint.storedPatterns() == 0) return true;
+        boolean[] full = new boolean[1];
+        checkpoint.replay((pattern, support, tidsetSize) -> {
+            if (full[0]) return;
+            if (reservePatternSlot()) {
+                deliver(pattern, support, tidsetSize);
+            } else {
+                full[0] = true;
+            }
+        });
+        return !full[0];
+    }
+
+    /** Checkpoint: nhánh ở độ sâu depth, vị trí i đã xong ở lần chạy trước (mẫu đã được đẩy lại) -> bỏ qua */
+    private boolean checkpointDone(int depth, int i) {
+        return checkpoint != null && checkpoint.isDone(depth, i);
+    }
+
+    /** Checkpoint: bắt đầu nhánh ở độ sâu depth, vị trí i - các mẫu đẩy ra từ giờ thuộc nhánh này */
+    private void beginBranch(int depth, int i) {
+        if (checkpoint != null) checkpoint.beginBranch(depth, i, report.cutCount());
+    }
+
+    /** Checkpoint: nhánh đang mở ở độ sâu depth (nếu có) đã kết thúc - ghi lại nếu không bị cắt giữa chừng */
+    private void endBranch(int depth) {
+        if (checkpoint != null) checkpoint.endBranch(depth, report.cutCount());
+    }
+
+    /** Đóng checkpoint sau lần duyệt: xong trọn vẹn (không bị cắt) thì xoá file, ngược lại giữ để lần sau tiếp tục */
+    private void closeCheckpoint() {
+        if (checkpoint == null) return;
+        SearchCheckpoint closing = checkpoint;
+        checkpoint = null;
+        try {
+            closing.close();
+            if (report.cutCount() == 0) {
+                if (closing.getFile().delete()) log("   💾 Checkpoint: đã xong, xoá " + closing.getFile());
+            } else {
+                log("   💾 Checkpoint: lưu " + closing.doneRoots() + " nhánh mức gốc + "
+                        + (closing.doneBranches() - closing.doneRoots()) + " nhánh con đã xong ("
+                        + closing.storedPatterns() + " " + outputMode.label + ") vào " + closing.getFile());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("   ⚠️ Lỗi ghi checkpoint " + closing.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
     /** Kiểm tra timeout toàn cục */
     private boolean isTimeout() {
         return System.currentTimeMillis() - startTime > maxRuntime;
@@ -118,135 +884,973 @@ class ClosedPatternMining {
      *   - Tính support: |T(itemset)| = |∩ TID-sets|
      *   - Tính closure: nếu T(next) ⊇ T(current) thì next nằm trong closure của current
      */
-    private void createVerticalDB(List<Set<String>> transactions) {
+    private void createVerticalDB(TransactionDatabase database, int minItemSupport) {
+        offHeapDB = null;
+        databaseWeight = database.totalWeight();
+        if (database.getVerticalIndex() != null) {
+            useVerticalIndex(database.getVerticalIndex(), database.getDictionary(), minItemSupport);
+            return;
+        }
+
+        // Pha 0: rút gọn - bỏ item có support < minItemSupport, gộp giao dịch trùng thành dòng có trọng số,
+        // đánh số lại dòng theo transactionOrder
+        final TransactionDatabase rows = database.compact(minItemSupport).reorder(transactionOrder, minItemSupport);
+        final List<int[]> transactions = rows.getTransactions();
+        final ItemDictionary dictionary = rows.getDictionary();
+        numTransactions = transactions.size(); // số bit cần cho mỗi TID-set dạng bitmap
+        setRowWeights(rows.getWeights());
+        log("   🗜️ Compacted DB: " + database.size() + " transactions -> " + numTransactions + " rows"
+                + (transactionOrder == TransactionDatabase.TransactionOrder.FILE ? "" : " (" + transactionOrder.label + ")"));
+        if (isOffHeapStorage() && createOffHeapVerticalDB(transactions, dictionary.size())) {
+            return;
+        }
+
+        // Pha 1: gom TID (tăng dần) của từng item vào mảng int[] - support (>= số dòng chứa item) đã biết từ
+        // từ điển nên cấp đủ kích thước; item bị bỏ ở pha 0 không còn dòng nào
+        final int[][] tidLists = new int[dictionary.size()][];
+        final int[] counts = new int[dictionary.size()];
+        for (int item = 0; item < tidLists.length; item++) {
+            int support = dictionary.support(item);
+            tidLists[item] = new int[support >= minItemSupport ? support : 0];
+        }
         for (int i = 0; i < transactions.size(); i++) {
             // Cho phép nghỉ sớm nếu timeout trong lúc build VDB
             if (i % 10000 == 0 && isTimeout()) {
-                System.out.println("   ⚠️ Timeout during vertical DB creation");
+                log("   ⚠️ Timeout during vertical DB creation");
                 break;
             }
 
-            for (String item : transactions.get(i)) {
-                verticalDB.computeIfAbsent(item, k -> new HashSet<>()).add(i);
+            for (int item : transactions.get(i)) {
+                tidLists[item][counts[item]++] = i;
             }
         }
 
-        System.out.println("   📊 Vertical DB created: " + verticalDB.size() + " items");
+        // Pha 2: chọn mã hoá theo mật độ của từng item (bitmap nếu dày, mảng int[] nếu thưa; ROARING: theo chunk)
+        verticalDB = new TidSet[tidLists.length];
+        long bytes = 0;
+        for (int item = 0; item < tidLists.length; item++) {
+            verticalDB[item] = itemTidSet(tidLists[item], counts[item]);
+            bytes += verticalDB[item].sizeInBytes();
+            countEncoding(verticalDB[item]);
+            tidLists[item] = null; // cho GC thu hồi sớm
+        }
+
+        log("   📊 Vertical DB created: " + verticalDB.length + " items (" + verticalStorage.label + ", "
+                + bytes / 1024 + " KB)");
+    }
+
+    /** TID-set của 1 item trong verticalDB trên heap: nén (ROARING) hoặc bitmap / mảng theo mật độ */
+    private TidSet itemTidSet(int[] tids, int count) {
+        return verticalStorage == VerticalStorage.ROARING
+                ? RoaringTidSet.fromSortedTids(tids, count, numTransactions)
+                : TidSet.fromSortedTids(tids, count, numTransactions);
+    }
+
+    private boolean isOffHeapStorage() {
+        return verticalStorage == VerticalStorage.DIRECT || verticalStorage == VerticalStorage.MAPPED;
+    }
+
+    /**
+     * Dùng TID-set đã map của VerticalIndex làm verticalDB (CSDL nạp qua VerticalIndex.load): không compact,
+     * không dựng từ dòng. Dòng là dòng compact(1) - item không frequent vẫn còn TID-set (view trên vùng map)
+     * nhưng bị lọc ở postset như thường.
+     * HEAP: chép TID-set của item frequent lên heap (chép khối, kernel giao trên heap nhanh hơn đọc qua buffer);
+     * ROARING: nén TID-set của item frequent lên heap; DIRECT / MAPPED: dùng thẳng vùng map. Mảng luôn được chép (update() của chế độ incremental thay TID-set
+     * trong mảng, còn mảng của index thì dùng chung).
+     */
+    private void useVerticalIndex(VerticalIndex index, ItemDictionary dictionary, int minItemSupport) {
+        offHeapDB = index.vertical();
+        verticalDB = index.tidsets().clone();
+        numTransactions = index.numRows();
+        setRowWeights(index.rowWeights());
+        long heapBytes = 0;
+        for (int item = 0; item < verticalDB.length; item++) {
+            if (!isOffHeapStorage() && dictionary.support(item) >= minItemSupport) {
+                if (verticalStorage == VerticalStorage.ROARING) {
+                    int[] tids = new int[verticalDB[item].cardinality()];
+                    verticalDB[item].filterTo(TidSet.EMPTY, false, tids);
+                    verticalDB[item] = itemTidSet(tids, tids.length);
+                } else {
+                    verticalDB[item] = verticalDB[item].copy();
+                }
+                heapBytes += verticalDB[item].sizeInBytes();
+            }
+            countEncoding(verticalDB[item]);
+        }
+        log("   📊 Vertical DB from index " + index.file().getName() + ": " + verticalDB.length + " items, "
+                + numTransactions + " rows (" + offHeapDB.regionBytes() / 1024 + " KB mapped, "
+                + heapBytes / 1024 + " KB on heap)");
+    }
+
+    /**
+     * Dựng verticalDB ngoài heap (DIRECT / MAPPED - xem OffHeapVerticalDB).
+     * Không cấp được vùng (hết direct memory, lỗi file) -> false, createVerticalDB dựng trên heap như thường.
+     */
+    private boolean createOffHeapVerticalDB(List<int[]> transactions, int numItems) {
+        try {
+            boolean mapped = verticalStorage == VerticalStorage.MAPPED;
+            File file = !mapped ? null
+                    : verticalFile != null ? verticalFile : File.createTempFile("vertical-db-", ".bin");
+            offHeapDB = OffHeapVerticalDB.build(transactions, numItems, file, mapped && verticalFile == null,
+                    this::isTimeout);
+        } catch (IOException | OutOfMemoryError e) {
+            System.err.println("   ⚠️ Không dựng được vertical DB " + verticalStorage.label + " (" + e.getMessage()
+                    + ") -> dựng trên heap");
+            return false;
+        }
+        if (!offHeapDB.isComplete()) log("   ⚠️ Timeout during vertical DB creation");
+        verticalDB = offHeapDB.tidsets();
+        for (TidSet tids : verticalDB) countEncoding(tids);
+        log("   📊 Vertical DB created: " + verticalDB.length + " items (" + verticalStorage.label + ", "
+                + offHeapDB.regionBytes() / 1024 + " KB off-heap)");
+        return true;
     }
 
     /**
      * Đệ quy kiểu DCI-Closed (mang tính gần đúng/đơn giản hoá)
      *
-     * @param P        prefix hiện tại (pattern cơ sở)
-     * @param TP       TID-set của P (null nếu firstCall để tối ưu)
-     * @param postset  danh sách items có thể thử nối vào (sau vị trí hiện tại)
-     * @param preset   các items đã đi qua (dùng để kiểm tra trùng lặp/bao hàm)
-     * @param firstCall true nếu đang ở mức gốc (để không intersect với TP null)
-     * @param depth    độ sâu đệ quy hiện tại
+     * @param state       nơi gom kết quả + bộ đếm của nhánh này
+     * @param scratch     bộ đệm theo độ sâu + preset dạng stack (scratch.preset)
+     * @param P           prefix hiện tại (pattern cơ sở, mảng id), dùng [0, pLen)
+     * @param pLen        số item của P
+     * @param TP          TID-set của P (null nếu firstCall để tối ưu)
+     * @param postset     danh sách items có thể thử nối vào (sau vị trí hiện tại), dùng [0, postsetSize)
+     * @param postsetSize số phần tử hợp lệ của postset
+     * @param presetSize  số phần tử hợp lệ của preset (scratch.preset[0, presetSize)) lúc vào nút;
+     *                    nút này ghi thêm item của mình vào phía sau, nút cha ghi đè lên khi quay lại
+     * @param firstCall   true nếu đang ở mức gốc (để không intersect với TP null)
+     * @param depth       độ sâu đệ quy hiện tại
+     */
+    private void DCI_Closed_Recursive(SearchState state, ScratchStack scratch,
+                                      int[] P, int pLen, TidSet TP,
+                                      int[] postset, int postsetSize,
+                                      int presetSize, boolean firstCall, int depth) {
+
+        for (int i = 0; i < postsetSize; i++) {
+            // Điều kiện dừng toàn cục: timeout, đủ maxPatterns, hoặc vượt ngân sách bộ nhớ
+            if (shouldStop(state)) {
+                return;
+            }
+            if (inFirstLevelPartition(firstCall, i) && !checkpointDone(depth, i)) {
+                long cuts = rootBranchStart(firstCall);
+                beginBranch(depth, i);
+                processItem(state, scratch, P, pLen, TP, postset, postsetSize, i, presetSize, firstCall, depth);
+                endBranch(depth);
+                rootBranchEnd(firstCall, i, cuts);
+            }
+
+            // Thêm 'item' vào preset để lần sau dùng cho duplicate pruning (kể cả nhánh mức gốc thuộc partition khác)
+            scratch.preset[presetSize++] = postset[i];
+        }
+    }
+
+    /**
+     * Điều kiện dừng toàn cục: timeout / bị huỷ, đủ maxPatterns, hoặc vượt ngân sách bộ nhớ (mức PRUNE).
+     * Lý do dừng được ghi vào biên bản (mỗi lần gặp mức PRUNE = 1 nhánh bị cắt).
+     * Đồng hồ + token huỷ chỉ xem mỗi stopCheckInterval nút (đếm riêng trong state của luồng/task, không tranh nhau);
+     * đã dừng thì cờ stopped chặn mọi luồng ngay.
+     */
+    private boolean shouldStop(SearchState state) {
+        if (stopped) {
+            return true;
+        }
+        if (--state.untilCheck < 0) {
+            state.untilCheck = stopCheckInterval - 1;
+            if (checkPeriodically(state)) return true;
+        }
+        if (patternLimit != Integer.MAX_VALUE && patternCount.get() >= patternLimit) {
+            report.patternLimitReached();
+            return true;
+        }
+        if (governor.pressure() == ResourceGovernor.Pressure.PRUNE) {
+            report.budgetPruned();
+            return true;
+        }
+        return false;
+    }
+
+    /** Phần kiểm tra định kỳ của shouldStop: timeout, token huỷ (-> dừng hẳn), báo tiến độ */
+    private boolean checkPeriodically(SearchState state) {
+        long now = System.currentTimeMillis();
+        if (now - startTime > maxRuntime) {
+            report.timedOut();
+            stopped = true;
+            return true;
+        }
+        if (cancellationToken != null && cancellationToken.isCancelled()) {
+            report.cancelled();
+            stopped = true;
+            return true;
+        }
+        if (progress != null) progress.poll(state, now);
+        return false;
+    }
+
+    /** Tiến độ: bắt đầu 1 nhánh (root = nhánh mức gốc) -> số lần cắt lúc bắt đầu, để rootBranchEnd biết nhánh có bị dở */
+    private long rootBranchStart(boolean root) {
+        return root && progress != null ? report.cutCount() : 0;
+    }
+
+    /** Tiến độ: nhánh mức gốc ở vị trí i đã duyệt xong (không bị cắt giữa chừng) */
+    private void rootBranchEnd(boolean root, int i, long cuts) {
+        if (root && progress != null && report.cutCount() == cuts) progress.rootDone(i);
+    }
+
+    /**
+     * Xử lý 1 lần lặp của DCI-Closed: mở rộng P bằng postset[i].
+     * Lần lặp i chỉ đọc preset[0, presetSize) (= preset lúc vào nút + postset[0, i)) nên các lần lặp
+     * khác nhau của cùng 1 nút có thể chạy độc lập (xem BranchTask).
+     *
+     * T_new, X_ext, postsetNew được ghi vào bộ đệm của độ sâu `depth` -> không cấp phát.
      */
-    private void DCI_Closed_Recursive(Set<String> P, Set<Integer> TP,
-                                      List<String> postset, Set<String> preset,
-                                      boolean firstCall, int depth) {
+    private void processItem(SearchState state, ScratchStack scratch,
+                             int[] P, int pLen, TidSet TP,
+                             int[] postset, int postsetSize, int i,
+                             int presetSize, boolean firstCall, int depth) {
+        final int item = postset[i];
+        final Frame frame = scratch.frame(depth);
+        final int[] preset = scratch.preset;
+
+        // T_new = TID-set(P ∪ {item})
+        // firstCall => TP=null => lấy thẳng T(item) (TID-set bất biến nên không cần copy)
+        // Ngược lại: giao vào bộ đệm của độ sâu này, chọn cách mã hoá (bitmap/mảng/diffset) theo mật độ tại nút
+        TidSet T_new;
+        if (firstCall) {
+            T_new = verticalDB[item];
+        } else {
+            T_new = TidSet.intersect(TP, verticalDB[item], numTransactions, frame.tids);
+            state.countEncoding(T_new);
+        }
+
+        // Nếu support không đủ ngưỡng thì bỏ qua
+        if (!isFrequent(T_new)) {
+            return;
+        }
 
-        // Điều kiện dừng toàn cục: timeout, quá nhiều patterns, hoặc quá sâu
-        if (isTimeout() || closedPatterns.size() >= maxPatterns || depth > 10) {
-            // NOTE: depth limit=10 là heuristic; có thể cấu hình tuỳ dataset
+        // Chế độ incremental: nhánh không chứa dòng mới nào -> mọi mẫu trong nhánh (TID-set chỉ nhỏ dần)
+        // giữ nguyên support/closure như lần khai thác trước -> cắt cả nhánh
+        if (deltaRows != null && !T_new.andCardinalityAtLeast(deltaRows, 1)) {
             return;
         }
 
-        for (int i = 0; i < postset.size(); i++) {
-            String item = postset.get(i);
-
-            // T_new = TID-set(P ∪ {item})
-            // firstCall => TP=null => lấy thẳng T(item) để đỡ intersect
-            Set<Integer> T_new = firstCall
-                    ? new HashSet<>(verticalDB.get(item))
-                    : intersect(TP, verticalDB.get(item));
-
-            // Nếu support đủ minSup thì có tiềm năng
-            if (T_new.size() >= minSup) {
-                // X = P ∪ {item}
-                Set<String> X = new HashSet<>(P);
-                X.add(item);
-
-                // === Duplicate/Containment pruning (preset) ===
-                // Nếu tồn tại j trong preset sao cho:
-                //   |T(j)| >= |T_new| và T(j) ⊇ T_new
-                // => j "bao" T_new => X có thể là bản lặp tương đương về TID-set (không cần xét)
-                boolean isDuplicate = false;
-                for (String j : preset) {
-                    if (verticalDB.get(j).size() >= T_new.size() &&
-                            verticalDB.get(j).containsAll(T_new)) {
-                        isDuplicate = true;
-                        break;
-                    }
+        // === Duplicate/Containment pruning (preset) ===
+        // Nếu tồn tại j trong preset sao cho:
+        //   |T(j)| >= |T_new| và T(j) ⊇ T_new
+        // => j "bao" T_new => X có thể là bản lặp tương đương về TID-set (không cần xét)
+        for (int p = 0; p < presetSize; p++) {
+            if (T_new.isSubsetOf(verticalDB[preset[p]], frame.tids.cursor())) {   // đã gồm check |T(j)| >= |T_new|
+                return;
+            }
+        }
+
+        // X = P ∪ {item};  X_ext = closure(X): thêm các nextItem có T(next) ⊇ T_new
+        final int[] X_ext = frame.itemset;
+        System.arraycopy(P, 0, X_ext, 0, pLen);
+        int xLen = pLen;
+        X_ext[xLen++] = item;
+        TidSet T_X = T_new; // TID-set của X (dùng để đào sâu; nằm trong bộ đệm độ sâu này nên dùng chung)
+        final int[] postsetNew = frame.postset;
+        int postsetNewSize = 0;
+
+        // Duyệt các mục phía sau i để:
+        //  - nếu T(next) ⊇ T_new => next thuộc CLOSURE -> add thẳng vào X_ext
+        //  - ngược lại nếu support(T_new ∩ T(next)) >= ngưỡng => next là ứng viên mở rộng -> đưa vào postsetNew
+        for (int j = i + 1; j < postsetSize; j++) {
+            int nextItem = postset[j];
+            TidSet nextItemTids = verticalDB[nextItem];
+
+            if (T_new.isSubsetOf(nextItemTids, frame.tids.cursor())) {
+                // Bao phủ hoàn toàn: nằm trong closure
+                X_ext[xLen++] = nextItem;
+            } else if (isFrequentAnd(T_new, nextItemTids)) {
+                // Chỉ cần ĐẾM |T_new ∩ T(next)|, không tạo TID-set giao
+                // Có tiềm năng mở rộng (không nằm trong closure)
+                postsetNew[postsetNewSize++] = nextItem;
+            }
+        }
+
+        // Đếm thêm 1 "ứng viên" đã được xử lý
+        state.candidates++;
+
+        // Chế độ MAXIMAL: chỉ lá (không còn item nào mở rộng frequent) mới có thể tối đại; nút trong thử lookahead
+        // trước khi đào sâu. Các tập frequent chứa X mà có item của preset đều nằm ở phần cây đã duyệt (bên trái)
+        // nên chỉ cần so với các mẫu tối đại đã tìm thấy.
+        if (outputMode == OutputMode.MAXIMAL) {
+            if (postsetNewSize == 0) {
+                int[] pattern = scratch.pattern(xLen);
+                System.arraycopy(X_ext, 0, pattern, 0, xLen);
+                Arrays.sort(pattern);
+                emitMaximal(pattern, support(T_X), T_X.cardinality());
+                return;
+            }
+            if (lookahead(scratch, frame, X_ext, xLen, T_X, postsetNew, postsetNewSize)) {
+                return;
+            }
+        } else if (reservePatternSlot()) {
+            // Đẩy pattern đóng (X_ext, sort id tăng dần) ra sink - copy vào bộ đệm đúng độ dài (tái sử dụng, sink
+            // tự copy nếu cần giữ). DCI-Closed không sinh trùng (preset đã loại các nhánh tương đương) nên không cần Set.
+            int[] pattern = scratch.pattern(xLen);
+            System.arraycopy(X_ext, 0, pattern, 0, xLen);
+            Arrays.sort(pattern);
+            emit(pattern, support(T_X), T_X.cardinality());
+        }
+
+        // Đệ quy đào sâu nếu còn khả năng mở rộng (postsetNew không rỗng) và còn trong giới hạn depth (setMaxDepth).
+        // preset của con = preset[0, presetSize) hiện tại; con ghi tiếp phía sau trên cùng stack.
+        if (postsetNewSize > 0 && depth >= maxDepth) {
+            report.depthPruned();
+        } else if (postsetNewSize > 0) {
+            if (pool != null && shouldSplit(T_X.cardinality(), postsetNewSize) && canFork()) {
+                // Nhánh con đủ nặng: giao cho BranchTask (tự tách postset con thành các task song song).
+                // Task có thể chạy trên luồng khác nên phải chụp (copy) dữ liệu khỏi bộ đệm - chỉ xảy ra ở điểm fork.
+                // invoke() chạy ngay trên luồng hiện tại; bản chụp được tính vào ngân sách đến khi task xong.
+                long snapshotBytes = T_X.sizeInBytes() + 4L * (xLen + postsetNewSize + presetSize);
+                if (T_X instanceof DiffTidSet) snapshotBytes += ((DiffTidSet) T_X).base().sizeInBytes();
+                governor.charge(snapshotBytes);
+                state.allocations += 4;
+                try {
+                    state.append(new BranchTask(Arrays.copyOf(X_ext, xLen), xLen, T_X.copy(),
+                            Arrays.copyOf(postsetNew, postsetNewSize), postsetNewSize,
+                            Arrays.copyOf(preset, presetSize), presetSize, false, depth + 1, 0, postsetNewSize).invoke());
+                } finally {
+                    governor.release(snapshotBytes);
                 }
+            } else {
+                DCI_Closed_Recursive(state, scratch, X_ext, xLen, T_X, postsetNew, postsetNewSize,
+                        presetSize, false, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Lookahead của chế độ MAXIMAL với U = X ∪ postsetNew (mọi item còn có thể nối vào X):
+     *  - U đã nằm trong 1 mẫu tối đại có sẵn -> mọi tập của cây con cũng vậy, bỏ cả cây con
+     *  - U frequent -> U là mẫu tối đại duy nhất của cây con: đẩy U ra, bỏ cả cây con
+     * Support của U đếm bằng cách lọc dần TID của X qua T(item) trên mảng nháp của bộ đệm, dừng ngay khi
+     * số dòng còn lại không thể đủ ngưỡng.
+     *
+     * @return true nếu cây con đã xử lý xong (không cần đệ quy)
+     */
+    private boolean lookahead(ScratchStack scratch, Frame frame, int[] X_ext, int xLen, TidSet T_X,
+                              int[] postsetNew, int postsetNewSize) {
+        final int uLen = xLen + postsetNewSize;
+        final int[] union = scratch.pattern(uLen);
+        System.arraycopy(X_ext, 0, union, 0, xLen);
+        System.arraycopy(postsetNew, 0, union, xLen, postsetNewSize);
+        Arrays.sort(union);
+        if (maximalIndex.hasSuperset(union, uLen)) {
+            return true;
+        }
+
+        final int minRows = (supportThreshold + maxRowWeight - 1) / maxRowWeight;
+        final int[] tids = frame.tids.scratchTids(T_X.cardinality());
+        int count = T_X.filterTo(verticalDB[postsetNew[0]], true, tids, frame.tids.cursor());
+        for (int k = 1; k < postsetNewSize && count >= minRows; k++) {
+            TidSet next = verticalDB[postsetNew[k]];
+            int kept = 0;
+            for (int t = 0; t < count; t++) {
+                if (next.contains(tids[t])) tids[kept++] = tids[t];
+            }
+            count = kept;
+        }
+        if (count < minRows) {
+            return false;
+        }
+        int support = count;
+        if (rowWeights != null) {
+            support = 0;
+            for (int t = 0; t < count; t++) support += rowWeights[tids[t]];
+        }
+        if (support < supportThreshold) {
+            return false;
+        }
+        emitMaximal(union, support, count);
+        return true;
+    }
+
+    /** Đẩy 1 mẫu tối đại (id tăng dần) nếu chưa có mẫu tối đại nào chứa nó */
+    private void emitMaximal(int[] pattern, int support, int tidsetSize) {
+        if (maximalIndex.hasSuperset(pattern, pattern.length) || !reservePatternSlot()) {
+            return;
+        }
+        maximalIndex.add(pattern, support);
+        emit(pattern, support, tidsetSize);
+    }
+
+    /**
+     * Chế độ GENERATORS, kiểu DefMe: duyệt cây liệt kê tập (chỉ nối item đứng sau -> mỗi tập gặp đúng 1 lần).
+     * G là generator <=> với mọi x ∈ G có dòng chứa G \ {x} mà không chứa x ("dòng tới hạn" crit(x)).
+     * Nối item i vào G:
+     *     crit'(x) = crit(x) ∩ T(i)  (x ∈ G),   crit'(i) = T(G) \ T(i)
+     * -> G ∪ {i} là generator <=> mọi crit' khác rỗng. Tập con của generator cũng là generator nên nhánh
+     * không phải generator bị cắt cả cây con. Các crit(x) rời nhau (dòng tới hạn của x thiếu đúng x) nên tổng
+     * kích thước <= số dòng, nằm trong 1 mảng của bộ đệm độ sâu.
+     *
+     * @param G        generator hiện tại, dùng [0, gLen) (id tăng dần)
+     * @param TG       TID-set của G (null = G rỗng, mọi dòng)
+     * @param crit     dòng tới hạn: crit(G[k]) = crit[k == 0 ? 0 : critEnd[k - 1], critEnd[k])
+     * @param postset  item có thể nối vào G (đứng sau G, frequent cùng G)
+     */
+    private void generatorRecursive(SearchState state, ScratchStack scratch, int[] G, int gLen, TidSet TG,
+                                    int[] crit, int[] critEnd, int[] postset, int postsetSize, int depth) {
+        final Frame frame = scratch.frame(depth);
+        final int tgRows = TG == null ? numTransactions : TG.cardinality();
+        final int critTotal = gLen == 0 ? 0 : critEnd[gLen - 1];
+
+        for (int i = 0; i < postsetSize; i++) {
+            if (shouldStop(state)) {
+                return;
+            }
+            if (!inFirstLevelPartition(TG == null, i) || checkpointDone(depth, i)) {
+                continue;
+            }
+            long cuts = rootBranchStart(TG == null);
+            beginBranch(depth, i);
+            generatorItem(state, scratch, frame, G, gLen, TG, tgRows, crit, critEnd, critTotal, postset, postsetSize,
+                    i, depth);
+            endBranch(depth);
+            rootBranchEnd(TG == null, i, cuts);
+        }
+    }
+
+    /** 1 lần lặp của generatorRecursive: thử nối postset[i] vào G (tgRows = |T(G)|, critTotal = tổng |crit(x)|) */
+    private void generatorItem(SearchState state, ScratchStack scratch, Frame frame, int[] G, int gLen, TidSet TG,
+                               int tgRows, int[] crit, int[] critEnd, int critTotal, int[] postset, int postsetSize,
+                               int i, int depth) {
+        final int item = postset[i];
+        final TidSet itemTids = verticalDB[item];
+
+        TidSet T_new;
+        if (TG == null) {
+            T_new = itemTids;
+        } else {
+            T_new = TidSet.intersect(TG, itemTids, numTransactions, frame.tids);
+            state.countEncoding(T_new);
+        }
+        if (!isFrequent(T_new)) {
+            return;
+        }
+        // crit'(item) rỗng <=> T(G) ⊆ T(item): item nằm trong closure của G. Ở gốc (G rỗng) phải so support với
+        // tổng trọng số CSDL gốc, không so số dòng: giao dịch không còn item frequent bị compact bỏ (không có dòng)
+        // nhưng vẫn là dòng tới hạn của item
+        final int newRows = T_new.cardinality();
+        if (TG == null ? support(T_new) == databaseWeight : newRows == tgRows) {
+            return;
+        }
+
+        // crit'(x) với x ∈ G: lọc crit(x) theo T(item), dừng ngay khi gặp crit' rỗng
+        final int[] childCrit = scratch.critTids(frame, Math.min(numTransactions, critTotal + tgRows - newRows));
+        final int[] childEnd = frame.critEnd;
+        int n = 0;
+        boolean generator = true;
+        for (int k = 0; k < gLen && generator; k++) {
+            int start = n;
+            for (int t = k == 0 ? 0 : critEnd[k - 1]; t < critEnd[k]; t++) {
+                if (itemTids.contains(crit[t])) childCrit[n++] = crit[t];
+            }
+            childEnd[k] = n;
+            generator = n > start;
+        }
+        if (!generator) {
+            return;
+        }
+        // crit'(item) = T(G) \ T(item). Ở gốc, giao dịch bị compact bỏ không nằm trong danh sách (không có dòng) -
+        // chúng đã được tính ở phép so support phía trên, và không chứa item frequent nào nên lần lọc kế tiếp
+        // crit(item) ∩ T(j) cũng loại chúng
+        if (TG == null) {
+            for (int r = 0; r < numTransactions; r++) {
+                if (!itemTids.contains(r)) childCrit[n++] = r;
+            }
+        } else {
+            int[] diff = frame.tids.scratchTids(tgRows - newRows);
+            int m = TG.filterTo(itemTids, false, diff, frame.tids.cursor());
+            System.arraycopy(diff, 0, childCrit, n, m);
+            n += m;
+        }
+        childEnd[gLen] = n;
+
+        // Đếm thêm 1 "ứng viên" đã được xử lý
+        state.candidates++;
+
+        // G ∪ {item}: item nối theo thứ tự postset (itemOrder) - bản đẩy ra sink được sort theo id
+        final int[] X = frame.itemset;
+        System.arraycopy(G, 0, X, 0, gLen);
+        X[gLen] = item;
+        if (reservePatternSlot()) {
+            int[] pattern = scratch.pattern(gLen + 1);
+            System.arraycopy(X, 0, pattern, 0, gLen + 1);
+            if (itemOrder != ItemOrder.SUPPORT_ASCENDING) Arrays.sort(pattern);
+            emit(pattern, support(T_new), newRows);
+        }
+
+        // postset con: item đứng sau, frequent cùng T_new và không nằm trong closure (T_new ⊆ T(j) -> crit'(j) rỗng)
+        final int[] postsetNew = frame.postset;
+        int postsetNewSize = 0;
+        for (int j = i + 1; j < postsetSize; j++) {
+            TidSet nextItemTids = verticalDB[postset[j]];
+            if (!T_new.isSubsetOf(nextItemTids, frame.tids.cursor()) && isFrequentAnd(T_new, nextItemTids)) {
+                postsetNew[postsetNewSize++] = postset[j];
+            }
+        }
+
+        if (postsetNewSize > 0 && depth >= maxDepth) {
+            report.depthPruned();
+        } else if (postsetNewSize > 0) {
+            generatorRecursive(state, scratch, X, gLen + 1, T_new, childCrit, childEnd,
+                    postsetNew, postsetNewSize, depth + 1);
+        }
+    }
 
-                if (!isDuplicate) {
-                    // X_ext = closure(X): thêm các nextItem có T(next) ⊇ T_new
-                    Set<String> X_ext = new HashSet<>(X);
-                    Set<Integer> T_X = new HashSet<>(T_new); // TID-set của X (dùng để đào sâu)
-                    List<String> postsetNew = new ArrayList<>();
-
-                    // Duyệt các mục phía sau i để:
-                    //  - nếu T(next) ⊇ T_new => next thuộc CLOSURE -> add thẳng vào X_ext
-                    //  - ngược lại nếu |T_new ∩ T(next)| >= minSup => next là ứng viên mở rộng -> đưa vào postsetNew
-                    for (int j = i + 1; j < postset.size(); j++) {
-                        String nextItem = postset.get(j);
-                        Set<Integer> nextItemTids = verticalDB.get(nextItem);
-
-                        if (nextItemTids.size() >= T_new.size() &&
-                                nextItemTids.containsAll(T_new)) {
-                            // Bao phủ hoàn toàn: nằm trong closure
-                            X_ext.add(nextItem);
-                        } else if (intersect(T_new, nextItemTids).size() >= minSup) {
-                            // Có tiềm năng mở rộng (không nằm trong closure)
-                            postsetNew.add(nextItem);
-                        }
-                    }
-
-                    // Đếm thêm 1 "ứng viên" đã được xử lý
-                    candidatesGenerated++;
-
-                    // Lưu pattern đóng (X_ext) nếu chưa vượt giới hạn
-                    if (closedPatterns.size() < maxPatterns) {
-                        // NOTE: Không check trùng lặp X_ext với patterns trước đó theo nghĩa "đặt chuẩn",
-                        // HashSet<Set<String>> sẽ dựa trên equals() của Set để loại trùng nội dung.
-                        closedPatterns.add(new HashSet<>(X_ext));
-                    }
-
-                    // Đệ quy đào sâu nếu còn khả năng mở rộng (postsetNew không rỗng) và còn trong giới hạn depth
-                    // Ở đây depth < 8 chặt hơn điều kiện dừng tổng (depth > 10) -> heuristic để kìm nén nhánh sâu.
-                    if (!postsetNew.isEmpty() && depth < 8) {
-                        DCI_Closed_Recursive(X_ext, T_X, postsetNew,
-                                new HashSet<>(preset), false, depth + 1);
-                    }
+    /** Đặt trọng số dòng (null = mọi dòng trọng số 1) và cận trên maxRowWeight */
+    private void setRowWeights(int[] weights) {
+        rowWeights = weights;
+        maxRowWeight = 1;
+        if (weights != null) {
+            for (int w : weights) maxRowWeight = Math.max(maxRowWeight, w);
+        }
+    }
+
+    /** Support = tổng trọng số các dòng (= số dòng nếu không có dòng gộp) */
+    private int support(TidSet tids) {
+        return rowWeights == null ? tids.cardinality() : tids.weight(rowWeights);
+    }
+
+    /**
+     * support(tids) >= ngưỡng? Trọng số nằm trong [1, maxRowWeight] nên:
+     * đủ dòng -> chắc chắn frequent; số dòng * maxRowWeight < ngưỡng -> chắc chắn không; còn lại mới cộng trọng số.
+     */
+    private boolean isFrequent(TidSet tids) {
+        final int threshold = supportThreshold;
+        int rowCount = tids.cardinality();
+        if (rowCount >= threshold || rowWeights == null) return rowCount >= threshold;
+        if ((long) rowCount * maxRowWeight < threshold) return false;
+        return tids.weight(rowWeights) >= threshold;
+    }
+
+    /**
+     * support(a ∩ b) >= ngưỡng? (không tạo TID-set giao, đếm có cận - dừng sớm khi đã đủ / không thể đủ)
+     * Có trọng số: đủ ngưỡng dòng -> frequent; không đủ ceil(ngưỡng / maxRowWeight) dòng -> không; còn lại cộng trọng số.
+     */
+    private boolean isFrequentAnd(TidSet a, TidSet b) {
+        final int threshold = supportThreshold;
+        if (a.andCardinalityAtLeast(b, threshold)) return true;
+        if (rowWeights == null) return false;
+        if (!a.andCardinalityAtLeast(b, (threshold + maxRowWeight - 1) / maxRowWeight)) return false;
+        return a.andWeight(b, rowWeights) >= threshold;
+    }
+
+    /**
+     * Sink nội bộ của chế độ top-k: min-heap k mẫu theo support. Heap đầy -> nâng supportThreshold của miner
+     * lên support nhỏ nhất + 1 (mẫu chỉ bằng mẫu thứ k không cải thiện được kết quả).
+     * Luôn được gọi tuần tự (emit đồng bộ trên sink khi chạy song song).
+     */
+    private final class TopKCollector implements ClosedPatternSink {
+        private final int k;
+        private final int minLength;
+        private final PriorityQueue<int[]> heap;   // phần tử: [support, item...], đỉnh = support nhỏ nhất
+
+        TopKCollector(int k, int minLength) {
+            this.k = k;
+            this.minLength = minLength;
+            this.heap = new PriorityQueue<>(Math.min(k, 1 << 16), (a, b) -> Integer.compare(a[0], b[0]));
+        }
+
+        @Override
+        public void accept(int[] pattern, int support, int tidsetSize) {
+            if (pattern.length < minLength) return;
+            if (heap.size() == k) {
+                if (support <= heap.peek()[0]) return;
+                heap.poll();
+            }
+            int[] entry = new int[pattern.length + 1];
+            entry[0] = support;
+            System.arraycopy(pattern, 0, entry, 1, pattern.length);
+            heap.add(entry);
+            if (heap.size() == k && heap.peek()[0] + 1 > supportThreshold) {
+                supportThreshold = heap.peek()[0] + 1;
+            }
+        }
+
+        /** Kết quả theo support giảm dần */
+        PatternStore toStore() {
+            List<int[]> entries = new ArrayList<>(heap);
+            entries.sort((a, b) -> Integer.compare(b[0], a[0]));
+            PatternStore store = new PatternStore();
+            for (int[] entry : entries) {
+                store.add(Arrays.copyOfRange(entry, 1, entry.length), entry[0]);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Đẩy 1 mẫu ra sink; song song thì tuần tự hoá các lần gọi để sink không cần tự đồng bộ,
+     * trừ sink tự an toàn đa luồng (isConcurrent) - gọi thẳng, không khoá chung.
+     */
+    private void emit(int[] pattern, int support, int tidsetSize) {
+        if (checkpoint != null) checkpoint.record(pattern, support, tidsetSize);
+        if (pool == null || sink.isConcurrent()) {
+            deliver(pattern, support, tidsetSize);
+        } else {
+            synchronized (sink) {
+                deliver(pattern, support, tidsetSize);
+            }
+        }
+    }
+
+    /** sink.accept + cập nhật bộ nhớ sink đang giữ; từ mức SPILL thì yêu cầu sink nhả bộ nhớ */
+    private void deliver(int[] pattern, int support, int tidsetSize) {
+        sink.accept(pattern, support, tidsetSize);
+        governor.setPatternBytes(retainedPatternBytes());
+        if (governor.pressure().compareTo(ResourceGovernor.Pressure.SPILL) >= 0) {
+            long freed = sink.spill();
+            if (freed > 0) {
+                report.spilled(freed);
+                governor.setPatternBytes(retainedPatternBytes());
+            }
+        }
+    }
+
+    /** Bộ nhớ mẫu đang giữ: phần sink giữ + chỉ mục mẫu tối đại (MAXIMAL - không spill được) */
+    private long retainedPatternBytes() {
+        long bytes = sink.retainedBytes();
+        return maximalIndex == null ? bytes : bytes + maximalIndex.sizeInBytes();
+    }
+
+    /**
+     * Giữ 1 chỗ trong giới hạn patternLimit (an toàn khi nhiều luồng cùng thêm mẫu).
+     * Không giới hạn (mặc định) -> chỉ đếm bằng LongAdder, các luồng không CAS tranh nhau 1 biến.
+     */
+    private boolean reservePatternSlot() {
+        if (patternLimit == Integer.MAX_VALUE) {
+            unlimitedCount.increment();
+            return true;
+        }
+        while (true) {
+            int current = patternCount.get();
+            if (current >= patternLimit) {
+                report.patternLimitReached();
+                return false;
+            }
+            if (patternCount.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /** Số mẫu đã đẩy ra sink trong lần khai thác hiện tại */
+    private int emittedCount() {
+        return patternLimit == Integer.MAX_VALUE ? (int) unlimitedCount.sum() : patternCount.get();
+    }
+
+    /** Mức COMPACT trở lên: không chụp TID-set để fork nữa, nhánh con chạy tại chỗ trên bộ đệm hiện có */
+    private boolean canFork() {
+        if (governor.pressure().compareTo(ResourceGovernor.Pressure.COMPACT) < 0) return true;
+        report.forkInlined();
+        return false;
+    }
+
+    /**
+     * Ngưỡng tách thích nghi: chi phí nhánh ~ |TID-set| * |postset|^2 (mỗi item trong postset lại quét
+     * phần postset phía sau). Nhánh lệch (chess) có TID-set lớn + postset dài nên bị tách tiếp ở các mức sâu.
+     * Không tách nữa khi hàng đợi của luồng hiện tại đã dư task (các luồng khác sẽ "ăn trộm" việc từ đó).
+     */
+    private boolean shouldSplit(int tidsetSize, int postsetLength) {
+        return (long) tidsetSize * postsetLength * postsetLength >= parallelSplitThreshold
+                && ForkJoinTask.getSurplusQueuedTaskCount() < 4;
+    }
+
+    /**
+     * Bộ đếm của 1 nhánh tìm kiếm (mẫu đóng đi thẳng ra sink). Mỗi task có state riêng (không khoá),
+     * task cha cộng dồn state của các task con.
+     */
+    private static final class SearchState {
+        int candidates;
+        int reportedCandidates;                 // phần candidates đã cộng vào tiến độ (ProgressTracker)
+        int untilCheck;                         // số nút còn lại tới lần kiểm tra định kỳ kế tiếp (shouldStop)
+        long allocations;                       // cấp phát của pha đệ quy (bộ đệm, snapshot khi fork)
+        final int[] encodingStats = new int[4]; // [bitmap, mảng, diffset, nén]
+
+        void countEncoding(TidSet tids) {
+            if (TidSet.isBitmap(tids)) encodingStats[0]++;
+            else if (tids instanceof ArrayTidSet || tids instanceof OffHeapArrayTidSet) encodingStats[1]++;
+            else if (tids instanceof RoaringTidSet) encodingStats[3]++;
+            else encodingStats[2]++;
+        }
+
+        void append(SearchState other) {
+            candidates += other.candidates;
+            reportedCandidates += other.reportedCandidates;
+            allocations += other.allocations;
+            for (int k = 0; k < encodingStats.length; k++) encodingStats[k] += other.encodingStats[k];
+        }
+    }
+
+    /**
+     * Tiến độ của 1 lần duyệt (setProgressListener). Các luồng cộng dồn không khoá (AtomicInteger / Adder);
+     * chỉ lúc gọi listener mới vào synchronized để các lần báo không chồng nhau.
+     * Nhánh mức gốc đã xong từ checkpoint tính là xong nhưng không tính vào tốc độ (không tốn thời gian lần này).
+     */
+    private final class ProgressTracker {
+        private final long start = System.currentTimeMillis();
+        private final double[] weights;             // trọng số chi phí theo vị trí gốc (0 = ngoài partition)
+        private final int total;
+        private final double totalWeight;
+        private final double resumedWeight;
+        private final AtomicInteger done = new AtomicInteger();
+        private final DoubleAdder doneWeight = new DoubleAdder();
+        private final LongAdder candidates = new LongAdder();
+        private volatile long lastReport = start;
+
+        ProgressTracker(int[] postset, int postsetSize) {
+            weights = new double[postsetSize];
+            int count = 0, resumed = 0;
+            double sum = 0, resumedSum = 0;
+            for (int i = 0; i < postsetSize; i++) {
+                if (!inFirstLevelPartition(true, i)) continue;
+                double after = postsetSize - i;
+                weights[i] = verticalDB[postset[i]].cardinality() * after * after;
+                count++;
+                sum += weights[i];
+                if (checkpointDone(0, i)) {
+                    resumed++;
+                    resumedSum += weights[i];
                 }
             }
+            total = count;
+            totalWeight = sum;
+            resumedWeight = resumedSum;
+            done.set(resumed);
+            doneWeight.add(resumedSum);
+        }
 
-            // Thêm 'item' vào preset để lần sau dùng cho duplicate pruning
-            preset.add(item);
+        void rootDone(int i) {
+            done.incrementAndGet();
+            doneWeight.add(weights[i]);
+        }
+
+        /** Gọi ở mỗi lần kiểm tra định kỳ: cộng ứng viên mới của state, đến chu kỳ thì báo listener */
+        void poll(SearchState state, long now) {
+            flush(state);
+            if (now - lastReport < progressIntervalMs) return;
+            synchronized (this) {
+                if (now - lastReport < progressIntervalMs) return;
+                lastReport = now;
+                progressListener.onProgress(snapshot(now, false));
+            }
+        }
+
+        /** Cộng phần ứng viên của state chưa báo */
+        void flush(SearchState state) {
+            candidates.add(state.candidates - state.reportedCandidates);
+            state.reportedCandidates = state.candidates;
+        }
+
+        /** Lần báo cuối (lỗi từ listener lúc này chỉ in ra, không che kết quả của lần duyệt) */
+        synchronized void finish() {
+            try {
+                progressListener.onProgress(snapshot(System.currentTimeMillis(), true));
+            } catch (RuntimeException e) {
+                System.err.println("   ⚠️ Lỗi từ ProgressListener: " + e.getMessage());
+            }
+        }
+
+        private MiningProgress snapshot(long now, boolean finished) {
+            long elapsed = now - start;
+            double doneSum = doneWeight.sum();
+            long remaining = finished ? 0
+                    : doneSum > resumedWeight ? (long) (elapsed * (totalWeight - doneSum) / (doneSum - resumedWeight)) : -1;
+            return new MiningProgress(done.get(), total, emittedCount(), candidates.sum(), elapsed, remaining, finished);
         }
     }
 
     /**
-     * Giao 2 TID-set: tối ưu bằng cách luôn lặp qua set nhỏ hơn
-     * (đơn giản, dễ hiểu; nếu dùng BitSet/RoaringBitmap sẽ nhanh hơn nhiều).
+     * Task fork/join cho đoạn [from, to) của postset tại 1 nút tìm kiếm.
+     *  - Đoạn đủ nặng -> chia đôi, fork nửa phải (luồng rảnh sẽ work-steal), tự làm nửa trái.
+     *  - Ngược lại -> chạy tuần tự các lần lặp trong đoạn (nhánh con nặng lại được tách tiếp trong processItem).
+     * preset nhận vào là preset LÚC VÀO NÚT (chỉ đọc); preset của lần lặp i = preset đó + postset[0, i).
      */
-    private Set<Integer> intersect(Set<Integer> a, Set<Integer> b) {
-        // Optimization: luôn iterate qua set nhỏ hơn để giảm contains() calls
-        if (a.size() > b.size()) {
-            Set<Integer> temp = a;
-            a = b;
-            b = temp;
+    private final class BranchTask extends RecursiveTask<SearchState> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] P;
+        private final int pLen;
+        private final TidSet TP;
+        private final int[] postset;
+        private final int postsetSize;
+        private final int[] preset;
+        private final int presetSize;
+        private final boolean firstCall;
+        private final int depth;
+        private final int from, to;
+
+        BranchTask(int[] P, int pLen, TidSet TP, int[] postset, int postsetSize,
+                   int[] preset, int presetSize, boolean firstCall, int depth, int from, int to) {
+            this.P = P;
+            this.pLen = pLen;
+            this.TP = TP;
+            this.postset = postset;
+            this.postsetSize = postsetSize;
+            this.preset = preset;
+            this.presetSize = presetSize;
+            this.firstCall = firstCall;
+            this.depth = depth;
+            this.from = from;
+            this.to = to;
         }
 
-        Set<Integer> result = new HashSet<>();
-        for (Integer item : a) {
-            if (b.contains(item)) {
-                result.add(item);
+        @Override
+        protected SearchState compute() {
+            SearchState state = new SearchState();
+            if (shouldStop(state)) {
+                return state;
+            }
+
+            int tidsetSize = TP == null ? numTransactions : TP.cardinality();
+            if (to - from > 1 && shouldSplit(tidsetSize, postsetSize - from)) {
+                int mid = (from + to) >>> 1;
+                BranchTask right = new BranchTask(P, pLen, TP, postset, postsetSize,
+                        preset, presetSize, firstCall, depth, mid, to);
+                right.fork();
+                state.append(new BranchTask(P, pLen, TP, postset, postsetSize,
+                        preset, presetSize, firstCall, depth, from, mid).compute());
+                state.append(right.join());
+                return state;
+            }
+
+            // Bộ đệm riêng cho task lá (1 luồng có thể chạy lồng task khác khi join, nên không dùng chung theo luồng).
+            // preset cục bộ = preset lúc vào nút + các item đứng trước đoạn này trong postset
+            ScratchStack scratch = new ScratchStack(presetSize + postsetSize + pLen);
+            System.arraycopy(preset, 0, scratch.preset, 0, presetSize);
+            System.arraycopy(postset, 0, scratch.preset, presetSize, from);
+            int localPresetSize = presetSize + from;
+
+            for (int i = from; i < to; i++) {
+                if (shouldStop(state)) break;
+                if (inFirstLevelPartition(firstCall, i)) {
+                    long cuts = rootBranchStart(firstCall);
+                    processItem(state, scratch, P, pLen, TP, postset, postsetSize, i, localPresetSize, firstCall, depth);
+                    rootBranchEnd(firstCall, i, cuts);
+                }
+                scratch.preset[localPresetSize++] = postset[i];
             }
+            state.allocations += scratch.allocationCount();
+            scratch.release();
+            return state;
         }
-        return result;
+    }
+
+    /**
+     * Bộ đệm tái sử dụng theo độ sâu cho 1 luồng tìm kiếm (tuần tự: 1 cái cho cả lần chạy; song song: 1 cái / task lá).
+     *  - frame(d): TID-set, itemset X_ext, postsetNew của nút ở độ sâu d (tạo lần đầu cần tới rồi dùng lại mãi)
+     *  - pattern(len): bộ đệm đúng độ dài để đẩy mẫu đóng ra sink
+     *  - preset  : stack dùng chung cho mọi độ sâu (preset và postset của 1 nút luôn rời nhau và đều là
+     *              item frequent, nên capacity = số item frequent là đủ)
+     * Mọi bộ đệm được tính vào bộ nhớ làm việc của governor; release() trả lại khi luồng/task dùng xong.
+     */
+    private final class ScratchStack {
+        final int[] preset;
+        private final int capacity;
+        private Frame[] frames = new Frame[0];
+        private final int[][] patternBuffers;    // patternBuffers[len]: bộ đệm mẫu đóng đúng độ dài len để đẩy ra sink
+        private long allocations;
+        private long chargedBytes;               // đã charge() cho governor (ngoài các TidSetBuffer)
+
+        /** @param capacity số item tối đa của itemset / postset / preset (= số item frequent đang duyệt) */
+        ScratchStack(int capacity) {
+            this.capacity = capacity;
+            this.preset = new int[capacity];
+            this.patternBuffers = new int[capacity + 1][];
+            this.allocations = 2;
+            charge(4L * capacity + 8L * (capacity + 1));
+        }
+
+        Frame frame(int depth) {
+            if (depth >= frames.length) {
+                frames = Arrays.copyOf(frames, Math.max(depth + 1, frames.length * 2));
+                allocations++;
+            }
+            Frame frame = frames[depth];
+            if (frame == null) {
+                frame = new Frame(capacity, numTransactions, governor);
+                frames[depth] = frame;
+                allocations += 3;
+                charge(8L * capacity);
+            }
+            return frame;
+        }
+
+        /** Bộ đệm độ dài đúng len (mỗi độ dài chỉ cấp phát 1 lần) */
+        int[] pattern(int len) {
+            int[] buffer = patternBuffers[len];
+            if (buffer == null) {
+                buffer = new int[len];
+                patternBuffers[len] = buffer;
+                allocations++;
+                charge(4L * len);
+            }
+            return buffer;
+        }
+
+        /** Mảng dòng tới hạn (chế độ GENERATORS) của frame, đủ chỗ cho capacity TID - nới gấp đôi, không quá |DB| */
+        int[] critTids(Frame frame, int capacity) {
+            if (frame.critEnd == null) {
+                frame.critEnd = new int[this.capacity];
+                allocations++;
+                charge(4L * this.capacity);
+            }
+            if (frame.critTids.length < capacity) {
+                int grown = Math.max(capacity, Math.min(frame.critTids.length * 2, numTransactions));
+                charge(4L * (grown - frame.critTids.length));
+                frame.critTids = new int[grown];
+                allocations++;
+            }
+            return frame.critTids;
+        }
+
+        long allocationCount() {
+            long total = allocations;
+            for (Frame frame : frames) {
+                if (frame != null) total += frame.tids.getAllocations();
+            }
+            return total;
+        }
+
+        /** Trả lại cho governor toàn bộ bộ nhớ của stack này (gọi 1 lần khi dùng xong) */
+        void release() {
+            long total = chargedBytes;
+            for (Frame frame : frames) {
+                if (frame != null) total += frame.tids.sizeInBytes();
+            }
+            governor.release(total);
+            chargedBytes = 0;
+            frames = new Frame[0];
+        }
+
+        private void charge(long bytes) {
+            chargedBytes += bytes;
+            governor.charge(bytes);
+        }
+    }
+
+    /** Bộ đệm của 1 độ sâu */
+    private static final class Frame {
+        final TidSetBuffer tids;
+        final int[] itemset;
+        final int[] postset;
+        int[] critTids = new int[0];    // dòng tới hạn của nút con (chỉ chế độ GENERATORS)
+        int[] critEnd;                  // critEnd[k] = cuối crit của item thứ k (cấp lần đầu cần tới)
+
+        Frame(int capacity, int numTransactions, ResourceGovernor governor) {
+            this.tids = new TidSetBuffer(numTransactions, governor);
+            this.itemset = new int[capacity];
+            this.postset = new int[capacity];
+        }
+    }
+
+    /** Thống kê cách mã hoá TID-set (in ra cuối run để biết dataset đang "dày" hay "thưa") */
+    private void countEncoding(TidSet tids) {
+        if (TidSet.isBitmap(tids)) encodingStats[0]++;
+        else if (tids instanceof ArrayTidSet || tids instanceof OffHeapArrayTidSet) encodingStats[1]++;
+        else if (tids instanceof RoaringTidSet) encodingStats[3]++;
+        else encodingStats[2]++;
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+/**
+ * ClosedPatternSink
+ * -----------------
+ * Nơi nhận từng MẪU ĐÓNG ngay khi ClosedPatternMining tìm được (streaming), thay vì gom hết vào 1 List.
+ * Nhờ vậy số mẫu khai thác được không còn bị giới hạn bởi RAM (đếm, ghi file, lọc similarity
+ * đều chạy với bộ nhớ cố định).
+ *
+ * Các sink có sẵn:
+ *  - CountingPatternSink   : chỉ đếm (số mẫu, tổng support, độ dài lớn nhất)
+ *  - CollectingPatternSink : gom vào List<int[]> (hành vi cũ của run())
+ *  - FilePatternSink       : ghi từng mẫu ra file text
+ *  - SimilarityFilterSink  : lọc similarity ngay khi nhận (SimilarityChecker)
+ *  - PatternStore          : giữ mẫu + support trong 1 arena int[] gọn
+ *  - SpillingPatternStore  : như PatternStore nhưng tràn ra đĩa (run nén đã sắp xếp) khi thiếu RAM
+ *  - ConcurrentPatternStore: nhận từ nhiều luồng không khoá (bộ đệm riêng mỗi luồng, gộp theo shard)
+ *
+ * LƯU Ý:
+ *  - Mảng pattern là bộ đệm TÁI SỬ DỤNG của miner (id tăng dần), chỉ hợp lệ trong lúc gọi accept().
+ *    Sink nào cần giữ lại phải tự copy (pattern.clone()).
+ *  - Ở chế độ song song, miner gọi accept() tuần tự hoá (synchronized trên sink) nên sink không cần
+ *    tự đồng bộ; nhưng THỨ TỰ các mẫu có thể khác lần chạy tuần tự. Sink tự an toàn đa luồng báo
+ *    isConcurrent() = true để miner gọi thẳng từ mọi luồng (không khoá chung).
+ *  - Sink GIỮ mẫu trong RAM nên báo retainedBytes() để ResourceGovernor tính vào ngân sách bộ nhớ;
+ *    sink nhả được bộ nhớ (vd: ghi ra đĩa) thì cài spill() - governor gọi khi áp lực lên mức SPILL.
+ */
+interface ClosedPatternSink {
+
+    /**
+     * @param pattern    mẫu đóng (mảng id item tăng dần, xem ItemDictionary) - chỉ đọc, không giữ lại
+     * @param support    support của mẫu (số giao dịch chứa mẫu)
+     * @param tidsetSize số phần tử TID-set của mẫu
+     */
+    void accept(int[] pattern, int support, int tidsetSize);
+
+    /**
+     * true = accept() / retainedBytes() an toàn khi nhiều luồng gọi cùng lúc -> miner song song không tuần tự hoá.
+     * Mặc định false.
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
+
+    /** Bộ nhớ (byte, ước lượng) sink đang giữ; mặc định 0 = không giữ mẫu nào */
+    default long retainedBytes() {
+        return 0;
+    }
+
+    /**
+     * Nhả bớt bộ nhớ đang giữ (vd: ghi phần đã nhận ra đĩa). Được gọi giữa 2 lần accept(), tuần tự hoá như accept().
+     * @return số byte đã nhả; 0 = sink không nhả được (governor chuyển sang cắt nhánh khi hết ngân sách)
+     */
+    default long spill() {
+        return 0;
+    }
+}
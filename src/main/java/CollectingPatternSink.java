@@ -0,0 +1,29 @@
+import java.util.*;
+
+/**
+ * CollectingPatternSink
+ * ---------------------
+ * Sink gom mọi mẫu đóng vào List<int[]> (copy từ bộ đệm của miner) - đúng hành vi cũ của
+ * ClosedPatternMining.run(). Bộ nhớ tăng theo số mẫu, nên chỉ dùng khi cần toàn bộ kết quả
+ * (vd: lọc similarity theo lô có sắp xếp lại).
+ */
+class CollectingPatternSink implements ClosedPatternSink {
+    private final List<int[]> patterns = new ArrayList<>();
+    private long bytes;
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        patterns.add(pattern.clone());
+        bytes += 16 + 4L * pattern.length + 8; // header mảng + dữ liệu + 1 ô tham chiếu trong List
+    }
+
+    @Override
+    public long retainedBytes() {
+        return bytes;
+    }
+
+    /** Các mẫu đã nhận, theo thứ tự miner đẩy ra */
+    public List<int[]> getPatterns() {
+        return patterns;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * CollectorBenchmark
+ * ------------------
+ * Đo tranh chấp khi NHIỀU luồng cùng đẩy mẫu vào 1 sink:
+ *  - synchronized : PatternStore + synchronized trên sink (cách miner song song gọi sink thường)
+ *  - concurrent   : ConcurrentPatternStore (bộ đệm riêng mỗi luồng, gộp theo shard - không khoá chung),
+ *                   thời gian tính cả pha gộp
+ * Tải công việc: mẫu ngẫu nhiên (id tăng dần) sinh trước, ~10% trùng nhau giữa các luồng; luồng t lấy mẫu
+ * t, t + T, t + 2T, ... Số mẫu khác nhau của 2 cách phải bằng nhau.
+ *
+ * Nếu truyền dataset: chạy thêm ClosedPatternMining song song với 2 loại sink trên cùng dataset.
+ *
+ * Chạy: java CollectorBenchmark [số mẫu] [số luồng tối đa] [file dataset] [minSup tỉ lệ]
+ *   vd: java CollectorBenchmark 2000000 64 chess.txt 0.5
+ */
+public class CollectorBenchmark {
+    public static void main(String[] args) throws Exception {
+        final int total = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        final int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        // 1) Sinh trước các mẫu (không tính vào thời gian đo)
+        Random random = new Random(42);
+        int[][] patterns = new int[total][];
+        for (int p = 0; p < total; p++) {
+            if (p > 0 && random.nextInt(10) == 0) {
+                patterns[p] = patterns[random.nextInt(p)]; // mẫu trùng
+                continue;
+            }
+            int len = 2 + random.nextInt(9);
+            TreeSet<Integer> items = new TreeSet<>();
+            while (items.size() < len) items.add(random.nextInt(200));
+            int[] pattern = new int[len];
+            int k = 0;
+            for (int item : items) pattern[k++] = item;
+            patterns[p] = pattern;
+        }
+        System.out.println("🧪 " + total + " mẫu | CPU=" + Runtime.getRuntime().availableProcessors());
+
+        // 2) Vài vòng làm ấm JIT rồi đo theo số luồng
+        for (int warm = 0; warm < 2; warm++) {
+            runSynchronized(patterns, 4);
+            runConcurrent(patterns, 4);
+        }
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] sync = runSynchronized(patterns, threads);
+            long[] conc = runConcurrent(patterns, threads);
+            System.out.printf("⏱️ %2d luồng | synchronized %7.1f ms (%.2f M mẫu/s) | concurrent %7.1f ms (%.2f M mẫu/s,"
+                            + " x%.2f)%s%n",
+                    threads, sync[0] / 1e6, total * 1e3 / sync[0], conc[0] / 1e6, total * 1e3 / conc[0],
+                    (double) sync[0] / conc[0], sync[1] == conc[1] ? "" : " ❌ khác số mẫu");
+        }
+
+        // 3) Tuỳ chọn: miner song song thật với 2 loại sink
+        if (args.length > 2) {
+            benchmarkMining(args[2], args.length > 3 ? Double.parseDouble(args[3]) : 0.5, maxThreads);
+        }
+    }
+
+    /** @return [thời gian ns, số mẫu khác nhau] */
+    private static long[] runSynchronized(int[][] patterns, int threads) throws InterruptedException {
+        PatternStore store = new PatternStore();
+        long time = produce(patterns, threads, (pattern) -> {
+            synchronized (store) {
+                store.accept(pattern, pattern.length, pattern.length);
+            }
+        });
+        return new long[]{time, store.size()};
+    }
+
+    private static long[] runConcurrent(int[][] patterns, int threads) throws InterruptedException {
+        ConcurrentPatternStore store = new ConcurrentPatternStore();
+        long start = System.nanoTime();
+        produce(patterns, threads, (pattern) -> store.accept(pattern, pattern.length, pattern.length));
+        int size = store.size(); // gộp shard (tính vào thời gian)
+        return new long[]{System.nanoTime() - start, size};
+    }
+
+    private interface Producer {
+        void accept(int[] pattern);
+    }
+
+    /** T luồng cùng bắt đầu (latch), luồng t đẩy mẫu t, t + T, ...; trả về thời gian ns đến khi luồng cuối xong */
+    private static long produce(int[][] patterns, int threads, Producer producer) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int p = id; p < patterns.length; p += threads) producer.accept(patterns[p]);
+            });
+            workers[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers) worker.join();
+        return System.nanoTime() - start;
+    }
+
+    private static void benchmarkMining(String file, double minSupRatio, int threads) throws IOException {
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        int minSup = (int) Math.ceil(minSupRatio * database.size());
+
+        for (int round = 0; round < 2; round++) { // vòng đầu làm ấm
+            PatternStore store = new PatternStore();
+            long start = System.nanoTime();
+            miner(minSup, threads).mine(database, store);
+            long syncTime = System.nanoTime() - start;
+
+            ConcurrentPatternStore concurrent = new ConcurrentPatternStore();
+            start = System.nanoTime();
+            miner(minSup, threads).mine(database, concurrent);
+            int size = concurrent.size();
+            long concTime = System.nanoTime() - start;
+
+            if (round == 1) {
+                System.out.printf("⛏️ %s minSup=%d, %d luồng | PatternStore (synchronized) %.1f ms | "
+                                + "ConcurrentPatternStore %.1f ms (%d producer) | %d / %d mẫu%s%n",
+                        file, minSup, threads, syncTime / 1e6, concTime / 1e6, concurrent.getProducerCount(),
+                        store.size(), size, store.size() == size ? "" : " ❌ khác số mẫu");
+            }
+        }
+    }
+
+    private static ClosedPatternMining miner(int minSup, int threads) {
+        ClosedPatternMining miner = new ClosedPatternMining(minSup);
+        miner.setVerbose(false);
+        miner.setParallelism(threads);
+        return miner;
+    }
+}
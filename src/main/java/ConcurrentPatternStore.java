@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * ConcurrentPatternStore
+ * ----------------------
+ * Sink nhận mẫu từ NHIỀU luồng cùng lúc mà không có khoá chung (isConcurrent() = true -> ClosedPatternMining
+ * song song không còn synchronized trên sink ở mỗi mẫu).
+ *
+ *  - Pha nhận: mỗi luồng ghi vào PatternStore RIÊNG của nó (ThreadLocal) -> không tranh chấp, không khoá;
+ *    các bộ đếm (mẫu đã nhận, mẫu trùng, bộ nhớ) là LongAdder (mỗi luồng cộng vào ô riêng)
+ *  - Pha gộp (toStore / shard): chia mẫu theo hash thành các shard rời nhau rồi gộp SONG SONG từng shard,
+ *    loại trùng bằng bảng băm open-addressing của PatternStore. Mẫu là mảng id tăng dần (dạng chuẩn - xem
+ *    ItemDictionary) nên 2 luồng gửi cùng 1 itemset luôn rơi vào cùng shard và bị loại ở đó.
+ *
+ * Chỉ gộp sau khi các luồng gửi mẫu đã xong (vd: sau mine()); không accept() thêm trong lúc gộp.
+ */
+class ConcurrentPatternStore implements ClosedPatternSink {
+    private final int shardCount;                                  // luỹ thừa 2
+    private final Queue<PatternStore> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<PatternStore> local = ThreadLocal.withInitial(() -> {
+        PatternStore buffer = new PatternStore();
+        buffers.add(buffer);
+        return buffer;
+    });
+    private final LongAdder received = new LongAdder();           // số lần accept()
+    private final LongAdder duplicates = new LongAdder();         // mẫu trùng trong cùng luồng (loại ngay khi nhận)
+    private final LongAdder bytes = new LongAdder();              // tổng sizeInBytes() của các bộ đệm luồng
+    private PatternStore[] shards;                                // kết quả gộp gần nhất
+    private long mergedReceived = -1;                             // received lúc gộp (khác hiện tại -> gộp lại)
+    private long mergeDuplicates;                                 // mẫu trùng giữa các luồng (lộ ra khi gộp)
+
+    /** Số shard = luỹ thừa 2 >= 2 * số CPU */
+    public ConcurrentPatternStore() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /** @param shards số shard khi gộp (làm tròn lên luỹ thừa 2) */
+    public ConcurrentPatternStore(int shards) {
+        this.shardCount = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+    }
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        PatternStore buffer = local.get();
+        long before = buffer.sizeInBytes();
+        if (buffer.add(pattern, support) < 0) duplicates.increment();
+        long grown = buffer.sizeInBytes() - before;
+        if (grown != 0) bytes.add(grown);
+        received.increment();
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public long retainedBytes() {
+        return bytes.sum();
+    }
+
+    /** Số mẫu đã nhận (kể cả mẫu trùng) */
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /** Số mẫu trùng đã loại (trong cùng luồng ngay khi nhận; giữa các luồng sau lần gộp gần nhất) */
+    public long getDuplicateCount() {
+        return duplicates.sum() + mergeDuplicates;
+    }
+
+    /** Số luồng đã gửi mẫu (= số bộ đệm riêng) */
+    public int getProducerCount() {
+        return buffers.size();
+    }
+
+    /** Số shard của kết quả gộp */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /** Shard thứ i của kết quả gộp (các shard rời nhau, không mẫu trùng) */
+    public PatternStore shard(int i) {
+        return merged()[i];
+    }
+
+    /** Số mẫu khác nhau */
+    public int size() {
+        int total = 0;
+        for (PatternStore shard : merged()) total += shard.size();
+        return total;
+    }
+
+    /** Đẩy toàn bộ mẫu (không trùng) sang sink khác, lần lượt từng shard */
+    public void replay(ClosedPatternSink sink) {
+        for (PatternStore shard : merged()) shard.replay(sink);
+    }
+
+    /** Gom mọi shard vào 1 PatternStore (tuần tự - chỉ dùng khi cần đúng kiểu PatternStore) */
+    public PatternStore toStore() {
+        PatternStore result = new PatternStore();
+        replay(result);
+        return result;
+    }
+
+    /**
+     * Gộp các bộ đệm luồng thành shard, không khoá:
+     *  1) song song theo bộ đệm: chia chỉ số mẫu của từng bộ đệm vào các shard theo hash
+     *  2) song song theo shard : mỗi shard chỉ đọc phần của mình ở mọi bộ đệm, loại trùng trong PatternStore riêng
+     */
+    private PatternStore[] merged() {
+        final long receivedNow = received.sum();
+        if (shards != null && mergedReceived == receivedNow) return shards;
+        final PatternStore[] sources = buffers.toArray(new PatternStore[0]);
+        final int[][][] parts = new int[sources.length][][];
+        final int[][] partSizes = new int[sources.length][];
+        IntStream.range(0, sources.length).parallel().forEach(b -> {
+            PatternStore source = sources[b];
+            int[][] lists = new int[shardCount][];
+            int[] sizes = new int[shardCount];
+            int[][] patternBuffers = new int[source.maxLength() + 1][];
+            for (int i = 0; i < source.size(); i++) {
+                int len = source.length(i);
+                if (patternBuffers[len] == null) patternBuffers[len] = new int[len];
+                source.copyTo(i, patternBuffers[len]);
+                int s = shardOf(patternBuffers[len]);
+                if (lists[s] == null) lists[s] = new int[16];
+                else if (sizes[s] == lists[s].length) lists[s] = Arrays.copyOf(lists[s], sizes[s] * 2);
+                lists[s][sizes[s]++] = i;
+            }
+            parts[b] = lists;
+            partSizes[b] = sizes;
+        });
+
+        final PatternStore[] result = new PatternStore[shardCount];
+        final long[] shardDuplicates = new long[shardCount];
+        IntStream.range(0, shardCount).parallel().forEach(s -> {
+            PatternStore shard = new PatternStore();
+            int[][] patternBuffers = new int[16][];
+            for (int b = 0; b < sources.length; b++) {
+                int[] indices = parts[b][s];
+                for (int k = 0; k < partSizes[b][s]; k++) {
+                    int i = indices[k];
+                    int len = sources[b].length(i);
+                    if (len >= patternBuffers.length) patternBuffers = Arrays.copyOf(patternBuffers, 2 * len);
+                    if (patternBuffers[len] == null) patternBuffers[len] = new int[len];
+                    int[] pattern = patternBuffers[len];
+                    sources[b].copyTo(i, pattern);
+                    if (shard.add(pattern, sources[b].support(i)) < 0) shardDuplicates[s]++;
+                }
+            }
+            result[s] = shard;
+        });
+        mergeDuplicates = 0;
+        for (long d : shardDuplicates) mergeDuplicates += d;
+        mergedReceived = receivedNow;
+        shards = result;
+        return result;
+    }
+
+    /** Shard của mẫu: các bit CAO của PatternStore.hash (bit thấp dùng cho bảng băm bên trong shard) */
+    private int shardOf(int[] pattern) {
+        return shardCount == 1 ? 0 : PatternStore.hash(pattern) >>> (32 - Integer.numberOfTrailingZeros(shardCount));
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * CountingPatternSink
+ * -------------------
+ * Sink chỉ ĐẾM mẫu đóng (không giữ mẫu nào) -> bộ nhớ O(1) dù khai thác hàng triệu mẫu.
+ * Hữu ích để đo số mẫu / thời gian mining mà không tốn RAM lưu kết quả.
+ */
+class CountingPatternSink implements ClosedPatternSink {
+    private long count;
+    private long totalSupport;
+    private int maxLength;
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        count++;
+        totalSupport += support;
+        if (pattern.length > maxLength) maxLength = pattern.length;
+    }
+
+    /** Số mẫu đóng đã nhận */
+    public long getCount() {
+        return count;
+    }
+
+    /** Tổng support của các mẫu (để tính support trung bình) */
+    public long getTotalSupport() {
+        return totalSupport;
+    }
+
+    /** Độ dài mẫu dài nhất */
+    public int getMaxLength() {
+        return maxLength;
+    }
+}
@@ -1,5 +1,3 @@
-import java.util.*;
-
 /**
  * DiceSimilarity
  * --------------
@@ -15,24 +13,23 @@ import java.util.*;
 public class DiceSimilarity implements SimilarityMeasure {
 
     @Override
-    public double compute(Set<String> A, Set<String> B) {
+    public double compute(int[] A, int[] B) {
         // Phòng thủ null (tuỳ giao kèo interface, có thể bỏ nếu chắc chắn không null)
         if (A == null || B == null) {
             return 0.0;
         }
 
         // Trường hợp cả hai rỗng -> tương đồng tuyệt đối
-        if (A.isEmpty() && B.isEmpty()) return 1.0;
+        if (A.length == 0 && B.length == 0) return 1.0;
 
         // Nếu một rỗng, một không rỗng -> không trùng phần giao -> Dice = 0
-        if (A.isEmpty() || B.isEmpty()) return 0.0;
+        if (A.length == 0 || B.length == 0) return 0.0;
 
-        // Tạo bản sao để tính giao (dễ hiểu nhưng có cấp phát bộ nhớ)
-        Set<String> intersection = new HashSet<>(A);
-        intersection.retainAll(B);
+        // |A ∩ B| bằng trộn 2 mảng id tăng dần (không cấp phát bộ nhớ)
+        int intersection = SimilarityMeasure.intersectionSize(A, B);
 
-        int totalSize = A.size() + B.size();
+        int totalSize = A.length + B.length;
         // totalSize không thể = 0 vì đã xử lý phía trên, nhưng vẫn để phòng thủ:
-        return totalSize == 0 ? 0.0 : (2.0 * intersection.size()) / totalSize;
+        return totalSize == 0 ? 0.0 : (2.0 * intersection) / totalSize;
     }
 }
\ No newline at end of file
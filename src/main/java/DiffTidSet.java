@@ -0,0 +1,212 @@
+/**
+ * DiffTidSet
+ * ----------
+ * Diffset kiểu dEclat: T(X) = T(base) \ removed
+ *  - base    : TID-set đã vật chất hoá (bitmap hoặc mảng) của 1 nút TỔ TIÊN trên cùng nhánh
+ *  - removed : các TID của base KHÔNG còn trong T(X) (mảng int[] tăng dần, removed ⊆ base)
+ *
+ * Ở nhánh sâu của dữ liệu dày (chess), mỗi lần mở rộng chỉ loại đi vài TID của cha, nên
+ * |removed| nhỏ hơn nhiều so với |T(X)| -> tiết kiệm bộ nhớ mà vẫn tính được support chính xác:
+ *     |T(X)| = |base| - |removed|
+ *     |T(X) ∩ B| = |base ∩ B| - |removed ∩ B|     (vì removed ⊆ base)
+ * (tương tự với tổng trọng số khi TID là dòng có trọng số - weight()/andWeight())
+ *
+ * Con của 1 diffset dùng CHUNG base với cha (removed được gộp thêm), nên không có chuỗi diffset lồng nhau.
+ */
+final class DiffTidSet extends TidSet {
+    private TidSet base;                 // bitmap hoặc mảng, không bao giờ là DiffTidSet
+    private final ArrayTidSet removed;   // base \ T(X)
+    private int cardinality;             // |base| - |removed|
+
+    /** Diffset rỗng - chỉ dùng làm "ô" tái sử dụng trong TidSetBuffer, phải assign() trước khi dùng */
+    DiffTidSet() {
+        this.removed = new ArrayTidSet(new int[0], 0);
+    }
+
+    private DiffTidSet(TidSet base, ArrayTidSet removed, int cardinality) {
+        this.base = base;
+        this.removed = removed;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Ghi đè this = diffset của T(parent) ∩ T(item) trên nền base (mảng removed lấy từ buffer).
+     *
+     * @param base         base dùng chung (= parent nếu parent đã vật chất hoá, = parent.base nếu parent là diffset)
+     * @param removedCount |base| - |T(parent) ∩ T(item)| (đã đếm trước khi gọi)
+     * @param buffer       bộ đệm của độ sâu hiện tại (KHÁC bộ đệm chứa parent)
+     */
+    void assign(TidSet base, TidSet parent, TidSet item, int removedCount, TidSetBuffer buffer) {
+        int[] removedTids = buffer.removedTids(removedCount);
+        if (parent instanceof DiffTidSet) {
+            // removed(con) = removed(cha) ∪ (T(cha) \ T(item)) - 2 tập rời nhau, trộn lại cho tăng dần
+            ArrayTidSet old = ((DiffTidSet) parent).removed;
+            int[] fresh = buffer.scratchTids(removedCount - old.cardinality());
+            int m = parent.filterTo(item, false, fresh, buffer.cursor());
+            int[] a = old.tids();
+            int na = old.cardinality();
+            int i = 0, j = 0, k = 0;
+            while (i < na && j < m) removedTids[k++] = a[i] < fresh[j] ? a[i++] : fresh[j++];
+            while (i < na) removedTids[k++] = a[i++];
+            while (j < m) removedTids[k++] = fresh[j++];
+        } else {
+            parent.filterTo(item, false, removedTids, buffer.cursor());
+        }
+        this.base = base;
+        this.removed.assign(removedTids, removedCount);
+        this.cardinality = base.cardinality() - removedCount;
+    }
+
+    @Override
+    DiffTidSet copy() {
+        return new DiffTidSet(base.copy(), removed.copy(), cardinality);
+    }
+
+    /** base dùng chung (đã vật chất hoá) */
+    TidSet base() {
+        return base;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int tid) {
+        return base.contains(tid) && !removed.contains(tid);
+    }
+
+    @Override
+    long sizeInBytes() {
+        return removed.sizeInBytes(); // base được chia sẻ với nút tổ tiên
+    }
+
+    @Override
+    int andCardinality(TidSet other) {
+        return base.andCardinality(other) - removed.andCardinality(other);
+    }
+
+    @Override
+    int weight(int[] weights) {
+        return base.weight(weights) - removed.weight(weights);
+    }
+
+    @Override
+    int andWeight(TidSet other, int[] weights) {
+        return base.andWeight(other, weights) - removed.andWeight(other, weights);
+    }
+
+    @Override
+    boolean andCardinalityAtLeast(TidSet other, int threshold) {
+        if (threshold <= 0) return true;
+        if (Math.min(cardinality, other.cardinality()) < threshold) return false;
+        // |base ∩ B| - |removed| <= |T(X) ∩ B| <= |base ∩ B|  -> chỉ đếm removed khi 2 cận chưa quyết định được
+        int baseCount = base.andCardinality(other);
+        if (baseCount < threshold) return false;
+        if (baseCount - removed.cardinality() >= threshold) return true;
+        return baseCount - removed.andCardinality(other) >= threshold;
+    }
+
+    /**
+     * T(X) ⊆ B ? Duyệt TID của base (bỏ TID trong removed) và dừng ở TID đầu tiên không có trong B.
+     * base và B cùng là bitmap (B có thể nằm off-heap hoặc nén - RoaringTidSet.word): so từng word sau khi xoá
+     * các bit removed của word đó.
+     */
+    @Override
+    boolean isSubsetOf(TidSet other) {
+        return isSubsetOf(other, null);
+    }
+
+    @Override
+    boolean isSubsetOf(TidSet other, RoaringTidSet.WordCursor reusable) {
+        if (cardinality > other.cardinality()) return false;
+        int[] rm = removed.tids();
+        int nrm = removed.cardinality();
+        int r = 0;
+        if (base instanceof BitTidSet && (TidSet.isBitmap(other) || other instanceof RoaringTidSet)) {
+            BitTidSet bits = (BitTidSet) base;
+            BitTidSet b = other instanceof BitTidSet ? (BitTidSet) other : null;
+            OffHeapBitTidSet offHeap = other instanceof OffHeapBitTidSet ? (OffHeapBitTidSet) other : null;
+            RoaringTidSet roaring = other instanceof RoaringTidSet ? (RoaringTidSet) other : null;
+            int otherWords = b != null ? b.wordCount() : offHeap != null ? offHeap.wordCount() : roaring.wordCount();
+            RoaringTidSet.WordCursor cursor = roaring != null ? RoaringTidSet.WordCursor.of(roaring, reusable) : null;
+            for (int w = 0; w < bits.wordCount(); w++) {
+                long word = bits.word(w);
+                while (r < nrm && (rm[r] >>> 6) == w) {
+                    word &= ~(1L << rm[r]);
+                    r++;
+                }
+                long bw = w >= otherWords ? 0L : b != null ? b.word(w) : offHeap != null ? offHeap.word(w) : cursor.word(w);
+                if ((word & ~bw) != 0) return false;
+            }
+            return true;
+        }
+        if (base instanceof ArrayTidSet) {
+            int[] bt = ((ArrayTidSet) base).tids();
+            int nb = base.cardinality();
+            RoaringTidSet.WordCursor cursor = other instanceof RoaringTidSet // TID tăng dần -> hỏi qua cursor
+                    ? RoaringTidSet.WordCursor.of((RoaringTidSet) other, reusable) : null;
+            for (int i = 0; i < nb; i++) {
+                int tid = bt[i];
+                if (r < nrm && rm[r] == tid) { r++; continue; }
+                if (!(cursor != null ? cursor.contains(tid) : other.contains(tid))) return false;
+            }
+            return true;
+        }
+        BitTidSet bits = (BitTidSet) base;
+        for (int w = 0; w < bits.wordCount(); w++) {
+            long word = bits.word(w);
+            while (word != 0) {
+                int tid = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (r < nrm && rm[r] == tid) { r++; continue; }
+                if (!other.contains(tid)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst) {
+        return filterTo(other, keepIfInOther, dst, null);
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst, RoaringTidSet.WordCursor reusable) {
+        // Duyệt các TID của base, bỏ qua TID nằm trong removed (removed cũng tăng dần -> 1 con trỏ)
+        int[] rm = removed.tids();
+        int nrm = removed.cardinality();
+        int n = 0, r = 0;
+        if (base instanceof ArrayTidSet) {
+            int[] bt = ((ArrayTidSet) base).tids();
+            int nb = base.cardinality();
+            RoaringTidSet.WordCursor cursor = other instanceof RoaringTidSet
+                    ? RoaringTidSet.WordCursor.of((RoaringTidSet) other, reusable) : null;
+            for (int i = 0; i < nb; i++) {
+                int tid = bt[i];
+                if (r < nrm && rm[r] == tid) { r++; continue; }
+                if ((cursor != null ? cursor.contains(tid) : other.contains(tid)) == keepIfInOther) dst[n++] = tid;
+            }
+            return n;
+        }
+        BitTidSet bits = (BitTidSet) base;
+        RoaringTidSet.WordCursor roaring = other instanceof RoaringTidSet
+                ? RoaringTidSet.WordCursor.of((RoaringTidSet) other, reusable) : null;
+        for (int w = 0; w < bits.wordCount(); w++) {
+            long word = bits.word(w);
+            if (roaring != null && word != 0) { // TID-set nén: lọc cả word 1 lần thay vì hỏi contains() từng TID
+                long bw = roaring.word(w);
+                word = keepIfInOther ? (word & bw) : (word & ~bw);
+            }
+            while (word != 0) {
+                int tid = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                while (r < nrm && rm[r] < tid) r++; // TID của base bị lọc theo word thì removed có thể bị vượt qua
+                if (r < nrm && rm[r] == tid) { r++; continue; }
+                if (roaring != null || other.contains(tid) == keepIfInOther) dst[n++] = tid;
+            }
+        }
+        return n;
+    }
+}
@@ -8,6 +8,10 @@ import java.io.FileOutputStream;
 import java.util.*;
 
 public class ExcelExporter {
+    // Ý nghĩa cột Runtime/Candidates của Model2 (ghi dưới bảng mỗi sheet, Model2 in cùng nội dung ở phần tổng kết)
+    static final String MODEL2_COST_NOTE = "Ghi chú: Runtime và Candidates chỉ tính chi phí khai thác ở dòng có khai thác "
+            + "(minSup thấp nhất - 1 lần chung cho cả sheet, hoặc minSup khai thác riêng khi lần chung bị cắt); "
+            + "các dòng khác suy ra từ lần đó nên chỉ gồm bước lọc similarity - không so trực tiếp với Model1.";
 
     public static void exportSummarySheet(Map<Double, Map<String, ResultRow>> summaryMap, String fileName, String datasetName) throws Exception {
         XSSFWorkbook workbook = new XSSFWorkbook();
@@ -393,6 +397,9 @@ public class ExcelExporter {
 
             int rowCount = entry.getValue().size();
 
+            // Ghi chú ý nghĩa cột (Model2 khai thác 1 lần ở minSup thấp nhất, các minSup khác suy ra từ đó)
+            sheet.createRow(rowCount + 3).createCell(0).setCellValue(MODEL2_COST_NOTE);
+
             int chartStartRow = rowCount + 5;
             drawChartForModel2(sheet, rowCount, "Runtime", 1, 4, 1, chartStartRow, "RUNTIME (s)"); // col 1,2,3
             drawChartForModel2(sheet, rowCount, "Memory Usage", 4, 7, 6, chartStartRow, "MEMORY (MB)"); // col 4,5,6
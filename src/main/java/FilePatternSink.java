@@ -0,0 +1,50 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FilePatternSink
+ * ---------------
+ * Sink ghi từng mẫu đóng ra file text ngay khi nhận (không giữ trong RAM), mỗi dòng 1 mẫu:
+ *     item1 item2 ... #SUP: support
+ * (item đã decode về String qua ItemDictionary; cùng định dạng với SPMF để dễ so sánh kết quả).
+ *
+ * Dùng với try-with-resources để chắc chắn flush/đóng file.
+ */
+class FilePatternSink implements ClosedPatternSink, Closeable {
+    private final BufferedWriter writer;
+    private final ItemDictionary dictionary;
+    private long count;
+
+    public FilePatternSink(String filePath, ItemDictionary dictionary) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filePath), StandardCharsets.UTF_8), 1 << 16);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        try {
+            for (int i = 0; i < pattern.length; i++) {
+                if (i > 0) writer.write(' ');
+                writer.write(dictionary.item(pattern[i]));
+            }
+            writer.write(" #SUP: ");
+            writer.write(Integer.toString(support));
+            writer.newLine();
+            count++;
+        } catch (IOException e) {
+            // accept() không khai báo IOException -> bọc lại để miner dừng và báo lỗi
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Số mẫu đã ghi */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.*;
+
+/**
+ * ItemDictionary
+ * --------------
+ * Từ điển ánh xạ item (String trong file .txt) <-> id int "đặc" 0..size-1.
+ *
+ *  - Id được đánh theo SUPPORT TĂNG DẦN (id nhỏ = item hiếm, id lớn = item phổ biến; hoà thì theo tên item).
+ *    Nhờ vậy thứ tự id trùng luôn với thứ tự duyệt "postset" của ClosedPatternMining (support tăng dần).
+ *  - Toàn bộ pha mining / lọc similarity chỉ làm việc với int[] (itemset = mảng id tăng dần),
+ *    String chỉ được dựng lại (decode) khi cần xuất/in kết quả.
+ *  - Item MỚI gặp khi nối thêm giao dịch (TransactionDatabase.append) được cấp id tiếp theo ở cuối,
+ *    nên sau khi append thứ tự id chỉ còn "gần" theo support (miner đúng với mọi thứ tự id).
+ *  - Id đã trả lại (release - item hết support, vd hết hạn khỏi SlidingWindowMiner) được cấp lại cho item mới
+ *    trước khi cấp id ở cuối -> từ điển của luồng vô hạn item không phình ra.
+ */
+public class ItemDictionary {
+    private String[] items;                       // id -> item (chỉ dùng [0, size))
+    private int[] supports;                       // id -> số giao dịch chứa item
+    private int size;
+    private final Map<String, Integer> idByItem;  // item -> id
+    private int[] freeIds = new int[0];           // id đã trả lại (item = null), chờ cấp lại
+    private int freeCount;
+
+    /**
+     * @param items    item theo thứ tự id (đã sắp theo support tăng dần)
+     * @param supports support tương ứng từng id
+     */
+    ItemDictionary(String[] items, int[] supports) {
+        this.items = items;
+        this.supports = supports;
+        this.size = items.length;
+        this.idByItem = new HashMap<>(items.length * 2);
+        for (int id = 0; id < items.length; id++) {
+            idByItem.put(items[id], id);
+        }
+    }
+
+    /** Số id đã cấp (0..size-1; kể cả id đã trả lại đang chờ cấp lại - item = null, support 0) */
+    public int size() {
+        return size;
+    }
+
+    /** Item (String) của id */
+    public String item(int id) {
+        return items[id];
+    }
+
+    /** Support (số giao dịch) của id */
+    public int support(int id) {
+        return supports[id];
+    }
+
+    /** Id của item, -1 nếu item không có trong từ điển */
+    public int idOf(String item) {
+        Integer id = idByItem.get(item);
+        return id == null ? -1 : id;
+    }
+
+    /** Id của item; item chưa có thì cấp lại 1 id đã trả, không có thì cấp id mới ở cuối (support 0) */
+    int idOrAdd(String item) {
+        Integer id = idByItem.get(item);
+        if (id != null) return id;
+        if (freeCount > 0) {
+            int free = freeIds[--freeCount];
+            items[free] = item;
+            idByItem.put(item, free);
+            return free;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, Math.max(16, size * 2));
+            supports = Arrays.copyOf(supports, items.length);
+        }
+        items[size] = item;
+        idByItem.put(item, size);
+        return size++;
+    }
+
+    /** Cộng thêm support cho id (khi nối giao dịch mới) */
+    void addSupport(int id, int delta) {
+        supports[id] += delta;
+    }
+
+    /** Trả lại id của item đã hết support (không còn giao dịch nào chứa) - idOrAdd sẽ cấp lại cho item mới */
+    void release(int id) {
+        idByItem.remove(items[id]);
+        items[id] = null;
+        supports[id] = 0;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, Math.max(16, freeCount * 2));
+        freeIds[freeCount++] = id;
+    }
+
+    /** Dựng lại itemset dạng String (chỉ dùng khi xuất/in kết quả) */
+    public List<String> decode(int[] itemset) {
+        List<String> result = new ArrayList<>(itemset.length);
+        for (int id : itemset) {
+            result.add(items[id]);
+        }
+        return result;
+    }
+}
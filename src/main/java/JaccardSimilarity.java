@@ -11,7 +11,7 @@ public class JaccardSimilarity implements SimilarityMeasure {
     }
 
     // Constructor khởi tạo luôn ma trận bit từ database (list các transaction)
-    public JaccardSimilarity(List<Set<String>> database) {
+    public JaccardSimilarity(TransactionDatabase database) {
         this.matrix = new BitMatrix(database);
     }
 
@@ -23,59 +23,86 @@ public class JaccardSimilarity implements SimilarityMeasure {
     }
 
     // Phương thức khởi tạo lại matrix (lazy initialization) - chưa implement
-    public void init(List<Set<String>> database) {
+    public void init(TransactionDatabase database) {
         // Optional: tạo BitMatrix từ database
     }
 
     // Hàm tính toán độ tương đồng Jaccard
     @Override
-    public double compute(Set<String> A, Set<String> B) {
+    public double compute(int[] A, int[] B) {
         // Nếu cả 2 tập rỗng thì độ tương đồng là 1
-        if (A.isEmpty() && B.isEmpty()) return 1.0;
+        if (A.length == 0 && B.length == 0) return 1.0;
 
-        // Tạo giao của A và B
-        Set<String> intersection = new HashSet<>(A);
-        intersection.retainAll(B);
-
-        // Tạo hợp của A và B
-        Set<String> union = new HashSet<>(A);
-        union.addAll(B);
+        // |A ∩ B| bằng trộn 2 mảng id tăng dần; |A ∪ B| = |A| + |B| - |A ∩ B|
+        int intersection = SimilarityMeasure.intersectionSize(A, B);
+        int union = A.length + B.length - intersection;
 
         // Công thức Jaccard = |A ∩ B| / |A ∪ B|
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+        return union == 0 ? 0.0 : (double) intersection / union;
     }
 }
 
 // ======================= LỚP BITMATRIX =======================
 
-// Lớp dùng để lưu dữ liệu database dưới dạng ma trận bit (BitSet)
+// Lớp dùng để lưu dữ liệu database dưới dạng ma trận bit (nén theo chunk - RoaringTidSet)
 // Giúp tính toán giao/hợp nhanh hơn nhiều so với dùng Set<String> thông thường
 class BitMatrix {
-    // Ánh xạ mỗi item sang một BitSet (bit=1 nếu item xuất hiện trong transaction đó)
-    private final Map<String, BitSet> itemToBitSet;
+    // Mỗi id item (xem ItemDictionary) có một TID-set nén (TID = chỉ số transaction chứa item)
+    // Item thưa chỉ tốn 2 byte / transaction thay vì |DB| / 8 byte của BitSet; item dày vẫn là bitmap
+    private final RoaringTidSet[] itemToTids;
     // Tổng số transaction trong database
     private final int transactionCount;
 
-    // Khởi tạo BitMatrix từ danh sách transaction
-    public BitMatrix(List<Set<String>> database) {
+    // Khởi tạo BitMatrix từ CSDL đã mã hoá id
+    public BitMatrix(TransactionDatabase database) {
         this.transactionCount = database.size();
-        this.itemToBitSet = new HashMap<>();
-
-        // Duyệt từng transaction (theo chỉ số i)
-        for (int i = 0; i < database.size(); i++) {
-            Set<String> transaction = database.get(i);
-            for (String item : transaction) {
-                // Nếu item chưa có BitSet thì tạo mới, nếu có rồi thì lấy lại
-                BitSet bitSet = itemToBitSet.computeIfAbsent(item,
-                        k -> new BitSet(transactionCount));
-                // Đánh dấu bit thứ i là 1 (item này xuất hiện ở transaction i)
-                bitSet.set(i);
-            }
+        int numItems = database.getDictionary().size();
+
+        // Gom TID (tăng dần) của từng item - đếm trước để cấp đúng kích thước
+        List<int[]> transactions = database.getTransactions();
+        int[] counts = new int[numItems];
+        for (int[] transaction : transactions) {
+            for (int item : transaction) counts[item]++;
+        }
+        int[][] tids = new int[numItems][];
+        for (int item = 0; item < numItems; item++) tids[item] = new int[counts[item]];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < transactions.size(); i++) {
+            for (int item : transactions.get(i)) tids[item][counts[item]++] = i;
         }
+
+        this.itemToTids = new RoaringTidSet[numItems];
+        for (int item = 0; item < numItems; item++) {
+            itemToTids[item] = RoaringTidSet.fromSortedTids(tids[item], counts[item], transactionCount);
+            tids[item] = null;
+        }
+    }
+
+    // TID-set nén của một id item (nếu không tồn tại thì trả TID-set rỗng)
+    RoaringTidSet tidsOf(int item) {
+        return item >= 0 && item < itemToTids.length ? itemToTids[item]
+                : RoaringTidSet.fromSortedTids(new int[0], 0, transactionCount);
+    }
+
+    // Số transaction chứa cả 2 item (AND + đếm theo chunk, không tạo tập trung gian)
+    public int intersectionCount(int a, int b) {
+        return tidsOf(a).andCardinality(tidsOf(b));
+    }
+
+    // Tổng số byte dữ liệu của các TID-set nén
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (RoaringTidSet tids : itemToTids) bytes += tids.sizeInBytes();
+        return bytes;
     }
 
-    // Trả về BitSet của một item (nếu không tồn tại thì trả BitSet rỗng)
-    public BitSet getBitSetOf(String item) {
-        return itemToBitSet.getOrDefault(item, new BitSet(transactionCount));
+    // Trả về BitSet của một id item (tạo mới từ TID-set nén; nếu không tồn tại thì trả BitSet rỗng)
+    public BitSet getBitSetOf(int item) {
+        BitSet bitSet = new BitSet(transactionCount);
+        RoaringTidSet tids = tidsOf(item);
+        int[] all = new int[tids.cardinality()];
+        int n = tids.filterTo(TidSet.EMPTY, false, all);
+        for (int i = 0; i < n; i++) bitSet.set(all[i]);
+        return bitSet;
     }
 }
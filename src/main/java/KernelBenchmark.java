@@ -0,0 +1,124 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * KernelBenchmark
+ * ---------------
+ * Đo các kernel trong vòng lặp trong cùng của ClosedPatternMining, so bản ĐẾM ĐỦ với bản CÓ CẬN:
+ *  - Đếm support:  andCardinality(B) >= minSup        vs  andCardinalityAtLeast(B, minSup)
+ *  - Bao hàm:      andCardinality(B) == |T|            vs  isSubsetOf(B) (dừng ở TID thiếu đầu tiên)
+ *
+ * Tải công việc giống lúc mining: T là TID-set của itemset 2-3 item (bitmap / mảng / diffset tuỳ mật độ,
+ * tạo bằng TidSet.intersect), B là TID-set của 1 item trong vertical DB.
+ *
+ * Chạy: java KernelBenchmark [file dataset] [minSup tỉ lệ] [số cặp]
+ *   vd: java KernelBenchmark chess.txt 0.7 200000
+ */
+public class KernelBenchmark {
+    public static void main(String[] args) throws IOException {
+        final String file = args.length > 0 ? args[0] : "chess.txt";
+        final double minSupRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.7;
+        final int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+
+        // 1) Đọc dataset (không gộp dòng để ngưỡng minSup so thẳng với số TID)
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        final int minSup = (int) Math.ceil(minSupRatio * database.size());
+        final int numRows = database.size();
+
+        // 2) Vertical DB của các item frequent
+        List<Integer> frequent = new ArrayList<>();
+        for (int item = 0; item < database.getDictionary().size(); item++) {
+            if (database.getDictionary().support(item) >= minSup) frequent.add(item);
+        }
+        if (frequent.size() < 3) {
+            System.out.println("❌ Cần ít nhất 3 item frequent, hãy giảm minSup");
+            return;
+        }
+        int[][] tidLists = new int[database.getDictionary().size()][];
+        int[] counts = new int[tidLists.length];
+        for (int item : frequent) tidLists[item] = new int[numRows];
+        for (int r = 0; r < numRows; r++) {
+            for (int item : database.getTransactions().get(r)) {
+                if (tidLists[item] != null) tidLists[item][counts[item]++] = r;
+            }
+        }
+        TidSet[] vertical = new TidSet[frequent.size()];
+        for (int k = 0; k < vertical.length; k++) {
+            int item = frequent.get(k);
+            vertical[k] = TidSet.fromSortedTids(tidLists[item], counts[item], numRows);
+        }
+
+        // 3) Tải công việc: (T = T(x ∩ y [∩ z]), B = T(k))
+        Random random = new Random(42);
+        TidSetBuffer buffer1 = new TidSetBuffer(numRows);
+        TidSetBuffer buffer2 = new TidSetBuffer(numRows);
+        TidSet[] left = new TidSet[pairs];
+        TidSet[] right = new TidSet[pairs];
+        int[] encodings = new int[3];
+        for (int p = 0; p < pairs; p++) {
+            TidSet t = TidSet.intersect(vertical[random.nextInt(vertical.length)],
+                    vertical[random.nextInt(vertical.length)], numRows, buffer1);
+            if (random.nextBoolean()) {
+                t = TidSet.intersect(t, vertical[random.nextInt(vertical.length)], numRows, buffer2);
+            }
+            left[p] = t.copy();
+            right[p] = vertical[random.nextInt(vertical.length)];
+            encodings[left[p] instanceof BitTidSet ? 0 : left[p] instanceof ArrayTidSet ? 1 : 2]++;
+        }
+
+        System.out.println("📂 " + file + " | minSup=" + minSup + " | rows=" + numRows
+                + " | frequent items=" + vertical.length + " | pairs=" + pairs);
+        System.out.println("🧩 T encodings: bitmap=" + encodings[0] + ", array=" + encodings[1]
+                + ", diffset=" + encodings[2]);
+
+        // 4) Đo (vài vòng làm ấm JIT, lấy vòng cuối)
+        final int rounds = 5;
+        long exactSupport = 0, boundedSupport = 0, exactSubset = 0, boundedSubset = 0;
+        int supportMismatch = 0, subsetMismatch = 0, frequentCount = 0, subsetCount = 0;
+        for (int round = 0; round < rounds; round++) {
+            boolean[] expected = new boolean[pairs];
+
+            long start = System.nanoTime();
+            for (int p = 0; p < pairs; p++) expected[p] = left[p].andCardinality(right[p]) >= minSup;
+            exactSupport = System.nanoTime() - start;
+
+            supportMismatch = 0;
+            frequentCount = 0;
+            start = System.nanoTime();
+            for (int p = 0; p < pairs; p++) {
+                boolean frequentPair = left[p].andCardinalityAtLeast(right[p], minSup);
+                if (frequentPair != expected[p]) supportMismatch++;
+                if (frequentPair) frequentCount++;
+            }
+            boundedSupport = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int p = 0; p < pairs; p++) expected[p] = left[p].andCardinality(right[p]) == left[p].cardinality();
+            exactSubset = System.nanoTime() - start;
+
+            subsetMismatch = 0;
+            subsetCount = 0;
+            start = System.nanoTime();
+            for (int p = 0; p < pairs; p++) {
+                boolean subset = left[p].isSubsetOf(right[p]);
+                if (subset != expected[p]) subsetMismatch++;
+                if (subset) subsetCount++;
+            }
+            boundedSubset = System.nanoTime() - start;
+        }
+
+        System.out.printf("⏱️ Support  : exact %.1f ns/op, bounded %.1f ns/op (x%.2f) | frequent=%d, mismatch=%d%n",
+                (double) exactSupport / pairs, (double) boundedSupport / pairs,
+                (double) exactSupport / boundedSupport, frequentCount, supportMismatch);
+        System.out.printf("⏱️ Subset   : exact %.1f ns/op, early-exit %.1f ns/op (x%.2f) | subset=%d, mismatch=%d%n",
+                (double) exactSubset / pairs, (double) boundedSubset / pairs,
+                (double) exactSubset / boundedSubset, subsetCount, subsetMismatch);
+    }
+}
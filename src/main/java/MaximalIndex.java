@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+/**
+ * MaximalIndex
+ * ------------
+ * Chỉ mục các MẪU TỐI ĐẠI đã tìm thấy, để trả lời nhanh "đã có mẫu nào chứa X chưa?" (superset check)
+ * trong chế độ ClosedPatternMining.OutputMode.MAXIMAL.
+ *
+ *  - patterns : các mẫu tối đại (PatternStore, id item tăng dần)
+ *  - postings : postings[item] = chỉ số các mẫu chứa item (danh sách đảo)
+ *
+ * hasSuperset(X): chọn item của X có danh sách ngắn nhất, chỉ kiểm tra bao hàm với các mẫu trong danh sách đó
+ * (mẫu nào chứa X thì chắc chắn chứa item hiếm nhất của X).
+ */
+final class MaximalIndex {
+    private final PatternStore patterns = new PatternStore();
+    private final int[][] postings;
+    private final int[] postingCounts;
+    private long postingBytes;                 // tổng kích thước các danh sách đảo
+
+    /** @param itemCount số item (id nằm trong [0, itemCount)) */
+    MaximalIndex(int itemCount) {
+        this.postings = new int[itemCount][];
+        this.postingCounts = new int[itemCount];
+    }
+
+    /** Số mẫu trong chỉ mục */
+    int size() {
+        return patterns.size();
+    }
+
+    /** Có mẫu nào đã thêm chứa toàn bộ pattern[0, len) (id tăng dần) không? */
+    boolean hasSuperset(int[] pattern, int len) {
+        if (len == 0) return patterns.size() > 0;
+        int rarest = pattern[0];
+        for (int k = 1; k < len; k++) {
+            if (postingCounts[pattern[k]] < postingCounts[rarest]) rarest = pattern[k];
+        }
+        int count = postingCounts[rarest];
+        int[] list = postings[rarest];
+        for (int p = 0; p < count; p++) {
+            if (contains(list[p], pattern, len)) return true;
+        }
+        return false;
+    }
+
+    /** Thêm 1 mẫu tối đại (id tăng dần) */
+    void add(int[] pattern, int support) {
+        int index = patterns.add(pattern, support);
+        if (index < 0) return;
+        for (int item : pattern) {
+            int[] list = postings[item];
+            if (list == null) {
+                list = new int[4];
+                postingBytes += 16;
+            } else if (postingCounts[item] == list.length) {
+                postingBytes += 4L * list.length;
+                list = Arrays.copyOf(list, list.length * 2);
+            }
+            list[postingCounts[item]++] = index;
+            postings[item] = list;
+        }
+    }
+
+    /** Bộ nhớ (byte) ước lượng: kho mẫu + các danh sách đảo */
+    long sizeInBytes() {
+        return patterns.sizeInBytes() + 12L * postings.length + postingBytes;
+    }
+
+    /** Mẫu thứ index có chứa pattern[0, len) không (cả 2 đều tăng dần -> trộn 2 con trỏ) */
+    private boolean contains(int index, int[] pattern, int len) {
+        int size = patterns.length(index);
+        if (size < len) return false;
+        int k = 0;
+        for (int j = 0; j < size && k < len; j++) {
+            int item = patterns.item(index, j);
+            if (item == pattern[k]) k++;
+            else if (item > pattern[k]) return false;
+        }
+        return k == len;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * MiningProgress
+ * --------------
+ * Ảnh chụp tiến độ 1 lần duyệt của ClosedPatternMining (đưa cho ProgressListener), bất biến.
+ *
+ *  - rootBranchesDone / rootBranchesTotal : nhánh mức gốc đã duyệt XONG (không bị cắt; kể cả nhánh đã xong ở lần
+ *                                            chạy trước theo checkpoint) / số nhánh mức gốc phải duyệt (theo partition)
+ *  - patterns   : số mẫu đã đẩy ra sink
+ *  - candidates : số ứng viên đã xét (mở rộng đã tính TID-set) - ở chế độ song song cộng dồn theo chu kỳ kiểm tra
+ *  - elapsedMs  : thời gian từ lúc bắt đầu duyệt (không tính dựng verticalDB)
+ *  - estimatedRemainingMs : thời gian còn lại ước lượng; -1 = chưa ước lượng được (chưa xong nhánh gốc nào)
+ *
+ * Ước lượng: các nhánh mức gốc rất lệch nhau (nhánh đầu của postset gốc thường nặng nhất) nên không chia đều theo
+ * số nhánh mà theo trọng số chi phí |T(i)| * (số item đứng sau i + 1)^2 (cùng mô hình chi phí với ngưỡng tách task,
+ * không đếm giao nên O(số item)). Khi 1 nhánh nặng đang chạy thì ước lượng chỉ cập nhật lúc nó xong.
+ */
+final class MiningProgress {
+    private final int rootBranchesDone;
+    private final int rootBranchesTotal;
+    private final long patterns;
+    private final long candidates;
+    private final long elapsedMs;
+    private final long estimatedRemainingMs;
+    private final boolean finished;
+
+    MiningProgress(int rootBranchesDone, int rootBranchesTotal, long patterns, long candidates, long elapsedMs,
+                   long estimatedRemainingMs, boolean finished) {
+        this.rootBranchesDone = rootBranchesDone;
+        this.rootBranchesTotal = rootBranchesTotal;
+        this.patterns = patterns;
+        this.candidates = candidates;
+        this.elapsedMs = elapsedMs;
+        this.estimatedRemainingMs = estimatedRemainingMs;
+        this.finished = finished;
+    }
+
+    public int getRootBranchesDone() {
+        return rootBranchesDone;
+    }
+
+    public int getRootBranchesTotal() {
+        return rootBranchesTotal;
+    }
+
+    public long getPatterns() {
+        return patterns;
+    }
+
+    public long getCandidates() {
+        return candidates;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /** Thời gian còn lại ước lượng (ms); -1 = chưa ước lượng được; 0 khi đã kết thúc */
+    public long getEstimatedRemainingMs() {
+        return estimatedRemainingMs;
+    }
+
+    /** true = lần báo cuối cùng (lần duyệt đã kết thúc - đầy đủ hay bị cắt xem TruncationReport) */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(rootBranchesDone).append('/').append(rootBranchesTotal).append(" nhánh gốc | ")
+                .append(patterns).append(" mẫu | ").append(candidates).append(" ứng viên | ")
+                .append(seconds(elapsedMs));
+        if (finished) {
+            sb.append(" (xong)");
+        } else if (estimatedRemainingMs >= 0) {
+            sb.append(" | còn ~").append(seconds(estimatedRemainingMs));
+        }
+        return sb.toString();
+    }
+
+    private static String seconds(long ms) {
+        return String.format("%.1f s", ms / 1000.0);
+    }
+}
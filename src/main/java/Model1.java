@@ -15,8 +15,9 @@ import java.io.*;
  *
  *  Các class/Interface phụ trợ (cần có trong project):
  *    - ClosedPatternMining: thực hiện khai thác mẫu đóng với constructor ClosedPatternMining(int absSup)
- *        + run(List<Set<String>> database) -> Set<Set<String>> closed
- *        + setMaxRuntime(ms), setMaxPatterns(n), getCandidatesGenerated()
+ *        + mine(TransactionDatabase database, sink) -> đổ mẫu đóng vào PatternStore (itemset = mảng id item,
+ *          xem ItemDictionary; lưu gọn trong 1 arena int[] kèm support)
+ *        + setMaxRuntime(ms), setProgressListener(listener, ms), setMemoryBudget(bytes), getTruncationReport(), getCandidatesGenerated()
  *    - SimilarityMeasure: interface tính độ tương đồng giữa 2 itemset dựa trên TID-sets (hoặc hỗ trợ khác)
  *    - JaccardSimilarity/DiceSimilarity/KulczynskiSimilarity: 3 triển khai cụ thể của SimilarityMeasure
  *    - SimilarityChecker: nhận SimilarityMeasure, có checkSimilarityBatch(...), getComparisonCount()
@@ -61,8 +62,8 @@ public class Model1 {
             System.out.println("📁 Đang xử lý dataset: " + datasetName);
             System.out.println("===============================");
 
-            // 2.1) Đọc database từ file -> List<transaction>, mỗi transaction là Set<String> các item không trùng
-            List<Set<String>> database = loadDatabase(dataset);
+            // 2.1) Đọc database từ file -> TransactionDatabase, mỗi transaction là mảng id item (int[]) không trùng
+            TransactionDatabase database = loadDatabase(dataset);
             if (database.isEmpty()) {
                 System.err.println("❌ Không có dữ liệu để xử lý: " + dataset);
                 continue; // bỏ qua dataset rỗng/hỏng
@@ -117,12 +118,21 @@ public class Model1 {
                         final long miningStart = System.currentTimeMillis();
                         ClosedPatternMining miner = new ClosedPatternMining(absSup);
                         miner.setMaxRuntime(300000);   // Giới hạn thời gian 300s để tránh chạy vô hạn
-                        miner.setMaxPatterns(50000);   // Giới hạn số mẫu tối đa để tránh bùng nổ bộ nhớ
-                        Set<Set<String>> closed = miner.run(database);
+                        // Không bật checkpoint (setCheckpoint): ô resume từ file của ô/lần chạy trước chỉ đo phần còn lại
+                        // -> thời gian & số ứng viên trong ResultRow không còn so sánh được giữa các độ đo
+                        // Lần chạy dài: in tiến độ (nhánh gốc xong / tổng, số mẫu, thời gian còn lại ước lượng) mỗi 10s
+                        miner.setProgressListener(progress -> {
+                            if (!progress.isFinished()) System.out.println("     ⏳ " + progress);
+                        }, 10000);
+                        // Mẫu đóng đổ vào SpillingPatternStore: PatternStore trong RAM, tràn ra file tạm (run nén, đã sắp xếp)
+                        // khi ResourceGovernor báo áp lực bộ nhớ -> chess minSup thấp vẫn ra đủ kết quả trên heap thường
+                        SpillingPatternStore closed = new SpillingPatternStore();
+                        int found = miner.mine(database, closed);
                         final long miningEnd = System.currentTimeMillis();
 
-                        // Nếu null -> có thể timeout/bị hủy; bỏ qua tổ hợp này
-                        if (closed == null) {
+                        // found < 0 -> timeout ngay từ đầu/bị hủy; bỏ qua tổ hợp này
+                        if (found < 0) {
+                            closed.close();
                             System.err.println("     ⚠️ Timeout - bỏ qua");
                             continue;
                         }
@@ -130,6 +140,10 @@ public class Model1 {
                         // Bộ nhớ tiêu thụ ngay sau pha mining (ước lượng “đỉnh” cục bộ)
                         final long afterMiningMem = runtime.totalMemory() - runtime.freeMemory();
                         final int miningCandidates = miner.getCandidatesGenerated(); // số ứng viên đã tạo trong pha mining
+                        // Bộ nhớ do ngân sách của ResourceGovernor quản lý (không còn cắt cứng 50000 mẫu) - báo nếu bị cắt
+                        if (!miner.getTruncationReport().isComplete()) {
+                            System.err.println("     ⚠️ Kết quả " + miner.getTruncationReport());
+                        }
 
                         // 3.3) PHA LỌC THEO ĐỘ TƯƠNG ĐỒNG
                         final long filterStart = System.currentTimeMillis();
@@ -137,7 +151,8 @@ public class Model1 {
                         SimilarityChecker checker = new SimilarityChecker(measure);
                         // checkSimilarityBatch(closed, minSim, 1000) -> lọc các mẫu “na ná” nhau, giữ mẫu đại diện
                         // batchSize=1000 để giảm áp lực bộ nhớ (tuỳ implement)
-                        List<Set<String>> filtered = checker.checkSimilarityBatch(closed, minSim, 1000);
+                        List<int[]> filtered = checker.checkSimilarityBatch(closed, minSim, 1000);
+                        closed.close(); // xoá các run tạm trên đĩa
                         final long filterEnd = System.currentTimeMillis();
 
                         final int similarityComparisons = checker.getComparisonCount(); // số lần so sánh similarity đã thực hiện
@@ -170,7 +185,7 @@ public class Model1 {
                                 minSim,
                                 totalRuntimeMs,
                                 usedMemMb,
-                                closed.size(),     // số mẫu đóng sinh ra
+                                found,             // số mẫu đóng sinh ra
                                 filtered.size(),   // số mẫu còn lại sau lọc similarity
                                 totalCandidates    // tổng độ nặng: ứng viên mining + số so sánh similarity
                         );
@@ -183,7 +198,7 @@ public class Model1 {
                         summaryMap.get(minSim).put(measureName, row);
 
                         // 3.7) LOG RA MÀN HÌNH ĐỂ THEO DÕI
-                        System.out.printf("     ✅ Closed: %d, Filtered: %d\n", closed.size(), filtered.size());
+                        System.out.printf("     ✅ Closed: %d, Filtered: %d\n", found, filtered.size());
                         System.out.printf("     ⏱️ Mining: %.3fs, Filter: %.3fs, Total: %.3fs\n",
                                 miningTime / 1000.0, filterTime / 1000.0, totalRuntimeMs / 1000.0);
                         System.out.printf("     💾 Memory: %.2fMB (Peak approx: %.2fMB)\n",
@@ -221,15 +236,27 @@ public class Model1 {
     }
 
     /**
-     * Đọc file dữ liệu thành List<Set<String>> (mỗi Set là 1 transaction).
+     * Nạp dataset qua VerticalIndex (file .vidx cạnh file text): lần đầu đọc text (parseDatabase) rồi ghi index,
+     * các lần sau map index - nguồn đổi thì tự dựng lại. Miner dùng thẳng TID-set trong index ở mọi ô.
+     * Giao dịch được đánh số lại theo mã Gray (giao dịch giống nhau nằm cạnh nhau) - miner và BitMatrix của
+     * Jaccard cùng dùng TID mới.
+     */
+    private static TransactionDatabase loadDatabase(String filename) {
+        return VerticalIndex.load(new File(filename), () -> parseDatabase(filename),
+                TransactionDatabase.TransactionOrder.GRAY_CODE, true);
+    }
+
+    /**
+     * Đọc file dữ liệu thành TransactionDatabase (mỗi dòng là 1 transaction).
      * - Chấp nhận dữ liệu ngăn cách bởi tab hoặc khoảng trắng.
-     * - Dùng HashSet để loại trùng item trong cùng transaction.
+     * - Item được mã hoá thành id int ngay lúc đọc (ItemDictionary, id theo support tăng dần);
+     *   item trùng trong cùng transaction chỉ tính 1 lần.
      *
      * @param filename tên file, ví dụ "mushrooms.txt"
      * @return danh sách transaction; rỗng nếu đọc lỗi/không có dữ liệu hợp lệ
      */
-    private static List<Set<String>> loadDatabase(String filename) {
-        List<Set<String>> db = new ArrayList<>();
+    private static TransactionDatabase parseDatabase(String filename) {
+        TransactionDatabase.Builder db = new TransactionDatabase.Builder();
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -244,18 +271,14 @@ public class Model1 {
                             ? line.trim().split("\t")
                             : line.trim().split("\\s+");
 
-                    // Tạo transaction; HashSet để loại trùng item trong cùng dòng
-                    Set<String> transaction = new HashSet<>(Arrays.asList(items));
-
-                    if (!transaction.isEmpty()) {
-                        db.add(transaction);
-                    }
+                    // Builder tự mã hoá id + loại trùng item trong cùng dòng (bỏ qua dòng không còn item)
+                    db.add(items);
                 }
             }
         } catch (IOException e) {
             System.err.println("❌ Lỗi đọc file " + filename + ": " + e.getMessage());
         }
-        return db;
+        return db.build();
     }
 
     /**
@@ -266,33 +289,32 @@ public class Model1 {
      *  - Density xấp xỉ: avgTranSize / |allItems|
      *      -> Giá trị càng cao = dữ liệu càng “dày đặc”
      *
-     * @param database   danh sách transaction đã load
+     * @param database   CSDL transaction đã load (đã mã hoá id)
      * @param datasetName tên (để in log)
      */
-    private static void analyzeDataset(List<Set<String>> database, String datasetName) {
+    private static void analyzeDataset(TransactionDatabase database, String datasetName) {
         if (database.isEmpty()) return;
 
         final int totalTransactions = database.size();
-        final Set<String> allItems = new HashSet<>();
+        final int uniqueItems = database.getDictionary().size(); // từ điển đã gom hết item duy nhất
         int totalItems = 0;
         int minTranSize = Integer.MAX_VALUE;
         int maxTranSize = 0;
 
         // Duyệt toàn bộ giao dịch để thống kê
-        for (Set<String> transaction : database) {
-            allItems.addAll(transaction);               // gom hết item duy nhất
-            totalItems += transaction.size();           // cộng độ dài
-            minTranSize = Math.min(minTranSize, transaction.size());
-            maxTranSize = Math.max(maxTranSize, transaction.size());
+        for (int[] transaction : database.getTransactions()) {
+            totalItems += transaction.length;           // cộng độ dài
+            minTranSize = Math.min(minTranSize, transaction.length);
+            maxTranSize = Math.max(maxTranSize, transaction.length);
         }
 
         final double avgTranSize = (double) totalItems / totalTransactions;
-        final double density = allItems.isEmpty() ? 0.0 : (avgTranSize / allItems.size());
+        final double density = uniqueItems == 0 ? 0.0 : (avgTranSize / uniqueItems);
 
         // In thống kê ra console
         System.out.println("📊 Thông tin dataset " + datasetName + ":");
         System.out.println("   - Transactions: " + totalTransactions);
-        System.out.println("   - Unique items: " + allItems.size());
+        System.out.println("   - Unique items: " + uniqueItems);
         System.out.println("   - Transaction size: min=" + minTranSize
                 + ", max=" + maxTranSize
                 + ", avg=" + String.format("%.2f", avgTranSize));
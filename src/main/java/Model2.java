@@ -14,8 +14,10 @@ import java.text.DecimalFormat;
  *   - Model2: minSim cố định, quét NHIỀU minSup
  *
  * Luồng:
- *   [load dataset] -> [analyze] -> lặp qua minSup:
- *       -> [mine closed itemsets với absSup]
+ *   [load dataset] -> [analyze] -> [mine closed itemsets 1 lần ở minSup thấp nhất -> ThresholdSweep]
+ *   -> lặp qua minSup:
+ *       -> [lấy mẫu đóng có support >= absSup từ sweep (không khai thác lại);
+ *           sweep bị cắt (timeout / ngân sách bộ nhớ) -> khai thác riêng ở absSup]
  *       -> [filter theo minSim với SimilarityMeasure]
  *       -> [ghi nhận thời gian, bộ nhớ, số ứng viên… vào ResultRow]
  *   -> [đưa vào allDatasetResults]
@@ -24,6 +26,9 @@ import java.text.DecimalFormat;
  * Lưu ý:
  *   - Các class phụ trợ (ClosedPatternMining, SimilarityChecker, ResultRow, ExcelExporter, …) cần có sẵn trong project.
  *   - Đo bộ nhớ/thời gian chỉ là tương đối (GC có thể gây nhiễu). Có mục “Gợi ý tối ưu” trong comment bên dưới.
+ *   - Cột Runtime / Candidates KHÁC nghĩa so với Model1 và các báo cáo trước khi dùng sweep: phần khai thác chỉ tính
+ *     ở dòng có khai thác (minSup thấp nhất, hoặc minSup được khai thác riêng vì sweep bị cắt); dòng suy ra từ sweep
+ *     chỉ gồm bước lọc similarity (mining = 0). File Excel có ghi chú này dưới bảng mỗi sheet.
  */
 public class Model2 {
     public static void main(String[] args) {
@@ -56,8 +61,8 @@ public class Model2 {
             System.out.println("\uD83D\uDCC1 Đang xử lý dataset: " + datasetName);
             System.out.println("===============================");
 
-            // 3.1) Đọc file thành List<transaction>; mỗi transaction là Set<String> item
-            List<Set<String>> database = loadDatabase(dataset);
+            // 3.1) Đọc file thành TransactionDatabase; mỗi transaction là mảng id item (int[])
+            TransactionDatabase database = loadDatabase(dataset);
             if (database.isEmpty()) {
                 System.err.println("❌ Không có dữ liệu để xử lý: " + dataset);
                 continue;
@@ -82,104 +87,151 @@ public class Model2 {
             // Kết quả theo từng minSup: Map<minSupRatio, Map<MeasureName, ResultRow>>
             Map<Double, Map<String, ResultRow>> summaryMap = new TreeMap<>(); // TreeMap để in ra theo thứ tự tăng dần
 
-            // 4) VÒNG LẶP THEO minSupRatio (khác Model1)
-            for (double minSupRatio : minSups) {
-                // absSup = số giao dịch tối thiểu
-                int absSup = Math.max(1, (int) Math.ceil(minSupRatio * database.size()));
-                System.out.printf("\n\uD83D\uDD04 Processing minSup: %.3f (%d transactions)\n", minSupRatio, absSup);
-
-                summaryMap.putIfAbsent(minSupRatio, new LinkedHashMap<>());
-
-                // “Gợi ý” GC giữa các minSup để hạn chế nhiễu
-                System.gc();
-                try { Thread.sleep(300); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-
-                // 5) VÒNG LẶP THEO ĐỘ ĐO TƯƠNG ĐỒNG
-                for (int i = 0; i < measures.size(); i++) {
-                    SimilarityMeasure sim = measures.get(i);
-                    String name = names.get(i);
-                    System.out.printf("   ▶ Thuật toán: %s\n", name);
-
-                    try {
-                        // Thêm một vài nhịp GC ngắn (có thể lược bớt cho đỡ tốn thời gian)
-                        for (int gc = 0; gc < 5; gc++) { System.gc(); Thread.sleep(100); }
-
-                        Runtime runtime = Runtime.getRuntime();
-                        long baselineMem = runtime.totalMemory() - runtime.freeMemory(); // baseline tương đối
-
-                        long totalStart = System.currentTimeMillis(); // thời gian tổng cho (minSup, measure)
-
-                        // 5.1) KHAI THÁC MẪU ĐÓNG với absSup
-                        ClosedPatternMining miner = new ClosedPatternMining(absSup);
-                        miner.setMaxRuntime(300000); // 300s để tránh chạy quá dài
-                        miner.setMaxPatterns(50000); // cắt bùng nổ mẫu
-
-                        long miningStart = System.currentTimeMillis();
-                        Set<Set<String>> closed = miner.run(database);
-                        long miningEnd = System.currentTimeMillis();
+            // 3.3) KHAI THÁC 1 LẦN ở minSup thấp nhất -> ThresholdSweep
+            // Tính "đóng" không phụ thuộc minSup nên closed(minSup cao) = mẫu đóng ở minSup thấp nhất có support >= minSup cao:
+            // mọi minSup của dataset (và cả 3 measure) dùng chung lần khai thác này thay vì khai thác lại 18 lần
+            double lowestRatio = minSups[0];
+            for (double ratio : minSups) lowestRatio = Math.min(lowestRatio, ratio);
+            int lowestSup = Math.max(1, (int) Math.ceil(lowestRatio * database.size()));
+            System.out.printf("\n\u26CF\uFE0F Khai thác 1 lần ở minSup thấp nhất: %.3f (%d transactions)\n", lowestRatio, lowestSup);
+
+            Runtime runtime = Runtime.getRuntime();
+            long sweepBaselineMem = runtime.totalMemory() - runtime.freeMemory();
+
+            ClosedPatternMining miner = new ClosedPatternMining(lowestSup);
+            miner.setMaxRuntime(300000); // 300s để tránh chạy quá dài
+
+            long miningStart = System.currentTimeMillis();
+            // Mẫu đóng đổ vào SpillingPatternStore bên trong sweep: tràn ra file tạm (run nén, đã sắp xếp) khi thiếu RAM
+            ThresholdSweep sweep = miner.mineSweep(database);
+            long sweepMiningTime = System.currentTimeMillis() - miningStart;
+
+            double sweepMiningMemMb = Math.max(0, (runtime.totalMemory() - runtime.freeMemory()) - sweepBaselineMem) / (1024.0 * 1024.0);
+            int sweepMiningCandidates = miner.getCandidatesGenerated(); // ứng viên đã tạo trong pha mining (chung cho mọi minSup)
+            // Bị cắt (timeout / ngân sách bộ nhớ của ResourceGovernor) thì sweep thiếu mẫu ở MỌI ngưỡng -> không suy ra
+            // các minSup cao hơn từ nó mà khai thác riêng từng minSup như trước (có thể xong trong giới hạn thời gian)
+            boolean sweepComplete = sweep != null && miner.getTruncationReport().isComplete();
+            if (sweep == null) {
+                System.err.println("⚠️ Timeout ở minSup thấp nhất - khai thác riêng các minSup còn lại");
+            } else if (!sweepComplete) {
+                System.err.println("⚠️ Kết quả " + miner.getTruncationReport() + " - khai thác riêng các minSup còn lại");
+            }
 
-                        if (closed == null) {
-                            // run() tự trả về null khi timeout/hủy bỏ
+            // 4) VÒNG LẶP THEO minSupRatio (khác Model1) - sweep đầy đủ thì chỉ lọc lại theo support, không khai thác lại
+            try {
+                for (double minSupRatio : minSups) {
+                    // absSup = số giao dịch tối thiểu
+                    int absSup = Math.max(1, (int) Math.ceil(minSupRatio * database.size()));
+                    System.out.printf("\n\uD83D\uDD04 Processing minSup: %.3f (%d transactions)\n", minSupRatio, absSup);
+
+                    // Nguồn mẫu của minSup này + chi phí khai thác tính cho các dòng của nó:
+                    //  - minSup thấp nhất: chính lần khai thác chung
+                    //  - sweep đầy đủ: suy ra từ sweep, phần mining = 0
+                    //  - sweep bị cắt: khai thác riêng ở absSup (ThresholdSweep riêng, dùng chung cho 3 measure)
+                    ThresholdSweep source = sweep;
+                    long miningTime = 0;
+                    int miningCandidates = 0;
+                    double miningMemMb = 0;
+                    if (absSup == lowestSup) {
+                        if (sweep == null) continue; // đã timeout ở trên, khai thác lại cũng vậy
+                        miningTime = sweepMiningTime;
+                        miningCandidates = sweepMiningCandidates;
+                        miningMemMb = sweepMiningMemMb;
+                    } else if (!sweepComplete) {
+                        long ownBaselineMem = runtime.totalMemory() - runtime.freeMemory();
+                        ClosedPatternMining ownMiner = new ClosedPatternMining(absSup);
+                        ownMiner.setMaxRuntime(300000);
+                        long ownStart = System.currentTimeMillis();
+                        source = ownMiner.mineSweep(database);
+                        miningTime = System.currentTimeMillis() - ownStart;
+                        if (source == null) {
                             System.err.println("     ⚠️ Timeout - bỏ qua");
                             continue;
                         }
+                        miningCandidates = ownMiner.getCandidatesGenerated();
+                        miningMemMb = Math.max(0, (runtime.totalMemory() - runtime.freeMemory()) - ownBaselineMem) / (1024.0 * 1024.0);
+                        if (!ownMiner.getTruncationReport().isComplete()) {
+                            System.err.println("     ⚠️ Kết quả " + ownMiner.getTruncationReport());
+                        }
+                    }
 
-                        long afterMiningMem = runtime.totalMemory() - runtime.freeMemory();
-                        int miningCandidates = miner.getCandidatesGenerated(); // ứng viên đã tạo trong pha mining
-
-                        // 5.2) LỌC THEO ĐỘ TƯƠNG ĐỒNG (minSim cố định theo dataset)
-                        long filterStart = System.currentTimeMillis();
-                        SimilarityChecker checker = new SimilarityChecker(sim);
-                        // batchSize=1000 -> tránh bùng RAM khi so sánh cặp
-                        List<Set<String>> filtered = checker.checkSimilarityBatch(closed, minSim, 1000);
-                        long filterEnd = System.currentTimeMillis();
-
-                        int similarityComparisons = checker.getComparisonCount(); // số phép so sánh similarity
-
-                        long totalEnd = System.currentTimeMillis();
-                        long finalMem = runtime.totalMemory() - runtime.freeMemory();
-
-                        // 5.3) ƯỚC LƯỢNG BỘ NHỚ DÙNG
-                        // Dùng “đỉnh tương đối” giữa sau-mining và cuối-quy-trình
-                        long peakMemoryUsage = Math.max(afterMiningMem, finalMem) - baselineMem;
-                        // Nếu âm do GC -> chặn 0
-                        double usedMemMb = Math.max(0, peakMemoryUsage) / (1024.0 * 1024.0);
-
-                        // 5.4) THỜI GIAN
-                        long totalRuntimeMs = totalEnd - totalStart;
-                        long miningTime = miningEnd - miningStart;
-                        long filterTime = filterEnd - filterStart;
-
-                        // Tổng “độ nặng” quy trình = ứng viên mining + số so sánh similarity
-                        int totalCandidates = miningCandidates + similarityComparisons;
-
-                        // 5.5) GHI KẾT QUẢ
-                        ResultRow row = new ResultRow(
-                                minSupRatio,          // (ở Model2, ResultRow.field đầu tiên lưu minSupRatio)
-                                totalRuntimeMs,       // tổng thời gian
-                                usedMemMb,            // MB
-                                closed.size(),        // số mẫu đóng sinh ra
-                                filtered.size(),      // số mẫu còn lại sau lọc similarity
-                                totalCandidates       // tổng “độ nặng” (mining + similarity)
-                        );
-
-                        // Ghi thêm chi tiết vào row
-                        row.miningTime = miningTime;
-                        row.filterTime = filterTime;
-                        row.miningCandidates = miningCandidates;
-                        row.similarityComparisons = similarityComparisons;
-
-                        // Lưu theo tên measure
-                        summaryMap.get(minSupRatio).put(name, row);
-
-                    } catch (Exception e) {
-                        // Có lỗi -> vẫn ghi 1 row để giữ cấu trúc
-                        System.err.println("     ❌ Lỗi: " + e.getMessage());
-                        ResultRow errorRow = new ResultRow(minSupRatio, -1, -1, 0, 0, 0);
-                        summaryMap.get(minSupRatio).put(name, errorRow);
+                    try {
+                        summaryMap.putIfAbsent(minSupRatio, new LinkedHashMap<>());
+                        int found = source.count(absSup); // số mẫu đóng ở absSup (đếm từ histogram support)
+
+                        // “Gợi ý” GC giữa các minSup để hạn chế nhiễu
+                        System.gc();
+                        try { Thread.sleep(300); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+
+                        // 5) VÒNG LẶP THEO ĐỘ ĐO TƯƠNG ĐỒNG
+                        for (int i = 0; i < measures.size(); i++) {
+                            SimilarityMeasure sim = measures.get(i);
+                            String name = names.get(i);
+                            System.out.printf("   ▶ Thuật toán: %s\n", name);
+
+                            try {
+                                // Thêm một vài nhịp GC ngắn (có thể lược bớt cho đỡ tốn thời gian)
+                                for (int gc = 0; gc < 5; gc++) { System.gc(); Thread.sleep(100); }
+
+                                long baselineMem = runtime.totalMemory() - runtime.freeMemory(); // baseline tương đối
+
+                                // 5.1) LỌC THEO ĐỘ TƯƠNG ĐỒNG (minSim cố định theo dataset) trên mẫu đóng có support >= absSup
+                                long filterStart = System.currentTimeMillis();
+                                SimilarityChecker checker = new SimilarityChecker(sim);
+                                // batchSize=1000 -> tránh bùng RAM khi so sánh cặp
+                                List<int[]> filtered = checker.checkSimilarityBatch(source, absSup, minSim, 1000);
+                                long filterEnd = System.currentTimeMillis();
+
+                                int similarityComparisons = checker.getComparisonCount(); // số phép so sánh similarity
+
+                                long finalMem = runtime.totalMemory() - runtime.freeMemory();
+
+                                // 5.2) ƯỚC LƯỢNG BỘ NHỚ DÙNG
+                                // Pha lọc: chênh lệch so với baseline (nếu âm do GC -> chặn 0); dòng có khai thác thì lấy
+                                // thêm đỉnh của pha mining
+                                double usedMemMb = Math.max(0, finalMem - baselineMem) / (1024.0 * 1024.0);
+                                usedMemMb = Math.max(usedMemMb, miningMemMb);
+
+                                // 5.3) THỜI GIAN
+                                long filterTime = filterEnd - filterStart;
+                                long totalRuntimeMs = miningTime + filterTime;
+
+                                // Tổng “độ nặng” quy trình = ứng viên mining + số so sánh similarity
+                                int totalCandidates = miningCandidates + similarityComparisons;
+
+                                // 5.4) GHI KẾT QUẢ
+                                ResultRow row = new ResultRow(
+                                        minSupRatio,          // (ở Model2, ResultRow.field đầu tiên lưu minSupRatio)
+                                        totalRuntimeMs,       // tổng thời gian
+                                        usedMemMb,            // MB
+                                        found,                // số mẫu đóng ở absSup
+                                        filtered.size(),      // số mẫu còn lại sau lọc similarity
+                                        totalCandidates       // tổng “độ nặng” (mining + similarity)
+                                );
+
+                                // Ghi thêm chi tiết vào row
+                                row.miningTime = miningTime;
+                                row.filterTime = filterTime;
+                                row.miningCandidates = miningCandidates;
+                                row.similarityComparisons = similarityComparisons;
+
+                                // Lưu theo tên measure
+                                summaryMap.get(minSupRatio).put(name, row);
+
+                            } catch (Exception e) {
+                                // Có lỗi -> vẫn ghi 1 row để giữ cấu trúc
+                                System.err.println("     ❌ Lỗi: " + e.getMessage());
+                                ResultRow errorRow = new ResultRow(minSupRatio, -1, -1, 0, 0, 0);
+                                summaryMap.get(minSupRatio).put(name, errorRow);
+                            }
+                        } // end for measure
+                    } finally {
+                        if (source != sweep) source.close(); // xoá các run tạm của lần khai thác riêng
                     }
-                } // end for measure
-            } // end for minSup
+                } // end for minSup
+            } finally {
+                if (sweep != null) sweep.close(); // xoá các run tạm trên đĩa
+            }
 
             // Lưu kết quả dataset vào tổng thể
             if (!summaryMap.isEmpty()) {
@@ -206,7 +258,18 @@ public class Model2 {
     }
 
     /**
-     * Đọc file dữ liệu thành List<Set<String>> (mỗi dòng = 1 transaction).
+     * Nạp dataset qua VerticalIndex (file .vidx cạnh file text): lần đầu đọc text (parseDatabase) rồi ghi index,
+     * các lần sau map index - nguồn đổi thì tự dựng lại. Miner dùng thẳng TID-set trong index ở mọi ô.
+     * Giao dịch được đánh số lại theo mã Gray (giao dịch giống nhau nằm cạnh nhau) - miner và BitMatrix của
+     * Jaccard cùng dùng TID mới.
+     */
+    private static TransactionDatabase loadDatabase(String filename) {
+        return VerticalIndex.load(new File(filename), () -> parseDatabase(filename),
+                TransactionDatabase.TransactionOrder.GRAY_CODE, true);
+    }
+
+    /**
+     * Đọc file dữ liệu thành TransactionDatabase (mỗi dòng = 1 transaction, item mã hoá id int ngay lúc đọc).
      * - Hỗ trợ phân tách bằng tab hoặc khoảng trắng (\\s+).
      * - Thêm logging dấu chấm mỗi 10k dòng để biết đang đọc tiến độ.
      * - Lọc item rỗng (trim) trước khi thêm.
@@ -214,8 +277,8 @@ public class Model2 {
      * @param filename tên file dataset (.txt)
      * @return danh sách transaction
      */
-    private static List<Set<String>> loadDatabase(String filename) {
-        List<Set<String>> db = new ArrayList<>();
+    private static TransactionDatabase parseDatabase(String filename) {
+        TransactionDatabase.Builder db = new TransactionDatabase.Builder();
 
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             String line;
@@ -238,17 +301,8 @@ public class Model2 {
                         items = line.trim().split("\\s+");
                     }
 
-                    // Dùng Set để loại trùng item trong cùng transaction
-                    Set<String> transaction = new HashSet<>();
-                    for (String item : items) {
-                        if (!item.trim().isEmpty()) {
-                            transaction.add(item.trim());
-                        }
-                    }
-
-                    if (!transaction.isEmpty()) {
-                        db.add(transaction);
-                    }
+                    // Builder tự trim/bỏ item rỗng, mã hoá id và loại trùng item trong cùng transaction
+                    db.add(items);
                 }
             }
 
@@ -260,7 +314,7 @@ public class Model2 {
             System.err.println("❌ Lỗi đọc file " + filename + ": " + e.getMessage());
         }
 
-        return db;
+        return db.build();
     }
 
     /**
@@ -270,30 +324,29 @@ public class Model2 {
      *  - Kích thước transaction min/max/avg
      *  - “Mật độ” xấp xỉ = avgTranSize / |allItems|
      */
-    private static void analyzeDataset(List<Set<String>> database, String datasetName) {
+    private static void analyzeDataset(TransactionDatabase database, String datasetName) {
         if (database.isEmpty()) return;
 
         int totalTransactions = database.size();
-        Set<String> allItems = new HashSet<>();
+        int uniqueItems = database.getDictionary().size();
         int totalItems = 0;
         int minTranSize = Integer.MAX_VALUE;
         int maxTranSize = 0;
 
-        for (Set<String> transaction : database) {
-            allItems.addAll(transaction);
-            totalItems += transaction.size();
-            minTranSize = Math.min(minTranSize, transaction.size());
-            maxTranSize = Math.max(maxTranSize, transaction.size());
+        for (int[] transaction : database.getTransactions()) {
+            totalItems += transaction.length;
+            minTranSize = Math.min(minTranSize, transaction.length);
+            maxTranSize = Math.max(maxTranSize, transaction.length);
         }
 
         double avgTranSize = (double) totalItems / totalTransactions;
 
         System.out.println("📊 Thông tin dataset " + datasetName + ":");
         System.out.println("   - Số transactions: " + totalTransactions);
-        System.out.println("   - Số items unique: " + allItems.size());
+        System.out.println("   - Số items unique: " + uniqueItems);
         System.out.println("   - Kích thước transaction: min=" + minTranSize +
                 ", max=" + maxTranSize + ", avg=" + String.format("%.2f", avgTranSize));
-        System.out.println("   - Mật độ: " + String.format("%.4f", avgTranSize / allItems.size()));
+        System.out.println("   - Mật độ: " + String.format("%.4f", avgTranSize / uniqueItems));
     }
 
     /**
@@ -305,6 +358,7 @@ public class Model2 {
      */
     private static void generateSummaryStatistics(Map<String, Map<Double, Map<String, ResultRow>>> allResults) {
         System.out.println("\n📈 TỔNG KẾT KẾT QUẢ:");
+        System.out.println("   (" + ExcelExporter.MODEL2_COST_NOTE + ")");
         DecimalFormat df = new DecimalFormat("#,###");
 
         for (Map.Entry<String, Map<Double, Map<String, ResultRow>>> datasetEntry : allResults.entrySet()) {
@@ -422,7 +476,7 @@ public class Model2 {
 //             // ✅ SỬA LỖI: Chạy từng thuật toán riêng biệt cho mỗi minSup
 //             for (double minSupRatio : minSups) {
 //                 int absSup = Math.max(1, (int) Math.ceil(minSupRatio * database.size()));
-//                 System.out.printf("\n🔄 Processing minSup: %.3f (%d transactions)\n", minSupRatio, absSup);
+//                 System.out.printf("\n\uD83D\uDD04 Processing minSup: %.3f (%d transactions)\n", minSupRatio, absSup);
 
 //                 summaryMap.putIfAbsent(minSupRatio, new LinkedHashMap<>());
 
@@ -0,0 +1,177 @@
+import java.nio.IntBuffer;
+
+/**
+ * OffHeapArrayTidSet
+ * ------------------
+ * TID-set dạng mảng int tăng dần nằm NGOÀI heap (trong vùng của OffHeapVerticalDB) - bản off-heap của ArrayTidSet
+ * cho item thưa. Đọc qua IntBuffer.get(i) tuyệt đối (nhiều luồng đọc chung được).
+ *
+ *  - Với mảng off-heap khác (giao 2 item ở mức gốc): trộn 2 con trỏ, O(|A| + |B|)
+ *  - Với ArrayTidSet trên heap (T(P) ở nhánh sâu, thường ngắn hơn nhiều): để bên heap duyệt phần tử của nó
+ *    và tìm nhị phân ở đây (contains), O(|P| log |item|)
+ *  - Với bitmap / diffset: duyệt phần tử ở đây và hỏi contains() bên kia
+ */
+final class OffHeapArrayTidSet extends TidSet {
+    private final IntBuffer tids;
+    private final int size;
+
+    OffHeapArrayTidSet(IntBuffer tids) {
+        this.tids = tids;
+        this.size = tids.limit();
+    }
+
+    @Override
+    int cardinality() {
+        return size;
+    }
+
+    /** TID thứ i (tăng dần) */
+    int get(int i) {
+        return tids.get(i);
+    }
+
+    @Override
+    boolean contains(int tid) {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int x = tids.get(mid);
+            if (x < tid) lo = mid + 1;
+            else if (x > tid) hi = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    @Override
+    long sizeInBytes() {
+        return 4L * size;
+    }
+
+    /** Bản sao trên heap (ArrayTidSet) - vùng off-heap có thể được giải phóng sau lần khai thác */
+    @Override
+    ArrayTidSet copy() {
+        int[] copy = new int[size];
+        tids.duplicate().get(copy);
+        return new ArrayTidSet(copy, size);
+    }
+
+    @Override
+    int andCardinality(TidSet other) {
+        if (other instanceof OffHeapArrayTidSet) {
+            OffHeapArrayTidSet b = (OffHeapArrayTidSet) other;
+            int i = 0, j = 0, count = 0;
+            while (i < size && j < b.size) {
+                int x = tids.get(i), y = b.tids.get(j);
+                if (x == y) { count++; i++; j++; }
+                else if (x < y) i++;
+                else j++;
+            }
+            return count;
+        }
+        if (other instanceof ArrayTidSet) return other.andCardinality(this);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (other.contains(tids.get(i))) count++;
+        }
+        return count;
+    }
+
+    @Override
+    boolean andCardinalityAtLeast(TidSet other, int threshold) {
+        if (threshold <= 0) return true;
+        if (Math.min(size, other.cardinality()) < threshold) return false;
+        if (other instanceof ArrayTidSet) return other.andCardinalityAtLeast(this, threshold);
+        int count = 0;
+        if (other instanceof OffHeapArrayTidSet) {
+            OffHeapArrayTidSet b = (OffHeapArrayTidSet) other;
+            int i = 0, j = 0;
+            while (i < size && j < b.size) {
+                if (count + Math.min(size - i, b.size - j) < threshold) return false;
+                int x = tids.get(i), y = b.tids.get(j);
+                if (x == y) {
+                    if (++count >= threshold) return true;
+                    i++; j++;
+                }
+                else if (x < y) i++;
+                else j++;
+            }
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (count + (size - i) < threshold) return false;
+            if (other.contains(tids.get(i)) && ++count >= threshold) return true;
+        }
+        return false;
+    }
+
+    @Override
+    int weight(int[] weights) {
+        int sum = 0;
+        for (int i = 0; i < size; i++) sum += weights[tids.get(i)];
+        return sum;
+    }
+
+    @Override
+    int andWeight(TidSet other, int[] weights) {
+        if (other instanceof ArrayTidSet) return other.andWeight(this, weights);
+        int sum = 0;
+        if (other instanceof OffHeapArrayTidSet) {
+            OffHeapArrayTidSet b = (OffHeapArrayTidSet) other;
+            int i = 0, j = 0;
+            while (i < size && j < b.size) {
+                int x = tids.get(i), y = b.tids.get(j);
+                if (x == y) { sum += weights[x]; i++; j++; }
+                else if (x < y) i++;
+                else j++;
+            }
+            return sum;
+        }
+        for (int i = 0; i < size; i++) {
+            int tid = tids.get(i);
+            if (other.contains(tid)) sum += weights[tid];
+        }
+        return sum;
+    }
+
+    @Override
+    boolean isSubsetOf(TidSet other) {
+        if (size > other.cardinality()) return false;
+        if (other instanceof OffHeapArrayTidSet) {
+            OffHeapArrayTidSet b = (OffHeapArrayTidSet) other;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                int x = tids.get(i);
+                while (j < b.size && b.tids.get(j) < x) j++;
+                if (j == b.size || b.tids.get(j) != x) return false;
+                j++;
+            }
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!other.contains(tids.get(i))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst) {
+        int n = 0;
+        if (other instanceof OffHeapArrayTidSet) {
+            OffHeapArrayTidSet b = (OffHeapArrayTidSet) other;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                int x = tids.get(i);
+                while (j < b.size && b.tids.get(j) < x) j++;
+                boolean inOther = j < b.size && b.tids.get(j) == x;
+                if (inOther == keepIfInOther) dst[n++] = x;
+            }
+            return n;
+        }
+        for (int i = 0; i < size; i++) {
+            int tid = tids.get(i);
+            if (other.contains(tid) == keepIfInOther) dst[n++] = tid;
+        }
+        return n;
+    }
+}
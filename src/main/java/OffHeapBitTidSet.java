@@ -0,0 +1,222 @@
+import java.nio.LongBuffer;
+
+/**
+ * OffHeapBitTidSet
+ * ----------------
+ * TID-set dạng bitmap nằm NGOÀI heap (trong vùng của OffHeapVerticalDB - direct hoặc mapped ByteBuffer):
+ * cùng bố cục với BitTidSet (words[w] chứa TID [64*w, 64*w + 63]) nhưng đọc qua LongBuffer.get(w) tuyệt đối,
+ * nên nhiều luồng đọc chung được và GC không phải quét / chép bitmap.
+ *
+ * Chỉ dùng cho TID-set của item trong vertical DB (bất biến). Kết quả giao luôn ghi vào bộ đệm trên heap
+ * (TidSetBuffer) như bình thường; BitTidSet có đường tắt AND thẳng với bitmap này (assignAnd, isSubsetOf, filterTo).
+ */
+final class OffHeapBitTidSet extends TidSet {
+    private final LongBuffer words;
+    private final int wordCount;
+    private final int cardinality;
+
+    OffHeapBitTidSet(LongBuffer words, int cardinality) {
+        this.words = words;
+        this.wordCount = words.limit();
+        this.cardinality = cardinality;
+    }
+
+    int wordCount() {
+        return wordCount;
+    }
+
+    long word(int w) {
+        return words.get(w);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int tid) {
+        int w = tid >>> 6;
+        return w < wordCount && (words.get(w) & (1L << tid)) != 0;
+    }
+
+    @Override
+    long sizeInBytes() {
+        return 8L * wordCount;
+    }
+
+    /** Bản sao trên heap (BitTidSet) - vùng off-heap có thể được giải phóng sau lần khai thác */
+    @Override
+    BitTidSet copy() {
+        long[] copy = new long[wordCount];
+        words.duplicate().get(copy);
+        return new BitTidSet(copy, cardinality);
+    }
+
+    /** dst[0..n) = this & other (other là bitmap trên heap hoặc off-heap), n = min số word; trả về số bit 1 */
+    int andInto(TidSet other, long[] dst) {
+        int count = 0;
+        if (other instanceof BitTidSet) {
+            BitTidSet b = (BitTidSet) other;
+            int n = Math.min(Math.min(wordCount, b.wordCount()), dst.length);
+            for (int w = 0; w < n; w++) {
+                long v = words.get(w) & b.word(w);
+                dst[w] = v;
+                count += Long.bitCount(v);
+            }
+            return count;
+        }
+        OffHeapBitTidSet b = (OffHeapBitTidSet) other;
+        int n = Math.min(Math.min(wordCount, b.wordCount), dst.length);
+        for (int w = 0; w < n; w++) {
+            long v = words.get(w) & b.words.get(w);
+            dst[w] = v;
+            count += Long.bitCount(v);
+        }
+        return count;
+    }
+
+    /** a ⊆ this ?  (a = bitmap trên heap) */
+    boolean covers(long[] a) {
+        int n = Math.min(a.length, wordCount);
+        for (int w = 0; w < n; w++) {
+            if ((a[w] & ~words.get(w)) != 0) return false;
+        }
+        for (int w = n; w < a.length; w++) {
+            if (a[w] != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    int andCardinality(TidSet other) {
+        if (other instanceof BitTidSet) {
+            BitTidSet b = (BitTidSet) other;
+            int n = Math.min(wordCount, b.wordCount());
+            int count = 0;
+            for (int w = 0; w < n; w++) count += Long.bitCount(words.get(w) & b.word(w));
+            return count;
+        }
+        if (other instanceof OffHeapBitTidSet) {
+            OffHeapBitTidSet b = (OffHeapBitTidSet) other;
+            int n = Math.min(wordCount, b.wordCount);
+            int count = 0;
+            for (int w = 0; w < n; w++) count += Long.bitCount(words.get(w) & b.words.get(w));
+            return count;
+        }
+        return other.andCardinality(this); // mảng / diffset: duyệt phần tử bên kia, hỏi contains()
+    }
+
+    /** Như BitTidSet: đếm theo khối 8 word, cắt sớm khi đủ / không thể đủ threshold */
+    @Override
+    boolean andCardinalityAtLeast(TidSet other, int threshold) {
+        if (threshold <= 0) return true;
+        if (!(other instanceof BitTidSet) && !(other instanceof OffHeapBitTidSet)) {
+            return other.andCardinalityAtLeast(this, threshold);
+        }
+        if (Math.min(cardinality, other.cardinality()) < threshold) return false;
+        int n = Math.min(wordCount, otherWordCount(other));
+        int count = 0;
+        int remaining = cardinality;
+        for (int blockStart = 0; blockStart < n; blockStart += 8) {
+            int blockEnd = Math.min(n, blockStart + 8);
+            int seen = 0;
+            for (int w = blockStart; w < blockEnd; w++) {
+                long aw = words.get(w);
+                count += Long.bitCount(aw & otherWord(other, w));
+                seen += Long.bitCount(aw);
+            }
+            if (count >= threshold) return true;
+            remaining -= seen;
+            if (count + remaining < threshold) return false;
+        }
+        return false;
+    }
+
+    @Override
+    int weight(int[] weights) {
+        int sum = 0;
+        for (int w = 0; w < wordCount; w++) {
+            long word = words.get(w);
+            while (word != 0) {
+                sum += weights[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    int andWeight(TidSet other, int[] weights) {
+        if (!(other instanceof BitTidSet) && !(other instanceof OffHeapBitTidSet)) {
+            return other.andWeight(this, weights);
+        }
+        int n = Math.min(wordCount, otherWordCount(other));
+        int sum = 0;
+        for (int w = 0; w < n; w++) {
+            long word = words.get(w) & otherWord(other, w);
+            while (word != 0) {
+                sum += weights[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    boolean isSubsetOf(TidSet other) {
+        if (cardinality > other.cardinality()) return false;
+        if (other instanceof BitTidSet || other instanceof OffHeapBitTidSet) {
+            int n = Math.min(wordCount, otherWordCount(other));
+            for (int w = 0; w < n; w++) {
+                if ((words.get(w) & ~otherWord(other, w)) != 0) return false;
+            }
+            for (int w = n; w < wordCount; w++) {
+                if (words.get(w) != 0) return false;
+            }
+            return true;
+        }
+        for (int w = 0; w < wordCount; w++) {
+            long word = words.get(w);
+            while (word != 0) {
+                if (!other.contains((w << 6) + Long.numberOfTrailingZeros(word))) return false;
+                word &= word - 1;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst) {
+        int n = 0;
+        boolean bitmap = other instanceof BitTidSet || other instanceof OffHeapBitTidSet;
+        int otherWords = bitmap ? otherWordCount(other) : 0;
+        for (int w = 0; w < wordCount; w++) {
+            long word = words.get(w);
+            if (bitmap) {
+                long bw = w < otherWords ? otherWord(other, w) : 0L;
+                word = keepIfInOther ? (word & bw) : (word & ~bw);
+                while (word != 0) {
+                    dst[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+                continue;
+            }
+            while (word != 0) {
+                int tid = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (other.contains(tid) == keepIfInOther) dst[n++] = tid;
+                word &= word - 1;
+            }
+        }
+        return n;
+    }
+
+    /** Số word / word thứ w của bitmap bên kia (BitTidSet hoặc OffHeapBitTidSet) */
+    private static int otherWordCount(TidSet bitmap) {
+        return bitmap instanceof BitTidSet ? ((BitTidSet) bitmap).wordCount() : ((OffHeapBitTidSet) bitmap).wordCount;
+    }
+
+    private static long otherWord(TidSet bitmap, int w) {
+        return bitmap instanceof BitTidSet ? ((BitTidSet) bitmap).word(w) : ((OffHeapBitTidSet) bitmap).words.get(w);
+    }
+}
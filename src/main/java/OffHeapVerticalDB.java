@@ -0,0 +1,300 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * OffHeapVerticalDB
+ * -----------------
+ * Vertical DB (item -> TID-set) dựng thẳng vào vùng nhớ NGOÀI heap, cho input rất lớn (kosarak trở lên) mà
+ * TidSet[] trên heap làm GC phải quét / chép hàng trăm MB bitmap ở mỗi lần full GC:
+ *
+ *  - DIRECT : ByteBuffer.allocateDirect (RAM ngoài heap, trả lại khi buffer bị GC thu hồi)
+ *  - MAPPED : file map vào bộ nhớ (FileChannel.map) - OS tự đẩy trang ra đĩa khi thiếu RAM;
+ *             file tạm bị xoá ngay sau khi map, file do người dùng chỉ định thì giữ lại
+ *
+ * Bố cục: vùng = các chunk <= 1GB (1 ByteBuffer không vượt quá 2GB), mỗi item nằm trọn trong 1 chunk,
+ * offset căn 8 byte. Thư mục trên heap chỉ O(số item): chunk, offset, độ dài, cách mã hoá của từng item.
+ * Mỗi item: bitmap (long) nếu bitmap nhỏ hơn mảng int - cùng quy tắc với TidSet.fromSortedTids - ngược lại
+ * mảng int TID tăng dần. Bố cục chỉ phụ thuộc (số dòng chứa từng item, số dòng) và luôn little-endian, nên vùng
+ * ghi ra file mở lại được chỉ từ các số đếm (map - dùng cho VerticalIndex).
+ *
+ * Dựng 2 lượt trên các dòng (đã compact): lượt 1 đếm số dòng chứa mỗi item -> cấp chỗ; lượt 2 ghi bit / TID
+ * thẳng vào vùng. Không có mảng TID tạm trên heap -> heap gần như phẳng khi dataset lớn dần.
+ *
+ * tidsets()[item] là view chỉ-đọc (OffHeapBitTidSet / OffHeapArrayTidSet) mà các kernel giao đọc thẳng.
+ */
+final class OffHeapVerticalDB {
+    static final long CHUNK_BYTES = 1L << 30;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final ByteBuffer[] chunks;
+    private final int[] chunkOf;
+    private final long[] offsets;
+    private final int[] lengths;              // số word (bitmap) hoặc số TID (mảng)
+    private final boolean[] bitmap;
+    private final TidSet[] tidsets;
+    private final int numRows;
+    private final long regionBytes;
+    private final boolean complete;
+
+    private OffHeapVerticalDB(ByteBuffer[] chunks, Layout layout, int[] counts, int numRows, boolean complete) {
+        this.chunks = chunks;
+        this.chunkOf = layout.chunkOf;
+        this.offsets = layout.offsets;
+        this.lengths = layout.lengths;
+        this.bitmap = layout.bitmap;
+        this.numRows = numRows;
+        this.regionBytes = layout.regionBytes();
+        this.complete = complete;
+        this.tidsets = new TidSet[lengths.length];
+        for (int item = 0; item < lengths.length; item++) {
+            ByteBuffer view = chunks[chunkOf[item]].duplicate();
+            view.position((int) offsets[item]);
+            view.limit((int) offsets[item] + (bitmap[item] ? 8 * lengths[item] : 4 * lengths[item]));
+            ByteBuffer slice = view.slice().order(ORDER); // slice() đặt lại BIG_ENDIAN
+            tidsets[item] = bitmap[item]
+                    ? new OffHeapBitTidSet(slice.asLongBuffer(), counts[item])
+                    : new OffHeapArrayTidSet(slice.asIntBuffer());
+        }
+    }
+
+    /**
+     * Dựng vertical DB off-heap từ các dòng đã compact (TID = chỉ số dòng).
+     *
+     * @param rows     CSDL đã compact (item không frequent không còn dòng nào)
+     * @param numItems số id item (độ dài thư mục)
+     * @param file     null = DIRECT; khác null = MAPPED vào file này
+     * @param tempFile true = file tạm, xoá ngay sau khi map (vùng map vẫn dùng được tới khi bị GC thu hồi)
+     * @param stop     kiểm tra mỗi 10000 dòng ở lượt 2 (vd: timeout) - true thì dừng, isComplete() = false
+     */
+    static OffHeapVerticalDB build(List<int[]> rows, int numItems, File file, boolean tempFile, BooleanSupplier stop)
+            throws IOException {
+        return build(rows, numItems, file, 0, tempFile, stop);
+    }
+
+    /**
+     * Như build(rows, numItems, file, tempFile, stop) nhưng vùng nằm trong file từ vị trí dataOffset
+     * (phần trước đó - vd: header của VerticalIndex - giữ nguyên). File không tạm thì được force() xuống đĩa.
+     */
+    static OffHeapVerticalDB build(List<int[]> rows, int numItems, File file, long dataOffset, boolean tempFile,
+                                   BooleanSupplier stop) throws IOException {
+        final int numRows = rows.size();
+
+        // Lượt 1: số dòng chứa mỗi item -> cách mã hoá + chỗ trong vùng
+        final int[] counts = new int[numItems];
+        for (int[] row : rows) {
+            for (int item : row) counts[item]++;
+        }
+        final Layout layout = new Layout(counts, numRows);
+        final int[] chunkOf = layout.chunkOf;
+        final long[] offsets = layout.offsets;
+        final int[] lengths = layout.lengths;
+        final boolean[] bitmap = layout.bitmap;
+
+        // Cấp vùng: direct hoặc map từng chunk của file
+        final ByteBuffer[] chunks;
+        if (file == null) {
+            chunks = new ByteBuffer[layout.chunkSizes.length];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = ByteBuffer.allocateDirect((int) layout.chunkSizes[c]).order(ORDER);
+            }
+        } else {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(dataOffset); // cắt nội dung cũ (file ghi đè) - phần mới của file đọc ra toàn 0
+                raf.setLength(dataOffset + layout.regionBytes());
+                chunks = map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, dataOffset, layout);
+            } finally {
+                if (tempFile && !file.delete()) file.deleteOnExit();
+            }
+        }
+
+        // Lượt 2: ghi bit / TID thẳng vào vùng
+        final int[] fill = new int[numItems];
+        boolean complete = true;
+        for (int tid = 0; tid < numRows; tid++) {
+            if (tid % 10000 == 0 && stop.getAsBoolean()) {
+                complete = false;
+                break;
+            }
+            for (int item : rows.get(tid)) {
+                ByteBuffer region = chunks[chunkOf[item]];
+                if (bitmap[item]) {
+                    int index = (int) offsets[item] + 8 * (tid >>> 6);
+                    region.putLong(index, region.getLong(index) | (1L << tid));
+                } else {
+                    region.putInt((int) offsets[item] + 4 * fill[item]++, tid);
+                }
+            }
+        }
+        if (!complete) {
+            // TID-set dở dang: đếm lại phần đã ghi để cardinality khớp nội dung
+            for (int item = 0; item < numItems; item++) {
+                if (!bitmap[item]) lengths[item] = fill[item];
+                else counts[item] = recount(chunks[chunkOf[item]], (int) offsets[item], lengths[item]);
+            }
+        }
+        if (file != null && !tempFile) {
+            for (ByteBuffer chunk : chunks) ((MappedByteBuffer) chunk).force();
+        }
+        return new OffHeapVerticalDB(chunks, layout, counts, numRows, complete);
+    }
+
+    /**
+     * Mở CHỈ-ĐỌC vùng đã ghi trước đó bằng build(..., file, dataOffset, ...) (vd: VerticalIndex lúc khởi động
+     * lại): bố cục dựng lại từ counts + numRows, không đọc nội dung - OS nạp trang khi kernel giao chạm tới.
+     *
+     * @param counts số dòng chứa từng item (= cardinality TID-set) lúc ghi
+     */
+    static OffHeapVerticalDB map(File file, long dataOffset, int[] counts, int numRows) throws IOException {
+        final Layout layout = new Layout(counts, numRows);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < dataOffset + layout.regionBytes()) {
+                throw new IOException("File " + file + " ngắn hơn vùng vertical DB (" + raf.length() + " byte)");
+            }
+            ByteBuffer[] chunks = map(raf.getChannel(), FileChannel.MapMode.READ_ONLY, dataOffset, layout);
+            return new OffHeapVerticalDB(chunks, layout, counts.clone(), numRows, true);
+        }
+    }
+
+    /** Map từng chunk của bố cục, liên tiếp từ vị trí dataOffset (mapping còn dùng được sau khi đóng channel) */
+    private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long dataOffset, Layout layout)
+            throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[layout.chunkSizes.length];
+        long position = dataOffset;
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = channel.map(mode, position, layout.chunkSizes[c]).order(ORDER);
+            position += layout.chunkSizes[c];
+        }
+        return chunks;
+    }
+
+    /**
+     * Bố cục vùng theo số dòng chứa từng item: cách mã hoá, chunk, offset (căn 8 byte) và độ dài mỗi item.
+     * Tất định - build() và map() cho cùng bố cục từ cùng counts.
+     */
+    private static final class Layout {
+        final int[] chunkOf;
+        final long[] offsets;
+        final int[] lengths;                  // số word (bitmap) hoặc số TID (mảng)
+        final boolean[] bitmap;
+        final long[] chunkSizes;              // kích thước từng chunk (>= 8 byte)
+
+        Layout(int[] counts, int numRows) throws IOException {
+            final int numItems = counts.length;
+            final int words = (numRows + 63) >>> 6;
+            chunkOf = new int[numItems];
+            offsets = new long[numItems];
+            lengths = new int[numItems];
+            bitmap = new boolean[numItems];
+            long[] sizes = new long[4];
+            int chunk = 0;
+            for (int item = 0; item < numItems; item++) {
+                bitmap[item] = counts[item] > 0 && TidSet.bitmapBytes(numRows) < 4L * counts[item];
+                lengths[item] = bitmap[item] ? words : counts[item];
+                long bytes = (bitmap[item] ? 8L : 4L) * lengths[item];
+                if (bytes > CHUNK_BYTES) {
+                    throw new IOException("TID-set của item " + item + " vượt quá 1 chunk (" + bytes + " byte)");
+                }
+                if (sizes[chunk] + bytes > CHUNK_BYTES) {
+                    chunk++;
+                    if (chunk == sizes.length) sizes = Arrays.copyOf(sizes, 2 * chunk);
+                }
+                chunkOf[item] = chunk;
+                offsets[item] = sizes[chunk];
+                sizes[chunk] += (bytes + 7) & ~7L; // căn 8 byte
+            }
+            chunkSizes = Arrays.copyOf(sizes, chunk + 1);
+            for (int c = 0; c < chunkSizes.length; c++) chunkSizes[c] = Math.max(8, chunkSizes[c]);
+        }
+
+        long regionBytes() {
+            long total = 0;
+            for (long size : chunkSizes) total += size;
+            return total;
+        }
+    }
+
+    private static int recount(ByteBuffer region, int offset, int words) {
+        int count = 0;
+        for (int w = 0; w < words; w++) count += Long.bitCount(region.getLong(offset + 8 * w));
+        return count;
+    }
+
+    /** View TID-set theo id item (chỉ đọc, dùng chung được giữa các luồng) */
+    TidSet[] tidsets() {
+        return tidsets;
+    }
+
+    /**
+     * Chuyển ngược về dạng horizontal: rows[tid] = các item (id tăng dần) có tid trong TID-set
+     * (VerticalIndex dựng lại TransactionDatabase từ vùng đã map, không cần đọc lại file text).
+     */
+    int[][] toRows() {
+        final int[] rowLengths = new int[numRows];
+        final int[] tids = new int[numRows];
+        final long[] words = new long[(numRows + 63) >>> 6];
+        for (int item = 0; item < tidsets.length; item++) {
+            int n = readTids(item, tids, words);
+            for (int i = 0; i < n; i++) rowLengths[tids[i]]++;
+        }
+        final int[][] rows = new int[numRows][];
+        for (int tid = 0; tid < numRows; tid++) rows[tid] = new int[rowLengths[tid]];
+        final int[] fill = rowLengths; // dùng lại làm con trỏ ghi
+        Arrays.fill(fill, 0);
+        for (int item = 0; item < tidsets.length; item++) {
+            int n = readTids(item, tids, words);
+            for (int i = 0; i < n; i++) rows[tids[i]][fill[tids[i]]++] = item;
+        }
+        return rows;
+    }
+
+    /** Chép TID (tăng dần) của item ra dst bằng đọc khối (words: bộ đệm cho bitmap); trả về số TID */
+    private int readTids(int item, int[] dst, long[] words) {
+        ByteBuffer view = chunks[chunkOf[item]].duplicate().order(ORDER);
+        view.position((int) offsets[item]);
+        if (!bitmap[item]) {
+            view.asIntBuffer().get(dst, 0, lengths[item]);
+            return lengths[item];
+        }
+        view.asLongBuffer().get(words, 0, lengths[item]);
+        int n = 0;
+        for (int w = 0; w < lengths[item]; w++) {
+            long word = words[w];
+            while (word != 0) {
+                dst[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return n;
+    }
+
+    /** Số dòng (TID 0..numRows-1) */
+    int numRows() {
+        return numRows;
+    }
+
+    /** Tổng kích thước vùng off-heap (byte) */
+    long regionBytes() {
+        return regionBytes;
+    }
+
+    /** Phần thư mục + view giữ trên heap (ước lượng, byte) - phần mà ResourceGovernor cần tính */
+    long heapBytes() {
+        return (long) tidsets.length * (4 + 8 + 4 + 1 + 64);
+    }
+
+    /** Số chunk (mỗi chunk là 1 ByteBuffer <= 1GB) */
+    int chunkCount() {
+        return chunks.length;
+    }
+
+    /** false nếu lượt ghi bị dừng giữa chừng (stop) - TID-set chỉ chứa các dòng đầu */
+    boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * OutputModeBenchmark
+ * -------------------
+ * So 2 cách lấy MẪU TỐI ĐẠI trên cùng dataset / minSup:
+ *  - closed + lọc lại : khai thác toàn bộ mẫu đóng (OutputMode.CLOSED) rồi giữ mẫu không nằm trong mẫu nào dài hơn
+ *  - MAXIMAL          : OutputMode.MAXIMAL (chỉ đẩy lá + lookahead cắt cả cây con)
+ * và in thêm số generator (OutputMode.GENERATORS) để so kích thước đầu ra của 3 chế độ.
+ *
+ * Chạy: java OutputModeBenchmark [file dataset] [minSup tỉ lệ] [số vòng]
+ *   vd: java OutputModeBenchmark chess.txt 0.6 3
+ */
+public class OutputModeBenchmark {
+    public static void main(String[] args) throws IOException {
+        final String file = args.length > 0 ? args[0] : "chess.txt";
+        final double minSupRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.6;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        final int minSup = (int) Math.ceil(minSupRatio * database.size());
+        System.out.println("📂 " + file + " | minSup=" + minSup + " | transactions=" + database.size());
+
+        // Vài vòng làm ấm JIT, lấy vòng cuối
+        long closedTime = 0, filterTime = 0, maximalTime = 0, generatorTime = 0;
+        int closedCount = 0, filteredCount = 0, maximalCount = 0, generatorCount = 0;
+        for (int round = 0; round < rounds; round++) {
+            // 1) closed + lọc lại
+            long start = System.nanoTime();
+            PatternStore closed = new PatternStore();
+            closedCount = miner(minSup, ClosedPatternMining.OutputMode.CLOSED).mine(database, closed);
+            closedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            filteredCount = filterMaximal(closed, database.getDictionary().size());
+            filterTime = System.nanoTime() - start;
+
+            // 2) MAXIMAL trực tiếp
+            start = System.nanoTime();
+            maximalCount = miner(minSup, ClosedPatternMining.OutputMode.MAXIMAL).mine(database, new CountingPatternSink());
+            maximalTime = System.nanoTime() - start;
+
+            // 3) GENERATORS (chỉ để so kích thước đầu ra)
+            start = System.nanoTime();
+            generatorCount = miner(minSup, ClosedPatternMining.OutputMode.GENERATORS).mine(database, new CountingPatternSink());
+            generatorTime = System.nanoTime() - start;
+        }
+
+        System.out.printf("⏱️ Closed + lọc : %d closed -> %d maximal, %.1f ms (mining %.1f + lọc %.1f)%n",
+                closedCount, filteredCount, (closedTime + filterTime) / 1e6, closedTime / 1e6, filterTime / 1e6);
+        System.out.printf("⏱️ MAXIMAL      : %d maximal, %.1f ms (x%.2f)%s%n",
+                maximalCount, maximalTime / 1e6, (double) (closedTime + filterTime) / maximalTime,
+                maximalCount == filteredCount ? "" : " ❌ khác số mẫu");
+        System.out.printf("⏱️ GENERATORS   : %d generators, %.1f ms%n", generatorCount, generatorTime / 1e6);
+    }
+
+    private static ClosedPatternMining miner(int minSup, ClosedPatternMining.OutputMode mode) {
+        ClosedPatternMining miner = new ClosedPatternMining(minSup);
+        miner.setVerbose(false);
+        miner.setOutputMode(mode);
+        return miner;
+    }
+
+    /** Mẫu đóng -> mẫu tối đại: duyệt theo độ dài giảm dần, giữ mẫu chưa nằm trong mẫu đã giữ */
+    private static int filterMaximal(PatternStore closed, int itemCount) {
+        Integer[] order = new Integer[closed.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(closed.length(b), closed.length(a)));
+
+        MaximalIndex index = new MaximalIndex(itemCount);
+        for (int i : order) {
+            int[] pattern = closed.get(i);
+            if (!index.hasSuperset(pattern, pattern.length)) index.add(pattern, closed.support(i));
+        }
+        return index.size();
+    }
+}
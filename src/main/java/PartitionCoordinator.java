@@ -0,0 +1,333 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PartitionCoordinator
+ * --------------------
+ * Khai thác mẫu đóng bằng NHIỀU JVM worker trên cùng máy - cho dataset mà 1 heap không đủ ở minSup thấp.
+ *
+ * Cơ sở: ở DCI-Closed, nhánh của item thứ i trong postset gốc chỉ phụ thuộc preset = postset[0, i), nên
+ * chia postset gốc thành các phần rời nhau -> các tập mẫu đóng rời nhau, hợp lại đúng bằng lần khai thác
+ * đầy đủ (ClosedPatternMining.setFirstLevelPartition).
+ *
+ * Luồng:
+ *  1) Ghi CSDL ra file tạm (id của coordinator); từ điển (id -> support) gửi kèm từng worker qua stdin
+ *     -> worker dùng đúng id / thứ tự postset gốc của coordinator, không tự đánh lại id
+ *  2) Ước lượng chi phí cây con của từng item mức gốc (estimateFirstLevelCosts), chia thành các partition
+ *     cân bằng theo chi phí (LPT: item nặng nhất trước, vào partition đang nhẹ nhất)
+ *  3) Mỗi partition chạy trong 1 PartitionWorker (java ... PartitionWorker), tối đa setWorkers() tiến trình
+ *     cùng lúc; mẫu trả về qua pipe (stdout của worker) được giữ tạm trong SpillingPatternStore
+ *  4) Worker xong hợp lệ (exit 0 + dấu kết thúc) -> đẩy phần của nó sang sink; worker lỗi / chết giữa chừng ->
+ *     bỏ phần đã nhận, chạy lại RIÊNG partition đó (tối đa setMaxAttempts lần), các partition khác không bị ảnh hưởng
+ *
+ * Chỉ hỗ trợ mẫu đóng (OutputMode.CLOSED), không dùng setMaxItems / setMaxDepth.
+ */
+class PartitionCoordinator {
+    private final int minSup;
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private int partitions;                         // 0 = 4 * workers
+    private int maxAttempts = 3;
+    private String workerHeap;                      // vd "2g" -> -Xmx2g; null = mặc định của JVM
+    private long maxRuntime = Long.MAX_VALUE;       // timeout (ms) của mỗi worker
+    private boolean verbose = true;
+    private final AtomicInteger failedAttempts = new AtomicInteger();
+    private volatile boolean complete;
+
+    public PartitionCoordinator(int minSup) {
+        this.minSup = minSup;
+    }
+
+    /** Số worker JVM chạy cùng lúc (mặc định = số CPU) */
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /** Số partition (mặc định 4 * số worker - nhiều hơn số worker để cân bằng tải và chạy lại rẻ hơn) */
+    public void setPartitions(int partitions) {
+        this.partitions = Math.max(0, partitions);
+    }
+
+    /** Số lần chạy tối đa của 1 partition (lần đầu + chạy lại), mặc định 3 */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /** Heap của mỗi worker JVM, dạng tham số -Xmx (vd "2g", "512m") */
+    public void setWorkerHeap(String workerHeap) {
+        this.workerHeap = workerHeap;
+    }
+
+    /** Timeout (ms) của mỗi worker - hết giờ thì phần của worker đó bị cắt (isComplete() = false) */
+    public void setMaxRuntime(long maxRuntimeMs) {
+        this.maxRuntime = maxRuntimeMs;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /** Số lần chạy worker bị lỗi (đã chạy lại) trong lần mine() gần nhất */
+    public int getFailedAttempts() {
+        return failedAttempts.get();
+    }
+
+    /** true nếu mọi worker của lần mine() gần nhất đều khai thác đầy đủ (không timeout / cắt vì bộ nhớ) */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Khai thác bằng các worker JVM và đẩy mẫu đóng sang sink (theo từng partition xong; mỗi partition đã sắp
+     * theo độ dài + thứ tự từ điển - xem SpillingPatternStore). tidsetSize truyền cho sink = support.
+     *
+     * @return số mẫu đã đẩy ra sink
+     * @throws IOException nếu có partition lỗi cả maxAttempts lần (các partition khác đã đẩy ra sink vẫn giữ)
+     */
+    public int mine(TransactionDatabase database, ClosedPatternSink sink) throws IOException, InterruptedException {
+        failedAttempts.set(0);
+        complete = true;
+        long start = System.currentTimeMillis();
+
+        // 1) Chi phí từng item mức gốc -> partition cân bằng
+        ClosedPatternMining estimator = new ClosedPatternMining(minSup);
+        estimator.setVerbose(false);
+        long[] costs = estimator.estimateFirstLevelCosts(database);
+        int[][] parts = balance(costs, partitions > 0 ? partitions : 4 * workers);
+        log("   🧭 " + costs.length + " item mức gốc -> " + parts.length + " partition, " + workers + " worker JVM");
+
+        File dbFile = File.createTempFile("partition-db-", ".txt");
+        dbFile.deleteOnExit();
+        final ItemDictionary dictionary = database.getDictionary();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            writeDatabase(database, dbFile);
+
+            // 2) Mỗi partition = 1 task (chạy lại tại chỗ nếu worker lỗi)
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int k = 0; k < parts.length; k++) {
+                final int index = k;
+                futures.add(pool.submit(() -> runPartition(index, parts[index], dictionary, dbFile, sink)));
+            }
+
+            int total = 0;
+            List<String> failed = new ArrayList<>();
+            for (int k = 0; k < futures.size(); k++) {
+                try {
+                    total += futures.get(k).get();
+                } catch (ExecutionException e) {
+                    failed.add("partition " + k + ": " + e.getCause().getMessage());
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new IOException(failed.size() + " partition thất bại: " + failed);
+            }
+
+            log("   ✅ Tìm được " + total + " closed patterns (" + parts.length + " partition, "
+                    + failedAttempts.get() + " lần chạy lại, " + (System.currentTimeMillis() - start) + " ms)");
+            return total;
+        } finally {
+            pool.shutdownNow();
+            if (!dbFile.delete()) dbFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Chia vị trí mức gốc thành tối đa `parts` nhóm cân bằng theo chi phí (LPT: nặng nhất trước, vào nhóm nhẹ nhất).
+     * Mỗi nhóm có vị trí tăng dần; các nhóm theo tổng chi phí giảm dần (partition nặng chạy trước).
+     */
+    static int[][] balance(long[] costs, int parts) {
+        final int count = Math.max(1, Math.min(parts, costs.length));
+        Integer[] order = new Integer[costs.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(costs[b], costs[a]));
+
+        final long[] loads = new long[count];
+        List<List<Integer>> groups = new ArrayList<>();
+        PriorityQueue<Integer> lightest = new PriorityQueue<>((a, b) -> loads[a] != loads[b]
+                ? Long.compare(loads[a], loads[b]) : Integer.compare(a, b));
+        for (int g = 0; g < count; g++) {
+            groups.add(new ArrayList<>());
+            lightest.add(g);
+        }
+        for (int position : order) {
+            int g = lightest.poll();
+            groups.get(g).add(position);
+            loads[g] += costs[position];
+            lightest.add(g);
+        }
+
+        Integer[] byLoad = new Integer[count];
+        for (int g = 0; g < count; g++) byLoad[g] = g;
+        Arrays.sort(byLoad, (a, b) -> Long.compare(loads[b], loads[a]));
+        List<int[]> result = new ArrayList<>();
+        for (int g : byLoad) {
+            List<Integer> group = groups.get(g);
+            if (group.isEmpty()) continue;
+            int[] positions = new int[group.size()];
+            for (int k = 0; k < positions.length; k++) positions[k] = group.get(k);
+            Arrays.sort(positions);
+            result.add(positions);
+        }
+        return result.toArray(new int[0][]);
+    }
+
+    /** Chạy 1 partition, chạy lại khi worker lỗi; thành công thì đẩy phần của nó sang sink */
+    private int runPartition(int index, int[] positions, ItemDictionary dictionary, File dbFile, ClosedPatternSink sink)
+            throws IOException, InterruptedException {
+        IOException last = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            // phần nhận được giữ tạm (tràn ra đĩa nếu lớn) cho tới khi worker kết thúc hợp lệ
+            SpillingPatternStore received = new SpillingPatternStore(
+                    Runtime.getRuntime().maxMemory() / (16L * workers), null);
+            try {
+                runWorker(positions, dictionary, dbFile, received);
+                return deliver(received, sink);
+            } catch (IOException e) {
+                last = e;
+                failedAttempts.incrementAndGet();
+                System.err.println("   ⚠️ Partition " + index + " lỗi lần " + attempt + "/" + maxAttempts
+                        + ": " + e.getMessage());
+            } finally {
+                received.close();
+            }
+        }
+        throw last;
+    }
+
+    /** Khởi động 1 worker JVM, gửi từ điển + vị trí mức gốc qua stdin, đọc mẫu từ stdout; lỗi -> IOException */
+    private void runWorker(int[] positions, ItemDictionary dictionary, File dbFile, ClosedPatternSink received)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (workerHeap != null) command.add("-Xmx" + workerHeap);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PartitionWorker.class.getName());
+        command.add(dbFile.getAbsolutePath());
+        command.add(Integer.toString(minSup));
+        command.add(Long.toString(maxRuntime));
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            try (DataOutputStream in = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()))) {
+                in.writeInt(dictionary.size());
+                for (int id = 0; id < dictionary.size(); id++) in.writeInt(dictionary.support(id));
+                in.writeInt(positions.length);
+                for (int position : positions) in.writeInt(position);
+            }
+
+            boolean workerComplete;
+            String report;
+            try (DataInputStream out = new DataInputStream(new BufferedInputStream(process.getInputStream(), 1 << 16))) {
+                int[][] buffers = new int[16][];
+                int len;
+                while ((len = out.readInt()) >= 0) {
+                    if (len >= buffers.length) buffers = Arrays.copyOf(buffers, 2 * len);
+                    if (buffers[len] == null) buffers[len] = new int[len];
+                    int[] pattern = buffers[len];
+                    for (int k = 0; k < len; k++) pattern[k] = out.readInt();
+                    int support = out.readInt();
+                    received.accept(pattern, support, support);
+                }
+                workerComplete = out.readBoolean();
+                report = out.readUTF();
+            } catch (EOFException e) {
+                throw new IOException("worker dừng giữa chừng (exit " + process.waitFor() + ")");
+            }
+
+            int exit = process.waitFor();
+            if (exit != 0) throw new IOException("worker exit " + exit);
+            if (!workerComplete) {
+                complete = false;
+                System.err.println("   ⚠️ Worker " + report);
+            }
+        } finally {
+            if (process.isAlive()) process.destroyForcibly();
+        }
+    }
+
+    /** Đẩy phần của 1 partition sang sink (tuần tự hoá giữa các partition, trừ sink tự an toàn đa luồng) */
+    private int deliver(SpillingPatternStore received, ClosedPatternSink sink) throws IOException {
+        int count = 0;
+        try (SpillingPatternStore.Cursor cursor = received.cursor()) {
+            if (sink.isConcurrent()) {
+                while (cursor.next()) {
+                    sink.accept(cursor.pattern(), cursor.support(), cursor.support());
+                    count++;
+                }
+            } else {
+                synchronized (sink) {
+                    while (cursor.next()) {
+                        sink.accept(cursor.pattern(), cursor.support(), cursor.support());
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Ghi CSDL cho worker: mỗi dòng 1 giao dịch (lặp lại theo trọng số), item = id của coordinator */
+    private static void writeDatabase(TransactionDatabase database, File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            List<int[]> transactions = database.getTransactions();
+            for (int i = 0; i < transactions.size(); i++) {
+                StringBuilder line = new StringBuilder();
+                for (int id : transactions.get(i)) {
+                    if (line.length() > 0) line.append(' ');
+                    line.append(id);
+                }
+                for (int w = database.weight(i); w > 0; w--) {
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    /**
+     * Chạy: java PartitionCoordinator <file dataset> <minSup tỉ lệ> [số worker] [heap worker] [file kết quả]
+     *   vd: java PartitionCoordinator chess.txt 0.4 4 1g chess_closed.txt
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Cách dùng: java PartitionCoordinator <file dataset> <minSup tỉ lệ>"
+                    + " [số worker] [heap worker] [file kết quả]");
+            System.exit(2);
+        }
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        int minSup = Math.max(1, (int) Math.ceil(Double.parseDouble(args[1]) * database.size()));
+
+        PartitionCoordinator coordinator = new PartitionCoordinator(minSup);
+        if (args.length > 2) coordinator.setWorkers(Integer.parseInt(args[2]));
+        if (args.length > 3) coordinator.setWorkerHeap(args[3]);
+
+        if (args.length > 4) {
+            try (FilePatternSink sink = new FilePatternSink(args[4], database.getDictionary())) {
+                coordinator.mine(database, sink);
+            }
+        } else {
+            CountingPatternSink sink = new CountingPatternSink();
+            coordinator.mine(database, sink);
+            System.out.println("📊 " + sink.getCount() + " closed patterns, tổng support " + sink.getTotalSupport());
+        }
+        if (!coordinator.isComplete()) System.err.println("⚠️ Kết quả bị cắt (timeout / ngân sách bộ nhớ của worker)");
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PartitionWorker
+ * ---------------
+ * Tiến trình (JVM riêng) khai thác 1 phần của postset gốc cho PartitionCoordinator, giao tiếp qua pipe:
+ *
+ *  - args  : <file CSDL> <minSup tuyệt đối> <maxRuntime ms>
+ *            file CSDL do coordinator ghi: mỗi dòng 1 giao dịch = các id item của coordinator (tăng dần)
+ *  - stdin : từ điển của coordinator: int số item, rồi support của từng id; sau đó int n, rồi n int = vị trí
+ *            trong postset gốc cần duyệt (ClosedPatternMining.setFirstLevelPartition)
+ *            -> worker dùng THẲNG id / support của coordinator (không đánh lại id từ file), nên postset gốc trùng
+ *            với postset coordinator đã ước lượng kể cả khi id không theo support (sau append, item support 0)
+ *  - stdout: mỗi mẫu = int len, len int id, int support; kết thúc = int -1, boolean đầy đủ, UTF biên bản
+ *  - stderr: log / lỗi (System.out bị chuyển sang stderr để log không lẫn vào luồng nhị phân)
+ *  - exit  : 0 = thành công; khác 0 = lỗi (coordinator chạy lại partition này)
+ */
+public class PartitionWorker {
+    public static void main(String[] args) {
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+        System.setOut(System.err);
+
+        try {
+            final String file = args[0];
+            final int minSup = Integer.parseInt(args[1]);
+            final long maxRuntime = Long.parseLong(args[2]);
+
+            // 1) Từ điển của coordinator (id -> support) + vị trí mức gốc cần duyệt
+            DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+            int[] supports = new int[in.readInt()];
+            for (int id = 0; id < supports.length; id++) supports[id] = in.readInt();
+            int[] positions = new int[in.readInt()];
+            for (int k = 0; k < positions.length; k++) positions[k] = in.readInt();
+
+            // 2) Đọc CSDL theo đúng id của coordinator (tên item = id, worker chỉ trả id về)
+            String[] items = new String[supports.length];
+            for (int id = 0; id < items.length; id++) items[id] = Integer.toString(id);
+            List<int[]> transactions = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    String[] tokens = line.split(" ");
+                    int[] transaction = new int[tokens.length];
+                    for (int k = 0; k < tokens.length; k++) {
+                        transaction[k] = Integer.parseInt(tokens[k]);
+                        if (transaction[k] < 0 || transaction[k] >= items.length) {
+                            throw new IOException("id " + transaction[k] + " ngoài từ điển của coordinator ("
+                                    + items.length + " item)");
+                        }
+                    }
+                    transactions.add(transaction);
+                }
+            }
+            TransactionDatabase database = new TransactionDatabase(new ItemDictionary(items, supports), transactions);
+
+            // 3) Khai thác phần được giao, đẩy thẳng từng mẫu ra pipe
+            ClosedPatternMining miner = new ClosedPatternMining(minSup);
+            miner.setVerbose(false);
+            miner.setMaxRuntime(maxRuntime);
+            miner.setFirstLevelPartition(positions);
+            miner.mine(database, (pattern, support, tidsetSize) -> {
+                try {
+                    out.writeInt(pattern.length);
+                    for (int id : pattern) out.writeInt(id);
+                    out.writeInt(support);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            TruncationReport report = miner.getTruncationReport();
+            if (report.getError() != null) {
+                throw new IOException("lỗi khi khai thác: " + report.getError());
+            }
+            out.writeInt(-1);
+            out.writeBoolean(report.isComplete());
+            out.writeUTF(report.toString());
+            out.flush();
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("❌ PartitionWorker: " + e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+
+/**
+ * PatternStore
+ * ------------
+ * Kho mẫu đóng GỌN: mọi itemset nằm liền nhau trong 1 mảng int[] "arena", thay vì mỗi mẫu là 1 object.
+ *  - items   : arena, mẫu thứ i = items[offsets[i], offsets[i + 1])  (id item tăng dần)
+ *  - offsets : vị trí bắt đầu của từng mẫu (offsets[size] = cuối arena)
+ *  - supports: support của mẫu thứ i (song song với offsets)
+ *  - table   : bảng băm open-addressing (dò tuyến tính) trỏ vào chỉ số mẫu -> loại mẫu trùng khi thêm
+ *
+ * Bộ nhớ ~ 4 byte / item + ~ 20 byte / mẫu, so với hàng trăm byte / item của HashSet<Set<String>>.
+ * Duyệt không boxing: forEach(Visitor) đưa thẳng (arena, from, to), hoặc copyTo() vào bộ đệm có sẵn.
+ *
+ * Là 1 ClosedPatternSink nên có thể truyền thẳng vào ClosedPatternMining.mine(database, store).
+ */
+class PatternStore implements ClosedPatternSink {
+    private int[] items = new int[1024];
+    private int[] offsets = new int[257];
+    private int[] supports = new int[256];
+    private int[] hashes = new int[256];   // hash của từng mẫu (khỏi tính lại khi nới bảng băm)
+    private int[] table = new int[512];    // chỉ số mẫu + 1 (0 = ô trống), kích thước luôn là luỹ thừa 2
+    private int size;
+
+    /** Duyệt mẫu không boxing: mẫu thứ index = items[from, to) */
+    interface Visitor {
+        void visit(int index, int[] items, int from, int to, int support);
+    }
+
+    /** Nhận mẫu từ miner (bỏ qua nếu đã có) */
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        add(pattern, support);
+    }
+
+    /**
+     * Thêm 1 mẫu (mảng id tăng dần) - copy vào arena.
+     * @return chỉ số của mẫu mới; -1 nếu mẫu đã có trong kho (support giữ nguyên)
+     */
+    public int add(int[] pattern, int support) {
+        int hash = hash(pattern);
+        int slot = findSlot(pattern, hash);
+        if (table[slot] != 0) return -1;
+
+        int start = offsets[size];
+        int end = start + pattern.length;
+        if (end > items.length) {
+            items = Arrays.copyOf(items, Math.max(end, items.length * 2));
+        }
+        System.arraycopy(pattern, 0, items, start, pattern.length);
+        if (size + 1 == supports.length) {
+            int capacity = supports.length * 2;
+            supports = Arrays.copyOf(supports, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        supports[size] = support;
+        hashes[size] = hash;
+        offsets[size + 1] = end;
+        table[slot] = size + 1;
+        size++;
+
+        // Giữ hệ số tải <= 0.5 để chuỗi dò ngắn
+        if (size * 2 > table.length) rehash(table.length * 2);
+        return size - 1;
+    }
+
+    /**
+     * Thêm mẫu, hoặc CỘNG DỒN support nếu mẫu đã có (vd: gộp giao dịch trùng thành 1 dòng có trọng số).
+     * @return chỉ số của mẫu trong kho
+     */
+    public int merge(int[] pattern, int support) {
+        int index = add(pattern, support);
+        if (index >= 0) return index;
+        index = indexOf(pattern);
+        supports[index] += support;
+        return index;
+    }
+
+    /** Chỉ số của mẫu trong kho, -1 nếu không có */
+    public int indexOf(int[] pattern) {
+        int slot = findSlot(pattern, hash(pattern));
+        return table[slot] - 1;
+    }
+
+    public boolean contains(int[] pattern) {
+        return indexOf(pattern) >= 0;
+    }
+
+    /** Số mẫu trong kho */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Số item của mẫu thứ i */
+    public int length(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /** Support của mẫu thứ i */
+    public int support(int i) {
+        return supports[i];
+    }
+
+    /** Item thứ k của mẫu thứ i */
+    public int item(int i, int k) {
+        return items[offsets[i] + k];
+    }
+
+    /** Copy mẫu thứ i vào dst[0, length(i)) (không cấp phát) */
+    public void copyTo(int i, int[] dst) {
+        System.arraycopy(items, offsets[i], dst, 0, offsets[i + 1] - offsets[i]);
+    }
+
+    /** Mẫu thứ i dưới dạng mảng mới (chỉ dùng khi thật sự cần giữ riêng) */
+    public int[] get(int i) {
+        return Arrays.copyOfRange(items, offsets[i], offsets[i + 1]);
+    }
+
+    /** Duyệt toàn bộ mẫu theo thứ tự thêm vào */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(i, items, offsets[i], offsets[i + 1], supports[i]);
+        }
+    }
+
+    /**
+     * Đẩy lại toàn bộ mẫu sang sink khác (vd: FilePatternSink để xuất file). Mỗi độ dài dùng chung 1 bộ đệm
+     * nên sink phải copy nếu cần giữ - đúng hợp đồng của ClosedPatternSink. tidsetSize = support.
+     */
+    public void replay(ClosedPatternSink sink) {
+        int[][] buffers = new int[maxLength() + 1][];
+        for (int i = 0; i < size; i++) {
+            int len = length(i);
+            if (buffers[len] == null) buffers[len] = new int[len];
+            copyTo(i, buffers[len]);
+            sink.accept(buffers[len], supports[i], supports[i]);
+        }
+    }
+
+    /** Độ dài mẫu dài nhất */
+    public int maxLength() {
+        int max = 0;
+        for (int i = 0; i < size; i++) max = Math.max(max, length(i));
+        return max;
+    }
+
+    /** Bộ nhớ đang dùng (byte) của các mảng bên trong */
+    public long sizeInBytes() {
+        return 4L * (items.length + offsets.length + supports.length + hashes.length + table.length);
+    }
+
+    @Override
+    public long retainedBytes() {
+        return sizeInBytes();
+    }
+
+    /** Vị trí trong table: ô chứa mẫu bằng pattern, hoặc ô trống đầu tiên gặp */
+    private int findSlot(int[] pattern, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) return slot;
+            int index = entry - 1;
+            if (hashes[index] == hash && equalsAt(index, pattern)) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean equalsAt(int index, int[] pattern) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start != pattern.length) return false;
+        for (int k = 0; k < pattern.length; k++) {
+            if (items[start + k] != pattern[k]) return false;
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hashes[index] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = index + 1;
+        }
+    }
+
+    /**
+     * Hash của mẫu (mảng id tăng dần). Đa thức 31 trên các id nhỏ tăng dần cho các giá trị gần nhau -> với dò tuyến
+     * tính sẽ dồn thành cụm dài; trộn đủ bit (bước cuối của MurmurHash3) để mọi bit đều tản đều.
+     */
+    static int hash(int[] pattern) {
+        int h = 1;
+        for (int id : pattern) h = 31 * h + id;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * ProgressListener
+ * ----------------
+ * Nhận tiến độ của ClosedPatternMining trong lúc duyệt (setProgressListener) thay cho log println:
+ * nhánh mức gốc đã xong / tổng, số mẫu, số ứng viên, thời gian còn lại ước lượng (xem MiningProgress).
+ *
+ * LƯU Ý:
+ *  - Được gọi từ LUỒNG KHAI THÁC (chạy song song: 1 trong các luồng worker), tuần tự hoá - không gọi chồng nhau.
+ *    Nên xử lý nhanh (cập nhật UI / ghi log); muốn dừng thì gọi CancellationToken.cancel(), không ném exception.
+ *  - Gọi tối đa 1 lần / chu kỳ đã đặt (chỉ xét ở các lần kiểm tra đồng hồ, xem setStopCheckInterval),
+ *    và luôn 1 lần cuối khi lần duyệt kết thúc (MiningProgress.isFinished()).
+ */
+interface ProgressListener {
+
+    void onProgress(MiningProgress progress);
+}
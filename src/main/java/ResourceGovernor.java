@@ -0,0 +1,104 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResourceGovernor
+ * ----------------
+ * Ngân sách BỘ NHỚ (byte) cho 1 lần khai thác, thay cho các giới hạn cứng (cắt postset 1000 item, depth 8/10,
+ * maxPatterns 50000, bắt OutOfMemoryError). Governor đếm số byte THỰC SỰ đang giữ:
+ *  - base     : vertical DB (TID-set của từng item, đặt lại mỗi lần dựng)
+ *  - working  : bộ đệm theo độ sâu của các luồng tìm kiếm + TID-set chụp lại khi fork task song song
+ *  - patterns : bộ nhớ sink đang giữ (ClosedPatternSink.retainedBytes - PatternStore, List, ...)
+ *
+ * Khi tổng dùng tăng dần, miner xuống cấp TỪ TỪ theo mức áp lực (pressure):
+ *  - COMPACT (>= 1/2 ngân sách): không chụp TID-set để fork task nữa, nhánh con chạy ngay trên bộ đệm hiện có
+ *  - SPILL   (>= 3/4 ngân sách): yêu cầu sink nhả bộ nhớ (ClosedPatternSink.spill, vd: ghi ra đĩa)
+ *  - PRUNE   (>= ngân sách)   : dừng đào sâu, các nhánh còn lại bị cắt và được ghi vào TruncationReport
+ *
+ * Ngân sách mặc định = DEFAULT_HEAP_FRACTION * heap tối đa của JVM (phần còn lại cho CSDL gốc, GC, ...).
+ * An toàn khi nhiều luồng cùng cập nhật.
+ */
+class ResourceGovernor {
+    static final double DEFAULT_HEAP_FRACTION = 0.6;
+
+    /** Mức áp lực bộ nhớ (tăng dần) */
+    enum Pressure { NORMAL, COMPACT, SPILL, PRUNE }
+
+    private final long budget;
+    private volatile long baseBytes;
+    private final AtomicLong workingBytes = new AtomicLong();
+    private volatile long patternBytes;
+    private final AtomicLong peakBytes = new AtomicLong();
+
+    /** @param budgetBytes ngân sách (byte); Long.MAX_VALUE = không giới hạn (chỉ đo) */
+    public ResourceGovernor(long budgetBytes) {
+        if (budgetBytes <= 0) throw new IllegalArgumentException("Ngân sách bộ nhớ phải > 0");
+        this.budget = budgetBytes;
+    }
+
+    /** Ngân sách = fraction * heap tối đa (-Xmx) */
+    public static ResourceGovernor forHeap(double fraction) {
+        return new ResourceGovernor(Math.max(1L, (long) (Runtime.getRuntime().maxMemory() * fraction)));
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /** Bắt đầu lần khai thác mới: xoá mọi số đo */
+    void reset() {
+        baseBytes = 0;
+        workingBytes.set(0);
+        patternBytes = 0;
+        peakBytes.set(0);
+    }
+
+    /** Bộ nhớ của vertical DB (ghi đè giá trị cũ) */
+    void setBaseBytes(long bytes) {
+        baseBytes = bytes;
+        updatePeak();
+    }
+
+    /** Bộ nhớ sink đang giữ (ghi đè giá trị cũ; không đổi thì chỉ đọc - nhiều luồng gọi liên tục không ghi đè lẫn nhau) */
+    void setPatternBytes(long bytes) {
+        if (patternBytes == bytes) return;
+        patternBytes = bytes;
+        updatePeak();
+    }
+
+    /** Thêm bộ nhớ làm việc (bộ đệm, snapshot khi fork) */
+    void charge(long bytes) {
+        workingBytes.addAndGet(bytes);
+        updatePeak();
+    }
+
+    /** Trả lại bộ nhớ đã charge() */
+    void release(long bytes) {
+        workingBytes.addAndGet(-bytes);
+    }
+
+    /** Tổng bộ nhớ đang giữ (byte) */
+    public long usedBytes() {
+        return baseBytes + workingBytes.get() + patternBytes;
+    }
+
+    /** Mức dùng cao nhất từ lần reset() gần nhất */
+    public long peakBytes() {
+        return peakBytes.get();
+    }
+
+    public Pressure pressure() {
+        long used = usedBytes();
+        if (used >= budget) return Pressure.PRUNE;
+        if (used >= budget - budget / 4) return Pressure.SPILL;
+        if (used >= budget / 2) return Pressure.COMPACT;
+        return Pressure.NORMAL;
+    }
+
+    private void updatePeak() {
+        long used = usedBytes();
+        long peak = peakBytes.get();
+        while (used > peak && !peakBytes.compareAndSet(peak, used)) {
+            peak = peakBytes.get(); // luồng khác vừa cập nhật đỉnh -> đọc lại
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * RoaringBenchmark
+ * ----------------
+ * So TID-set nén theo chunk (RoaringTidSet) với java.util.BitSet và BitTidSet trên cùng dataset:
+ *  - Bộ nhớ: tổng byte TID-set của mọi item (BitSet = mảng word đã cấp, Roaring = container + thư mục chunk),
+ *    trên thứ tự giao dịch của file và sau khi đánh số lại theo mã Gray (container RUN)
+ *  - Số container mỗi loại (mảng / bitmap / đoạn)
+ *  - |A ∩ B| của các cặp item frequent ngẫu nhiên: BitSet (clone + and + cardinality), BitTidSet, Roaring
+ *  - Thời gian khai thác mẫu đóng: VerticalStorage.HEAP so với ROARING (vòng nhanh nhất, cùng số mẫu)
+ *
+ * Chạy: java RoaringBenchmark [file dataset] [minSup tỉ lệ] [số vòng]
+ *   vd: java RoaringBenchmark mushrooms.txt 0.05 5
+ */
+public class RoaringBenchmark {
+    public static void main(String[] args) throws IOException {
+        final String file = args.length > 0 ? args[0] : "mushrooms.txt";
+        final double minSupRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.05;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        final int minSup = (int) Math.ceil(minSupRatio * database.size());
+        System.out.println("📂 " + file + " | minSup=" + minSup + " | transactions=" + database.size()
+                + " | items=" + database.getDictionary().size());
+
+        // 1) Bộ nhớ + loại container, theo thứ tự của file và thứ tự Gray
+        int[][] tids = null;
+        for (TransactionDatabase.TransactionOrder order : new TransactionDatabase.TransactionOrder[]{
+                TransactionDatabase.TransactionOrder.FILE, TransactionDatabase.TransactionOrder.GRAY_CODE}) {
+            TransactionDatabase ordered = database.reorder(order, 1);
+            int[][] lists = tidLists(ordered);
+            if (tids == null) tids = lists;
+            long bitSetBytes = 0, bitTidSetBytes = 0, roaringBytes = 0;
+            int[] kinds = new int[3];
+            for (int[] list : lists) {
+                BitSet bitSet = new BitSet(ordered.size());
+                for (int tid : list) bitSet.set(tid);
+                bitSetBytes += bitSet.size() / 8;
+                bitTidSetBytes += TidSet.bitmapBytes(ordered.size());
+                RoaringTidSet roaring = RoaringTidSet.fromSortedTids(list, list.length, ordered.size());
+                roaringBytes += roaring.sizeInBytes();
+                for (int c = 0; c < roaring.chunkCount(); c++) {
+                    if (roaring.chunk(c) != null) kinds[roaring.chunk(c).kind]++;
+                }
+            }
+            System.out.printf("💾 %-13s: BitSet %d KB | BitTidSet %d KB | Roaring %d KB (%.1f%% BitSet)"
+                            + " | containers: array=%d, bitmap=%d, run=%d%n",
+                    order.label, bitSetBytes / 1024, bitTidSetBytes / 1024, roaringBytes / 1024,
+                    100.0 * roaringBytes / Math.max(1, bitSetBytes), kinds[RoaringTidSet.ARRAY],
+                    kinds[RoaringTidSet.BITMAP], kinds[RoaringTidSet.RUN]);
+        }
+
+        // 2) |A ∩ B| của các cặp item frequent (thứ tự của file)
+        List<Integer> frequent = new ArrayList<>();
+        for (int item = 0; item < tids.length; item++) {
+            if (tids[item].length >= minSup) frequent.add(item);
+        }
+        if (frequent.size() >= 2) {
+            int n = database.size();
+            BitSet[] bitSets = new BitSet[tids.length];
+            BitTidSet[] bitTidSets = new BitTidSet[tids.length];
+            RoaringTidSet[] roarings = new RoaringTidSet[tids.length];
+            for (int item : frequent) {
+                bitSets[item] = new BitSet(n);
+                bitTidSets[item] = new BitTidSet(n);
+                for (int tid : tids[item]) {
+                    bitSets[item].set(tid);
+                    bitTidSets[item].add(tid);
+                }
+                roarings[item] = RoaringTidSet.fromSortedTids(tids[item], tids[item].length, n);
+            }
+            Random random = new Random(42);
+            int pairs = 20000;
+            int[] a = new int[pairs], b = new int[pairs];
+            for (int p = 0; p < pairs; p++) {
+                a[p] = frequent.get(random.nextInt(frequent.size()));
+                b[p] = frequent.get(random.nextInt(frequent.size()));
+            }
+            long bestBitSet = Long.MAX_VALUE, bestBitTidSet = Long.MAX_VALUE, bestRoaring = Long.MAX_VALUE;
+            long check = 0;
+            for (int round = 0; round < rounds + 2; round++) {
+                long start = System.nanoTime();
+                long sumBitSet = 0;
+                for (int p = 0; p < pairs; p++) {
+                    BitSet x = (BitSet) bitSets[a[p]].clone();
+                    x.and(bitSets[b[p]]);
+                    sumBitSet += x.cardinality();
+                }
+                bestBitSet = Math.min(bestBitSet, System.nanoTime() - start);
+                start = System.nanoTime();
+                long sumBitTidSet = 0;
+                for (int p = 0; p < pairs; p++) sumBitTidSet += bitTidSets[a[p]].andCardinality(bitTidSets[b[p]]);
+                bestBitTidSet = Math.min(bestBitTidSet, System.nanoTime() - start);
+                start = System.nanoTime();
+                long sumRoaring = 0;
+                for (int p = 0; p < pairs; p++) sumRoaring += roarings[a[p]].andCardinality(roarings[b[p]]);
+                bestRoaring = Math.min(bestRoaring, System.nanoTime() - start);
+                if (sumBitSet != sumRoaring || sumBitTidSet != sumRoaring) {
+                    throw new IllegalStateException("Kết quả |A ∩ B| khác nhau: " + sumBitSet + " / " + sumBitTidSet
+                            + " / " + sumRoaring);
+                }
+                check = sumRoaring;
+            }
+            System.out.printf("⚡ %d cặp |A ∩ B| (tổng %d): BitSet %.2f ms | BitTidSet %.2f ms | Roaring %.2f ms%n",
+                    pairs, check, bestBitSet / 1e6, bestBitTidSet / 1e6, bestRoaring / 1e6);
+        }
+
+        // 3) Khai thác: verticalDB trên heap (bitmap / mảng) so với nén - sau vài vòng làm ấm JIT
+        for (int round = 0; round < rounds; round++) {
+            ClosedPatternMining miner = new ClosedPatternMining(minSup);
+            miner.setVerbose(false);
+            miner.mine(database, new CountingPatternSink());
+        }
+        for (ClosedPatternMining.VerticalStorage storage : new ClosedPatternMining.VerticalStorage[]{
+                ClosedPatternMining.VerticalStorage.HEAP, ClosedPatternMining.VerticalStorage.ROARING}) {
+            long best = Long.MAX_VALUE;
+            int count = 0;
+            for (int round = 0; round < rounds; round++) {
+                ClosedPatternMining miner = new ClosedPatternMining(minSup);
+                miner.setVerbose(false);
+                miner.setVerticalStorage(storage);
+                long start = System.nanoTime();
+                count = miner.mine(database, new CountingPatternSink());
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("⏱️ %-8s: %d closed, %.1f ms%n", storage, count, best / 1e6);
+        }
+    }
+
+    /** TID (tăng dần) của từng item, TID = chỉ số giao dịch */
+    private static int[][] tidLists(TransactionDatabase database) {
+        int numItems = database.getDictionary().size();
+        int[] counts = new int[numItems];
+        for (int[] transaction : database.getTransactions()) {
+            for (int item : transaction) counts[item]++;
+        }
+        int[][] lists = new int[numItems][];
+        for (int item = 0; item < numItems; item++) lists[item] = new int[counts[item]];
+        Arrays.fill(counts, 0);
+        List<int[]> transactions = database.getTransactions();
+        for (int tid = 0; tid < transactions.size(); tid++) {
+            for (int item : transactions.get(tid)) lists[item][counts[item]++] = tid;
+        }
+        return lists;
+    }
+}
@@ -0,0 +1,583 @@
+import java.util.Arrays;
+
+/**
+ * RoaringTidSet
+ * -------------
+ * TID-set NÉN kiểu Roaring (không dùng thư viện ngoài): chia TID thành các chunk 65536 TID (16 bit cao),
+ * mỗi chunk là 1 container chọn theo nội dung của chính chunk đó - lấy cách tốn ít byte nhất:
+ *
+ *  - ARRAY  : các giá trị 16 bit thấp tăng dần (char[]), 2 byte / TID      -> chunk thưa
+ *  - BITMAP : tối đa 1024 long (8 KB; chunk cuối chỉ tới TID |DB| - 1), AND + popcount từng word -> chunk dày
+ *  - RUN    : các đoạn liên tiếp (start, độ dài - 1), 4 byte / đoạn        -> chunk gom cụm (sau
+ *             TransactionDatabase.reorder các giao dịch giống nhau nằm cạnh nhau -> đoạn bit 1 dài)
+ *
+ * Khác BitTidSet (bitmap |DB| / 8 byte cho MỌI item) và ArrayTidSet (4 byte / TID): item thưa chỉ tốn 2 byte / TID,
+ * item dày vẫn là bitmap, item gom cụm còn nhỏ hơn cả hai. Chunk rỗng không tốn container nào.
+ *
+ * Phép toán (andCardinality, andCardinalityAtLeast có cận, isSubsetOf, filterTo, andWeight) đi theo từng chunk:
+ *  - Roaring x Roaring: ghép 2 container cùng chunk - bitmap với bất kỳ: AND word / kiểm tra bit;
+ *    mảng x mảng: trộn; run với mảng / run: quét 2 danh sách đoạn, O(|A| + |B|)
+ *  - Roaring x BitTidSet: container so thẳng với 1024 word tương ứng của bitmap; vòng lặp theo word của
+ *    BitTidSet / DiffTidSet đọc Roaring qua WordCursor (giải mảng / run thành word, con trỏ chỉ tiến)
+ *  - Kiểu khác (mảng, diffset, off-heap): để bên kia duyệt phần tử và hỏi contains() (O(1) / O(log) trong chunk)
+ *
+ * Bất biến sau khi dựng (fromSortedTids) -> copy() trả về chính nó; dùng làm TID-set của item trong verticalDB
+ * (VerticalStorage.ROARING) và BitMatrix. TID-set trung gian của đệ quy vẫn là bitmap / mảng / diffset trong bộ đệm.
+ */
+final class RoaringTidSet extends TidSet {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int BITMAP_WORDS = CHUNK_SIZE / 64;
+    private static final int LOW_MASK = CHUNK_SIZE - 1;
+
+    static final byte ARRAY = 0;
+    static final byte BITMAP = 1;
+    static final byte RUN = 2;
+
+    /** 1 chunk 65536 TID (giá trị = 16 bit thấp của TID) */
+    static final class Container {
+        final byte kind;
+        final char[] values;     // ARRAY: giá trị tăng dần; RUN: cặp (start, độ dài - 1) tăng dần
+        final long[] bits;       // BITMAP
+        final int count;         // ARRAY: số giá trị; RUN: số đoạn; BITMAP: số bit 1
+        final int cardinality;
+
+        private Container(byte kind, char[] values, long[] bits, int count, int cardinality) {
+            this.kind = kind;
+            this.values = values;
+            this.bits = bits;
+            this.count = count;
+            this.cardinality = cardinality;
+        }
+
+        /** Số đoạn khi coi container là danh sách đoạn (ARRAY: mỗi giá trị 1 đoạn) */
+        int intervals() {
+            return count;
+        }
+
+        int start(int i) {
+            return kind == ARRAY ? values[i] : values[2 * i];
+        }
+
+        int end(int i) {
+            return kind == ARRAY ? values[i] : values[2 * i] + values[2 * i + 1];
+        }
+
+        long sizeInBytes() {
+            return kind == BITMAP ? 8L * bits.length : kind == ARRAY ? 2L * count : 4L * count;
+        }
+
+        /** Word k ghép từ các đoạn, bắt đầu ở đoạn i (đoạn đầu tiên có end >= 64*k) */
+        long wordFrom(int i, int k) {
+            final int from = k << 6, to = from + 63;
+            long word = 0L;
+            if (kind == ARRAY) {
+                for (; i < count && values[i] <= to; i++) word |= 1L << values[i];
+                return word;
+            }
+            for (; i < count; i++) {
+                int s = values[2 * i];
+                if (s > to) break;
+                int e = Math.min(s + values[2 * i + 1], to);
+                word |= (-1L << Math.max(s, from)) & (-1L >>> (63 - (e & 63)));
+            }
+            return word;
+        }
+
+        boolean contains(int low) {
+            if (kind == BITMAP) return (low >>> 6) < bits.length && (bits[low >>> 6] & (1L << low)) != 0;
+            // Đoạn cuối cùng có start <= low
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (start(mid) <= low) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return hi >= 0 && low <= end(hi);
+        }
+    }
+
+    /**
+     * Đọc bitmap tương đương theo word với chỉ số KHÔNG GIẢM (vòng lặp theo word của BitTidSet / DiffTidSet):
+     * mảng / run giữ con trỏ đoạn chỉ tiến -> cả lượt O(số word + số đoạn), không tìm nhị phân từng word.
+     * Mỗi lượt duyệt 1 cursor riêng (TID-set bất biến, dùng chung giữa các luồng); vòng khai thác giữ sẵn
+     * 1 cursor mỗi độ sâu (TidSetBuffer.cursor) và reset() đầu mỗi lượt thay vì tạo mới.
+     */
+    static final class WordCursor {
+        private RoaringTidSet set;
+        private int chunk = -1;
+        private Container container;
+        private int interval;
+
+        WordCursor() {
+        }
+
+        WordCursor(RoaringTidSet set) {
+            this.set = set;
+        }
+
+        /** Bắt đầu lượt duyệt mới trên set (word đọc lại từ đầu) */
+        WordCursor reset(RoaringTidSet set) {
+            this.set = set;
+            this.chunk = -1;
+            this.container = null;
+            this.interval = 0;
+            return this;
+        }
+
+        /** reusable.reset(set), hoặc cursor mới khi nơi gọi không có sẵn cursor (reusable = null) */
+        static WordCursor of(RoaringTidSet set, WordCursor reusable) {
+            return reusable != null ? reusable.reset(set) : new WordCursor(set);
+        }
+
+        long word(int w) {
+            int c = w >>> (CHUNK_BITS - 6);
+            if (c != chunk) {
+                chunk = c;
+                container = set.chunk(c);
+                interval = 0;
+            }
+            if (container == null) return 0L;
+            int k = w & (BITMAP_WORDS - 1);
+            if (container.kind == BITMAP) return k < container.bits.length ? container.bits[k] : 0L;
+            final int from = k << 6;
+            while (interval < container.count && container.end(interval) < from) interval++;
+            return container.wordFrom(interval, k);
+        }
+
+        /** tid có thuộc tập không (tid không giảm giữa các lần gọi) */
+        boolean contains(int tid) {
+            return (word(tid >>> 6) & (1L << tid)) != 0;
+        }
+    }
+
+    private final Container[] chunks;   // chỉ số = TID >>> 16; null = chunk rỗng
+    private final int cardinality;
+    private final int wordCount;        // số word của bitmap tương đương (|DB| / 64)
+
+    private RoaringTidSet(Container[] chunks, int cardinality, int numTransactions) {
+        this.chunks = chunks;
+        this.cardinality = cardinality;
+        this.wordCount = (numTransactions + 63) >>> 6;
+    }
+
+    /**
+     * Dựng từ TID tăng dần. Mỗi chunk chọn container nhỏ nhất: RUN nếu 4 * số đoạn nhỏ hơn cả mảng lẫn bitmap,
+     * ngược lại ARRAY nếu 2 * số TID nhỏ hơn bitmap của chunk, còn lại BITMAP.
+     *
+     * @param numTransactions |DB| (số chunk = ceil(|DB| / 65536))
+     */
+    static RoaringTidSet fromSortedTids(int[] tids, int count, int numTransactions) {
+        Container[] chunks = new Container[(numTransactions + CHUNK_SIZE - 1) >>> CHUNK_BITS];
+        int from = 0;
+        while (from < count) {
+            int chunk = tids[from] >>> CHUNK_BITS;
+            int to = from;
+            int runs = 0;
+            int previous = -2;
+            while (to < count && (tids[to] >>> CHUNK_BITS) == chunk) {
+                if (tids[to] != previous + 1) runs++;
+                previous = tids[to++];
+            }
+            int words = Math.min(BITMAP_WORDS, (numTransactions - (chunk << CHUNK_BITS) + 63) >>> 6);
+            chunks[chunk] = container(tids, from, to, runs, words);
+            from = to;
+        }
+        return new RoaringTidSet(chunks, count, numTransactions);
+    }
+
+    /** @param words số word bitmap của chunk (chunk cuối chỉ cần phủ tới TID |DB| - 1) */
+    private static Container container(int[] tids, int from, int to, int runs, int words) {
+        final int card = to - from;
+        final long arrayBytes = 2L * card;
+        final long bitmapBytes = 8L * words;
+        final long runBytes = 4L * runs;
+        if (runBytes < arrayBytes && runBytes < bitmapBytes) {
+            char[] values = new char[2 * runs];
+            int r = -1;
+            for (int i = from; i < to; i++) {
+                int low = tids[i] & LOW_MASK;
+                if (r >= 0 && low == values[2 * r] + values[2 * r + 1] + 1) {
+                    values[2 * r + 1]++;
+                } else {
+                    r++;
+                    values[2 * r] = (char) low;
+                }
+            }
+            return new Container(RUN, values, null, runs, card);
+        }
+        if (arrayBytes < bitmapBytes) {
+            char[] values = new char[card];
+            for (int i = from; i < to; i++) values[i - from] = (char) (tids[i] & LOW_MASK);
+            return new Container(ARRAY, values, null, card, card);
+        }
+        long[] bits = new long[words];
+        for (int i = from; i < to; i++) bits[(tids[i] & LOW_MASK) >>> 6] |= 1L << tids[i];
+        return new Container(BITMAP, null, bits, card, card);
+    }
+
+    /** Container của chunk (null = rỗng hoặc ngoài phạm vi) */
+    Container chunk(int chunk) {
+        return chunk < chunks.length ? chunks[chunk] : null;
+    }
+
+    int chunkCount() {
+        return chunks.length;
+    }
+
+    /** Số word của bitmap tương đương */
+    int wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int tid) {
+        Container c = chunk(tid >>> CHUNK_BITS);
+        return c != null && c.contains(tid & LOW_MASK);
+    }
+
+    @Override
+    long sizeInBytes() {
+        long bytes = 8L * chunks.length; // mảng tham chiếu container
+        for (Container c : chunks) {
+            if (c != null) bytes += c.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /** Bất biến -> dùng chung được, không cần sao */
+    @Override
+    RoaringTidSet copy() {
+        return this;
+    }
+
+    // ======================= PHÉP TOÁN THEO CHUNK =======================
+
+    /** |a ∩ b| của 2 container cùng chunk */
+    static int andCount(Container a, Container b) {
+        if (a.kind == BITMAP) return andCountWords(b, a.bits, 0, a.bits.length);
+        if (b.kind == BITMAP) return andCountWords(a, b.bits, 0, b.bits.length);
+        if (a.kind == ARRAY && b.kind == ARRAY) return andCountArrays(a, b);
+        if (a.kind == ARRAY) return andCountArrayRuns(a, b);
+        if (b.kind == ARRAY) return andCountArrayRuns(b, a);
+        // Run x run: quét 2 danh sách đoạn, cộng phần giao của từng cặp đoạn chồng nhau
+        final char[] x = a.values, y = b.values;
+        int i = 0, j = 0, count = 0;
+        while (i < a.count && j < b.count) {
+            int sa = x[2 * i], ea = sa + x[2 * i + 1];
+            int sb = y[2 * j], eb = sb + y[2 * j + 1];
+            int e = Math.min(ea, eb);
+            int start = Math.max(sa, sb);
+            if (start <= e) count += e - start + 1;
+            if (ea < eb) i++;
+            else j++;
+        }
+        return count;
+    }
+
+    /** Mảng x mảng: trộn 2 con trỏ; lệch kích thước nhiều (>= 32 lần) thì tìm nhị phân phần tử bên ngắn */
+    private static int andCountArrays(Container a, Container b) {
+        if (a.count > b.count) {
+            Container t = a;
+            a = b;
+            b = t;
+        }
+        final char[] x = a.values, y = b.values;
+        final int nx = a.count, ny = b.count;
+        int count = 0;
+        if (nx * 32L < ny) {
+            int from = 0;
+            for (int i = 0; i < nx && from < ny; i++) {
+                int k = Arrays.binarySearch(y, from, ny, x[i]);
+                if (k >= 0) {
+                    count++;
+                    from = k + 1;
+                } else {
+                    from = -k - 1;
+                }
+            }
+            return count;
+        }
+        int i = 0, j = 0;
+        while (i < nx && j < ny) {
+            char u = x[i], v = y[j];
+            if (u == v) { count++; i++; j++; }
+            else if (u < v) i++;
+            else j++;
+        }
+        return count;
+    }
+
+    /** Mảng x run: giá trị của mảng tăng dần -> con trỏ đoạn chỉ tiến, O(|mảng| + số đoạn) */
+    private static int andCountArrayRuns(Container array, Container runs) {
+        final char[] x = array.values, r = runs.values;
+        int j = 0, count = 0;
+        for (int i = 0; i < array.count; i++) {
+            int v = x[i];
+            while (j < runs.count && r[2 * j] + r[2 * j + 1] < v) j++;
+            if (j == runs.count) break;
+            if (r[2 * j] <= v) count++;
+        }
+        return count;
+    }
+
+    /**
+     * |c ∩ words| với words[offset + k] là word k của chunk (word từ limit trở đi coi như 0) - dùng cho bitmap
+     * container (offset 0) và BitTidSet (offset = chunk * 1024).
+     */
+    static int andCountWords(Container c, long[] words, int offset, int limit) {
+        int count = 0;
+        if (c.kind == BITMAP) {
+            int n = Math.min(c.bits.length, limit - offset);
+            for (int k = 0; k < n; k++) count += Long.bitCount(c.bits[k] & words[offset + k]);
+            return count;
+        }
+        if (c.kind == ARRAY) {
+            for (int i = 0; i < c.count; i++) {
+                int w = offset + (c.values[i] >>> 6);
+                if (w < limit && (words[w] & (1L << c.values[i])) != 0) count++;
+            }
+            return count;
+        }
+        for (int i = 0; i < c.count; i++) {
+            int s = c.start(i), e = c.end(i);
+            int ws = s >>> 6, we = e >>> 6;
+            for (int k = ws; k <= we && offset + k < limit; k++) {
+                long mask = -1L;
+                if (k == ws) mask &= -1L << s;
+                if (k == we) mask &= -1L >>> (63 - (e & 63));
+                count += Long.bitCount(words[offset + k] & mask);
+            }
+        }
+        return count;
+    }
+
+    /** Số word của BitTidSet nằm trong chunk (giới hạn để không đọc quá mảng) */
+    private static int wordLimit(long[] words, int chunk) {
+        return Math.min(words.length, (chunk + 1) * BITMAP_WORDS);
+    }
+
+    @Override
+    int andCardinality(TidSet other) {
+        if (other instanceof RoaringTidSet) {
+            RoaringTidSet b = (RoaringTidSet) other;
+            int count = 0;
+            for (int c = 0; c < chunks.length; c++) {
+                Container x = chunks[c], y = b.chunk(c);
+                if (x != null && y != null) count += andCount(x, y);
+            }
+            return count;
+        }
+        if (other instanceof BitTidSet) {
+            long[] words = ((BitTidSet) other).words();
+            int count = 0;
+            for (int c = 0; c < chunks.length; c++) {
+                if (chunks[c] != null) count += andCountWords(chunks[c], words, c * BITMAP_WORDS, wordLimit(words, c));
+            }
+            return count;
+        }
+        if (delegates(other)) return other.andCardinality(this);
+        return scan(other, true, null, null);
+    }
+
+    /**
+     * Đếm theo chunk, cắt sớm khi đã đủ threshold hoặc phần chưa xét (card các chunk còn lại) không thể đủ.
+     */
+    @Override
+    boolean andCardinalityAtLeast(TidSet other, int threshold) {
+        if (threshold <= 0) return true;
+        if (Math.min(cardinality, other.cardinality()) < threshold) return false;
+        boolean roaring = other instanceof RoaringTidSet;
+        if (!roaring && !(other instanceof BitTidSet)) {
+            if (delegates(other)) return other.andCardinalityAtLeast(this, threshold);
+            return scan(other, true, null, null) >= threshold;
+        }
+        long[] words = roaring ? null : ((BitTidSet) other).words();
+        int count = 0;
+        int remaining = cardinality;
+        for (int c = 0; c < chunks.length; c++) {
+            Container x = chunks[c];
+            if (x == null) continue;
+            if (roaring) {
+                Container y = ((RoaringTidSet) other).chunk(c);
+                if (y != null) count += andCount(x, y);
+            } else {
+                count += andCountWords(x, words, c * BITMAP_WORDS, wordLimit(words, c));
+            }
+            if (count >= threshold) return true;
+            remaining -= x.cardinality;
+            if (count + remaining < threshold) return false;
+        }
+        return false;
+    }
+
+    @Override
+    boolean isSubsetOf(TidSet other) {
+        if (cardinality > other.cardinality()) return false;
+        if (other instanceof RoaringTidSet) {
+            RoaringTidSet b = (RoaringTidSet) other;
+            for (int c = 0; c < chunks.length; c++) {
+                Container x = chunks[c];
+                if (x == null) continue;
+                Container y = b.chunk(c);
+                if (y == null || y.cardinality < x.cardinality || andCount(x, y) != x.cardinality) return false;
+            }
+            return true;
+        }
+        if (other instanceof BitTidSet) {
+            long[] words = ((BitTidSet) other).words();
+            for (int c = 0; c < chunks.length; c++) {
+                Container x = chunks[c];
+                if (x != null && andCountWords(x, words, c * BITMAP_WORDS, wordLimit(words, c)) != x.cardinality) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return scan(other, false, null, null) == 0;
+    }
+
+    /** words (bitmap của BitTidSet) ⊆ this ? So từng word khác 0, dừng ở word đầu tiên có bit không thuộc this */
+    boolean covers(long[] words, WordCursor reusable) {
+        WordCursor cursor = WordCursor.of(this, reusable);
+        for (int w = 0; w < words.length; w++) {
+            if (words[w] != 0 && (words[w] & ~cursor.word(w)) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * dst = this ∩ other dạng bitmap (other là Roaring hoặc BitTidSet), dst đã có độ dài của bitmap kết quả;
+     * trả về số bit 1. AND theo word, container mảng / run được giải thành word qua WordCursor
+     * (dùng cho BitTidSet.assignAnd; mine / theirs là cursor tái sử dụng của bộ đệm, null = tạo mới).
+     */
+    int andInto(TidSet other, long[] dst, WordCursor mine, WordCursor theirs) {
+        final long[] words = other instanceof BitTidSet ? ((BitTidSet) other).words() : null;
+        mine = WordCursor.of(this, mine);
+        theirs = words == null ? WordCursor.of((RoaringTidSet) other, theirs) : null;
+        int count = 0;
+        for (int w = 0; w < dst.length; w++) {
+            long v = mine.word(w);
+            if (v != 0) v &= words != null ? (w < words.length ? words[w] : 0L) : theirs.word(w);
+            dst[w] = v;
+            count += Long.bitCount(v);
+        }
+        return count;
+    }
+
+    @Override
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst) {
+        return scan(other, keepIfInOther, dst, null);
+    }
+
+    @Override
+    int weight(int[] weights) {
+        return scan(null, true, null, weights);
+    }
+
+    @Override
+    int andWeight(TidSet other, int[] weights) {
+        if (delegates(other)) return other.andWeight(this, weights);
+        return scan(other, true, null, weights);
+    }
+
+    /**
+     * Kiểu để bên kia duyệt phần tử (thưa / diffset - chúng không gọi ngược lại Roaring với cùng phép toán).
+     * Bitmap (heap / off-heap) thì KHÔNG: BitTidSet / OffHeapBitTidSet tự chuyển phép toán sang bên không phải bitmap.
+     */
+    private static boolean delegates(TidSet other) {
+        return other instanceof ArrayTidSet || other instanceof OffHeapArrayTidSet || other instanceof DiffTidSet;
+    }
+
+    /**
+     * Duyệt mọi TID của this (tăng dần), chỉ xét TID có (keep = true) / không có (keep = false) trong other
+     * (other = null: mọi TID). Ghi vào dst nếu khác null; cộng trọng số nếu weights khác null.
+     *  - other là bitmap / Roaring (hoặc null): lọc theo WORD - word của this (bitmap, hoặc ghép từ các đoạn)
+     *    AND / AND NOT word của other (Roaring mảng / run: con trỏ đoạn chỉ tiến), không hỏi từng TID
+     *  - kiểu khác: hỏi other.contains() từng TID
+     *
+     * @return số TID được xét, hoặc tổng trọng số của chúng nếu weights khác null
+     */
+    private int scan(TidSet other, boolean keep, int[] dst, int[] weights) {
+        final RoaringTidSet roaring = other instanceof RoaringTidSet ? (RoaringTidSet) other : null;
+        final long[] words = other instanceof BitTidSet ? ((BitTidSet) other).words() : null;
+        final boolean wordwise = other == null || words != null || roaring != null;
+        int n = 0, sum = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            final Container x = chunks[c];
+            if (x == null) continue;
+            final Container y = roaring != null ? roaring.chunk(c) : null;
+            if (roaring != null && y == null && keep) continue; // không TID nào của chunk có trong other
+            final int base = c << CHUNK_BITS;
+            if (!wordwise) {
+                if (x.kind == BITMAP) {
+                    for (int k = 0; k < x.bits.length; k++) {
+                        for (long word = x.bits[k]; word != 0; word &= word - 1) {
+                            int tid = base + (k << 6) + Long.numberOfTrailingZeros(word);
+                            if (other.contains(tid) == keep) {
+                                if (dst != null) dst[n] = tid;
+                                n++;
+                                if (weights != null) sum += weights[tid];
+                            }
+                        }
+                    }
+                    continue;
+                }
+                for (int i = 0; i < x.intervals(); i++) {
+                    for (int low = x.start(i), e = x.end(i); low <= e; low++) {
+                        int tid = base + low;
+                        if (other.contains(tid) == keep) {
+                            if (dst != null) dst[n] = tid;
+                            n++;
+                            if (weights != null) sum += weights[tid];
+                        }
+                    }
+                }
+                continue;
+            }
+            // Word k của x: bitmap -> mọi word; mảng / run -> chỉ các word có đoạn chạm tới (mỗi word 1 lần)
+            final int words0 = c << (CHUNK_BITS - 6);
+            final int intervals = x.kind == BITMAP ? x.bits.length : x.intervals();
+            int j = 0;      // con trỏ đoạn của y (mảng / run)
+            int lastK = -1;
+            for (int i = 0; i < intervals; i++) {
+                final int fromK = x.kind == BITMAP ? i : Math.max(x.start(i) >>> 6, lastK + 1);
+                final int toK = x.kind == BITMAP ? i : x.end(i) >>> 6;
+                for (int k = fromK; k <= toK; k++) {
+                    long word = x.kind == BITMAP ? x.bits[k] : x.wordFrom(i, k);
+                    lastK = k;
+                    if (word == 0) continue;
+                    if (other != null) {
+                        long ow;
+                        if (words != null) {
+                            ow = words0 + k < words.length ? words[words0 + k] : 0L;
+                        } else if (y == null || y.kind == BITMAP) {
+                            ow = y == null || k >= y.bits.length ? 0L : y.bits[k];
+                        } else {
+                            while (j < y.count && y.end(j) < (k << 6)) j++;
+                            ow = y.wordFrom(j, k);
+                        }
+                        word = keep ? word & ow : word & ~ow;
+                    }
+                    if (dst == null && weights == null) {
+                        n += Long.bitCount(word);
+                        continue;
+                    }
+                    while (word != 0) {
+                        int tid = base + (k << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        if (dst != null) dst[n] = tid;
+                        n++;
+                        if (weights != null) sum += weights[tid];
+                    }
+                }
+            }
+        }
+        return weights != null ? sum : n;
+    }
+}
@@ -0,0 +1,350 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * SearchCheckpoint
+ * ----------------
+ * File checkpoint của 1 lần khai thác dài (ClosedPatternMining.setCheckpoint): ghi lại các nhánh đã duyệt XONG
+ * cùng các mẫu chúng đã đẩy ra, để lần chạy sau (hết maxRuntime, JVM chết giữa chừng, ...) chỉ duyệt phần còn lại.
+ *
+ * Nhánh = 1 lần lặp trên postset của 1 nút, xác định bởi ĐƯỜNG ĐI (vị trí trong postset ở từng mức) từ gốc.
+ * Lần lặp chỉ phụ thuộc preset (preset lúc vào nút + postset[0, i)) và postset của nút, cả hai suy lại được từ
+ * postset gốc (lưu trong header) theo đúng đường đi -> frontier = postset gốc + tập đường đi đã xong.
+ * Mỗi nhánh xong (ở mọi độ sâu) là 1 record chỉ chứa mẫu của CHÍNH nút đó (các nhánh con đã có record riêng, ghi
+ * trước) -> 1 nhánh mức gốc nặng hơn cả maxRuntime vẫn tiến dần qua các lần chạy.
+ *
+ * Bố cục file (DataOutputStream big-endian, chỉ ghi nối đuôi):
+ *  - Header: MAGIC, VERSION, minSup, loại mẫu, maxDepth, số dòng CSDL rút gọn, n, n x (item, support) của postset gốc
+ *  - Record: độ dài đường đi, các vị trí; độ dài mẫu (0 = nút không đẩy mẫu), các id, support, tidsetSize; CRC32
+ *
+ * LƯU Ý:
+ *  - Header khác cấu hình / dữ liệu hiện tại -> bỏ checkpoint cũ, bắt đầu lại từ đầu.
+ *  - Record ghi dở (JVM chết giữa chừng) hoặc sai CRC -> cắt bỏ từ record đó trở đi.
+ *  - Record chỉ được ghi khi nhánh kết thúc mà không có lần cắt nào (timeout, maxPatterns, ngân sách bộ nhớ, lỗi)
+ *    kể từ lúc vào nhánh -> chỉ nhánh ĐẦY ĐỦ được coi là xong.
+ *  - Trong RAM chỉ giữ cây các đường đi đã xong của phần CHƯA xong (nhánh xong thì bỏ các nhánh con của nó).
+ *  - Đẩy xuống đĩa (force) mỗi flushIntervalMs khi xong 1 nhánh, và khi close().
+ */
+final class SearchCheckpoint implements Closeable {
+    static final int MAGIC = 0x44434943;                 // "DCIC"
+    static final int VERSION = 1;
+
+    /** Nút của cây đường đi đã đọc từ file: done = cả cây con đã xong, ngược lại children = các nhánh con có tiến độ */
+    private static final class PathNode {
+        boolean done;
+        Map<Integer, PathNode> children;
+
+        PathNode child(int position, boolean create) {
+            if (children == null) {
+                if (!create) return null;
+                children = new HashMap<>();
+            }
+            PathNode node = children.get(position);
+            if (node == null && create) children.put(position, node = new PathNode());
+            return node;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final OutputStream out;
+    private ByteBuffer record = ByteBuffer.allocate(256); // record đang dựng (ghi 1 lần: CRC + write theo khối)
+    private final CRC32 crc = new CRC32();
+    private final int headerBytes;
+    private final PathNode root;                         // tiến độ đọc từ file (không cập nhật trong lần chạy)
+    private int doneRoots;                               // số nhánh mức gốc đã xong
+    private long doneBranches;                           // số nhánh (mọi độ sâu) đã xong
+    private long storedPatterns;                         // số mẫu trong các record đã xong
+    private final long flushIntervalMs;
+    private long lastFlush;
+
+    // Các nhánh đang mở (độ sâu 0..open): vị trí, số lần cắt lúc vào, mẫu của chính nút, nút tương ứng trong cây
+    private int[] path = new int[16];
+    private long[] cutsAtBegin = new long[16];
+    private long[] branchesAtBegin = new long[16];
+    private int[][] own = new int[16][];
+    private int[] ownLength = new int[16];
+    private int[] ownSupport = new int[16];
+    private int[] ownTidsetSize = new int[16];
+    private PathNode[] cursor = new PathNode[16];
+    private int open = -1;
+
+    private SearchCheckpoint(File file, FileChannel channel, int headerBytes, PathNode root, long flushIntervalMs) {
+        this.file = file;
+        this.channel = channel;
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        this.headerBytes = headerBytes;
+        this.root = root;
+        this.flushIntervalMs = flushIntervalMs;
+        this.lastFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * Mở checkpoint cho lần khai thác có cấu hình cho trước: đọc các nhánh đã xong nếu header khớp,
+     * ngược lại (chưa có / khác cấu hình / hỏng header) ghi header mới.
+     *
+     * @param postset  postset gốc [0, postsetSize) theo thứ tự duyệt
+     * @param supports support của từng item trong postset gốc (cùng chỉ số)
+     */
+    static SearchCheckpoint open(File file, long flushIntervalMs, int minSup, String outputMode, int maxDepth,
+                                 int rows, int[] postset, int[] supports, int postsetSize) throws IOException {
+        byte[] header = header(minSup, outputMode, maxDepth, rows, postset, supports, postsetSize);
+        PathNode root = new PathNode();
+        long[] scan = file.isFile() && file.length() >= header.length && sameHeader(file, header)
+                ? scanRecords(file, header.length, root)
+                : null;
+
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            SearchCheckpoint checkpoint = new SearchCheckpoint(file, channel, header.length, root, flushIntervalMs);
+            if (scan == null) {
+                channel.truncate(0);
+                channel.position(0);
+                checkpoint.out.write(header);
+                checkpoint.out.flush();
+            } else {
+                checkpoint.doneBranches = scan[1];
+                checkpoint.doneRoots = (int) scan[2];
+                checkpoint.storedPatterns = scan[3];
+                channel.truncate(scan[0]);                   // bỏ phần ghi dở / hỏng ở cuối
+                channel.position(scan[0]);
+            }
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static byte[] header(int minSup, String outputMode, int maxDepth, int rows,
+                                 int[] postset, int[] supports, int postsetSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 8 * postsetSize);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(minSup);
+        out.writeUTF(outputMode);
+        out.writeInt(maxDepth);
+        out.writeInt(rows);
+        out.writeInt(postsetSize);
+        for (int i = 0; i < postsetSize; i++) {
+            out.writeInt(postset[i]);
+            out.writeInt(supports[i]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static boolean sameHeader(File file, byte[] header) throws IOException {
+        byte[] stored = new byte[header.length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(stored);
+        }
+        return Arrays.equals(stored, header);
+    }
+
+    /**
+     * Đọc các record hợp lệ liên tiếp sau header, dựng cây đường đi đã xong.
+     * @return [byte cuối của record hợp lệ cuối cùng, số nhánh xong, số nhánh mức gốc xong, số mẫu]
+     */
+    private static long[] scanRecords(File file, int headerBytes, PathNode root) throws IOException {
+        final long fileBytes = file.length();
+        long[] result = {headerBytes, 0, 0, 0};
+        CRC32 crc = new CRC32();
+        ByteBuffer record = ByteBuffer.allocate(256);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            in.skipBytes(headerBytes);
+            while (true) {
+                int depth = in.readInt();
+                if (depth <= 0 || result[0] + 4L * (depth + 2) > fileBytes) return result;
+                record.clear();
+                record = ensure(record, 4 * (depth + 2));
+                record.putInt(depth);
+                for (int k = 0; k < depth; k++) record.putInt(in.readInt());
+                int len = in.readInt();
+                long bytes = 4L * (depth + 2) + (len > 0 ? 4L * (len + 2) : 0) + 8;
+                if (len < 0 || result[0] + bytes > fileBytes) return result;
+                record = ensure(record, (int) bytes);
+                record.putInt(len);
+                for (int k = 0; k < (len > 0 ? len + 2 : 0); k++) record.putInt(in.readInt());
+                crc.reset();
+                crc.update(record.array(), 0, record.position());
+                if (in.readLong() != crc.getValue()) return result;
+
+                PathNode node = root;
+                for (int k = 0; k < depth && node != null && !node.done; k++) node = node.child(record.getInt(4 + 4 * k), true);
+                if (node == null || node.done) return result;   // record lặp: file hỏng
+                node.done = true;
+                node.children = null;                            // cả cây con đã xong
+                result[0] += bytes;
+                result[1]++;
+                if (depth == 1) result[2]++;
+                if (len > 0) result[3]++;
+            }
+        } catch (EOFException e) {
+            return result;                                       // record cuối ghi dở
+        }
+    }
+
+    /** record đủ chỗ cho bytes byte, giữ phần đã ghi */
+    private static ByteBuffer ensure(ByteBuffer record, int bytes) {
+        if (record.capacity() >= bytes) return record;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(bytes, 2 * record.capacity()));
+        record.flip();
+        return bigger.put(record);
+    }
+
+    /** Số nhánh mức gốc đã xong (đọc từ file + đã ghi trong lần chạy này) */
+    int doneRoots() {
+        return doneRoots;
+    }
+
+    /** Số nhánh (mọi độ sâu) đã xong */
+    long doneBranches() {
+        return doneBranches;
+    }
+
+    /** Số mẫu đã lưu trong các nhánh đã xong */
+    long storedPatterns() {
+        return storedPatterns;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /** Nhánh ở độ sâu depth vị trí position (dưới các nhánh đang mở ở độ sâu nhỏ hơn) đã xong ở lần chạy trước */
+    boolean isDone(int depth, int position) {
+        PathNode parent = depth == 0 ? root : cursor[depth - 1];
+        PathNode node = parent == null ? null : parent.child(position, false);
+        return node != null && node.done;
+    }
+
+    /**
+     * Đẩy lại mọi mẫu đã lưu tới target (theo thứ tự đã ghi); mảng pattern chỉ hợp lệ trong lúc gọi accept().
+     * Gọi ngay sau open(), trước nhánh đầu tiên.
+     */
+    void replay(ClosedPatternSink target) throws IOException {
+        out.flush();
+        final long end = channel.position();
+        int[][] buffers = new int[16][];                   // 1 mảng cho mỗi độ dài
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            in.skipBytes(headerBytes);
+            for (long position = headerBytes; position < end; ) {
+                int depth = in.readInt();
+                in.skipBytes(4 * depth);
+                int len = in.readInt();
+                position += 4L * (depth + 2) + 8;
+                if (len > 0) {
+                    if (len >= buffers.length) buffers = Arrays.copyOf(buffers, Math.max(len + 1, 2 * buffers.length));
+                    int[] pattern = buffers[len];
+                    if (pattern == null) pattern = buffers[len] = new int[len];
+                    for (int k = 0; k < len; k++) pattern[k] = in.readInt();
+                    int support = in.readInt();
+                    int tidsetSize = in.readInt();
+                    position += 4L * (len + 2);
+                    target.accept(pattern, support, tidsetSize);
+                }
+                in.readLong();
+            }
+        }
+    }
+
+    /**
+     * Bắt đầu nhánh ở độ sâu depth (ngay dưới nhánh đang mở ở độ sâu depth - 1), vị trí position:
+     * mẫu record() từ giờ tới khi vào nhánh con là mẫu của chính nút này.
+     * @param cuts TruncationReport.cutCount() lúc vào nhánh
+     */
+    void beginBranch(int depth, int position, long cuts) {
+        if (depth >= path.length) {
+            int size = Math.max(depth + 1, 2 * path.length);
+            path = Arrays.copyOf(path, size);
+            cutsAtBegin = Arrays.copyOf(cutsAtBegin, size);
+            branchesAtBegin = Arrays.copyOf(branchesAtBegin, size);
+            own = Arrays.copyOf(own, size);
+            ownLength = Arrays.copyOf(ownLength, size);
+            ownSupport = Arrays.copyOf(ownSupport, size);
+            ownTidsetSize = Arrays.copyOf(ownTidsetSize, size);
+            cursor = Arrays.copyOf(cursor, size);
+        }
+        PathNode parent = depth == 0 ? root : cursor[depth - 1];
+        path[depth] = position;
+        cutsAtBegin[depth] = cuts;
+        branchesAtBegin[depth] = doneBranches;
+        ownLength[depth] = 0;
+        cursor[depth] = parent == null ? null : parent.child(position, false);
+        open = depth;
+    }
+
+    /** Giữ mẫu của nhánh đang mở sâu nhất (ghi ra file khi nhánh xong); bỏ qua nếu không có nhánh nào mở */
+    void record(int[] pattern, int support, int tidsetSize) {
+        if (open < 0) return;
+        if (own[open] == null || own[open].length < pattern.length) own[open] = new int[pattern.length];
+        System.arraycopy(pattern, 0, own[open], 0, pattern.length);
+        ownLength[open] = pattern.length;
+        ownSupport[open] = support;
+        ownTidsetSize[open] = tidsetSize;
+    }
+
+    /**
+     * Kết thúc nhánh đang mở ở độ sâu depth (không làm gì nếu độ sâu đó không có nhánh mở):
+     * không có lần cắt nào kể từ beginBranch (cuts không đổi) -> ghi record; ngược lại nhánh bị cắt giữa chừng -> bỏ.
+     * Nhánh không đẩy mẫu nào và không có nhánh con nào được ghi (vd: bị loại vì trùng preset) không cần record:
+     * duyệt lại rẻ, và nhánh cha khi xong sẽ phủ luôn nó.
+     */
+    void endBranch(int depth, long cuts) {
+        if (open != depth) return;
+        open = depth - 1;
+        if (cuts != cutsAtBegin[depth] || (ownLength[depth] == 0 && doneBranches == branchesAtBegin[depth])) return;
+        try {
+            int len = ownLength[depth];
+            int bytes = 4 * (depth + 3) + (len > 0 ? 4 * (len + 2) : 0) + 8;
+            if (record.capacity() < bytes) record = ByteBuffer.allocate(Math.max(bytes, 2 * record.capacity()));
+            record.clear();
+            record.putInt(depth + 1);
+            for (int k = 0; k <= depth; k++) record.putInt(path[k]);
+            record.putInt(len);
+            if (len > 0) {
+                for (int k = 0; k < len; k++) record.putInt(own[depth][k]);
+                record.putInt(ownSupport[depth]);
+                record.putInt(ownTidsetSize[depth]);
+                storedPatterns++;
+            }
+            crc.reset();
+            crc.update(record.array(), 0, record.position());
+            record.putLong(crc.getValue());
+            out.write(record.array(), 0, record.position());
+            doneBranches++;
+            if (depth == 0) doneRoots++;
+            if (System.currentTimeMillis() - lastFlush >= flushIntervalMs) flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Đẩy phần đã ghi xuống đĩa */
+    void flush() throws IOException {
+        out.flush();
+        channel.force(false);
+        lastFlush = System.currentTimeMillis();
+    }
+
+    /** Bỏ các nhánh còn mở (lỗi bất ngờ giữa chừng), đẩy xuống đĩa rồi đóng file */
+    @Override
+    public void close() throws IOException {
+        try {
+            open = -1;
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * SimdKernelBenchmark
+ * -------------------
+ * So BitKernels scalar với VectorBitKernels (SIMD) trên bitmap TID-set thật của dataset:
+ *  - and            : dst = a & b + popcount (BitTidSet.assignAnd)
+ *  - andCount       : |a ∩ b| (andCardinality)
+ *  - andCountAtLeast: |a ∩ b| >= minSup có cận (andCardinalityAtLeast)
+ *  - containedIn    : a ⊆ b (isSubsetOf)
+ * Mỗi kernel kiểm tra kết quả 2 bản phải trùng nhau.
+ *
+ * Tải công việc: a = bitmap của itemset 2 item, b = bitmap 1 item (các item frequent). [nhân bản] > 1 thì
+ * ghép CSDL k lần liên tiếp -> bitmap dài gấp k (xem kernel thay đổi thế nào khi |DB| lớn).
+ *
+ * Cần build -Pvector và chạy với --add-modules jdk.incubator.vector, nếu không chỉ đo bản scalar.
+ * Chạy: java --add-modules jdk.incubator.vector SimdKernelBenchmark [file dataset] [minSup tỉ lệ] [số cặp] [nhân bản]
+ *   vd: java --add-modules jdk.incubator.vector SimdKernelBenchmark chess.txt 0.6 20000 1
+ */
+public class SimdKernelBenchmark {
+    public static void main(String[] args) throws IOException {
+        final String file = args.length > 0 ? args[0] : "chess.txt";
+        final double minSupRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.6;
+        final int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        final int repeat = args.length > 3 ? Math.max(1, Integer.parseInt(args[3])) : 1;
+
+        // 1) Đọc dataset
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        final int rows = database.size() * repeat;
+        final int minSup = (int) Math.ceil(minSupRatio * rows);
+        final int words = (rows + 63) >>> 6;
+
+        // 2) Bitmap của các item frequent (CSDL ghép repeat lần)
+        ItemDictionary dictionary = database.getDictionary();
+        int[] column = new int[dictionary.size()];
+        Arrays.fill(column, -1);
+        int frequent = 0;
+        for (int item = 0; item < dictionary.size(); item++) {
+            if ((long) dictionary.support(item) * repeat >= minSup) column[item] = frequent++;
+        }
+        if (frequent < 2) {
+            System.out.println("❌ Cần ít nhất 2 item frequent, hãy giảm minSup");
+            return;
+        }
+        long[][] items = new long[frequent][words];
+        List<int[]> transactions = database.getTransactions();
+        for (int copy = 0; copy < repeat; copy++) {
+            for (int r = 0; r < transactions.size(); r++) {
+                int tid = copy * transactions.size() + r;
+                for (int item : transactions.get(r)) {
+                    if (column[item] >= 0) items[column[item]][tid >>> 6] |= 1L << tid;
+                }
+            }
+        }
+
+        // 3) Cặp (a = item x AND item y, b = item z)
+        Random random = new Random(42);
+        long[][] left = new long[pairs][];
+        long[][] right = new long[pairs][];
+        int[] leftCard = new int[pairs];
+        for (int p = 0; p < pairs; p++) {
+            long[] x = items[random.nextInt(frequent)];
+            long[] y = items[random.nextInt(frequent)];
+            left[p] = new long[words];
+            leftCard[p] = BitKernels.scalar().and(x, y, left[p], words);
+            right[p] = items[random.nextInt(frequent)];
+        }
+
+        BitKernels scalar = BitKernels.scalar();
+        BitKernels vector = BitKernels.vector();
+        System.out.println("📂 " + file + " x" + repeat + " | rows=" + rows + " (" + words + " word) | minSup=" + minSup
+                + " | frequent items=" + frequent + " | pairs=" + pairs + " | mặc định: " + BitKernels.INSTANCE.name());
+        if (vector == null) {
+            System.out.println("⚠️ Không có kernel vector (build -Pvector + --add-modules jdk.incubator.vector)"
+                    + " -> chỉ đo scalar");
+        }
+
+        // 4) Đo từng kernel (15 vòng xen kẽ 2 bản, lấy vòng nhanh nhất - vòng đầu là làm ấm JIT)
+        String[] names = {"and", "andCount", "andCountAtLeast", "containedIn"};
+        long[] dst = new long[words];
+        for (int kernel = 0; kernel < names.length; kernel++) {
+            long[] scalarRun = null;
+            long[] vectorRun = null;
+            for (int round = 0; round < 15; round++) {
+                scalarRun = best(scalarRun, run(scalar, kernel, left, right, leftCard, dst, minSup, words));
+                if (vector != null) {
+                    vectorRun = best(vectorRun, run(vector, kernel, left, right, leftCard, dst, minSup, words));
+                }
+            }
+            if (vectorRun == null) {
+                System.out.printf("⏱️ %-16s: scalar %8.1f ns/op%n", names[kernel], (double) scalarRun[0] / pairs);
+            } else {
+                System.out.printf("⏱️ %-16s: scalar %8.1f ns/op | %s %8.1f ns/op (x%.2f)%s%n",
+                        names[kernel], (double) scalarRun[0] / pairs, vector.name(), (double) vectorRun[0] / pairs,
+                        (double) scalarRun[0] / vectorRun[0], scalarRun[1] == vectorRun[1] ? "" : " ❌ khác kết quả");
+            }
+        }
+    }
+
+    private static long[] best(long[] current, long[] run) {
+        return current == null || run[0] < current[0] ? run : current;
+    }
+
+    /** @return [thời gian ns, checksum kết quả] */
+    private static long[] run(BitKernels kernels, int kernel, long[][] left, long[][] right, int[] leftCard,
+                              long[] dst, int minSup, int words) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        switch (kernel) {
+            case 0:
+                for (int p = 0; p < left.length; p++) checksum += kernels.and(left[p], right[p], dst, words) + dst[p % words];
+                break;
+            case 1:
+                for (int p = 0; p < left.length; p++) checksum += kernels.andCount(left[p], right[p], words);
+                break;
+            case 2:
+                for (int p = 0; p < left.length; p++) {
+                    if (kernels.andCountAtLeast(left[p], right[p], words, leftCard[p], minSup)) checksum += p;
+                }
+                break;
+            default:
+                for (int p = 0; p < left.length; p++) {
+                    if (kernels.containedIn(left[p], right[p], words)) checksum += p;
+                }
+        }
+        return new long[]{System.nanoTime() - start, checksum};
+    }
+}
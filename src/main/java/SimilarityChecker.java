@@ -1,6 +1,10 @@
+import java.io.IOException;
 import java.util.*;
 
 public class SimilarityChecker {
+    // Số mẫu đại diện tối đa giữ lại sau lọc (tránh tràn bộ nhớ)
+    static final int MAX_FILTERED = 10000;
+
     // Interface dùng để tính độ tương đồng (Jaccard, Dice, Kulczynski, ...)
     private final SimilarityMeasure measure;
 
@@ -23,23 +27,23 @@ public class SimilarityChecker {
 
     /**
      * Lọc danh sách closedPatterns dựa trên minSim.
-     * - closedPatterns: tập các pattern đã được mining (đóng)
+     * - closedPatterns: tập các pattern đã được mining (đóng), mỗi pattern là mảng id item tăng dần
      * - minSim: ngưỡng độ tương đồng tối thiểu
      * - batchSize: chỉ so sánh với batch cuối cùng thay vì so sánh toàn bộ
      */
-    public List<Set<String>> checkSimilarityBatch(Set<Set<String>> closedPatterns,
-                                                  double minSim, int batchSize) {
+    public List<int[]> checkSimilarityBatch(Collection<int[]> closedPatterns,
+                                            double minSim, int batchSize) {
         comparisonCount = 0; // Reset bộ đếm
-        List<Set<String>> filtered = new ArrayList<>(); // Danh sách patterns sau khi lọc
-        List<Set<String>> patterns = new ArrayList<>(closedPatterns); // Chuyển sang list để dễ sắp xếp
+        List<int[]> filtered = new ArrayList<>(); // Danh sách patterns sau khi lọc
+        List<int[]> patterns = new ArrayList<>(closedPatterns); // Chuyển sang list để dễ sắp xếp
 
         // Sắp xếp patterns theo kích thước tăng dần để giảm so sánh không cần thiết
-        patterns.sort(Comparator.comparingInt(Set::size));
+        patterns.sort(Comparator.comparingInt(p -> p.length));
 
         System.out.println("   🔍 Checking similarity for " + patterns.size() + " patterns");
 
         int processed = 0;
-        for (Set<String> X : patterns) {
+        for (int[] X : patterns) {
             processed++;
 
             // In log mỗi khi xử lý được 1000 patterns
@@ -49,41 +53,69 @@ public class SimilarityChecker {
                         ", comparisons: " + comparisonCount);
             }
 
-            boolean isSimilar = false;
+            boolean isSimilar = isSimilarToRecent(X, filtered, minSim, batchSize);
+
+            // Nếu X không giống pattern nào đã chọn → thêm vào filtered
+            if (!isSimilar) {
+                filtered.add(X);
+            }
 
-            // So sánh X với các pattern mới nhất trong batch
-            int batchStart = Math.max(0, filtered.size() - batchSize);
+            // Giới hạn số lượng patterns để tránh tràn bộ nhớ
+            if (filtered.size() > MAX_FILTERED) {
+                System.out.println("   ⚠️ Đã đạt giới hạn patterns, dừng similarity check");
+                break;
+            }
+        }
 
-            for (int i = batchStart; i < filtered.size(); i++) {
-                Set<String> Y = filtered.get(i);
+        System.out.println("   ✅ Similarity check completed: " + filtered.size() +
+                " patterns after filtering, " + comparisonCount + " comparisons made");
+        return filtered;
+    }
 
-                // Nếu chênh lệch kích thước quá lớn → bỏ qua (không cần check similarity)
-                if (canSkipSimilarityCheck(X, Y)) {
-                    continue;
-                }
+    /**
+     * Giống checkSimilarityBatch(Collection, ...) nhưng đọc thẳng từ PatternStore (arena int[]):
+     *  - Sắp theo độ dài bằng counting sort trên chỉ số mẫu (ổn định, giống List.sort theo length)
+     *  - Mẫu đang xét được copy vào bộ đệm dùng lại theo độ dài -> chỉ mẫu ĐƯỢC GIỮ mới cấp phát mảng
+     */
+    public List<int[]> checkSimilarityBatch(PatternStore closedPatterns, double minSim, int batchSize) {
+        comparisonCount = 0; // Reset bộ đếm
+        List<int[]> filtered = new ArrayList<>();
+        final int total = closedPatterns.size();
 
-                try {
-                    // Mỗi lần tính similarity thì tăng bộ đếm
-                    comparisonCount++;
-                    double sim = measure.compute(X, Y);
-
-                    // Nếu similarity >= ngưỡng thì X bị coi là tương đồng, bỏ qua
-                    if (sim >= minSim) {
-                        isSimilar = true;
-                        break;
-                    }
-                } catch (Exception e) {
-                    continue; // Nếu có lỗi thì bỏ qua so sánh này
-                }
+        // Counting sort chỉ số mẫu theo độ dài tăng dần
+        int maxLength = closedPatterns.maxLength();
+        int[] start = new int[maxLength + 2];
+        for (int i = 0; i < total; i++) start[closedPatterns.length(i) + 1]++;
+        for (int len = 0; len <= maxLength; len++) start[len + 1] += start[len];
+        int[] order = new int[total];
+        for (int i = 0; i < total; i++) order[start[closedPatterns.length(i)]++] = i;
+
+        System.out.println("   🔍 Checking similarity for " + total + " patterns");
+
+        int[][] buffers = new int[maxLength + 1][];
+        int processed = 0;
+        for (int index : order) {
+            processed++;
+
+            // In log mỗi khi xử lý được 1000 patterns
+            if (processed % 1000 == 0) {
+                System.out.println("   📊 Processed " + processed + "/" + total +
+                        " patterns, filtered: " + filtered.size() +
+                        ", comparisons: " + comparisonCount);
             }
 
-            // Nếu X không giống pattern nào đã chọn → thêm vào filtered
-            if (!isSimilar) {
-                filtered.add(X);
+            int len = closedPatterns.length(index);
+            if (buffers[len] == null) buffers[len] = new int[len];
+            int[] X = buffers[len];
+            closedPatterns.copyTo(index, X);
+
+            // Nếu X không giống pattern nào đã chọn → giữ lại (copy khỏi bộ đệm)
+            if (!isSimilarToRecent(X, filtered, minSim, batchSize)) {
+                filtered.add(X.clone());
             }
 
             // Giới hạn số lượng patterns để tránh tràn bộ nhớ
-            if (filtered.size() > 10000) {
+            if (filtered.size() > MAX_FILTERED) {
                 System.out.println("   ⚠️ Đã đạt giới hạn patterns, dừng similarity check");
                 break;
             }
@@ -94,13 +126,104 @@ public class SimilarityChecker {
         return filtered;
     }
 
+    /**
+     * Giống checkSimilarityBatch(PatternStore, ...) nhưng ĐỌC STREAMING từ SpillingPatternStore (trộn các run
+     * trên đĩa): mẫu đến theo độ dài tăng dần (cùng độ dài thì theo thứ tự từ điển của id), không cần giữ
+     * toàn bộ tập mẫu đóng trong RAM.
+     */
+    public List<int[]> checkSimilarityBatch(SpillingPatternStore closedPatterns, double minSim, int batchSize)
+            throws IOException {
+        System.out.println("   🔍 Checking similarity for " + closedPatterns.getReceivedCount() + " patterns"
+                + (closedPatterns.getRunCount() > 0 ? " (" + closedPatterns.getRunCount() + " runs trên đĩa)" : ""));
+        try (SpillingPatternStore.Cursor cursor = closedPatterns.cursor()) {
+            return checkSimilarityStream(cursor, minSim, batchSize);
+        }
+    }
+
+    /**
+     * Lọc tập mẫu đóng ở ngưỡng minSup suy ra từ 1 lần khai thác ở ngưỡng thấp hơn (ThresholdSweep):
+     * mẫu có support < minSup bị bỏ ngay trong lúc đọc streaming, còn lại giống bản SpillingPatternStore.
+     */
+    public List<int[]> checkSimilarityBatch(ThresholdSweep sweep, int minSup, double minSim, int batchSize)
+            throws IOException {
+        System.out.println("   🔍 Checking similarity for " + sweep.count(minSup) + " patterns (minSup " + minSup + ")");
+        try (SpillingPatternStore.Cursor cursor = sweep.cursor(minSup)) {
+            return checkSimilarityStream(cursor, minSim, batchSize);
+        }
+    }
+
+    private List<int[]> checkSimilarityStream(SpillingPatternStore.Cursor cursor, double minSim, int batchSize)
+            throws IOException {
+        comparisonCount = 0; // Reset bộ đếm
+        List<int[]> filtered = new ArrayList<>();
+
+        int processed = 0;
+        while (cursor.next()) {
+            processed++;
+
+            // In log mỗi khi xử lý được 1000 patterns
+            if (processed % 1000 == 0) {
+                System.out.println("   📊 Processed " + processed + " patterns, filtered: " + filtered.size() +
+                        ", comparisons: " + comparisonCount);
+            }
+
+            // Nếu X không giống pattern nào đã chọn → giữ lại (copy khỏi bộ đệm của cursor)
+            int[] X = cursor.pattern();
+            if (!isSimilarToRecent(X, filtered, minSim, batchSize)) {
+                filtered.add(X.clone());
+            }
+
+            // Giới hạn số lượng patterns để tránh tràn bộ nhớ
+            if (filtered.size() > MAX_FILTERED) {
+                System.out.println("   ⚠️ Đã đạt giới hạn patterns, dừng similarity check");
+                break;
+            }
+        }
+
+        System.out.println("   ✅ Similarity check completed: " + filtered.size() +
+                " patterns after filtering, " + comparisonCount + " comparisons made");
+        return filtered;
+    }
+
+    /**
+     * X có giống (similarity >= minSim) 1 trong batchSize mẫu được chọn gần nhất của filtered không?
+     * Dùng chung cho lọc theo lô (checkSimilarityBatch) và lọc streaming (SimilarityFilterSink).
+     */
+    boolean isSimilarToRecent(int[] X, List<int[]> filtered, double minSim, int batchSize) {
+        // So sánh X với các pattern mới nhất trong batch
+        int batchStart = Math.max(0, filtered.size() - batchSize);
+
+        for (int i = batchStart; i < filtered.size(); i++) {
+            int[] Y = filtered.get(i);
+
+            // Nếu chênh lệch kích thước quá lớn → bỏ qua (không cần check similarity)
+            if (canSkipSimilarityCheck(X, Y)) {
+                continue;
+            }
+
+            try {
+                // Mỗi lần tính similarity thì tăng bộ đếm
+                comparisonCount++;
+                double sim = measure.compute(X, Y);
+
+                // Nếu similarity >= ngưỡng thì X bị coi là tương đồng, bỏ qua
+                if (sim >= minSim) {
+                    return true;
+                }
+            } catch (Exception e) {
+                continue; // Nếu có lỗi thì bỏ qua so sánh này
+            }
+        }
+        return false;
+    }
+
     /**
      * Hàm tối ưu — bỏ qua similarity check nếu chênh lệch kích thước giữa X và Y quá lớn.
      * Ví dụ: sizeRatio < 0.1 nghĩa là một pattern quá nhỏ so với pattern kia → không cần so sánh.
      */
-    private static boolean canSkipSimilarityCheck(Set<String> X, Set<String> Y) {
-        int sizeX = X.size();
-        int sizeY = Y.size();
+    private static boolean canSkipSimilarityCheck(int[] X, int[] Y) {
+        int sizeX = X.length;
+        int sizeY = Y.length;
 
         if (sizeX > 0 && sizeY > 0) {
             double sizeRatio = (double) Math.min(sizeX, sizeY) / Math.max(sizeX, sizeY);
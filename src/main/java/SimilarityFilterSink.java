@@ -0,0 +1,51 @@
+import java.util.*;
+
+/**
+ * SimilarityFilterSink
+ * --------------------
+ * Sink lọc similarity NGAY KHI nhận mẫu đóng: mẫu mới được so với batchSize mẫu đại diện gần nhất
+ * (cùng quy tắc với SimilarityChecker.checkSimilarityBatch), chỉ mẫu "không giống ai" mới được giữ (copy).
+ * RAM chỉ tỉ lệ với số mẫu SAU lọc (tối đa SimilarityChecker.MAX_FILTERED), không phải số mẫu đóng.
+ *
+ * LƯU Ý: checkSimilarityBatch sắp mẫu theo độ dài trước khi lọc, còn sink nhận mẫu theo thứ tự duyệt
+ * của miner -> tập mẫu đại diện có thể khác (cùng ngưỡng minSim).
+ */
+class SimilarityFilterSink implements ClosedPatternSink {
+    private final SimilarityChecker checker;
+    private final double minSim;
+    private final int batchSize;
+    private final List<int[]> filtered = new ArrayList<>();
+    private long received;
+    private long bytes;
+
+    public SimilarityFilterSink(SimilarityChecker checker, double minSim, int batchSize) {
+        this.checker = checker;
+        this.minSim = minSim;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        received++;
+        if (filtered.size() > SimilarityChecker.MAX_FILTERED) return; // đã đủ giới hạn, chỉ đếm
+        if (!checker.isSimilarToRecent(pattern, filtered, minSim, batchSize)) {
+            filtered.add(pattern.clone());
+            bytes += 16 + 4L * pattern.length + 8; // header mảng + dữ liệu + 1 ô tham chiếu trong List
+        }
+    }
+
+    @Override
+    public long retainedBytes() {
+        return bytes;
+    }
+
+    /** Số mẫu đóng đã nhận (trước lọc) */
+    public long getReceivedCount() {
+        return received;
+    }
+
+    /** Các mẫu đại diện còn lại sau lọc */
+    public List<int[]> getFiltered() {
+        return filtered;
+    }
+}
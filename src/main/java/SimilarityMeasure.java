@@ -1,16 +1,26 @@
-import java.util.Set;
-import java.util.*;
-
 // ==========================
 // Interface chung cho mọi độ đo tương đồng
 // ==========================
 public interface SimilarityMeasure {
     /**
      * Hàm tính độ tương đồng giữa 2 tập hợp item A và B.
-     * - A, B: 2 tập các item (pattern) cần so sánh.
+     * - A, B: 2 tập các item (pattern) cần so sánh, dạng mảng id item TĂNG DẦN (xem ItemDictionary).
      * - Trả về giá trị double trong khoảng [0.0, 1.0]
      */
-    double compute(Set<String> A, Set<String> B);
+    double compute(int[] A, int[] B);
+
+    /**
+     * |A ∩ B| cho 2 mảng id tăng dần: trộn 2 con trỏ, không cấp phát, không hash String.
+     */
+    static int intersectionSize(int[] A, int[] B) {
+        int i = 0, j = 0, count = 0;
+        while (i < A.length && j < B.length) {
+            if (A[i] == B[j]) { count++; i++; j++; }
+            else if (A[i] < B[j]) i++;
+            else j++;
+        }
+        return count;
+    }
 }
 
 
@@ -22,22 +32,21 @@ public interface SimilarityMeasure {
 // - Giá trị từ 0 → 1 (1 là giống nhau hoàn toàn).
 class CosineSimilarity implements SimilarityMeasure {
     @Override
-    public double compute(Set<String> A, Set<String> B) {
+    public double compute(int[] A, int[] B) {
         // Trường hợp cả 2 rỗng → coi như hoàn toàn giống nhau
-        if (A.isEmpty() && B.isEmpty()) return 1.0;
+        if (A.length == 0 && B.length == 0) return 1.0;
 
         // Nếu 1 trong 2 rỗng → không có điểm chung → 0
-        if (A.isEmpty() || B.isEmpty()) return 0.0;
+        if (A.length == 0 || B.length == 0) return 0.0;
 
-        // Tìm giao của A và B
-        Set<String> intersection = new HashSet<>(A);
-        intersection.retainAll(B);
+        // Tìm |A ∩ B|
+        int intersection = SimilarityMeasure.intersectionSize(A, B);
 
         // Mẫu số: sqrt(|A|) * sqrt(|B|)
-        double denominator = Math.sqrt(A.size()) * Math.sqrt(B.size());
+        double denominator = Math.sqrt(A.length) * Math.sqrt(B.length);
 
         // Nếu denominator = 0 (không xảy ra trừ khi cả 2 rỗng) → 0
-        return denominator == 0 ? 0.0 : intersection.size() / denominator;
+        return denominator == 0 ? 0.0 : intersection / denominator;
     }
 }
 
@@ -50,21 +59,20 @@ class CosineSimilarity implements SimilarityMeasure {
 // - Hữu ích khi muốn ưu tiên "bao phủ" tối đa tập nhỏ hơn.
 class OverlapSimilarity implements SimilarityMeasure {
     @Override
-    public double compute(Set<String> A, Set<String> B) {
+    public double compute(int[] A, int[] B) {
         // Cả 2 rỗng → giống nhau tuyệt đối
-        if (A.isEmpty() && B.isEmpty()) return 1.0;
+        if (A.length == 0 && B.length == 0) return 1.0;
 
         // Một tập rỗng → không có điểm chung
-        if (A.isEmpty() || B.isEmpty()) return 0.0;
+        if (A.length == 0 || B.length == 0) return 0.0;
 
-        // Lấy giao
-        Set<String> intersection = new HashSet<>(A);
-        intersection.retainAll(B);
+        // Lấy |A ∩ B|
+        int intersection = SimilarityMeasure.intersectionSize(A, B);
 
         // Mẫu số: kích thước nhỏ nhất của 2 tập
-        int minSize = Math.min(A.size(), B.size());
+        int minSize = Math.min(A.length, B.length);
 
         // Nếu tập nhỏ hơn rỗng → trả 0
-        return minSize == 0 ? 0.0 : (double) intersection.size() / minSize;
+        return minSize == 0 ? 0.0 : (double) intersection / minSize;
     }
 }
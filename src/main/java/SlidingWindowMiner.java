@@ -0,0 +1,505 @@
+import java.util.*;
+
+/**
+ * SlidingWindowMiner
+ * ------------------
+ * Khai thác mẫu đóng trên CỬA SỔ TRƯỢT của 1 luồng giao dịch (live feed), thay vì 1 file .txt tĩnh.
+ *  - Cửa sổ theo SỐ LƯỢNG: giữ capacity giao dịch gần nhất
+ *  - Cửa sổ theo THỜI GIAN: giữ giao dịch có timestamp trong (now - windowMillis, now], tối đa capacity
+ *
+ * Tập mẫu đóng được duy trì TỪNG BƯỚC theo kiểu Moment (Closed Enumeration Tree), không khai thác lại:
+ *  - Vòng (ring) capacity ô: mỗi ô 1 giao dịch (mảng id tăng dần) + timestamp
+ *  - Mỗi item: hàng đợi FIFO các ô chứa nó (giao dịch hết hạn luôn là cũ nhất nên luôn nằm ở đầu hàng đợi);
+ *    support trong ItemDictionary = độ dài hàng đợi. Item FREQUENT có thêm TID-set dạng bitmap theo ô
+ *    (dựng lại từ hàng đợi khi item vừa đạt minSup, bỏ khi tụt xuống) - mọi phép giao / kiểm tra closure trên
+ *    cây chỉ đụng tới item frequent
+ *  - Cây liệt kê theo thứ tự id: con của nút I là I ∪ {j} với j = item của anh em bên phải FREQUENT của I.
+ *    Chỉ nút frequent và "promising" mới có con:
+ *      + nút không frequent : lá (biên dưới minSup)
+ *      + nút frequent mà closure có item x < item cuối, x ∉ I (T(I) ⊆ T(x) - giống preset của
+ *        ClosedPatternMining): lá "unpromising", mẫu đóng bên dưới đã nằm ở nhánh khác; giữ x làm nhân chứng
+ *      + còn lại: có con; là mẫu ĐÓNG khi không con nào cùng support
+ *  - Thêm / hết hạn giao dịch t: chỉ đi qua các nút ⊆ t (chỉ support của chúng đổi), ±1 support rồi xử lý nút
+ *    đổi trạng thái: thành frequent -> dựng cây con + thêm con cho anh em bên trái; hết frequent -> bỏ cây con
+ *    + bỏ con tương ứng ở anh em bên trái; thêm t mà nhân chứng ∉ t -> xét lại; hết hạn t -> xét lại closure
+ *    của nút promising ⊆ t (TID-set truyền xuống theo đường duyệt)
+ *  - Item hết support trong cửa sổ -> nút của nó bị bỏ và id được trả lại ItemDictionary (release) để cấp lại
+ *
+ * Bộ nhớ: cửa sổ (<= capacity giao dịch) + hàng đợi item (= tổng độ dài giao dịch trong cửa sổ) + bitmap
+ * capacity bit cho mỗi item frequent (<= tổng độ dài / minSup item) + cây (mẫu frequent promising và lớp biên
+ * của chúng) - không phụ thuộc số giao dịch / số item khác nhau đã nhận.
+ * query() chỉ duyệt cây lấy các nút đóng; kết quả được giữ lại tới khi cửa sổ đổi.
+ *
+ * minSup là support TUYỆT ĐỐI trên cửa sổ (số giao dịch trong cửa sổ), >= 1.
+ * LƯU Ý: id trong kết quả query() chỉ đúng tới lần add/advanceTime kế tiếp (id có thể đã được cấp lại cho item
+ * khác) - cần giữ lâu thì decode ngay.
+ */
+class SlidingWindowMiner {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_ITEMS = new int[0];
+
+    private final int capacity;
+    private final long windowMillis;              // <= 0: cửa sổ theo số lượng
+    private final int minSup;
+    private final ItemDictionary dictionary = new ItemDictionary(new String[0], new int[0]);
+
+    private final int[][] slots;                  // vòng giao dịch
+    private final long[] timestamps;
+    private int head;                             // ô sẽ ghi tiếp theo
+    private int size;                             // số giao dịch đang trong cửa sổ
+    private long added;                           // tổng số giao dịch đã nhận
+    private long expired;                         // tổng số giao dịch đã hết hạn
+
+    private Occurrences[] occurrences = new Occurrences[16];  // id -> hàng đợi ô chứa item (null = id rảnh)
+    private long[][] bits = new long[16][];       // id -> bitmap các ô chứa item (chỉ item frequent, còn lại null)
+    private final int words;                      // số long của 1 bitmap (capacity bit)
+    private int[] counts = new int[16];           // id -> bộ đếm tạm của extend (luôn về 0 sau mỗi lần dùng)
+    private final Node root = new Node(-1, 0);    // tập rỗng, con = mọi item đang có trong cửa sổ
+    private int[] path = new int[16];             // itemset của nút đang xét (path[0..depth))
+
+    private boolean dirty = true;
+    private PatternStore closed = new PatternStore();
+
+    /** Cửa sổ theo số lượng: capacity giao dịch gần nhất */
+    public SlidingWindowMiner(int capacity, int minSup) {
+        this(capacity, 0, minSup);
+    }
+
+    /**
+     * Cửa sổ theo thời gian.
+     * @param capacity     số giao dịch tối đa giữ trong cửa sổ (chặn bộ nhớ khi luồng dồn dập)
+     * @param windowMillis độ dài cửa sổ (ms); <= 0 = chỉ theo số lượng
+     * @param minSup       support tuyệt đối trên cửa sổ (>= 1)
+     */
+    public SlidingWindowMiner(int capacity, long windowMillis, int minSup) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity phải > 0");
+        if (minSup <= 0) throw new IllegalArgumentException("minSup phải > 0");
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.minSup = minSup;
+        this.slots = new int[capacity][];
+        this.timestamps = new long[capacity];
+        this.words = (capacity + 63) >>> 6;
+    }
+
+    /** Thêm 1 giao dịch với timestamp = thời điểm hiện tại */
+    public void add(String[] tokens) {
+        add(tokens, System.currentTimeMillis());
+    }
+
+    /**
+     * Thêm 1 giao dịch (token String, quy tắc như TransactionDatabase.Builder.add).
+     * Giao dịch quá hạn / tràn capacity bị đẩy ra trước. Timestamp nên tăng dần.
+     */
+    public void add(String[] tokens, long timestamp) {
+        advanceTime(timestamp);
+        if (isBlank(tokens)) return;
+        if (size == capacity) expireOldest();     // trước khi mã hoá: id vừa trả lại được cấp lại ngay
+        int[] ids = TransactionDatabase.encode(tokens, dictionary);
+
+        int slot = head;
+        slots[slot] = ids;
+        timestamps[slot] = timestamp;
+        head = (head + 1) % capacity;
+        size++;
+        added++;
+        if (path.length < ids.length + 2) path = new int[ids.length + 2];
+        for (int id : ids) {
+            if (id >= occurrences.length) {
+                occurrences = Arrays.copyOf(occurrences, Math.max(id + 1, occurrences.length * 2));
+                bits = Arrays.copyOf(bits, occurrences.length);
+                counts = Arrays.copyOf(counts, occurrences.length);
+            }
+            if (occurrences[id] == null) {
+                occurrences[id] = new Occurrences();
+                root.insert(new Node(id, 0));
+            }
+            occurrences[id].add(slot);
+            dictionary.addSupport(id, 1);
+            if (bits[id] != null) {
+                bits[id][slot >>> 6] |= 1L << slot;
+            } else if (dictionary.support(id) >= minSup) {
+                bits[id] = occurrences[id].toBitmap(words);
+            }
+        }
+        update(root, 0, null, ids, 0, true);
+        dirty = true;
+    }
+
+    /** Cửa sổ thời gian: đẩy ra các giao dịch có timestamp <= now - windowMillis (không cần thêm giao dịch mới) */
+    public void advanceTime(long now) {
+        if (windowMillis <= 0) return;
+        while (size > 0 && timestamps[oldestSlot()] <= now - windowMillis) {
+            expireOldest();
+        }
+    }
+
+    /**
+     * Tập mẫu đóng (support >= minSup) của cửa sổ hiện tại - đọc thẳng từ cây, không khai thác lại.
+     * Cửa sổ không đổi từ lần query trước -> trả lại kết quả cũ.
+     */
+    public PatternStore query() {
+        if (!dirty) return closed;
+
+        PatternStore result = new PatternStore();
+        collect(root, new int[path.length], 0, result);
+        closed = result;
+        dirty = false;
+        return closed;
+    }
+
+    /** Từ điển item (để decode mẫu; support = số giao dịch đang trong cửa sổ) */
+    public ItemDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /** Số giao dịch đang trong cửa sổ */
+    public int size() {
+        return size;
+    }
+
+    public long getAddedCount() {
+        return added;
+    }
+
+    public long getExpiredCount() {
+        return expired;
+    }
+
+    private int oldestSlot() {
+        return (head - size + capacity) % capacity;
+    }
+
+    private void expireOldest() {
+        int slot = oldestSlot();
+        int[] ids = slots[slot];
+        for (int id : ids) {
+            occurrences[id].removeFirst();
+            dictionary.addSupport(id, -1);
+            if (dictionary.support(id) < minSup) bits[id] = null;
+            else bits[id][slot >>> 6] &= ~(1L << slot);
+        }
+        size--;
+        expired++;
+        update(root, 0, null, ids, 0, false);
+        slots[slot] = null;
+
+        // Item không còn trong cửa sổ: nút mức gốc (support 0, không có con) bị bỏ, id được cấp lại sau
+        for (int id : ids) {
+            if (dictionary.support(id) > 0) continue;
+            occurrences[id] = null;
+            root.remove(id);
+            dictionary.release(id);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Cập nhật các con ⊆ t của node (itemset = path[0..depth)) sau khi t được thêm (insert) / hết hạn.
+     * tids = T(node) sau cập nhật - chỉ cần khi hết hạn (null ở gốc / khi thêm); t[from..] = item của t lớn hơn
+     * item cuối của node.
+     */
+    private void update(Node node, int depth, long[] tids, int[] t, int from, boolean insert) {
+        for (int k = from, c = 0; k < t.length; k++) {
+            c = node.lowerBound(c, t[k]);             // tìm nhị phân: nút thưa có hàng trăm con, t chỉ vài item
+            if (c == node.childCount) break;
+            if (node.childItems[c] != t[k]) continue;
+            Node child = node.children[c];
+
+            path[depth] = child.item;
+            boolean wasFrequent = child.support >= minSup;
+            child.support += insert ? 1 : -1;
+            if (insert) {
+                if (!wasFrequent) {
+                    if (child.support >= minSup) becameFrequent(node, c, depth + 1, tidset(depth + 1));
+                } else if (child.witness < 0) {
+                    update(child, depth + 1, null, t, k + 1, true);
+                } else if (Arrays.binarySearch(t, child.witness) < 0) {
+                    // Giao dịch mới không chứa nhân chứng -> closure có thể không còn đi về bên trái
+                    grow(node, c, depth + 1, tidset(depth + 1));
+                }
+            } else if (wasFrequent) {
+                if (child.support < minSup) {
+                    child.clear();
+                    for (int j = 0; j < c; j++) node.children[j].remove(child.item);
+                } else if (child.witness < 0) {
+                    long[] childTids = depth == 0 ? bits[child.item] : and(tids, child.item);
+                    int witness = leftClosureItem(childTids, depth + 1);
+                    if (witness >= 0) {
+                        child.clear();
+                        child.witness = witness;
+                    } else {
+                        update(child, depth + 1, childTids, t, k + 1, false);
+                    }
+                }
+            }
+            c++;
+        }
+    }
+
+    /**
+     * Nút parent.children[index] (itemset = path[0..depth), TID-set = tids) vừa thành frequent: dựng cây con,
+     * rồi mỗi anh em bên trái L có con được thêm con L ∪ {item} (con mới frequent thì lan tiếp xuống dưới L).
+     */
+    private void becameFrequent(Node parent, int index, int depth, long[] tids) {
+        grow(parent, index, depth, tids);
+
+        Node node = parent.children[index];
+        Node[] lefts = new Node[index];
+        int[] candidates = new int[index];
+        int n = 0;
+        for (int j = 0; j < index; j++) {
+            Node left = parent.children[j];
+            if (left.support < minSup || left.witness >= 0) continue;
+            lefts[n] = left;
+            candidates[n++] = left.item;
+        }
+        // T(P ∪ {l, item}) = T(P ∪ {item}) ∩ T(l)
+        int[] supports = new int[n];
+        long[][] subTids = extend(tids, node.support, candidates, n, supports);
+        int[] positions = new int[n];
+        for (int k = 0; k < n; k++) positions[k] = lefts[k].insert(new Node(node.item, supports[k]));
+        for (int k = 0; k < n; k++) {
+            if (subTids[k] == null) continue;
+            path[depth - 1] = candidates[k];
+            path[depth] = node.item;
+            becameFrequent(lefts[k], positions[k], depth + 1, subTids[k]);
+        }
+        path[depth - 1] = node.item;
+    }
+
+    /**
+     * Dựng lại cây con của nút frequent parent.children[index] (itemset = path[0..depth), TID-set = tids):
+     * closure có item bên trái -> lá unpromising; ngược lại con = ghép với các anh em bên phải frequent.
+     */
+    private void grow(Node parent, int index, int depth, long[] tids) {
+        Node node = parent.children[index];
+        node.clear();
+        node.witness = leftClosureItem(tids, depth);
+        if (node.witness >= 0) return;
+
+        int[] candidates = new int[parent.childCount - index - 1];
+        int n = 0;
+        for (int j = index + 1; j < parent.childCount; j++) {
+            if (parent.children[j].support >= minSup) candidates[n++] = parent.childItems[j];
+        }
+        int[] supports = new int[n];
+        long[][] childTids = extend(tids, node.support, candidates, n, supports);
+        for (int k = 0; k < n; k++) node.insert(new Node(candidates[k], supports[k]));
+        for (int c = 0; c < n; c++) {
+            if (childTids[c] == null) continue;
+            path[depth] = candidates[c];
+            grow(node, c, depth + 1, childTids[c]);
+        }
+    }
+
+    /**
+     * Support của I ∪ {x} (I có TID-set tids, support) cho từng ứng viên candidates[0..n) vào supports;
+     * trả về TID-set tương ứng, chỉ cho ứng viên frequent (còn lại null). tids nhỏ (vùng biên minSup) thì đếm
+     * thẳng trên các giao dịch của tids thay vì giao bitmap với từng ứng viên.
+     */
+    private long[][] extend(long[] tids, int support, int[] candidates, int n, int[] supports) {
+        long[][] result = new long[n][];
+        boolean count = (long) support * path.length < (long) n * words;
+        if (count) countItems(tids, 1);
+        for (int k = 0; k < n; k++) {
+            if (count) {
+                supports[k] = counts[candidates[k]];
+                if (supports[k] >= minSup) result[k] = and(tids, candidates[k]);
+            } else {
+                result[k] = and(tids, candidates[k]);
+                supports[k] = cardinality(result[k]);
+                if (supports[k] < minSup) result[k] = null;
+            }
+        }
+        if (count) countItems(tids, -1);
+        return result;
+    }
+
+    /** counts[x] += delta cho mọi item x của mọi giao dịch trong tids */
+    private void countItems(long[] tids, int delta) {
+        for (int w = 0; w < words; w++) {
+            for (long word = tids[w]; word != 0; word &= word - 1) {
+                for (int x : slots[(w << 6) + Long.numberOfTrailingZeros(word)]) counts[x] += delta;
+            }
+        }
+    }
+
+    /** Duyệt cây, đưa các nút đóng (frequent, promising, không con nào cùng support) vào result */
+    private void collect(Node node, int[] itemset, int depth, PatternStore result) {
+        for (int c = 0; c < node.childCount; c++) {
+            Node child = node.children[c];
+            if (child.support < minSup || child.witness >= 0) continue;
+
+            itemset[depth] = child.item;
+            boolean isClosed = true;
+            for (int j = 0; j < child.childCount && isClosed; j++) {
+                isClosed = child.children[j].support != child.support;
+            }
+            if (isClosed) result.add(Arrays.copyOf(itemset, depth + 1), child.support);
+            collect(child, itemset, depth + 1, result);
+        }
+    }
+
+    /**
+     * Item x nhỏ hơn item cuối của itemset path[0..depth), x ∉ itemset, có trong MỌI giao dịch của tids
+     * (T(I) ⊆ T(x) - closure đi về bên trái); -1 nếu không có. tids không rỗng.
+     * Ứng viên lấy từ 1 giao dịch bất kỳ của tids; x như vậy có support >= |T(I)| nên luôn có bitmap.
+     */
+    private int leftClosureItem(long[] tids, int depth) {
+        int last = path[depth - 1];
+        int word = 0;
+        while (tids[word] == 0) word++;
+        int[] transaction = slots[(word << 6) + Long.numberOfTrailingZeros(tids[word])];
+        for (int i = 0, d = 0; i < transaction.length && transaction[i] < last; i++) {
+            int x = transaction[i];
+            while (path[d] < x) d++;
+            if (path[d] != x && bits[x] != null && isSubset(tids, bits[x])) return x;
+        }
+        return -1;
+    }
+
+    /** T(path[0..depth)), depth >= 1 (mọi item trong path đều frequent) */
+    private long[] tidset(int depth) {
+        long[] result = bits[path[0]].clone();
+        for (int d = 1; d < depth; d++) {
+            long[] other = bits[path[d]];
+            for (int w = 0; w < words; w++) result[w] &= other[w];
+        }
+        return result;
+    }
+
+    /** tids ∩ T(item) (bitmap mới) */
+    private long[] and(long[] tids, int item) {
+        long[] other = bits[item];
+        long[] result = new long[words];
+        for (int w = 0; w < words; w++) result[w] = tids[w] & other[w];
+        return result;
+    }
+
+    private int cardinality(long[] tids) {
+        int count = 0;
+        for (long word : tids) count += Long.bitCount(word);
+        return count;
+    }
+
+    private boolean isSubset(long[] tids, long[] other) {
+        for (int w = 0; w < words; w++) {
+            if ((tids[w] & ~other[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(String[] tokens) {
+        for (String token : tokens) {
+            if (!token.trim().isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /** Nút của cây liệt kê: itemset = item của các nút trên đường đi từ gốc */
+    private static final class Node {
+        final int item;
+        int support;
+        int witness = -1;                         // >= 0: frequent nhưng T(I) ⊆ T(witness) -> lá unpromising
+        Node[] children = NO_CHILDREN;            // theo item tăng dần
+        int[] childItems = NO_ITEMS;              // item của từng con (tìm kiếm không phải đọc từng Node)
+        int childCount;
+
+        Node(int item, int support) {
+            this.item = item;
+            this.support = support;
+        }
+
+        /** Thêm con (thay nút cùng item nếu đã có), trả về vị trí */
+        int insert(Node child) {
+            int position = lowerBound(0, child.item);
+            if (position < childCount && childItems[position] == child.item) {
+                children[position] = child;
+                return position;
+            }
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(4, childCount * 2));
+                childItems = Arrays.copyOf(childItems, children.length);
+            }
+            System.arraycopy(children, position, children, position + 1, childCount - position);
+            System.arraycopy(childItems, position, childItems, position + 1, childCount - position);
+            children[position] = child;
+            childItems[position] = child.item;
+            childCount++;
+            return position;
+        }
+
+        void remove(int item) {
+            int position = lowerBound(0, item);
+            if (position == childCount || childItems[position] != item) return;
+            System.arraycopy(children, position + 1, children, position, childCount - position - 1);
+            System.arraycopy(childItems, position + 1, childItems, position, childCount - position - 1);
+            children[--childCount] = null;
+        }
+
+        /** Bỏ cây con (nút thành lá) */
+        void clear() {
+            children = NO_CHILDREN;
+            childItems = NO_ITEMS;
+            childCount = 0;
+            witness = -1;
+        }
+
+        /** Vị trí đầu tiên >= from có item >= item (childCount nếu không có) */
+        int lowerBound(int from, int item) {
+            int low = from;
+            int high = childCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (childItems[mid] < item) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+
+    /** Hàng đợi FIFO (vòng, kích thước luỹ thừa 2) các ô của cửa sổ chứa 1 item, theo thứ tự đến */
+    private static final class Occurrences {
+        int[] slots = new int[4];
+        int first;
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) resize(slots.length * 2);
+            slots[(first + size) & (slots.length - 1)] = slot;
+            size++;
+        }
+
+        void removeFirst() {
+            first = (first + 1) & (slots.length - 1);
+            size--;
+            if (slots.length > 4 && size <= slots.length / 4) resize(slots.length / 2);
+        }
+
+        int get(int k) {
+            return slots[(first + k) & (slots.length - 1)];
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            for (int k = 0; k < size; k++) result[k] = get(k);
+            return result;
+        }
+
+        long[] toBitmap(int words) {
+            long[] result = new long[words];
+            for (int k = 0; k < size; k++) {
+                int slot = get(k);
+                result[slot >>> 6] |= 1L << slot;
+            }
+            return result;
+        }
+
+        private void resize(int length) {
+            slots = toArray();
+            slots = Arrays.copyOf(slots, length);
+            first = 0;
+        }
+    }
+}
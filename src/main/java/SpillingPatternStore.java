@@ -0,0 +1,372 @@
+import java.io.*;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * SpillingPatternStore
+ * --------------------
+ * Kho mẫu đóng TRÀN RA ĐĨA: nhận mẫu vào 1 PatternStore trong RAM, khi bộ nhớ vượt ngưỡng (tự đặt, hoặc do
+ * ResourceGovernor yêu cầu qua spill()) thì ghi toàn bộ phần trong RAM thành 1 "run" trên file tạm rồi xoá RAM.
+ *
+ * Mỗi run:
+ *  - đã SẮP XẾP theo (độ dài, id item tăng dần theo thứ tự từ điển) -> thứ tự độ dài tăng dần đúng như
+ *    SimilarityChecker cần, và mẫu trùng nằm kề nhau khi trộn
+ *  - NÉN: mỗi mẫu chỉ ghi phần khác mẫu trước (số item chung ở đầu + khoảng cách giữa các id, dạng varint),
+ *    rồi cả file qua Deflater
+ *
+ * Đọc lại bằng cursor(): trộn k-đường (k run + phần còn trong RAM) qua PriorityQueue, bỏ mẫu trùng,
+ * trả từng mẫu một -> duyệt được kết quả lớn hơn heap (lọc similarity, xuất file qua replay(sink)).
+ *
+ * Dùng với try-with-resources: close() xoá các file tạm.
+ */
+class SpillingPatternStore implements ClosedPatternSink, Closeable {
+    private final long spillThreshold;            // byte trong RAM để tự spill (ngoài các lần governor yêu cầu)
+    private final File directory;                 // thư mục file tạm (null = java.io.tmpdir)
+    private PatternStore buffer = new PatternStore();
+    private final List<File> runs = new ArrayList<>();
+    private long received;                        // số mẫu đã nhận (kể cả mẫu trùng)
+    private long diskBytes;                       // tổng kích thước các run (đã nén)
+
+    /**
+     * Spill khi ResourceGovernor yêu cầu (áp lực bộ nhớ mức SPILL) hoặc khi phần trong RAM đạt 1/16 heap tối đa,
+     * file tạm ở java.io.tmpdir. Ngưỡng tự spill cần thiết vì PatternStore nới mảng gấp đôi: lúc nới cần cả mảng
+     * cũ lẫn mới, nên chỉ chờ governor (đo bộ nhớ đang giữ) vẫn có thể hết heap ngay trong 1 lần nới.
+     */
+    public SpillingPatternStore() {
+        this(Runtime.getRuntime().maxMemory() / 16, null);
+    }
+
+    /**
+     * @param spillThreshold phần trong RAM đạt ngưỡng này (byte) thì tự spill ra 1 run
+     * @param directory      thư mục chứa file tạm (null = java.io.tmpdir)
+     */
+    public SpillingPatternStore(long spillThreshold, File directory) {
+        this.spillThreshold = spillThreshold;
+        this.directory = directory;
+    }
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        received++;
+        buffer.add(pattern, support);
+        if (buffer.sizeInBytes() >= spillThreshold) spill();
+    }
+
+    @Override
+    public long retainedBytes() {
+        return buffer.sizeInBytes();
+    }
+
+    /** Ghi phần trong RAM thành 1 run đã sắp xếp + nén; trả về số byte RAM đã nhả */
+    @Override
+    public long spill() {
+        if (buffer.isEmpty()) return 0;
+        try {
+            File file = File.createTempFile("closed-run-", ".bin", directory);
+            file.deleteOnExit();
+            try {
+                writeRun(buffer, file);
+            } catch (IOException | RuntimeException e) {
+                file.delete(); // run ghi dở: không đưa vào runs, xoá luôn thay vì để tới lúc JVM thoát
+                throw e;
+            }
+            runs.add(file);
+            diskBytes += file.length();
+        } catch (IOException e) {
+            // spill() không khai báo IOException -> bọc lại để miner dừng và báo lỗi
+            throw new UncheckedIOException(e);
+        }
+        long freed = buffer.sizeInBytes();
+        buffer = new PatternStore();
+        return freed;
+    }
+
+    /** Số mẫu đã nhận (mẫu trùng giữa các run chỉ bị loại khi trộn trong cursor()) */
+    public long getReceivedCount() {
+        return received;
+    }
+
+    /** Số run đã ghi ra đĩa */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /** Tổng kích thước (byte, đã nén) các run trên đĩa */
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Duyệt toàn bộ mẫu (đã trộn, không trùng) theo (độ dài, thứ tự từ điển của id).
+     * Không được accept()/spill() thêm trong lúc cursor đang mở.
+     */
+    public Cursor cursor() throws IOException {
+        return new Cursor(0);
+    }
+
+    /** Như cursor() nhưng bỏ qua mẫu có support < minSupport (lọc ngay trong lúc trộn, không tạo kho mới) */
+    public Cursor cursor(int minSupport) throws IOException {
+        return new Cursor(minSupport);
+    }
+
+    /** Đẩy toàn bộ mẫu (đã trộn, không trùng) sang sink khác (vd: FilePatternSink, SimilarityFilterSink) */
+    public void replay(ClosedPatternSink sink) throws IOException {
+        try (Cursor cursor = cursor()) {
+            while (cursor.next()) {
+                sink.accept(cursor.pattern(), cursor.support(), cursor.support());
+            }
+        }
+    }
+
+    /** Xoá các file tạm */
+    @Override
+    public void close() {
+        for (File file : runs) file.delete();
+        runs.clear();
+        diskBytes = 0;
+    }
+
+    // ===== Ghi run =====
+
+    private static void writeRun(PatternStore store, File file) throws IOException {
+        int[] order = sortedOrder(store);
+        // Deflater tự tạo (để chọn BEST_SPEED) giữ bộ nhớ native của zlib: stream KHÔNG giải phóng Deflater truyền vào
+        // khi close() -> end() trong finally, sau khi try-with-resources đã đóng stream (kể cả khi ghi lỗi)
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        // Bộ đệm nằm NGOÀI Deflater: varint ghi từng byte, không để mỗi byte đi qua deflate()
+        try (OutputStream out = new BufferedOutputStream(
+                new DeflaterOutputStream(new FileOutputStream(file), deflater, 1 << 16), 1 << 16)) {
+            writeVarint(out, order.length);
+            int prev = -1;
+            for (int index : order) {
+                int len = store.length(index);
+                int shared = 0;
+                if (prev >= 0 && store.length(prev) == len) {
+                    while (shared < len && store.item(prev, shared) == store.item(index, shared)) shared++;
+                }
+                writeVarint(out, len);
+                writeVarint(out, shared);
+                for (int k = shared; k < len; k++) {
+                    // id tăng ngặt -> ghi khoảng cách - 1 (item đầu tiên ghi nguyên giá trị)
+                    int item = store.item(index, k);
+                    writeVarint(out, k == 0 ? item : item - store.item(index, k - 1) - 1);
+                }
+                writeVarint(out, store.support(index));
+                prev = index;
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Chỉ số mẫu của store theo (độ dài, thứ tự từ điển) */
+    private static int[] sortedOrder(PatternStore store) {
+        Integer[] boxed = new Integer[store.size()];
+        for (int i = 0; i < boxed.length; i++) boxed[i] = i;
+        Arrays.sort(boxed, (a, b) -> compare(store, a, b));
+        int[] order = new int[boxed.length];
+        for (int i = 0; i < order.length; i++) order[i] = boxed[i];
+        return order;
+    }
+
+    private static int compare(PatternStore store, int a, int b) {
+        int la = store.length(a), lb = store.length(b);
+        if (la != lb) return Integer.compare(la, lb);
+        for (int k = 0; k < la; k++) {
+            int c = Integer.compare(store.item(a, k), store.item(b, k));
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Run bị cắt ngang");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    // ===== Đọc / trộn =====
+
+    /** 1 nguồn đã sắp xếp của phép trộn: 1 run trên đĩa hoặc phần trong RAM */
+    private abstract static class Source {
+        int[] items = new int[16];
+        int length;
+        int support;
+
+        /** Đọc mẫu kế tiếp vào items/length/support; false nếu hết */
+        abstract boolean advance() throws IOException;
+
+        void close() throws IOException {
+        }
+
+        int compareTo(Source other) {
+            if (length != other.length) return Integer.compare(length, other.length);
+            for (int k = 0; k < length; k++) {
+                if (items[k] != other.items[k]) return Integer.compare(items[k], other.items[k]);
+            }
+            return 0;
+        }
+    }
+
+    private static final class RunSource extends Source {
+        private final Inflater inflater = new Inflater();
+        private final InputStream in;
+        private int remaining;
+
+        RunSource(File file) throws IOException {
+            InputStream stream = null;
+            try {
+                stream = new BufferedInputStream(
+                        new InflaterInputStream(new FileInputStream(file), inflater, 1 << 16), 1 << 16);
+                this.remaining = readVarint(stream);
+            } catch (IOException | RuntimeException e) {
+                // Lỗi mở / đọc đầu run: Cursor không giữ nguồn này nên phải tự trả file + bộ nhớ native của Inflater
+                if (stream != null) stream.close();
+                inflater.end();
+                throw e;
+            }
+            this.in = stream;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            int len = readVarint(in);
+            int shared = readVarint(in); // items[0, shared) giữ nguyên từ mẫu trước
+            if (items.length < len) items = Arrays.copyOf(items, Math.max(len, items.length * 2));
+            for (int k = shared; k < len; k++) {
+                int gap = readVarint(in);
+                items[k] = k == 0 ? gap : items[k - 1] + gap + 1;
+            }
+            length = len;
+            support = readVarint(in);
+            return true;
+        }
+
+        @Override
+        void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static final class MemorySource extends Source {
+        private final PatternStore store;
+        private final int[] order;
+        private int next;
+
+        MemorySource(PatternStore store) {
+            this.store = store;
+            this.order = sortedOrder(store);
+        }
+
+        @Override
+        boolean advance() {
+            if (next == order.length) return false;
+            int index = order[next++];
+            length = store.length(index);
+            if (items.length < length) items = Arrays.copyOf(items, Math.max(length, items.length * 2));
+            store.copyTo(index, items);
+            support = store.support(index);
+            return true;
+        }
+    }
+
+    /**
+     * Cursor trộn k-đường: mỗi next() lấy nguồn có mẫu nhỏ nhất, bỏ qua nếu trùng mẫu vừa trả.
+     * pattern() là bộ đệm tái sử dụng (mỗi độ dài 1 mảng), chỉ hợp lệ đến lần next() kế tiếp.
+     */
+    final class Cursor implements Closeable {
+        private final PriorityQueue<Source> heap = new PriorityQueue<>(Source::compareTo);
+        private final List<Source> sources = new ArrayList<>();
+        private int[][] buffers = new int[16][];
+        private final int minSupport;
+        private int[] current;
+        private int support;
+
+        private Cursor(int minSupport) throws IOException {
+            this.minSupport = minSupport;
+            try {
+                for (File file : runs) sources.add(new RunSource(file));
+                sources.add(new MemorySource(buffer));
+                for (Source source : sources) {
+                    if (source.advance()) heap.add(source);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /** Sang mẫu kế tiếp; false nếu đã hết */
+        public boolean next() throws IOException {
+            while (!heap.isEmpty()) {
+                Source top = heap.poll();
+                // Mẫu trùng luôn cùng support -> bị bỏ cùng lúc với bản gốc nếu dưới ngưỡng
+                boolean skip = top.support < minSupport || (current != null && sameAs(top));
+                if (!skip) {
+                    if (buffers.length <= top.length) buffers = Arrays.copyOf(buffers, top.length * 2);
+                    if (buffers[top.length] == null) buffers[top.length] = new int[top.length];
+                    current = buffers[top.length];
+                    System.arraycopy(top.items, 0, current, 0, top.length);
+                    support = top.support;
+                }
+                if (top.advance()) heap.add(top);
+                if (!skip) return true;
+            }
+            return false;
+        }
+
+        /** Mẫu hiện tại (id tăng dần) - bộ đệm tái sử dụng, copy nếu cần giữ */
+        public int[] pattern() {
+            return current;
+        }
+
+        public int support() {
+            return support;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Đóng MỌI nguồn dù 1 nguồn lỗi (mỗi RunSource giữ 1 Inflater native), báo lỗi đầu tiên
+            IOException failure = null;
+            for (Source source : sources) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            sources.clear();
+            heap.clear();
+            if (failure != null) throw failure;
+        }
+
+        private boolean sameAs(Source source) {
+            if (source.length != current.length) return false;
+            for (int k = 0; k < current.length; k++) {
+                if (source.items[k] != current[k]) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ThresholdSweep
+ * --------------
+ * Kết quả khai thác 1 LẦN ở minSup thấp nhất, dùng để trả lời tập mẫu đóng cho MỌI ngưỡng cao hơn
+ * (xem ClosedPatternMining.mineSweep).
+ *
+ * Cơ sở: tính "đóng" của 1 itemset (không có siêu tập cùng support) không phụ thuộc minSup, nên
+ *     closed(minSup') = { X ∈ closed(minSup) : support(X) >= minSup' }   với mọi minSup' >= minSup
+ * -> quét nhiều ngưỡng chỉ tốn 1 lần khai thác + các lần lọc theo support.
+ *
+ * Bên trong:
+ *  - SpillingPatternStore giữ mẫu + support (tràn ra đĩa khi thiếu RAM), đọc lại đã lọc bằng cursor(minSup)
+ *  - histogram support -> count(minSup) trả lời ngay không cần duyệt mẫu
+ *
+ * Dùng với try-with-resources: close() xoá các run tạm trên đĩa.
+ */
+class ThresholdSweep implements ClosedPatternSink, Closeable {
+    private final int minSup;
+    private final SpillingPatternStore store = new SpillingPatternStore();
+    private int[] supportCounts = new int[64];   // supportCounts[s] = số mẫu có support đúng bằng s
+
+    /** @param minSup ngưỡng thấp nhất đã khai thác (ngưỡng hỏi phải >= giá trị này) */
+    ThresholdSweep(int minSup) {
+        this.minSup = minSup;
+    }
+
+    @Override
+    public void accept(int[] pattern, int support, int tidsetSize) {
+        store.accept(pattern, support, tidsetSize);
+        if (support >= supportCounts.length) {
+            supportCounts = Arrays.copyOf(supportCounts, Math.max(support + 1, supportCounts.length * 2));
+        }
+        supportCounts[support]++;
+    }
+
+    @Override
+    public long retainedBytes() {
+        return store.retainedBytes() + 4L * supportCounts.length;
+    }
+
+    @Override
+    public long spill() {
+        return store.spill();
+    }
+
+    /** Ngưỡng thấp nhất đã khai thác */
+    public int getMinSup() {
+        return minSup;
+    }
+
+    /** Số mẫu đóng ở ngưỡng minSup (>= getMinSup()) */
+    public int count(int minSup) {
+        checkThreshold(minSup);
+        int total = 0;
+        for (int s = minSup; s < supportCounts.length; s++) total += supportCounts[s];
+        return total;
+    }
+
+    /** Duyệt streaming các mẫu đóng ở ngưỡng minSup, theo (độ dài, thứ tự từ điển) - xem SpillingPatternStore */
+    public SpillingPatternStore.Cursor cursor(int minSup) throws IOException {
+        checkThreshold(minSup);
+        return store.cursor(minSup);
+    }
+
+    /** Đẩy các mẫu đóng ở ngưỡng minSup sang sink khác (vd: FilePatternSink) */
+    public void replay(int minSup, ClosedPatternSink sink) throws IOException {
+        try (SpillingPatternStore.Cursor cursor = cursor(minSup)) {
+            while (cursor.next()) {
+                sink.accept(cursor.pattern(), cursor.support(), cursor.support());
+            }
+        }
+    }
+
+    /** Tập mẫu đóng ở ngưỡng minSup, gom vào PatternStore trong RAM */
+    public PatternStore closedAt(int minSup) throws IOException {
+        PatternStore result = new PatternStore();
+        replay(minSup, result);
+        return result;
+    }
+
+    /** Xoá các run tạm trên đĩa */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void checkThreshold(int minSup) {
+        if (minSup < this.minSup) {
+            throw new IllegalArgumentException("minSup " + minSup + " thấp hơn ngưỡng đã khai thác " + this.minSup);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * TidSet
+ * ------
+ * Kiểu chung cho TID-set (tập ID giao dịch chứa 1 itemset). Có 3 cách mã hoá, chọn theo TỪNG NÚT tìm kiếm:
+ *
+ *  - BitTidSet   : bitmap long[]      -> hợp dữ liệu dày (chess, mushrooms), AND + popcount rất nhanh
+ *  - ArrayTidSet : int[] đã sort      -> hợp dữ liệu thưa (retail, kosarak), chỉ tốn 4 byte / TID
+ *  - DiffTidSet  : diffset kiểu dEclat -> T(X) = T(base) \ removed, hợp nhánh sâu trong dữ liệu dày
+ *                  (con giữ lại gần hết TID của cha nên phần bị loại nhỏ hơn nhiều so với phần giữ lại)
+ *
+ * TID-set của item trong vertical DB còn có thể nằm NGOÀI heap (OffHeapBitTidSet / OffHeapArrayTidSet - xem
+ * OffHeapVerticalDB): vẫn là bitmap / mảng, chỉ khác chỗ lưu. Hoặc ở dạng NÉN theo chunk 65536 TID (RoaringTidSet):
+ * mỗi chunk là mảng / bitmap / đoạn liên tiếp tuỳ mật độ của chính chunk đó.
+ *
+ * Phép giao / đếm support / bao hàm làm việc được giữa các kiểu trộn lẫn nhau, nên phần đệ quy DCI-Closed
+ * chỉ cần gọi intersect(), andCardinality(), isSubsetOf() mà không quan tâm TID-set đang ở dạng nào.
+ *
+ * Quy ước: TID-set sau khi tạo xong là BẤT BIẾN -> dùng chung giữa các nhánh đệ quy không cần copy.
+ */
+abstract class TidSet {
+
+    /** TID-set rỗng (dùng chung, bất biến) - vd: filterTo(EMPTY, false, dst) = lấy toàn bộ TID ra mảng */
+    static final TidSet EMPTY = new ArrayTidSet(new int[0], 0);
+
+    /** Số TID trong tập (= support của itemset tương ứng khi mọi giao dịch có trọng số 1) */
+    abstract int cardinality();
+
+    /**
+     * Tổng trọng số các TID trong tập (= support khi mỗi TID là 1 dòng gộp nhiều giao dịch trùng).
+     * @param weights trọng số theo TID (mọi phần tử >= 1)
+     */
+    abstract int weight(int[] weights);
+
+    /** Tổng trọng số của this ∩ other (không tạo TID-set trung gian) */
+    abstract int andWeight(TidSet other, int[] weights);
+
+    /** tid có thuộc tập không */
+    abstract boolean contains(int tid);
+
+    /** |this ∩ other| mà không tạo TID-set trung gian */
+    abstract int andCardinality(TidSet other);
+
+    /**
+     * |this ∩ other| >= threshold ?  (đếm có CẬN, không tạo TID-set trung gian)
+     * Dừng ngay khi đã đủ threshold, hoặc khi số phần tử còn lại không thể đạt threshold nữa.
+     */
+    abstract boolean andCardinalityAtLeast(TidSet other, int threshold);
+
+    /** this ⊆ other ? (dừng ngay ở TID đầu tiên không có trong other) */
+    abstract boolean isSubsetOf(TidSet other);
+
+    /**
+     * isSubsetOf(other) với cursor tái sử dụng để đọc other theo word khi other là RoaringTidSet
+     * (vòng khai thác truyền cursor của bộ đệm độ sâu hiện tại - không tạo cursor mới mỗi lần gọi).
+     * Mặc định bỏ qua cursor; BitTidSet / DiffTidSet dùng nó.
+     */
+    boolean isSubsetOf(TidSet other, RoaringTidSet.WordCursor cursor) {
+        return isSubsetOf(other);
+    }
+
+    /**
+     * Ghi các TID của this (tăng dần) vào dst:
+     *  - keepIfInOther = true  -> chỉ lấy TID CÓ trong other      (this ∩ other)
+     *  - keepIfInOther = false -> chỉ lấy TID KHÔNG có trong other (this \ other)
+     *
+     * @return số TID đã ghi
+     */
+    abstract int filterTo(TidSet other, boolean keepIfInOther, int[] dst);
+
+    /** filterTo(other, keepIfInOther, dst) với cursor tái sử dụng (xem isSubsetOf(TidSet, WordCursor)) */
+    int filterTo(TidSet other, boolean keepIfInOther, int[] dst, RoaringTidSet.WordCursor cursor) {
+        return filterTo(other, keepIfInOther, dst);
+    }
+
+    /** Số byte dữ liệu thực sự giữ (không tính header object) - dùng để chọn cách mã hoá */
+    abstract long sizeInBytes();
+
+    /** Bản sao độc lập (không dùng chung mảng với bộ đệm) - dùng khi cần giữ TID-set lâu hơn bộ đệm */
+    abstract TidSet copy();
+
+    // ======================= CHỌN CÁCH MÃ HOÁ =======================
+
+    /**
+     * Tạo TID-set cho 1 item trong vertical DB từ danh sách TID tăng dần:
+     * bitmap nếu item "dày" (bitmap nhỏ hơn mảng int), ngược lại giữ mảng int[].
+     *
+     * @param tids            TID tăng dần (có thể dài hơn count)
+     * @param count           số TID hợp lệ trong tids
+     * @param numTransactions |DB| (kích thước bitmap)
+     */
+    static TidSet fromSortedTids(int[] tids, int count, int numTransactions) {
+        if (bitmapBytes(numTransactions) < 4L * count) {
+            BitTidSet bits = new BitTidSet(numTransactions);
+            for (int i = 0; i < count; i++) bits.add(tids[i]);
+            return bits;
+        }
+        return new ArrayTidSet(Arrays.copyOf(tids, count), count);
+    }
+
+    /**
+     * T(P ∪ {item}) = T(P) ∩ T(item), chọn cách mã hoá theo mật độ đo được NGAY TẠI NÚT này:
+     *   - bitmap : |DB| / 8 byte
+     *   - mảng   : 4 * |giao| byte
+     *   - diffset: 4 * (|base| - |giao|) byte, base = TID-set đã "vật chất hoá" gần nhất của cha
+     *              (chỉ dùng khi cha đã có base, tức là đang ở nhánh sâu)
+     * Lấy cách nào tốn ít byte nhất.
+     *
+     * Kết quả được GHI ĐÈ vào bộ đệm của độ sâu hiện tại (không cấp phát khi bộ đệm đã đủ lớn).
+     *
+     * @param parent          T(P) (không được nằm trong chính buffer)
+     * @param item            T(item) (luôn là bitmap hoặc mảng - lấy từ vertical DB)
+     * @param numTransactions |DB|
+     * @param buffer          bộ đệm tái sử dụng của độ sâu hiện tại
+     */
+    static TidSet intersect(TidSet parent, TidSet item, int numTransactions, TidSetBuffer buffer) {
+        final int card = parent.andCardinality(item);
+
+        final long bitmapCost = bitmapBytes(numTransactions);
+        final long arrayCost = 4L * card;
+
+        // base của diffset: nếu cha là diffset thì dùng chung base của cha (không tạo chuỗi diffset lồng nhau).
+        // TID-set off-heap / nén của vertical DB không làm base (DiffTidSet chỉ duyệt base bitmap / mảng trên heap).
+        final TidSet base = parent instanceof DiffTidSet ? ((DiffTidSet) parent).base() : parent;
+        final long diffCost = base instanceof BitTidSet || base instanceof ArrayTidSet
+                ? 4L * (base.cardinality() - card) : Long.MAX_VALUE;
+
+        if (diffCost < arrayCost && diffCost < bitmapCost) {
+            DiffTidSet diff = buffer.diff();
+            diff.assign(base, parent, item, base.cardinality() - card, buffer);
+            return diff;
+        }
+
+        if (bitmapCost < arrayCost) {
+            BitTidSet bits = buffer.bits();
+            if (parent instanceof BitTidSet && item instanceof BitTidSet) {
+                bits.assignAnd((BitTidSet) parent, (BitTidSet) item); // AND thẳng từng word
+            } else if (item instanceof OffHeapBitTidSet && isBitmap(parent)) {
+                bits.assignAnd((OffHeapBitTidSet) item, parent);       // AND thẳng với bitmap off-heap
+            } else if (parent instanceof OffHeapBitTidSet && item instanceof BitTidSet) {
+                bits.assignAnd((OffHeapBitTidSet) parent, item);
+            } else if (item instanceof RoaringTidSet && isHeapBitmapOrRoaring(parent)) {
+                bits.assignAnd((RoaringTidSet) item, parent, buffer.cursor(), buffer.otherCursor()); // AND theo chunk với TID-set nén
+            } else if (parent instanceof RoaringTidSet && item instanceof BitTidSet) {
+                bits.assignAnd((RoaringTidSet) parent, item, buffer.cursor(), null);
+            } else {
+                int[] tids = buffer.scratchTids(card);
+                bits.assignTids(tids, parent.filterTo(item, true, tids, buffer.cursor()));
+            }
+            return bits;
+        }
+
+        int[] tids = buffer.arrayTids(card);
+        ArrayTidSet array = buffer.array();
+        array.assign(tids, parent.filterTo(item, true, tids, buffer.cursor()));
+        return array;
+    }
+
+    /** TID-set nằm trong vùng off-heap của OffHeapVerticalDB */
+    static boolean isOffHeap(TidSet tids) {
+        return tids instanceof OffHeapBitTidSet || tids instanceof OffHeapArrayTidSet;
+    }
+
+    /** Bitmap (trên heap hoặc off-heap) */
+    static boolean isBitmap(TidSet tids) {
+        return tids instanceof BitTidSet || tids instanceof OffHeapBitTidSet;
+    }
+
+    private static boolean isHeapBitmapOrRoaring(TidSet tids) {
+        return tids instanceof BitTidSet || tids instanceof RoaringTidSet;
+    }
+
+    static long bitmapBytes(int numTransactions) {
+        return 8L * ((numTransactions + 63) >>> 6);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * TidSetBuffer
+ * ------------
+ * Bộ đệm TÁI SỬ DỤNG cho kết quả giao TID-set tại 1 độ sâu của cây tìm kiếm.
+ *
+ * Mỗi độ sâu giữ sẵn 1 đối tượng cho mỗi cách mã hoá (bitmap / mảng / diffset) cùng các mảng int[] nền.
+ * Kết quả giao ở độ sâu d được ghi đè vào bộ đệm của độ sâu d -> khi cây tìm kiếm đã "ấm" (các mảng
+ * đã đủ lớn) thì việc giao không cấp phát gì thêm. Mỗi lần phải cấp phát / nới mảng đều được đếm
+ * (getAllocations) để kiểm chứng.
+ *
+ * LƯU Ý: TID-set lấy ra từ bộ đệm chỉ hợp lệ đến lần giao kế tiếp ở CÙNG độ sâu - cần giữ lâu hơn
+ * (ví dụ giao cho task song song) thì phải copy() ra.
+ *
+ * Nếu có ResourceGovernor: mỗi lần cấp phát / nới mảng được tính vào bộ nhớ làm việc (charge), chủ bộ đệm
+ * trả lại sizeInBytes() khi bỏ bộ đệm.
+ */
+final class TidSetBuffer {
+    private final int numTransactions;
+    private BitTidSet bits;          // bitmap tái sử dụng (cấp phát lần đầu cần tới)
+    private ArrayTidSet array;       // mảng TID tái sử dụng
+    private DiffTidSet diff;         // diffset tái sử dụng
+    private int[] arrayTids = new int[0];
+    private int[] removedTids = new int[0];
+    private int[] scratchTids = new int[0];
+    private RoaringTidSet.WordCursor cursor;        // đọc RoaringTidSet theo word (reset đầu mỗi lượt)
+    private RoaringTidSet.WordCursor otherCursor;   // cursor thứ 2 khi cả 2 vế đều là Roaring (assignAnd)
+    private long allocations;
+    private final ResourceGovernor governor;   // null = không đo bộ nhớ
+
+    TidSetBuffer(int numTransactions) {
+        this(numTransactions, null);
+    }
+
+    TidSetBuffer(int numTransactions, ResourceGovernor governor) {
+        this.numTransactions = numTransactions;
+        this.governor = governor;
+    }
+
+    /** Số lần đã cấp phát / nới mảng trong bộ đệm này */
+    long getAllocations() {
+        return allocations;
+    }
+
+    /** Bộ nhớ (byte) các mảng nền đang giữ */
+    long sizeInBytes() {
+        long bytes = 4L * (arrayTids.length + removedTids.length + scratchTids.length);
+        return bits == null ? bytes : bytes + TidSet.bitmapBytes(numTransactions);
+    }
+
+    BitTidSet bits() {
+        if (bits == null) {
+            bits = new BitTidSet(numTransactions);
+            allocations++;
+            if (governor != null) governor.charge(TidSet.bitmapBytes(numTransactions));
+        }
+        return bits;
+    }
+
+    ArrayTidSet array() {
+        if (array == null) {
+            array = new ArrayTidSet(arrayTids, 0);
+            allocations++;
+        }
+        return array;
+    }
+
+    DiffTidSet diff() {
+        if (diff == null) {
+            diff = new DiffTidSet();
+            allocations++;
+        }
+        return diff;
+    }
+
+    /** Cursor đọc RoaringTidSet dùng lại giữa các lần giao / lọc ở độ sâu này (nơi nhận gọi reset) */
+    RoaringTidSet.WordCursor cursor() {
+        if (cursor == null) {
+            cursor = new RoaringTidSet.WordCursor();
+            allocations++;
+        }
+        return cursor;
+    }
+
+    RoaringTidSet.WordCursor otherCursor() {
+        if (otherCursor == null) {
+            otherCursor = new RoaringTidSet.WordCursor();
+            allocations++;
+        }
+        return otherCursor;
+    }
+
+    /** Mảng nền cho ArrayTidSet, đủ chỗ cho capacity TID */
+    int[] arrayTids(int capacity) {
+        if (arrayTids.length < capacity) {
+            arrayTids = grow(arrayTids, capacity);
+        }
+        return arrayTids;
+    }
+
+    /** Mảng nền cho phần "removed" của diffset */
+    int[] removedTids(int capacity) {
+        if (removedTids.length < capacity) {
+            removedTids = grow(removedTids, capacity);
+        }
+        return removedTids;
+    }
+
+    /** Mảng nháp (kết quả trung gian, không giữ lại sau khi giao xong) */
+    int[] scratchTids(int capacity) {
+        if (scratchTids.length < capacity) {
+            scratchTids = grow(scratchTids, capacity);
+        }
+        return scratchTids;
+    }
+
+    private int[] grow(int[] old, int capacity) {
+        allocations++;
+        // nới gấp đôi (không quá |DB|) để số lần cấp phát chỉ còn O(log |DB|) cho mỗi bộ đệm;
+        // nội dung cũ không cần giữ vì bộ đệm luôn được ghi lại từ đầu
+        int[] grown = new int[Math.max(capacity, Math.min(old.length * 2, numTransactions))];
+        if (governor != null) governor.charge(4L * (grown.length - old.length));
+        return grown;
+    }
+}
@@ -0,0 +1,319 @@
+import java.util.*;
+
+/**
+ * TransactionDatabase
+ * -------------------
+ * CSDL giao dịch dạng horizontal đã MÃ HOÁ SỐ:
+ *  - dictionary  : item String <-> id int (xem ItemDictionary)
+ *  - transactions: List<int[]>, mỗi giao dịch là mảng id tăng dần, không trùng
+ *
+ * Dùng Builder để đọc file 1 lượt: mỗi token String chỉ bị hash 1 lần lúc đọc,
+ * sau đó đánh lại id theo support và sort từng giao dịch.
+ *
+ * compact(minSup) tạo bản RÚT GỌN cho pha mining: bỏ item không frequent, gộp các giao dịch trùng nhau
+ * (sau khi bỏ item) thành 1 dòng có TRỌNG SỐ = số giao dịch gốc. Support = tổng trọng số các dòng.
+ *
+ * append(...) nối thêm giao dịch mới vào cuối (dữ liệu tăng dần theo ngày) - dùng với
+ * ClosedPatternMining.mineIncremental/update để không phải khai thác lại từ đầu.
+ *
+ * reorder(order, minSup) ĐÁNH SỐ LẠI giao dịch (TID) để các giao dịch giống nhau nằm cạnh nhau -> bitmap TID-set
+ * có các đoạn bit 1 dài (giao nhanh hơn, nén tốt hơn); miner (compact giữ thứ tự) và BitMatrix dùng TID mới.
+ *
+ * CSDL nạp qua VerticalIndex mang theo index (TID-set đã mã hoá, map từ file): miner dùng thẳng thay vì
+ * compact + dựng verticalDB lại; append(...) tách index ra (không còn khớp nội dung).
+ */
+public class TransactionDatabase {
+    private final ItemDictionary dictionary;
+    private final List<int[]> transactions;
+    private final int[] weights;   // trọng số từng dòng; null = mọi dòng có trọng số 1 (CSDL gốc)
+    private VerticalIndex index;   // vertical index khớp đúng nội dung CSDL này; null = không có
+
+    /**
+     * Thứ tự đánh số lại giao dịch (reorder). So sánh giao dịch như 1 chuỗi bit trên các item frequent, bit cao
+     * nhất = item có support lớn nhất (item phổ biến quyết định thứ tự trước -> đoạn bit 1 dài nhất ở item dày):
+     *  - FILE          : giữ thứ tự trong file
+     *  - LEXICOGRAPHIC : chuỗi bit giảm dần (giao dịch chứa item phổ biến nhất đứng trước)
+     *  - GRAY_CODE     : thứ tự mã Gray phản xạ - 2 giao dịch liền kề chỉ khác nhau ít bit, đoạn bit 1 của item
+     *                    thưa hơn cũng liền nhau (lexicographic cắt đoạn của mọi item trừ item đầu)
+     */
+    enum TransactionOrder {
+        FILE("file"),
+        LEXICOGRAPHIC("lexicographic"),
+        GRAY_CODE("gray-code");
+
+        final String label;
+
+        TransactionOrder(String label) {
+            this.label = label;
+        }
+    }
+
+    TransactionDatabase(ItemDictionary dictionary, List<int[]> transactions) {
+        this(dictionary, transactions, null);
+    }
+
+    private TransactionDatabase(ItemDictionary dictionary, List<int[]> transactions, int[] weights) {
+        this.dictionary = dictionary;
+        this.transactions = transactions;
+        this.weights = weights;
+    }
+
+    public ItemDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /** Danh sách giao dịch (mảng id tăng dần) - chỉ đọc */
+    public List<int[]> getTransactions() {
+        return transactions;
+    }
+
+    /** Số giao dịch |DB| */
+    public int size() {
+        return transactions.size();
+    }
+
+    public boolean isEmpty() {
+        return transactions.isEmpty();
+    }
+
+    /** Trọng số của dòng i (số giao dịch gốc mà dòng này đại diện) */
+    public int weight(int i) {
+        return weights == null ? 1 : weights[i];
+    }
+
+    /** Mảng trọng số theo dòng; null nếu mọi dòng có trọng số 1 */
+    public int[] getWeights() {
+        return weights;
+    }
+
+    /** Vertical index dựng từ đúng các giao dịch này (xem VerticalIndex); null nếu không có hoặc đã append */
+    VerticalIndex getVerticalIndex() {
+        return index;
+    }
+
+    void setVerticalIndex(VerticalIndex index) {
+        this.index = index;
+    }
+
+    /** Tổng trọng số = số giao dịch gốc */
+    public int totalWeight() {
+        if (weights == null) return transactions.size();
+        int total = 0;
+        for (int w : weights) total += w;
+        return total;
+    }
+
+    /**
+     * Nối thêm giao dịch (mảng token String, cùng quy tắc với Builder.add) vào cuối CSDL.
+     * Item mới được cấp id tiếp theo trong từ điển; support trong từ điển được cập nhật.
+     *
+     * @return chỉ số giao dịch mới đầu tiên (= size() trước khi nối)
+     */
+    public int append(List<String[]> newTransactions) {
+        if (weights != null) {
+            throw new IllegalStateException("Không nối thêm vào CSDL đã rút gọn (compact)");
+        }
+        final int first = transactions.size();
+        index = null;
+        for (String[] tokens : newTransactions) {
+            int[] ids = encode(tokens, dictionary);
+            if (ids.length == 0) continue;
+            for (int id : ids) dictionary.addSupport(id, 1);
+            transactions.add(ids);
+        }
+        return first;
+    }
+
+    /**
+     * Mã hoá 1 giao dịch token String -> mảng id tăng dần, không trùng (item mới được cấp id trong từ điển,
+     * support KHÔNG được cộng - việc đó do nơi gọi quyết định).
+     */
+    static int[] encode(String[] tokens, ItemDictionary dictionary) {
+        int[] ids = new int[tokens.length];
+        int n = 0;
+        for (String token : tokens) {
+            String item = token.trim();
+            if (!item.isEmpty()) ids[n++] = dictionary.idOrAdd(item);
+        }
+
+        // Sort + loại item trùng trong cùng giao dịch
+        Arrays.sort(ids, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) ids[unique++] = ids[i];
+        }
+        return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * Bản rút gọn cho mining với ngưỡng minSup (CSDL hiện tại không đổi):
+     *  1) Bỏ item có support < minSup khỏi từng giao dịch (không mẫu frequent nào chứa chúng)
+     *  2) Bỏ giao dịch rỗng sau bước 1
+     *  3) Gộp các giao dịch giống hệt nhau thành 1 dòng, trọng số = tổng trọng số (PatternStore.merge)
+     * Dòng giữ thứ tự xuất hiện đầu tiên; từ điển (id, support) giữ nguyên.
+     * Nếu không có dòng nào bị gộp thì trọng số = null (miner dùng đường đếm không trọng số).
+     */
+    public TransactionDatabase compact(int minSup) {
+        PatternStore rows = new PatternStore();
+        int[] buffer = new int[dictionary.size()];
+        for (int i = 0; i < transactions.size(); i++) {
+            int n = 0;
+            for (int item : transactions.get(i)) {
+                if (dictionary.support(item) >= minSup) buffer[n++] = item;
+            }
+            if (n == 0) continue;
+            rows.merge(Arrays.copyOf(buffer, n), weight(i));
+        }
+
+        List<int[]> reduced = new ArrayList<>(rows.size());
+        int[] rowWeights = new int[rows.size()];
+        boolean weighted = false;
+        for (int r = 0; r < rows.size(); r++) {
+            reduced.add(rows.get(r));
+            rowWeights[r] = rows.support(r);
+            if (rowWeights[r] != 1) weighted = true;
+        }
+        return new TransactionDatabase(dictionary, reduced, weighted ? rowWeights : null);
+    }
+
+    /**
+     * Bản ĐÁNH SỐ LẠI giao dịch theo order (CSDL hiện tại không đổi): cùng từ điển, cùng giao dịch / trọng số,
+     * chỉ đổi vị trí. Thứ tự chỉ xét item có support >= minSup (item khác không có trong TID-set nào của miner);
+     * hoà thì giữ thứ tự cũ. FILE -> trả về chính CSDL này.
+     */
+    public TransactionDatabase reorder(TransactionOrder order, int minSup) {
+        if (order == TransactionOrder.FILE || transactions.size() < 2) return this;
+
+        // Hạng của item: 0 = support lớn nhất (bit cao nhất); item không frequent -> -1
+        final int numItems = dictionary.size();
+        Integer[] byDescendingSupport = new Integer[numItems];
+        for (int id = 0; id < numItems; id++) byDescendingSupport[id] = id;
+        Arrays.sort(byDescendingSupport, (a, b) -> dictionary.support(a) != dictionary.support(b)
+                ? Integer.compare(dictionary.support(b), dictionary.support(a))
+                : Integer.compare(b, a));
+        final int[] rank = new int[numItems];
+        for (int r = 0; r < numItems; r++) {
+            int id = byDescendingSupport[r];
+            rank[id] = dictionary.support(id) >= minSup ? r : -1;
+        }
+
+        // Khoá của từng giao dịch: hạng các item frequent, tăng dần (bit cao trước)
+        final int[][] keys = new int[transactions.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            int[] t = transactions.get(i);
+            int[] key = new int[t.length];
+            int n = 0;
+            for (int item : t) {
+                if (rank[item] >= 0) key[n++] = rank[item];
+            }
+            key = n == key.length ? key : Arrays.copyOf(key, n);
+            Arrays.sort(key);
+            keys[i] = key;
+        }
+
+        Integer[] positions = new Integer[keys.length];
+        for (int i = 0; i < positions.length; i++) positions[i] = i;
+        final boolean gray = order == TransactionOrder.GRAY_CODE;
+        Arrays.sort(positions, (a, b) -> compareBits(keys[a], keys[b], gray)); // sort ổn định: hoà giữ thứ tự cũ
+
+        List<int[]> reordered = new ArrayList<>(positions.length);
+        int[] reorderedWeights = weights == null ? null : new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            reordered.add(transactions.get(positions[i]));
+            if (weights != null) reorderedWeights[i] = weights[positions[i]];
+        }
+        return new TransactionDatabase(dictionary, reordered, reorderedWeights);
+    }
+
+    /**
+     * So 2 chuỗi bit cho dưới dạng vị trí bit 1 tăng dần (vị trí nhỏ = bit cao), 1 đứng trước 0.
+     * Gray: ở bit khác nhau đầu tiên, số bit 1 chung phía trước lẻ thì đảo chiều (thứ tự mã Gray phản xạ).
+     */
+    static int compareBits(int[] a, int[] b, boolean gray) {
+        int n = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < n && a[i] == b[i]) i++;
+        if (i == a.length && i == b.length) return 0;
+        // Bit khác nhau đầu tiên ở vị trí min(a[i], b[i]): bên có vị trí nhỏ hơn mang bit 1
+        boolean aHasBit = i < a.length && (i == b.length || a[i] < b[i]);
+        int result = aHasBit ? -1 : 1;
+        return gray && (i & 1) == 1 ? -result : result;
+    }
+
+    /**
+     * Builder: thêm từng giao dịch (mảng token String), build() để có TransactionDatabase.
+     *  1) Gặp item mới -> cấp id tạm theo thứ tự xuất hiện, đếm support
+     *  2) build(): sắp id tạm theo support tăng dần -> id chính thức, đổi id + sort từng giao dịch
+     */
+    public static class Builder {
+        private final Map<String, Integer> tempIds = new HashMap<>();
+        private final List<String> tempItems = new ArrayList<>();
+        private int[] tempSupports = new int[64];
+        private final List<int[]> tempTransactions = new ArrayList<>();
+
+        /**
+         * Thêm 1 giao dịch. Token rỗng bị bỏ qua, item trùng trong cùng giao dịch chỉ tính 1 lần.
+         * Giao dịch không còn item nào sẽ không được thêm.
+         */
+        public void add(String[] tokens) {
+            int[] ids = new int[tokens.length];
+            int n = 0;
+            for (String token : tokens) {
+                String item = token.trim();
+                if (item.isEmpty()) continue;
+                Integer id = tempIds.get(item);
+                if (id == null) {
+                    id = tempItems.size();
+                    tempIds.put(item, id);
+                    tempItems.add(item);
+                }
+                ids[n++] = id;
+            }
+            if (n == 0) return;
+
+            // Loại item trùng trong cùng giao dịch
+            Arrays.sort(ids, 0, n);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                if (unique == 0 || ids[unique - 1] != ids[i]) ids[unique++] = ids[i];
+            }
+
+            for (int i = 0; i < unique; i++) {
+                int id = ids[i];
+                if (id >= tempSupports.length) {
+                    tempSupports = Arrays.copyOf(tempSupports, Math.max(id + 1, tempSupports.length * 2));
+                }
+                tempSupports[id]++;
+            }
+            tempTransactions.add(unique == ids.length ? ids : Arrays.copyOf(ids, unique));
+        }
+
+        public TransactionDatabase build() {
+            final int numItems = tempItems.size();
+
+            // Sắp id tạm theo support tăng dần (hoà -> theo tên item để kết quả ổn định giữa các lần chạy)
+            Integer[] order = new Integer[numItems];
+            for (int i = 0; i < numItems; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> tempSupports[a] != tempSupports[b]
+                    ? Integer.compare(tempSupports[a], tempSupports[b])
+                    : tempItems.get(a).compareTo(tempItems.get(b)));
+
+            String[] items = new String[numItems];
+            int[] supports = new int[numItems];
+            int[] remap = new int[numItems]; // id tạm -> id chính thức
+            for (int newId = 0; newId < numItems; newId++) {
+                int oldId = order[newId];
+                items[newId] = tempItems.get(oldId);
+                supports[newId] = tempSupports[oldId];
+                remap[oldId] = newId;
+            }
+
+            for (int[] t : tempTransactions) {
+                for (int i = 0; i < t.length; i++) t[i] = remap[t[i]];
+                Arrays.sort(t);
+            }
+
+            return new TransactionDatabase(new ItemDictionary(items, supports), tempTransactions);
+        }
+    }
+}
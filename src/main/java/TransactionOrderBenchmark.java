@@ -0,0 +1,89 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * TransactionOrderBenchmark
+ * -------------------------
+ * So các thứ tự đánh số lại giao dịch (TransactionDatabase.TransactionOrder) và thứ tự item ở postset gốc
+ * (ClosedPatternMining.ItemOrder) trên cùng dataset / minSup:
+ *  - Độ liền của TID: tổng số đoạn bit 1 liên tiếp trong TID-set của các item frequent (trên CSDL đã compact).
+ *    Ít đoạn hơn = bitmap gom cụm hơn; "run bytes" = kích thước nếu mã hoá theo đoạn (4 byte / đoạn)
+ *    so với bitmap (numRows / 8 byte / item)
+ *  - Thời gian khai thác mẫu đóng (vòng nhanh nhất) - mọi thứ tự phải cho cùng số mẫu
+ *
+ * Chạy: java TransactionOrderBenchmark [file dataset] [minSup tỉ lệ] [số vòng]
+ *   vd: java TransactionOrderBenchmark mushrooms.txt 0.05 5
+ */
+public class TransactionOrderBenchmark {
+    public static void main(String[] args) throws IOException {
+        final String file = args.length > 0 ? args[0] : "mushrooms.txt";
+        final double minSupRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.05;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        TransactionDatabase.Builder builder = new TransactionDatabase.Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) builder.add(line.trim().split("\\s+"));
+            }
+        }
+        TransactionDatabase database = builder.build();
+        final int minSup = (int) Math.ceil(minSupRatio * database.size());
+        System.out.println("📂 " + file + " | minSup=" + minSup + " | transactions=" + database.size());
+
+        // 1) Độ liền của TID theo từng thứ tự giao dịch
+        for (TransactionDatabase.TransactionOrder order : TransactionDatabase.TransactionOrder.values()) {
+            long start = System.nanoTime();
+            TransactionDatabase rows = database.compact(minSup).reorder(order, minSup);
+            long reorderTime = System.nanoTime() - start;
+            long[] runs = runs(rows, minSup);
+            System.out.printf("🧱 %-13s: %d rows, %d items frequent, %d đoạn bit 1 (%.1f / item), run bytes %d KB"
+                            + " / bitmap %d KB, compact+reorder %.1f ms%n",
+                    order.label, rows.size(), runs[1], runs[0], (double) runs[0] / Math.max(1, runs[1]),
+                    4 * runs[0] / 1024, runs[1] * ((rows.size() + 7) / 8) / 1024, reorderTime / 1e6);
+        }
+
+        // 2) Thời gian khai thác: mọi (thứ tự giao dịch, thứ tự item) - sau vài vòng làm ấm JIT
+        for (int round = 0; round < rounds; round++) {
+            ClosedPatternMining miner = new ClosedPatternMining(minSup);
+            miner.setVerbose(false);
+            miner.mine(database, new CountingPatternSink());
+        }
+        for (TransactionDatabase.TransactionOrder order : TransactionDatabase.TransactionOrder.values()) {
+            for (ClosedPatternMining.ItemOrder itemOrder : ClosedPatternMining.ItemOrder.values()) {
+                long best = Long.MAX_VALUE;
+                int count = 0;
+                for (int round = 0; round < rounds; round++) {
+                    ClosedPatternMining miner = new ClosedPatternMining(minSup);
+                    miner.setVerbose(false);
+                    miner.setTransactionOrder(order);
+                    miner.setItemOrder(itemOrder);
+                    long start = System.nanoTime();
+                    count = miner.mine(database, new CountingPatternSink());
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.printf("⏱️ %-13s | %-12s: %d closed, %.1f ms%n", order.label, itemOrder, count, best / 1e6);
+            }
+        }
+    }
+
+    /** [tổng số đoạn bit 1 liên tiếp, số item frequent] trên các dòng (TID = chỉ số dòng) */
+    private static long[] runs(TransactionDatabase rows, int minSup) {
+        ItemDictionary dictionary = rows.getDictionary();
+        int[] lastTid = new int[dictionary.size()];
+        Arrays.fill(lastTid, -2);
+        long total = 0;
+        List<int[]> transactions = rows.getTransactions();
+        for (int tid = 0; tid < transactions.size(); tid++) {
+            for (int item : transactions.get(tid)) {
+                if (lastTid[item] != tid - 1) total++;
+                lastTid[item] = tid;
+            }
+        }
+        long frequent = 0;
+        for (int item = 0; item < dictionary.size(); item++) {
+            if (dictionary.support(item) >= minSup) frequent++;
+        }
+        return new long[]{total, frequent};
+    }
+}
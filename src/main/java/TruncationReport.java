@@ -0,0 +1,178 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TruncationReport
+ * ----------------
+ * Biên bản của 1 lần khai thác: kết quả có ĐẦY ĐỦ không, và nếu không thì bị cắt ở đâu / vì sao.
+ * Thay cho việc các giới hạn cũ âm thầm đổi kết quả (postset 1000, depth 8/10, 50000 mẫu, OOM).
+ *
+ *  - itemsDropped        : item frequent bị bỏ khỏi postset gốc (setMaxItems)
+ *  - depthPrunedBranches : nhánh không được đào sâu vì vượt setMaxDepth
+ *  - budgetPrunedBranches: nhánh bị cắt vì vượt ngân sách bộ nhớ (ResourceGovernor - mức PRUNE)
+ *  - patternLimitReached : đã chạm setMaxPatterns
+ *  - timedOut            : đã chạm setMaxRuntime
+ *  - cancelled           : bị huỷ qua CancellationToken
+ *  - error               : lỗi bất ngờ (kể cả từ sink) làm dừng lần khai thác
+ * Các mục xuống cấp KHÔNG làm mất mẫu (chỉ để biết governor đã làm gì):
+ *  - inlinedForks        : nhánh lẽ ra fork task song song nhưng chạy tại chỗ vì áp lực bộ nhớ (COMPACT)
+ *  - spills / spilledBytes : số lần sink nhả bộ nhớ và tổng byte đã nhả (SPILL)
+ *
+ * Các bộ đếm an toàn khi nhiều luồng cùng ghi (LongAdder: mỗi luồng cộng vào ô riêng, không tranh 1 biến).
+ */
+class TruncationReport {
+    private final long budgetBytes;
+    private long peakBytes;
+    private int frequentItems;
+    private int itemsDropped;
+    private final LongAdder depthPrunedBranches = new LongAdder();
+    private final LongAdder budgetPrunedBranches = new LongAdder();
+    private final LongAdder inlinedForks = new LongAdder();
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder spilledBytes = new LongAdder();
+    private final AtomicBoolean patternLimitReached = new AtomicBoolean();
+    private final AtomicBoolean timedOut = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile String error;
+
+    TruncationReport(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** true nếu không có mẫu nào bị bỏ sót (chỉ có thể đã xuống cấp COMPACT / SPILL) */
+    public boolean isComplete() {
+        return itemsDropped == 0 && depthPrunedBranches.sum() == 0 && budgetPrunedBranches.sum() == 0
+                && !patternLimitReached.get() && !timedOut.get() && !cancelled.get() && error == null;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getPeakBytes() {
+        return peakBytes;
+    }
+
+    public int getFrequentItems() {
+        return frequentItems;
+    }
+
+    public int getItemsDropped() {
+        return itemsDropped;
+    }
+
+    public long getDepthPrunedBranches() {
+        return depthPrunedBranches.sum();
+    }
+
+    public long getBudgetPrunedBranches() {
+        return budgetPrunedBranches.sum();
+    }
+
+    public long getInlinedForks() {
+        return inlinedForks.sum();
+    }
+
+    public long getSpills() {
+        return spills.sum();
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes.sum();
+    }
+
+    public boolean isPatternLimitReached() {
+        return patternLimitReached.get();
+    }
+
+    public boolean isTimedOut() {
+        return timedOut.get();
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /** Thông báo lỗi đã làm dừng lần khai thác; null nếu không có */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Số lần cắt làm MẤT mẫu trong lúc duyệt (ngân sách bộ nhớ, maxPatterns, timeout, huỷ, lỗi) - không tính maxDepth
+     * (cắt theo cấu hình, lần chạy nào cũng như nhau). Tăng giữa 2 thời điểm = nhánh duyệt giữa 2 lúc đó bị dở.
+     */
+    long cutCount() {
+        return budgetPrunedBranches.sum() + (patternLimitReached.get() ? 1 : 0) + (timedOut.get() ? 1 : 0)
+                + (cancelled.get() ? 1 : 0) + (error != null ? 1 : 0);
+    }
+
+    // ===== Ghi nhận (miner gọi) =====
+
+    void setItems(int frequentItems, int itemsDropped) {
+        this.frequentItems = frequentItems;
+        this.itemsDropped = itemsDropped;
+    }
+
+    void setPeakBytes(long peakBytes) {
+        this.peakBytes = peakBytes;
+    }
+
+    void depthPruned() {
+        depthPrunedBranches.increment();
+    }
+
+    void budgetPruned() {
+        budgetPrunedBranches.increment();
+    }
+
+    void forkInlined() {
+        inlinedForks.increment();
+    }
+
+    void spilled(long bytes) {
+        spills.increment();
+        spilledBytes.add(bytes);
+    }
+
+    void patternLimitReached() {
+        patternLimitReached.set(true);
+    }
+
+    void timedOut() {
+        timedOut.set(true);
+    }
+
+    void cancelled() {
+        cancelled.set(true);
+    }
+
+    void error(String message) {
+        error = message;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(isComplete() ? "đầy đủ" : "BỊ CẮT");
+        if (itemsDropped > 0) sb.append(" | bỏ ").append(itemsDropped).append('/').append(frequentItems).append(" item");
+        if (depthPrunedBranches.sum() > 0) sb.append(" | ").append(depthPrunedBranches.sum()).append(" nhánh quá maxDepth");
+        if (budgetPrunedBranches.sum() > 0) {
+            sb.append(" | ").append(budgetPrunedBranches.sum()).append(" nhánh cắt vì vượt ngân sách bộ nhớ");
+        }
+        if (patternLimitReached.get()) sb.append(" | chạm maxPatterns");
+        if (timedOut.get()) sb.append(" | timeout");
+        if (cancelled.get()) sb.append(" | đã huỷ");
+        if (error != null) sb.append(" | lỗi: ").append(error);
+        if (inlinedForks.sum() > 0) sb.append(" | ").append(inlinedForks.sum()).append(" fork chạy tại chỗ");
+        if (spills.sum() > 0) {
+            sb.append(" | spill ").append(spills.sum()).append(" lần (").append(megabytes(spilledBytes.sum())).append(')');
+        }
+        sb.append(" | bộ nhớ đỉnh ").append(megabytes(peakBytes));
+        if (budgetBytes != Long.MAX_VALUE) sb.append(" / ngân sách ").append(megabytes(budgetBytes));
+        return sb.toString();
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.2f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,137 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorBitKernels
+ * ----------------
+ * BitKernels bằng Java Vector API (jdk.incubator.vector), mỗi lệnh xử lý SPECIES.length() word
+ * (AVX2: 4, AVX-512: 8).
+ *
+ * JDK 17 chưa có phép popcount theo lane (VectorOperators.BIT_COUNT có từ JDK 19) nên popcount dùng SWAR
+ * trên cả vector: đếm bit trong từng byte (3 bước shift/and/add), cộng dồn các byte tối đa 31 vòng
+ * (31 * 8 = 248 < 256, không tràn byte), rồi mới gộp byte -> 16 bit -> reduceLanes.
+ *
+ * KHÔNG build mặc định (cần --add-modules jdk.incubator.vector lúc biên dịch): mvn -Pvector compile.
+ * Chạy: java --add-modules jdk.incubator.vector ... (BitKernels tự chọn, thiếu module thì về scalar)
+ */
+final class VectorBitKernels extends BitKernels {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int MAX_BYTE_ROUNDS = 31;
+
+    private static final long M1 = 0x5555555555555555L;
+    private static final long M2 = 0x3333333333333333L;
+    private static final long M4 = 0x0f0f0f0f0f0f0f0fL;
+    private static final long M8 = 0x00ff00ff00ff00ffL;
+
+    /** Số bit 1 trong từng byte của mỗi lane (0..8) */
+    private static LongVector byteCounts(LongVector v) {
+        LongVector x = v.sub(v.lanewise(VectorOperators.LSHR, 1).and(M1));
+        x = x.and(M2).add(x.lanewise(VectorOperators.LSHR, 2).and(M2));
+        return x.add(x.lanewise(VectorOperators.LSHR, 4)).and(M4);
+    }
+
+    /** Tổng các byte của mọi lane (mỗi byte <= 248) */
+    private static int sumBytes(LongVector acc) {
+        LongVector y = acc.and(M8).add(acc.lanewise(VectorOperators.LSHR, 8).and(M8));
+        long r = y.reduceLanes(VectorOperators.ADD);
+        return (int) ((r * 0x0001000100010001L) >>> 48);
+    }
+
+    @Override
+    int and(long[] a, long[] b, long[] dst, int n) {
+        int upper = SPECIES.loopBound(n);
+        int count = 0;
+        int w = 0;
+        while (w < upper) {
+            LongVector acc = LongVector.zero(SPECIES);
+            for (int round = 0; round < MAX_BYTE_ROUNDS && w < upper; round++, w += LANES) {
+                LongVector v = LongVector.fromArray(SPECIES, a, w).and(LongVector.fromArray(SPECIES, b, w));
+                v.intoArray(dst, w);
+                acc = acc.add(byteCounts(v));
+            }
+            count += sumBytes(acc);
+        }
+        for (; w < n; w++) {
+            long v = a[w] & b[w];
+            dst[w] = v;
+            count += Long.bitCount(v);
+        }
+        return count;
+    }
+
+    @Override
+    int andCount(long[] a, long[] b, int n) {
+        int upper = SPECIES.loopBound(n);
+        int count = 0;
+        int w = 0;
+        while (w < upper) {
+            LongVector acc = LongVector.zero(SPECIES);
+            for (int round = 0; round < MAX_BYTE_ROUNDS && w < upper; round++, w += LANES) {
+                LongVector v = LongVector.fromArray(SPECIES, a, w).and(LongVector.fromArray(SPECIES, b, w));
+                acc = acc.add(byteCounts(v));
+            }
+            count += sumBytes(acc);
+        }
+        for (; w < n; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Như bản scalar nhưng khối = 4 vector (32 word với AVX-512): mỗi lần kiểm tra cận tốn 2 lần reduceLanes,
+     * khối 8 word như bản scalar thì phần gộp lấn hết lợi ích của SIMD.
+     */
+    @Override
+    boolean andCountAtLeast(long[] a, long[] b, int n, int cardA, int threshold) {
+        int block = 4 * LANES;
+        int upper = n - n % block;
+        int count = 0;
+        int remaining = cardA;
+        int w = 0;
+        for (; w < upper; ) {
+            LongVector common = LongVector.zero(SPECIES);
+            LongVector seen = LongVector.zero(SPECIES);
+            for (int end = w + block; w < end; w += LANES) {
+                LongVector av = LongVector.fromArray(SPECIES, a, w);
+                common = common.add(byteCounts(av.and(LongVector.fromArray(SPECIES, b, w))));
+                seen = seen.add(byteCounts(av));
+            }
+            count += sumBytes(common);
+            if (count >= threshold) return true;
+            remaining -= sumBytes(seen);
+            if (count + remaining < threshold) return false;
+        }
+        for (; w < n; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count >= threshold;
+    }
+
+    @Override
+    boolean containedIn(long[] a, long[] b, int n) {
+        int upper = SPECIES.loopBound(n);
+        int w = 0;
+        for (; w < upper; w += LANES) {
+            LongVector missing = LongVector.fromArray(SPECIES, a, w)
+                    .lanewise(VectorOperators.AND_NOT, LongVector.fromArray(SPECIES, b, w));
+            if (missing.compare(VectorOperators.NE, 0L).anyTrue()) return false;
+        }
+        for (; w < n; w++) {
+            if ((a[w] & ~b[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    int lanes() {
+        return LANES;
+    }
+
+    @Override
+    String name() {
+        return "vector(" + LANES + "x64)";
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * VerticalIndex
+ * -------------
+ * File chỉ mục vertical NHỊ PHÂN cạnh file dataset text (dataset.txt -> dataset.txt.vidx) để khởi động lại
+ * không phải đọc/tách text, mã hoá id, compact và dựng lại verticalDB ở mỗi lần chạy.
+ *
+ * Bố cục file (phiên bản 2; header dạng DataOutputStream big-endian):
+ *  - MAGIC "DCIVIDX\n", VERSION, dataOffset
+ *  - Nguồn: độ dài, thời điểm sửa, SHA-256 nội dung file text
+ *  - Thứ tự giao dịch (TransactionOrder) đã đánh số lại trước khi ghi - TID trong index theo thứ tự này
+ *  - numItems, numRows, tổng số giao dịch, có trọng số không
+ *  - Từ điển: theo id - tên item (UTF), support, số dòng chứa item
+ *  - Trọng số từng dòng (nếu có)
+ *  - Từ dataOffset (căn trang 4KB): vùng TID-set của OffHeapVerticalDB (little-endian) trên CSDL compact(1) -
+ *    bố cục dựng lại được chỉ từ số dòng chứa từng item, nên lúc mở chỉ cần map, không đọc nội dung
+ *
+ * load(...):
+ *  - Index khớp nguồn (cùng độ dài + thời điểm sửa; khác thời điểm thì so SHA-256) -> map CHỈ-ĐỌC, dựng lại
+ *    TransactionDatabase bằng cách chuyển vị TID-set (không đụng tới file text)
+ *  - Không có / hỏng / khác phiên bản / nguồn hoặc thứ tự giao dịch đã đổi -> đọc text (parser), đánh số lại
+ *    giao dịch, ghi index vào file tạm rồi đổi tên (không bao giờ để lại index ghi dở)
+ * CSDL trả về mang theo index: ClosedPatternMining dùng thẳng TID-set đã map cho mọi lần mine (mọi minSup),
+ * thay vì compact + dựng verticalDB lại (dòng compact(1) mịn hơn compact(minSup) nhưng cho cùng mẫu đóng + support).
+ *
+ * Tắt bằng -Dvertical.index=off (luôn đọc text).
+ */
+final class VerticalIndex {
+    static final long MAGIC = 0x444349564944580AL;        // "DCIVIDX\n"
+    static final int VERSION = 2;
+    static final String SUFFIX = ".vidx";
+    static final boolean ENABLED = !"off".equalsIgnoreCase(System.getProperty("vertical.index", "on"));
+    private static final int PAGE = 4096;
+    private static final int MODIFIED_OFFSET = 8 + 4 + 8 + 8;  // vị trí "thời điểm sửa nguồn" trong header
+    private static final int HASH_BYTES = 32;
+
+    private final File file;
+    private final String[] items;
+    private final int[] supports;
+    private final int[] weights;                          // trọng số từng dòng; null = mọi dòng trọng số 1
+    private final int totalTransactions;
+    private final OffHeapVerticalDB vertical;
+
+    private VerticalIndex(File file, String[] items, int[] supports, int[] weights, int totalTransactions,
+                          OffHeapVerticalDB vertical) {
+        this.file = file;
+        this.items = items;
+        this.supports = supports;
+        this.weights = weights;
+        this.totalTransactions = totalTransactions;
+        this.vertical = vertical;
+    }
+
+    /** File index mặc định của dataset: cạnh file text, thêm đuôi .vidx */
+    static File fileFor(File source) {
+        return new File(source.getPath() + SUFFIX);
+    }
+
+    /**
+     * Nạp CSDL của source qua index (xem đầu lớp); CSDL trả về có getVerticalIndex() != null.
+     * Lỗi ghi/đọc index không làm hỏng lần chạy: in cảnh báo rồi trả về CSDL đọc từ text (không có index).
+     *
+     * @param parser  đọc file text (dùng khi index không dùng được) - cùng quy tắc tách token của nơi gọi
+     * @param order   thứ tự đánh số lại giao dịch (TransactionDatabase.reorder trên mọi item) trước khi ghi index
+     * @param verbose in log nạp / dựng index
+     */
+    static TransactionDatabase load(File source, Supplier<TransactionDatabase> parser,
+                                    TransactionDatabase.TransactionOrder order, boolean verbose) {
+        if (!ENABLED || !source.isFile()) {
+            return parser.get().reorder(order, 1); // không có file: để parser báo lỗi như cũ
+        }
+        final File indexFile = fileFor(source);
+        try {
+            if (indexFile.isFile()) {
+                long start = System.currentTimeMillis();
+                VerticalIndex index = openIfCurrent(source, indexFile, order);
+                if (index != null) {
+                    TransactionDatabase database = index.toDatabase();
+                    if (verbose) {
+                        System.out.println("⚡ Vertical index " + indexFile.getName() + ": " + index.items.length
+                                + " items, " + index.vertical.numRows() + " rows ("
+                                + (System.currentTimeMillis() - start) + " ms)");
+                    }
+                    return database;
+                }
+                if (verbose) {
+                    System.out.println("♻️ Nguồn / thứ tự giao dịch đã đổi -> dựng lại " + indexFile.getName());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Không mở được " + indexFile + " (" + e.getMessage() + ") -> dựng lại");
+        }
+
+        final TransactionDatabase database = parser.get().reorder(order, 1);
+        if (database.isEmpty()) return database;
+        try {
+            long start = System.currentTimeMillis();
+            database.setVerticalIndex(write(source, indexFile, database, order));
+            if (verbose) {
+                System.out.println("💾 Đã ghi vertical index " + indexFile.getName() + " (" + indexFile.length() / 1024
+                        + " KB, " + (System.currentTimeMillis() - start) + " ms)");
+            }
+        } catch (IOException | OutOfMemoryError e) {
+            System.err.println("⚠️ Không ghi được " + indexFile + " (" + e.getMessage() + ") -> dùng CSDL text");
+        }
+        return database;
+    }
+
+    /**
+     * Mở index nếu còn khớp nguồn và thứ tự giao dịch; null nếu một trong hai đã đổi.
+     * Cùng độ dài nhưng khác thời điểm sửa (vd: touch, copy lại) -> so SHA-256; trùng thì cập nhật thời điểm
+     * trong header để lần sau khỏi băm lại.
+     */
+    private static VerticalIndex openIfCurrent(File source, File indexFile, TransactionDatabase.TransactionOrder order)
+            throws IOException {
+        final long length = source.length();
+        final long modified = source.lastModified();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readLong() != MAGIC) throw new IOException("không phải file vertical index");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("phiên bản " + version + " != " + VERSION);
+            long dataOffset = in.readLong();
+            long sourceLength = in.readLong();
+            long sourceModified = in.readLong();
+            byte[] hash = new byte[HASH_BYTES];
+            in.readFully(hash);
+            String indexedOrder = in.readUTF();
+            if (sourceLength != length || !indexedOrder.equals(order.name())) return null;
+            if (sourceModified != modified) {
+                if (!Arrays.equals(hash, hash(source))) return null;
+                try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+                    raf.seek(MODIFIED_OFFSET);
+                    raf.writeLong(modified);
+                }
+            }
+            return read(indexFile, in, dataOffset);
+        }
+    }
+
+    /** Đọc phần header sau thứ tự giao dịch rồi map vùng TID-set */
+    private static VerticalIndex read(File indexFile, DataInputStream in, long dataOffset) throws IOException {
+        final int numItems = in.readInt();
+        final int numRows = in.readInt();
+        final int totalTransactions = in.readInt();
+        final boolean weighted = in.readBoolean();
+        final String[] items = new String[numItems];
+        final int[] supports = new int[numItems];
+        final int[] counts = new int[numItems];
+        for (int id = 0; id < numItems; id++) {
+            items[id] = in.readUTF();
+            supports[id] = in.readInt();
+            counts[id] = in.readInt();
+        }
+        int[] weights = null;
+        if (weighted) {
+            weights = new int[numRows];
+            for (int r = 0; r < numRows; r++) weights[r] = in.readInt();
+        }
+        OffHeapVerticalDB vertical = OffHeapVerticalDB.map(indexFile, dataOffset, counts, numRows);
+        return new VerticalIndex(indexFile, items, supports, weights, totalTransactions, vertical);
+    }
+
+    /**
+     * Ghi index của database (đọc từ source, đã đánh số lại theo order): header vào file tạm, vùng TID-set dựng thẳng vào file qua
+     * OffHeapVerticalDB.build, force() xuống đĩa rồi đổi tên đè lên index cũ; sau đó mở lại chỉ-đọc.
+     */
+    static VerticalIndex write(File source, File indexFile, TransactionDatabase database,
+                               TransactionDatabase.TransactionOrder order) throws IOException {
+        final long length = source.length();
+        final long modified = source.lastModified();
+        final byte[] hash = hash(source);
+
+        final TransactionDatabase rows = database.compact(1);
+        final List<int[]> transactions = rows.getTransactions();
+        final ItemDictionary dictionary = rows.getDictionary();
+        final int numItems = dictionary.size();
+        final int[] counts = new int[numItems];
+        for (int[] row : transactions) {
+            for (int item : row) counts[item]++;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeUTF(order.name());
+            out.writeInt(numItems);
+            out.writeInt(transactions.size());
+            out.writeInt(database.totalWeight());
+            out.writeBoolean(rows.getWeights() != null);
+            for (int id = 0; id < numItems; id++) {
+                out.writeUTF(dictionary.item(id));
+                out.writeInt(dictionary.support(id));
+                out.writeInt(counts[id]);
+            }
+            if (rows.getWeights() != null) {
+                for (int weight : rows.getWeights()) out.writeInt(weight);
+            }
+        }
+        final int fixedBytes = MODIFIED_OFFSET + 8 + HASH_BYTES;
+        final long dataOffset = (fixedBytes + body.size() + PAGE - 1) / PAGE * PAGE;
+
+        final File temp = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(dataOffset);
+                out.writeLong(length);
+                out.writeLong(modified);
+                out.write(hash);
+                body.writeTo(out);
+            }
+            OffHeapVerticalDB.build(transactions, numItems, temp, dataOffset, false, () -> false);
+            try {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (temp.exists() && !temp.delete()) temp.deleteOnExit();
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            in.skipBytes(fixedBytes);
+            in.readUTF(); // thứ tự giao dịch
+            return read(indexFile, in, dataOffset);
+        }
+    }
+
+    /** SHA-256 nội dung file */
+    static byte[] hash(File source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // JDK nào cũng phải có SHA-256
+        }
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(source)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Dựng lại CSDL (đã mã hoá id, cùng từ điển) từ TID-set đã map: mỗi dòng compact lặp lại đúng trọng số
+     * của nó (các bản lặp dùng chung 1 mảng) -> size() = số giao dịch gốc, chỉ khác thứ tự giao dịch.
+     */
+    TransactionDatabase toDatabase() {
+        int[][] rows = vertical.toRows();
+        List<int[]> transactions = new ArrayList<>(totalTransactions);
+        for (int r = 0; r < rows.length; r++) {
+            for (int k = weights == null ? 1 : weights[r]; k > 0; k--) transactions.add(rows[r]);
+        }
+        TransactionDatabase database = new TransactionDatabase(
+                new ItemDictionary(items.clone(), supports.clone()), transactions);
+        database.setVerticalIndex(this);
+        return database;
+    }
+
+    /** TID-set chỉ-đọc theo id item, TID = dòng của CSDL compact(1) (dùng chung được giữa các luồng) */
+    TidSet[] tidsets() {
+        return vertical.tidsets();
+    }
+
+    /** Trọng số từng dòng; null = mọi dòng trọng số 1 */
+    int[] rowWeights() {
+        return weights;
+    }
+
+    int numRows() {
+        return vertical.numRows();
+    }
+
+    /** Vùng TID-set đã map (kích thước, phần thư mục trên heap) */
+    OffHeapVerticalDB vertical() {
+        return vertical;
+    }
+
+    File file() {
+        return file;
+    }
+}